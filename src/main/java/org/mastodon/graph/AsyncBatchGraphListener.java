@@ -0,0 +1,397 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A {@link BatchGraphListener} that forwards events to another
+ * {@link BatchGraphListener} on a background thread, so that expensive
+ * listeners do not run on the thread editing the graph.
+ * <p>
+ * Events are put into a bounded ring buffer and delivered in order by a
+ * single consumer thread. The ring buffer stores the id arrays of each event
+ * in preallocated slots, so sending an event does not allocate. If the ring
+ * buffer is full, the editing thread waits until there is room. Callers that
+ * need the listener to be up to date, for example before querying an index
+ * maintained by the listener, call {@link #flush()} to wait until all events
+ * sent so far have been delivered.
+ * <p>
+ * Events carry only ids, so by the time an event is delivered, vertices and
+ * edges may have been removed or their ids reused by later changes. The id
+ * arrays passed to {@link #batchCompleted} are shared with other listeners
+ * of the graph and must not be modified.
+ * <p>
+ * Events must be sent from a single thread, usually by registering this
+ * listener with
+ * {@link org.mastodon.graph.ref.ListenableGraphImp#addBatchGraphListener(BatchGraphListener)}.
+ * <p>
+ * The consumer thread runs until {@link #close()} is called. If the consumer
+ * thread is interrupted, it stops without delivering the pending events, and
+ * {@link #flush()} and sending further events throw an
+ * {@link IllegalStateException}. The consumer thread only keeps a
+ * {@link WeakReference} to this listener, and also stops when it has no
+ * pending events and this listener was garbage-collected.
+ */
+public class AsyncBatchGraphListener implements BatchGraphListener, AutoCloseable
+{
+	private static final byte BATCH = 0;
+
+	private static final byte GRAPH_REBUILT = 1;
+
+	private static final byte CLOSE = 2;
+
+	/**
+	 * How many milliseconds the idle consumer thread waits before checking
+	 * whether the {@link AsyncBatchGraphListener} was garbage-collected.
+	 */
+	private static final long IDLE_TIMEOUT = 1000;
+
+	/**
+	 * The ring buffer of pending events, shared by the sending thread and the
+	 * consumer thread. All fields are guarded by the {@code Ring} instance.
+	 */
+	private static final class Ring
+	{
+		final byte[] types;
+
+		final int[][] addedVertices;
+
+		final int[][] removedVertices;
+
+		final int[][] addedEdges;
+
+		final int[][] removedEdges;
+
+		/**
+		 * Slot of the next event to deliver.
+		 */
+		int head = 0;
+
+		/**
+		 * Number of pending events.
+		 */
+		int size = 0;
+
+		/**
+		 * Number of events put into the ring buffer.
+		 */
+		long numSent = 0;
+
+		/**
+		 * Number of events delivered to the listener.
+		 */
+		long numDelivered = 0;
+
+		/**
+		 * The first exception thrown by the listener since the last
+		 * {@link #flush()}.
+		 */
+		RuntimeException failure = null;
+
+		/**
+		 * Whether the consumer thread has stopped.
+		 */
+		boolean terminated = false;
+
+		Ring( final int capacity )
+		{
+			types = new byte[ capacity ];
+			addedVertices = new int[ capacity ][];
+			removedVertices = new int[ capacity ][];
+			addedEdges = new int[ capacity ][];
+			removedEdges = new int[ capacity ][];
+		}
+	}
+
+	/**
+	 * Delivers the events of a {@link Ring}. Does not reference the
+	 * {@link AsyncBatchGraphListener}, such that it can be garbage-collected
+	 * while the consumer thread runs.
+	 */
+	private static final class Consumer implements Runnable
+	{
+		private final Ring ring;
+
+		private final BatchGraphListener listener;
+
+		private final WeakReference< AsyncBatchGraphListener > owner;
+
+		Consumer( final Ring ring, final BatchGraphListener listener, final AsyncBatchGraphListener owner )
+		{
+			this.ring = ring;
+			this.listener = listener;
+			this.owner = new WeakReference<>( owner );
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				consume();
+			}
+			catch ( final InterruptedException e )
+			{
+				// stop without delivering the pending events
+			}
+			finally
+			{
+				synchronized ( ring )
+				{
+					ring.terminated = true;
+					ring.notifyAll();
+				}
+			}
+		}
+
+		private void consume() throws InterruptedException
+		{
+			final int capacity = ring.types.length;
+			while ( true )
+			{
+				final byte type;
+				final int[] av;
+				final int[] rv;
+				final int[] ae;
+				final int[] re;
+				synchronized ( ring )
+				{
+					while ( ring.size == 0 )
+					{
+						if ( owner.get() == null )
+							return;
+						ring.wait( IDLE_TIMEOUT );
+					}
+					final int slot = ring.head;
+					type = ring.types[ slot ];
+					av = ring.addedVertices[ slot ];
+					rv = ring.removedVertices[ slot ];
+					ae = ring.addedEdges[ slot ];
+					re = ring.removedEdges[ slot ];
+					ring.addedVertices[ slot ] = null;
+					ring.removedVertices[ slot ] = null;
+					ring.addedEdges[ slot ] = null;
+					ring.removedEdges[ slot ] = null;
+					ring.head = ( slot + 1 ) % capacity;
+					--ring.size;
+					ring.notifyAll();
+				}
+
+				RuntimeException exception = null;
+				try
+				{
+					if ( type == GRAPH_REBUILT )
+						listener.graphRebuilt();
+					else if ( type == BATCH )
+						listener.batchCompleted( av, rv, ae, re );
+				}
+				catch ( final RuntimeException e )
+				{
+					exception = e;
+				}
+
+				synchronized ( ring )
+				{
+					++ring.numDelivered;
+					if ( ring.failure == null )
+						ring.failure = exception;
+					ring.notifyAll();
+				}
+
+				if ( type == CLOSE )
+					return;
+			}
+		}
+	}
+
+	private final Ring ring;
+
+	private final Thread consumer;
+
+	/**
+	 * Only modified by the thread sending events.
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * Creates a new asynchronous listener and starts its consumer thread.
+	 *
+	 * @param listener
+	 *            the listener to deliver events to.
+	 * @param capacity
+	 *            the maximum number of pending events.
+	 * @param name
+	 *            the name of the consumer thread.
+	 */
+	public AsyncBatchGraphListener( final BatchGraphListener listener, final int capacity, final String name )
+	{
+		if ( capacity < 1 )
+			throw new IllegalArgumentException( "Capacity must be positive." );
+		ring = new Ring( capacity );
+		consumer = new Thread( new Consumer( ring, listener, this ), name );
+		consumer.setDaemon( true );
+		consumer.start();
+	}
+
+	/**
+	 * Creates a new asynchronous listener with a capacity of 1024 pending
+	 * events and starts its consumer thread.
+	 *
+	 * @param listener
+	 *            the listener to deliver events to.
+	 */
+	public AsyncBatchGraphListener( final BatchGraphListener listener )
+	{
+		this( listener, 1024, "AsyncBatchGraphListener" );
+	}
+
+	@Override
+	public void graphRebuilt()
+	{
+		send( GRAPH_REBUILT, null, null, null, null );
+	}
+
+	@Override
+	public void batchCompleted( final int[] addedVertices, final int[] removedVertices, final int[] addedEdges, final int[] removedEdges )
+	{
+		send( BATCH, addedVertices, removedVertices, addedEdges, removedEdges );
+	}
+
+	/**
+	 * Waits until all events sent before this call have been delivered.
+	 *
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting.
+	 * @throws IllegalStateException
+	 *             if the listener threw an exception while delivering events
+	 *             since the last flush (the exception is the cause), or if the
+	 *             consumer thread stopped before delivering all events.
+	 */
+	public void flush() throws InterruptedException
+	{
+		synchronized ( ring )
+		{
+			final long target = ring.numSent;
+			while ( ring.numDelivered < target && !ring.terminated )
+				ring.wait();
+			if ( ring.failure != null )
+			{
+				final RuntimeException e = ring.failure;
+				ring.failure = null;
+				throw new IllegalStateException( "Listener failed to process graph events.", e );
+			}
+			if ( ring.numDelivered < target )
+				throw new IllegalStateException( "AsyncBatchGraphListener consumer thread has stopped." );
+		}
+	}
+
+	/**
+	 * Delivers all pending events, and then stops the consumer thread. Events
+	 * sent after closing cause an {@link IllegalStateException}.
+	 *
+	 * @throws InterruptedException
+	 *             if the current thread is interrupted while waiting.
+	 */
+	@Override
+	public void close() throws InterruptedException
+	{
+		if ( closed )
+			return;
+		synchronized ( ring )
+		{
+			try
+			{
+				put( CLOSE, null, null, null, null );
+			}
+			catch ( final IllegalStateException e )
+			{
+				// the consumer thread has already stopped
+			}
+		}
+		closed = true;
+		consumer.join();
+	}
+
+	private void send( final byte type, final int[] addedVertices, final int[] removedVertices, final int[] addedEdges, final int[] removedEdges )
+	{
+		if ( closed )
+			throw new IllegalStateException( "AsyncBatchGraphListener is closed." );
+		boolean interrupted = false;
+		try
+		{
+			synchronized ( ring )
+			{
+				while ( true )
+				{
+					try
+					{
+						put( type, addedVertices, removedVertices, addedEdges, removedEdges );
+						break;
+					}
+					catch ( final InterruptedException e )
+					{
+						// keep waiting: the event must not be dropped
+						interrupted = true;
+					}
+				}
+			}
+		}
+		finally
+		{
+			if ( interrupted )
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits for a free slot and puts an event into it. Must be called while
+	 * holding the lock of {@link #ring}.
+	 *
+	 * @throws IllegalStateException
+	 *             if the consumer thread has stopped.
+	 */
+	private void put( final byte type, final int[] addedVertices, final int[] removedVertices, final int[] addedEdges, final int[] removedEdges ) throws InterruptedException
+	{
+		final int capacity = ring.types.length;
+		while ( ring.size == capacity && !ring.terminated )
+			ring.wait();
+		if ( ring.terminated )
+			throw new IllegalStateException( "AsyncBatchGraphListener consumer thread has stopped." );
+		final int slot = ( ring.head + ring.size ) % capacity;
+		ring.types[ slot ] = type;
+		ring.addedVertices[ slot ] = addedVertices;
+		ring.removedVertices[ slot ] = removedVertices;
+		ring.addedEdges[ slot ] = addedEdges;
+		ring.removedEdges[ slot ] = removedEdges;
+		++ring.size;
+		++ring.numSent;
+		ring.notifyAll();
+	}
+}
@@ -0,0 +1,71 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph;
+
+/**
+ * Listens to graph changes in batches. In contrast to {@link GraphListener},
+ * which is called once per added or removed vertex and edge, a
+ * {@link BatchGraphListener} is called once per batch of changes with the ids
+ * of all vertices and edges added and removed in the batch.
+ * <p>
+ * Changes cancelling each other are coalesced: vertices and edges that were
+ * added and then removed in the same batch are not reported at all. A vertex
+ * or edge that was removed and whose id was then reused for a new vertex or
+ * edge in the same batch is reported as both removed and added. Listeners
+ * should therefore process removals before additions.
+ * <p>
+ * Ids are the ids of the {@link GraphIdBimap} of the graph. Removed ids no
+ * longer refer to vertices and edges of the graph (or refer to the new
+ * vertices and edges that reused them).
+ *
+ * @see GraphListener
+ */
+public interface BatchGraphListener
+{
+	/**
+	 * Called when the graph has been changed completely, for example, when it
+	 * is loaded from a file. This should lead to a re-initialization of the
+	 * listener. Changes of an unfinished batch are not reported.
+	 */
+	public void graphRebuilt();
+
+	/**
+	 * Called when a batch of graph changes is complete.
+	 *
+	 * @param addedVertices
+	 *            the ids of the vertices added in the batch.
+	 * @param removedVertices
+	 *            the ids of the vertices removed in the batch.
+	 * @param addedEdges
+	 *            the ids of the edges added in the batch.
+	 * @param removedEdges
+	 *            the ids of the edges removed in the batch.
+	 */
+	public void batchCompleted( int[] addedVertices, int[] removedVertices, int[] addedEdges, int[] removedEdges );
+}
@@ -28,6 +28,8 @@
  */
 package org.mastodon.graph;
 
+import org.mastodon.collection.RefCollection;
+
 /**
  * A graph consisting of vertices of type {@code V} and edges of type {@code E}.
  *
@@ -133,4 +135,39 @@ public interface Graph< V extends Vertex< E >, E extends Edge< V > > extends Rea
 	public void remove( final V vertex );
 
 	public void remove( final E edge );
+
+	/**
+	 * Removes all specified vertices, with all their incoming and outgoing
+	 * edges. This is equivalent to calling {@link #remove(Vertex)} for each
+	 * vertex, but implementations may do it more efficiently.
+	 * <p>
+	 * The default implementation calls {@link #remove(Vertex)} for each
+	 * vertex. {@code vertices} must not be a view of the vertices of this
+	 * graph.
+	 *
+	 * @param vertices
+	 *            the vertices to remove.
+	 */
+	public default void removeAll( final RefCollection< V > vertices )
+	{
+		for ( final V vertex : vertices )
+			remove( vertex );
+	}
+
+	/**
+	 * Removes all specified edges. This is equivalent to calling
+	 * {@link #remove(Edge)} for each edge, but implementations may do it more
+	 * efficiently.
+	 * <p>
+	 * The default implementation calls {@link #remove(Edge)} for each edge.
+	 * {@code edges} must not be a view of the edges of this graph.
+	 *
+	 * @param edges
+	 *            the edges to remove.
+	 */
+	public default void removeAllEdges( final RefCollection< E > edges )
+	{
+		for ( final E edge : edges )
+			remove( edge );
+	}
 }
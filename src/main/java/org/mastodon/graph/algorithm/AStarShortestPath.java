@@ -0,0 +1,101 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import java.util.function.ToDoubleFunction;
+
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
+
+import net.imglib2.RealLocalizable;
+
+/**
+ * Point-to-point shortest paths with the
+ * <a href="https://en.wikipedia.org/wiki/A*_search_algorithm">A* algorithm</a>,
+ * for graphs whose vertices have a position.
+ * <p>
+ * The heuristic is the Euclidean distance to the target, multiplied by a
+ * scale. It is consistent, and therefore the paths found are shortest, as
+ * long as the cost of every edge is at least {@code scale} times the Euclidean
+ * distance between its endpoints. {@link #computeTree(Vertex)} does not use
+ * the heuristic, and is the same as for {@link WeightedShortestPath}.
+ *
+ * @param <V>
+ *            the {@link Vertex} type of the {@link ReadOnlyGraph}.
+ * @param <E>
+ *            the {@link Edge} type of the {@link ReadOnlyGraph}.
+ */
+public class AStarShortestPath< V extends Vertex< E > & RealLocalizable, E extends Edge< V > > extends WeightedShortestPath< V, E >
+{
+	private final double scale;
+
+	private double[] targetPosition;
+
+	/**
+	 * Creates a new A* shortest path searcher.
+	 *
+	 * @param graph
+	 *            the graph to traverse.
+	 * @param directivity
+	 *            whether the search takes into account the direction of edges.
+	 * @param cost
+	 *            the cost of each edge. Must be non-negative.
+	 * @param scale
+	 *            the factor from Euclidean distance to cost, for the
+	 *            heuristic.
+	 */
+	public AStarShortestPath( final ReadOnlyGraph< V, E > graph, final SearchDirection directivity, final ToDoubleFunction< E > cost, final double scale )
+	{
+		super( graph, directivity, cost );
+		this.scale = scale;
+	}
+
+	@Override
+	protected void setTarget( final V target )
+	{
+		final int n = target.numDimensions();
+		if ( targetPosition == null || targetPosition.length != n )
+			targetPosition = new double[ n ];
+		target.localize( targetPosition );
+	}
+
+	@Override
+	protected double heuristic( final V vertex )
+	{
+		double sum = 0;
+		for ( int d = 0; d < targetPosition.length; ++d )
+		{
+			final double diff = vertex.getDoublePosition( d ) - targetPosition[ d ];
+			sum += diff * diff;
+		}
+		return scale * Math.sqrt( sum );
+	}
+}
@@ -35,7 +35,8 @@ import org.mastodon.collection.RefSet;
 import org.mastodon.graph.Edge;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
-import org.mastodon.graph.algorithm.util.Graphs;
+
+import gnu.trove.list.array.TIntArrayList;
 
 /**
  * A class to generate the connected components of a graph, regardless of edge
@@ -44,6 +45,10 @@ import org.mastodon.graph.algorithm.util.Graphs;
  * This version of the algorithm does not listen to changes in the graph. It
  * simply generates a new set of components each time the {@link #get()} method
  * is called.
+ * <p>
+ * The components are collected iteratively, with an explicit stack over vertex
+ * ids, so that very long chains (e.g. single-cell tracks over many time-points)
+ * do not overflow the call stack.
  *
  * @author Jean-Yves Tinevez.
  *
@@ -54,8 +59,6 @@ import org.mastodon.graph.algorithm.util.Graphs;
  */
 public class ConnectedComponents< V extends Vertex< E >, E extends Edge< V > > extends AbstractGraphAlgorithm< V, E >
 {
-	private final RefSet< V > visited;
-
 	private final int minimalSize;
 
 	/**
@@ -74,7 +77,6 @@ public class ConnectedComponents< V extends Vertex< E >, E extends Edge< V > > e
 		if ( minimalSize < 1 )
 			throw new IllegalArgumentException( "Minimal size cannot be lower than 1, was " + minimalSize + "." );
 		this.minimalSize = minimalSize;
-		this.visited = createVertexSet();
 	}
 
 	/**
@@ -91,21 +93,6 @@ public class ConnectedComponents< V extends Vertex< E >, E extends Edge< V > > e
 		this( graph, 1 );
 	}
 
-	private void visit( final V v, final RefSet< V > currentComponent )
-	{
-		currentComponent.add( v );
-		visited.add( v );
-		final V tmp = vertexRef();
-		for ( final E e : v.edges() )
-		{
-			final V o = Graphs.getOppositeVertex( e, v, tmp );
-			if ( !visited.contains( o ) )
-			{
-				visit( o, currentComponent );
-			};
-		}
-	}
-
 	/**
 	 * Returns the set of connected components of the graph. Edges are traversed
 	 * regardless of their direction.
@@ -124,23 +111,54 @@ public class ConnectedComponents< V extends Vertex< E >, E extends Edge< V > > e
 	 */
 	public Set< RefSet< V > > get()
 	{
-		final HashSet< RefSet< V >> components = new HashSet< RefSet< V > >();
-		visited.clear();
+		final HashSet< RefSet< V > > components = new HashSet< RefSet< V > >();
+		final IntAdjacency< V, E > adjacency = new IntAdjacency<>( graph, true );
+		final boolean[] visited = new boolean[ adjacency.numIds ];
+		final TIntArrayList stack = new TIntArrayList();
+		final TIntArrayList component = new TIntArrayList();
+		final V ref = vertexRef();
 
-		for ( final V v : graph.vertices() )
+		for ( final int root : adjacency.vertexOrder )
 		{
-			if ( visited.contains( v ) )
+			if ( visited[ root ] )
 			{
 				continue;
 			}
 
-			final RefSet< V > currentComponent = createVertexSet();
-			visit( v, currentComponent );
-			if ( currentComponent.size() >= minimalSize )
+			// Flood fill from root, with an explicit stack instead of recursion.
+			component.resetQuick();
+			visited[ root ] = true;
+			stack.add( root );
+			while ( !stack.isEmpty() )
 			{
+				final int v = stack.removeAt( stack.size() - 1 );
+				component.add( v );
+				push( v, adjacency.outStart, adjacency.outIds, visited, stack );
+				push( v, adjacency.inStart, adjacency.inIds, visited, stack );
+			}
+
+			if ( component.size() >= minimalSize )
+			{
+				final RefSet< V > currentComponent = createVertexSet( component.size() );
+				for ( int i = 0; i < component.size(); ++i )
+					currentComponent.add( adjacency.vertex( component.getQuick( i ), ref ) );
 				components.add( currentComponent );
 			}
 		}
+		releaseRef( ref );
 		return components;
 	}
+
+	private static void push( final int v, final int[] start, final int[] ids, final boolean[] visited, final TIntArrayList stack )
+	{
+		for ( int i = start[ v ]; i < start[ v + 1 ]; ++i )
+		{
+			final int o = ids[ i ];
+			if ( !visited[ o ] )
+			{
+				visited[ o ] = true;
+				stack.add( o );
+			}
+		}
+	}
 }
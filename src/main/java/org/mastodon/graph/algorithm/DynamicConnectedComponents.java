@@ -0,0 +1,370 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import java.util.Arrays;
+
+import org.mastodon.RefPool;
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.GraphListener;
+import org.mastodon.graph.ListenableReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * Maintains the connected components of a graph, regardless of edge
+ * direction, incrementally as the graph changes.
+ * <p>
+ * Registers itself as a {@link GraphListener} of the graph. Components are
+ * kept in a union-find over vertex ids with path compression and union by
+ * size, so {@link #edgeAdded(Edge)} merges two components in amortized
+ * <em>O(α(n))</em>, and {@link #componentOf(Vertex)},
+ * {@link #componentSize(Vertex)} and {@link #sameComponent(Vertex, Vertex)}
+ * are amortized constant time.
+ * <p>
+ * Removing an edge or a vertex may split a component. Because listeners are
+ * notified before the edge or vertex is actually removed, the affected
+ * components are only marked, and re-split by the next query or addition, by
+ * relabeling just the vertices of the affected components.
+ * {@link #graphRebuilt()} relabels the whole graph.
+ * <p>
+ * Component ids are vertex ids of representatives. Two vertices are in the
+ * same component if and only if they have the same component id, but
+ * component ids may change whenever the graph is modified.
+ * <p>
+ * This class is not thread-safe. Queries must not be made from within other
+ * listeners while the graph is being modified.
+ *
+ * @param <V>
+ *            the type of the vertices of the graph.
+ * @param <E>
+ *            the type of the edges of the graph.
+ */
+public class DynamicConnectedComponents< V extends Vertex< E >, E extends Edge< V > > implements GraphListener< V, E >
+{
+	private final ListenableReadOnlyGraph< V, E > graph;
+
+	private final RefPool< V > vertexPool;
+
+	/**
+	 * Union-find parent of each vertex id, or {@code -1} if the id is not
+	 * used.
+	 */
+	private int[] parent;
+
+	/**
+	 * Number of vertices in the component, for component roots.
+	 */
+	private int[] size;
+
+	/**
+	 * Next vertex id in the circular list of members of the component.
+	 */
+	private int[] next;
+
+	/**
+	 * Whether the vertex has been removed from the graph, but not yet from its
+	 * component.
+	 */
+	private boolean[] removed;
+
+	/**
+	 * Vertex ids of the endpoints of removed edges and of removed vertices,
+	 * whose components need to be re-split.
+	 */
+	private final TIntArrayList pending;
+
+	private int numComponents;
+
+	private final V ref1;
+
+	private final V ref2;
+
+	/**
+	 * Creates the connected components of the specified graph, and registers
+	 * as a listener to keep them up to date.
+	 *
+	 * @param graph
+	 *            the graph.
+	 * @param vertexPool
+	 *            the {@link RefPool} of the vertices of the graph.
+	 */
+	public DynamicConnectedComponents( final ListenableReadOnlyGraph< V, E > graph, final RefPool< V > vertexPool )
+	{
+		this.graph = graph;
+		this.vertexPool = vertexPool;
+		this.pending = new TIntArrayList();
+		this.ref1 = graph.vertexRef();
+		this.ref2 = graph.vertexRef();
+		relabel();
+		graph.addGraphListener( this );
+	}
+
+	/**
+	 * Returns the id of the component of the specified vertex.
+	 *
+	 * @param v
+	 *            a vertex of the graph.
+	 * @return the component id.
+	 */
+	public int componentOf( final V v )
+	{
+		resplit();
+		return find( vertexPool.getId( v ) );
+	}
+
+	/**
+	 * Returns the number of vertices in the component of the specified vertex.
+	 *
+	 * @param v
+	 *            a vertex of the graph.
+	 * @return the component size.
+	 */
+	public int componentSize( final V v )
+	{
+		return size[ componentOf( v ) ];
+	}
+
+	/**
+	 * Returns whether the specified vertices are in the same component.
+	 *
+	 * @param v1
+	 *            a vertex of the graph.
+	 * @param v2
+	 *            a vertex of the graph.
+	 * @return {@code true} if {@code v1} and {@code v2} are connected.
+	 */
+	public boolean sameComponent( final V v1, final V v2 )
+	{
+		return componentOf( v1 ) == componentOf( v2 );
+	}
+
+	/**
+	 * Returns the number of connected components of the graph.
+	 *
+	 * @return the number of components.
+	 */
+	public int getNumComponents()
+	{
+		resplit();
+		return numComponents;
+	}
+
+	@Override
+	public void graphRebuilt()
+	{
+		relabel();
+	}
+
+	@Override
+	public void vertexAdded( final V vertex )
+	{
+		resplit();
+		final int id = vertexPool.getId( vertex );
+		if ( id >= parent.length || parent[ id ] < 0 )
+			makeSet( id );
+	}
+
+	@Override
+	public void vertexRemoved( final V vertex )
+	{
+		final int id = vertexPool.getId( vertex );
+		removed[ id ] = true;
+		pending.add( id );
+	}
+
+	@Override
+	public void edgeAdded( final E edge )
+	{
+		resplit();
+		final int source = vertexId( edge.getSource( ref1 ) );
+		final int target = vertexId( edge.getTarget( ref2 ) );
+		union( source, target );
+	}
+
+	@Override
+	public void edgeRemoved( final E edge )
+	{
+		final int source = vertexPool.getId( edge.getSource( ref1 ) );
+		final int target = vertexPool.getId( edge.getTarget( ref2 ) );
+		if ( source != target )
+		{
+			pending.add( source );
+			pending.add( target );
+		}
+	}
+
+	/**
+	 * Returns the id of the specified vertex, adding it as a singleton
+	 * component if it is not known yet.
+	 */
+	private int vertexId( final V v )
+	{
+		final int id = vertexPool.getId( v );
+		if ( id >= parent.length || parent[ id ] < 0 )
+			makeSet( id );
+		return id;
+	}
+
+	/**
+	 * Rebuilds all components from the current graph.
+	 */
+	private void relabel()
+	{
+		int capacity = 16;
+		for ( final V v : graph.vertices() )
+			capacity = Math.max( capacity, vertexPool.getId( v ) + 1 );
+		parent = new int[ capacity ];
+		Arrays.fill( parent, -1 );
+		size = new int[ capacity ];
+		next = new int[ capacity ];
+		removed = new boolean[ capacity ];
+		pending.resetQuick();
+		numComponents = 0;
+
+		for ( final V v : graph.vertices() )
+			makeSet( vertexPool.getId( v ) );
+		for ( final V v : graph.vertices() )
+		{
+			final int source = vertexPool.getId( v );
+			for ( final E e : v.outgoingEdges() )
+				union( source, vertexPool.getId( e.getTarget( ref1 ) ) );
+		}
+	}
+
+	/**
+	 * Re-splits the components that contained removed edges or vertices, by
+	 * relabeling their members from the current graph.
+	 */
+	private void resplit()
+	{
+		if ( pending.isEmpty() )
+			return;
+
+		// Collect the members of all affected components.
+		final TIntHashSet roots = new TIntHashSet();
+		final TIntArrayList members = new TIntArrayList();
+		for ( int i = 0; i < pending.size(); ++i )
+		{
+			final int id = pending.getQuick( i );
+			if ( parent[ id ] < 0 )
+				continue;
+			final int root = find( id );
+			if ( roots.add( root ) )
+			{
+				int m = root;
+				do
+				{
+					members.add( m );
+					m = next[ m ];
+				}
+				while ( m != root );
+			}
+		}
+		pending.resetQuick();
+		numComponents -= roots.size();
+
+		// Drop removed vertices, and make the others singletons.
+		for ( int i = 0; i < members.size(); ++i )
+		{
+			final int id = members.getQuick( i );
+			if ( removed[ id ] )
+			{
+				removed[ id ] = false;
+				parent[ id ] = -1;
+			}
+			else
+				makeSet( id );
+		}
+
+		// Merge along the edges that remain. Edges of the members can only
+		// lead to other members, because removals never join components.
+		for ( int i = 0; i < members.size(); ++i )
+		{
+			final int id = members.getQuick( i );
+			if ( parent[ id ] < 0 )
+				continue;
+			final V v = vertexPool.getObject( id, ref1 );
+			for ( final E e : v.outgoingEdges() )
+				union( id, vertexPool.getId( e.getTarget( ref2 ) ) );
+		}
+	}
+
+	private void makeSet( final int id )
+	{
+		if ( id >= parent.length )
+		{
+			final int capacity = Math.max( id + 1, 2 * parent.length );
+			final int oldCapacity = parent.length;
+			parent = Arrays.copyOf( parent, capacity );
+			Arrays.fill( parent, oldCapacity, capacity, -1 );
+			size = Arrays.copyOf( size, capacity );
+			next = Arrays.copyOf( next, capacity );
+			removed = Arrays.copyOf( removed, capacity );
+		}
+		parent[ id ] = id;
+		size[ id ] = 1;
+		next[ id ] = id;
+		++numComponents;
+	}
+
+	private int find( int x )
+	{
+		while ( parent[ x ] != x )
+		{
+			final int p = parent[ x ];
+			parent[ x ] = parent[ p ];
+			x = p;
+		}
+		return x;
+	}
+
+	private void union( final int a, final int b )
+	{
+		int ra = find( a );
+		int rb = find( b );
+		if ( ra == rb )
+			return;
+		if ( size[ ra ] < size[ rb ] )
+		{
+			final int tmp = ra;
+			ra = rb;
+			rb = tmp;
+		}
+		parent[ rb ] = ra;
+		size[ ra ] += size[ rb ];
+		// Splice the circular member lists.
+		final int tmp = next[ ra ];
+		next[ ra ] = next[ rb ];
+		next[ rb ] = tmp;
+		--numComponents;
+	}
+}
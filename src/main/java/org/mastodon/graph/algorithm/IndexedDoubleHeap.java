@@ -0,0 +1,184 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of {@code int} keys with {@code double} priorities, that
+ * tracks the position of each key so that priorities can be decreased in
+ * place. Keys are non-negative ids, typically vertex pool indices, and the
+ * position table grows to the largest key inserted.
+ */
+final class IndexedDoubleHeap
+{
+	private int[] keys;
+
+	private double[] priorities;
+
+	/**
+	 * Position of each key in the heap, or {@code -1} if it is not in the
+	 * heap.
+	 */
+	private int[] positions;
+
+	private int size;
+
+	IndexedDoubleHeap( final int initialCapacity )
+	{
+		final int capacity = Math.max( 16, initialCapacity );
+		keys = new int[ capacity ];
+		priorities = new double[ capacity ];
+		positions = new int[ capacity ];
+		Arrays.fill( positions, -1 );
+		size = 0;
+	}
+
+	boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	boolean contains( final int key )
+	{
+		return key < positions.length && positions[ key ] >= 0;
+	}
+
+	/**
+	 * Removes all keys. Costs time linear in the current size, not in the
+	 * capacity.
+	 */
+	void clear()
+	{
+		for ( int i = 0; i < size; ++i )
+			positions[ keys[ i ] ] = -1;
+		size = 0;
+	}
+
+	/**
+	 * Inserts {@code key} with the specified priority, or lowers its priority
+	 * if it is already in the heap with a higher one.
+	 *
+	 * @return {@code true} if the heap changed.
+	 */
+	boolean insertOrDecrease( final int key, final double priority )
+	{
+		if ( key >= positions.length )
+		{
+			final int oldLength = positions.length;
+			positions = Arrays.copyOf( positions, Math.max( key + 1, 2 * oldLength ) );
+			Arrays.fill( positions, oldLength, positions.length, -1 );
+		}
+		final int pos = positions[ key ];
+		if ( pos >= 0 )
+		{
+			if ( priority >= priorities[ pos ] )
+				return false;
+			siftUp( pos, key, priority );
+			return true;
+		}
+		if ( size == keys.length )
+		{
+			keys = Arrays.copyOf( keys, 2 * size );
+			priorities = Arrays.copyOf( priorities, 2 * size );
+		}
+		siftUp( size++, key, priority );
+		return true;
+	}
+
+	/**
+	 * Returns the priority of the key at the top of the heap.
+	 */
+	double peekPriority()
+	{
+		return priorities[ 0 ];
+	}
+
+	/**
+	 * Removes and returns the key with the lowest priority.
+	 */
+	int poll()
+	{
+		final int top = keys[ 0 ];
+		positions[ top ] = -1;
+		--size;
+		if ( size > 0 )
+			siftDown( 0, keys[ size ], priorities[ size ] );
+		return top;
+	}
+
+	private void siftUp( int pos, final int key, final double priority )
+	{
+		while ( pos > 0 )
+		{
+			final int parent = ( pos - 1 ) >>> 1;
+			if ( priorities[ parent ] <= priority )
+				break;
+			move( parent, pos );
+			pos = parent;
+		}
+		set( pos, key, priority );
+	}
+
+	private void siftDown( int pos, final int key, final double priority )
+	{
+		final int half = size >>> 1;
+		while ( pos < half )
+		{
+			int child = 2 * pos + 1;
+			final int right = child + 1;
+			if ( right < size && priorities[ right ] < priorities[ child ] )
+				child = right;
+			if ( priority <= priorities[ child ] )
+				break;
+			move( child, pos );
+			pos = child;
+		}
+		set( pos, key, priority );
+	}
+
+	private void move( final int from, final int to )
+	{
+		keys[ to ] = keys[ from ];
+		priorities[ to ] = priorities[ from ];
+		positions[ keys[ to ] ] = to;
+	}
+
+	private void set( final int pos, final int key, final double priority )
+	{
+		keys[ pos ] = key;
+		priorities[ pos ] = priority;
+		positions[ key ] = pos;
+	}
+}
@@ -0,0 +1,115 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+
+/**
+ * A snapshot of the adjacency of a graph, in compressed sparse row form over
+ * integer vertex ids. Algorithms that would otherwise recurse once per vertex
+ * use it to run with explicit {@code int} stacks instead.
+ * <p>
+ * See {@link VertexIds} for how ids are assigned.
+ * <p>
+ * The targets of the outgoing edges of vertex {@code id} are
+ * {@code outIds[ outStart[ id ] ]} to {@code outIds[ outStart[ id + 1 ] - 1 ]}
+ * in the order of {@link Vertex#outgoingEdges()}, and likewise for the sources
+ * of the incoming edges if they were requested.
+ *
+ * @param <V>
+ *            the type of vertices in the graph.
+ * @param <E>
+ *            the type of edges in the graph.
+ */
+final class IntAdjacency< V extends Vertex< E >, E extends Edge< V > > extends VertexIds< V, E >
+{
+	final int[] outStart;
+
+	final int[] outIds;
+
+	/**
+	 * {@code null} unless incoming edges were requested.
+	 */
+	final int[] inStart;
+
+	/**
+	 * {@code null} unless incoming edges were requested.
+	 */
+	final int[] inIds;
+
+	/**
+	 * Builds the adjacency of the specified graph.
+	 *
+	 * @param graph
+	 *            the graph.
+	 * @param incoming
+	 *            whether to also store the sources of incoming edges.
+	 */
+	IntAdjacency( final ReadOnlyGraph< V, E > graph, final boolean incoming )
+	{
+		super( graph );
+		outStart = new int[ numIds + 1 ];
+		inStart = incoming ? new int[ numIds + 1 ] : null;
+		final V vref = graph.vertexRef();
+		for ( final int id : vertexOrder )
+		{
+			final V v = vertex( id, vref );
+			outStart[ id + 1 ] = v.outgoingEdges().size();
+			if ( incoming )
+				inStart[ id + 1 ] = v.incomingEdges().size();
+		}
+		for ( int id = 0; id < numIds; ++id )
+		{
+			outStart[ id + 1 ] += outStart[ id ];
+			if ( incoming )
+				inStart[ id + 1 ] += inStart[ id ];
+		}
+
+		outIds = new int[ outStart[ numIds ] ];
+		inIds = incoming ? new int[ inStart[ numIds ] ] : null;
+		final V tmp = graph.vertexRef();
+		for ( final int id : vertexOrder )
+		{
+			final V v = vertex( id, vref );
+			int o = outStart[ id ];
+			for ( final E e : v.outgoingEdges() )
+				outIds[ o++ ] = id( e.getTarget( tmp ) );
+			if ( incoming )
+			{
+				int j = inStart[ id ];
+				for ( final E e : v.incomingEdges() )
+					inIds[ j++ ] = id( e.getSource( tmp ) );
+			}
+		}
+		graph.releaseRef( tmp );
+		graph.releaseRef( vref );
+	}
+}
@@ -0,0 +1,149 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import org.mastodon.RefPool;
+import org.mastodon.collection.RefCollection;
+import org.mastodon.collection.RefCollections;
+import org.mastodon.collection.RefIntMap;
+import org.mastodon.collection.RefList;
+import org.mastodon.collection.RefMaps;
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+import org.mastodon.pool.PoolCollectionWrapper;
+
+/**
+ * Integer ids for the vertices of a graph, for searches that keep per-vertex
+ * state in primitive arrays and only touch part of the graph.
+ * <p>
+ * For pool-based graphs the ids are the internal pool indices of the vertices.
+ * For other graphs, ids are assigned on the fly, in the order vertices are
+ * first passed to {@link #id(Vertex)}, and forgotten by {@link #reset()}.
+ * Unlike {@link VertexIds}, nothing is done up-front for the whole graph.
+ *
+ * @param <V>
+ *            the type of vertices in the graph.
+ * @param <E>
+ *            the type of edges in the graph.
+ */
+final class LazyVertexIds< V extends Vertex< E >, E extends Edge< V > >
+{
+	private final RefPool< V > pool;
+
+	private final RefIntMap< V > ids;
+
+	private final RefList< V > vertices;
+
+	@SuppressWarnings( "unchecked" )
+	LazyVertexIds( final ReadOnlyGraph< V, E > graph )
+	{
+		final RefCollection< V > vs = graph.vertices();
+		if ( vs instanceof PoolCollectionWrapper )
+		{
+			pool = ( RefPool< V > ) ( ( PoolCollectionWrapper< ? > ) vs ).getRefPool();
+			ids = null;
+			vertices = null;
+		}
+		else
+		{
+			pool = null;
+			ids = RefMaps.createRefIntMap( vs, -1 );
+			vertices = RefCollections.createRefList( vs );
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the ids are internal pool indices.
+	 *
+	 * @return whether the ids are internal pool indices.
+	 */
+	boolean isPoolIndex()
+	{
+		return pool != null;
+	}
+
+	/**
+	 * Forgets the ids assigned so far. Does nothing for pool-based graphs.
+	 */
+	void reset()
+	{
+		if ( pool == null )
+		{
+			ids.clear();
+			vertices.clear();
+		}
+	}
+
+	/**
+	 * Returns the id of the specified vertex, assigning one if needed.
+	 *
+	 * @param v
+	 *            a vertex of the graph.
+	 * @return the id of {@code v}.
+	 */
+	int id( final V v )
+	{
+		if ( pool != null )
+			return pool.getId( v );
+		final int existing = ids.get( v );
+		if ( existing >= 0 )
+			return existing;
+		final int id = vertices.size();
+		ids.put( v, id );
+		vertices.add( v );
+		return id;
+	}
+
+	/**
+	 * Returns the id of the specified vertex, without assigning one.
+	 *
+	 * @param v
+	 *            a vertex of the graph.
+	 * @return the id of {@code v}, or {@code -1} if it does not have one.
+	 */
+	int lookup( final V v )
+	{
+		return pool != null ? pool.getId( v ) : ids.get( v );
+	}
+
+	/**
+	 * Returns the vertex with the specified id.
+	 *
+	 * @param id
+	 *            the vertex id.
+	 * @param ref
+	 *            a vertex reference that may be used to retrieve the vertex.
+	 * @return the vertex with the specified id.
+	 */
+	V vertex( final int id, final V ref )
+	{
+		return pool != null ? pool.getObject( id, ref ) : vertices.get( id, ref );
+	}
+}
@@ -0,0 +1,343 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.mastodon.collection.RefSet;
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+import org.mastodon.graph.ref.AbstractVertex;
+
+/**
+ * Computes the connected components of a graph, regardless of edge direction,
+ * in parallel.
+ * <p>
+ * The outgoing edges of all vertices are split into chunks by source vertex,
+ * and the chunks are processed on a {@link ForkJoinPool}, merging the
+ * endpoints of each edge in a lock-free union-find over vertex ids. The result
+ * of {@link #compute()} is a compact labeling: an {@code int} component id per
+ * vertex, from {@code 0} to {@link #getNumComponents()}{@code - 1} in the
+ * order in which the components are first met in
+ * {@link ReadOnlyGraph#vertices()}, and the size of each component.
+ * <p>
+ * Vertex ids are internal pool indices for pool-based graphs, and positions in
+ * {@link ReadOnlyGraph#vertices()} otherwise. Use
+ * {@link #getComponentId(Vertex)} to look up the component of a vertex, and
+ * {@link #get()} for the same {@link RefSet}-based view as
+ * {@link ConnectedComponents#get()}.
+ * <p>
+ * The graph must not be modified while {@link #compute()} runs. Like
+ * {@link ConnectedComponents}, this does not listen to changes in the graph,
+ * the labeling is a snapshot of when {@link #compute()} was last called.
+ *
+ * @param <V>
+ *            the type of the vertices of the graph.
+ * @param <E>
+ *            the type of the edges of the graph.
+ */
+public class ParallelConnectedComponents< V extends Vertex< E >, E extends Edge< V > > extends AbstractGraphAlgorithm< V, E >
+{
+	/**
+	 * Chunks have at least this many source vertices.
+	 */
+	private static final int MIN_CHUNK_SIZE = 4096;
+
+	private final ForkJoinPool forkJoinPool;
+
+	private VertexIds< V, E > ids;
+
+	private int[] componentIds;
+
+	private int[] componentSizes;
+
+	/**
+	 * Creates a new parallel connected-components algorithm, that runs on the
+	 * {@link ForkJoinPool#commonPool() common pool}.
+	 *
+	 * @param graph
+	 *            the graph to inspect.
+	 */
+	public ParallelConnectedComponents( final ReadOnlyGraph< V, E > graph )
+	{
+		this( graph, ForkJoinPool.commonPool() );
+	}
+
+	/**
+	 * Creates a new parallel connected-components algorithm.
+	 *
+	 * @param graph
+	 *            the graph to inspect.
+	 * @param forkJoinPool
+	 *            the pool to run on.
+	 */
+	public ParallelConnectedComponents( final ReadOnlyGraph< V, E > graph, final ForkJoinPool forkJoinPool )
+	{
+		super( graph );
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * Labels the connected components of the graph.
+	 *
+	 * @return the number of connected components.
+	 */
+	public int compute()
+	{
+		final VertexIds< V, E > ids = new VertexIds<>( graph );
+		final int[] vertexOrder = ids.vertexOrder;
+		final int n = vertexOrder.length;
+
+		final AtomicIntegerArray parent = new AtomicIntegerArray( ids.numIds );
+		for ( int id = 0; id < ids.numIds; ++id )
+			parent.lazySet( id, id );
+
+		// Merge the endpoints of all edges.
+		forEachChunk( n, ( from, to, vref, tref ) -> {
+			final boolean poolIndices = ids.isPoolIndex() && vref instanceof AbstractVertex;
+			for ( int i = from; i < to; ++i )
+			{
+				final int source = vertexOrder[ i ];
+				final V v = ids.vertex( source, vref );
+				if ( poolIndices )
+				{
+					final AbstractVertex< ?, ?, ?, ? > av = ( AbstractVertex< ?, ?, ?, ? > ) v;
+					for ( int e = av.firstOut(); e >= 0; e = av.nextOut( e ) )
+						union( parent, source, av.targetOf( e ) );
+				}
+				else
+				{
+					for ( final E e : v.outgoingEdges() )
+						union( parent, source, ids.id( e.getTarget( tref ) ) );
+				}
+			}
+		} );
+
+		// Resolve the root of each vertex.
+		final int[] roots = new int[ ids.numIds ];
+		forEachChunk( n, ( from, to, vref, tref ) -> {
+			for ( int i = from; i < to; ++i )
+			{
+				final int id = vertexOrder[ i ];
+				roots[ id ] = find( parent, id );
+			}
+		} );
+
+		// Number the roots in vertex order, and count component sizes.
+		final int[] rootLabels = new int[ ids.numIds ];
+		Arrays.fill( rootLabels, -1 );
+		final int[] labels = new int[ ids.numIds ];
+		Arrays.fill( labels, -1 );
+		int[] sizes = new int[ 16 ];
+		int numComponents = 0;
+		for ( final int id : vertexOrder )
+		{
+			final int root = roots[ id ];
+			int label = rootLabels[ root ];
+			if ( label < 0 )
+			{
+				label = numComponents++;
+				rootLabels[ root ] = label;
+				if ( label == sizes.length )
+					sizes = Arrays.copyOf( sizes, 2 * sizes.length );
+			}
+			labels[ id ] = label;
+			++sizes[ label ];
+		}
+
+		this.ids = ids;
+		this.componentIds = labels;
+		this.componentSizes = Arrays.copyOf( sizes, numComponents );
+		return numComponents;
+	}
+
+	/**
+	 * Returns the number of connected components found by the last call to
+	 * {@link #compute()}.
+	 *
+	 * @return the number of connected components.
+	 */
+	public int getNumComponents()
+	{
+		return componentSizes == null ? 0 : componentSizes.length;
+	}
+
+	/**
+	 * Returns the component ids found by the last call to {@link #compute()},
+	 * indexed by vertex id. Entries for ids that are not used by any vertex
+	 * are {@code -1}.
+	 *
+	 * @return the component id of each vertex id, or {@code null} if
+	 *         {@link #compute()} was not called yet.
+	 */
+	public int[] getComponentIds()
+	{
+		return componentIds;
+	}
+
+	/**
+	 * Returns the sizes of the components found by the last call to
+	 * {@link #compute()}, indexed by component id.
+	 *
+	 * @return the size of each component, or {@code null} if
+	 *         {@link #compute()} was not called yet.
+	 */
+	public int[] getComponentSizes()
+	{
+		return componentSizes;
+	}
+
+	/**
+	 * Returns the id of the component of the specified vertex, found by the
+	 * last call to {@link #compute()}.
+	 *
+	 * @param v
+	 *            a vertex of the graph.
+	 * @return the component id of {@code v}.
+	 * @throws IllegalStateException
+	 *             if {@link #compute()} was not called yet.
+	 */
+	public int getComponentId( final V v )
+	{
+		if ( componentIds == null )
+			throw new IllegalStateException( "Components have not been computed." );
+		return componentIds[ ids.id( v ) ];
+	}
+
+	/**
+	 * Computes the connected components of the graph and returns them as
+	 * vertex sets, like {@link ConnectedComponents#get()} with a minimal size
+	 * of 1.
+	 *
+	 * @return a new {@link Set} containing the connected components of the
+	 *         graph.
+	 */
+	public Set< RefSet< V > > get()
+	{
+		final int numComponents = compute();
+		final List< RefSet< V > > sets = new ArrayList<>( numComponents );
+		for ( int c = 0; c < numComponents; ++c )
+			sets.add( createVertexSet( componentSizes[ c ] ) );
+		final V ref = vertexRef();
+		for ( final int id : ids.vertexOrder )
+			sets.get( componentIds[ id ] ).add( ids.vertex( id, ref ) );
+		releaseRef( ref );
+		return new HashSet<>( sets );
+	}
+
+	/**
+	 * Returns the root of the set containing {@code x}, halving the path to
+	 * the root on the way.
+	 */
+	static int find( final AtomicIntegerArray parent, int x )
+	{
+		while ( true )
+		{
+			final int p = parent.get( x );
+			if ( p == x )
+				return x;
+			final int gp = parent.get( p );
+			if ( gp != p )
+				parent.compareAndSet( x, p, gp );
+			x = gp;
+		}
+	}
+
+	/**
+	 * Merges the sets containing {@code a} and {@code b}. Roots are always
+	 * linked below a root with a smaller id, so concurrent unions cannot form
+	 * cycles.
+	 */
+	static void union( final AtomicIntegerArray parent, int a, int b )
+	{
+		while ( true )
+		{
+			a = find( parent, a );
+			b = find( parent, b );
+			if ( a == b )
+				return;
+			if ( a < b )
+			{
+				final int tmp = a;
+				a = b;
+				b = tmp;
+			}
+			if ( parent.compareAndSet( a, a, b ) )
+				return;
+		}
+	}
+
+	private interface ChunkTask< V >
+	{
+		void run( int from, int to, V vref, V tref );
+	}
+
+	/**
+	 * Splits {@code [0, n)} into chunks and runs {@code task} on them on the
+	 * fork-join pool. Each chunk gets its own pair of vertex refs, which are
+	 * created and released on the calling thread.
+	 */
+	private void forEachChunk( final int n, final ChunkTask< V > task )
+	{
+		final int numChunks = Math.max( 1, Math.min(
+				( n + MIN_CHUNK_SIZE - 1 ) / MIN_CHUNK_SIZE,
+				4 * forkJoinPool.getParallelism() ) );
+		final List< V > refs = new ArrayList<>( 2 * numChunks );
+		for ( int i = 0; i < 2 * numChunks; ++i )
+			refs.add( vertexRef() );
+
+		if ( numChunks == 1 )
+			task.run( 0, n, refs.get( 0 ), refs.get( 1 ) );
+		else
+		{
+			final List< ForkJoinTask< ? > > tasks = new ArrayList<>( numChunks );
+			for ( int c = 0; c < numChunks; ++c )
+			{
+				final int from = ( int ) ( ( long ) n * c / numChunks );
+				final int to = ( int ) ( ( long ) n * ( c + 1 ) / numChunks );
+				final V vref = refs.get( 2 * c );
+				final V tref = refs.get( 2 * c + 1 );
+				tasks.add( forkJoinPool.submit( () -> task.run( from, to, vref, tref ) ) );
+			}
+			for ( final ForkJoinTask< ? > t : tasks )
+				t.join();
+		}
+
+		for ( final V ref : refs )
+			releaseRef( ref );
+	}
+}
@@ -28,29 +28,52 @@
  */
 package org.mastodon.graph.algorithm;
 
+import java.util.Arrays;
+
 import org.mastodon.collection.RefList;
 import org.mastodon.graph.Edge;
+import org.mastodon.graph.Edges;
 import org.mastodon.graph.Graph;
+import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
 import org.mastodon.graph.algorithm.traversal.BreadthFirstSearch;
 import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
 import org.mastodon.graph.algorithm.traversal.SearchListener;
+import org.mastodon.graph.algorithm.util.Graphs;
+import org.mastodon.graph.ref.AbstractVertex;
+
+import gnu.trove.list.array.TIntArrayList;
 
 /**
  * A plain shortest path for unweighted graphs, directed or not. Simply based on
  * {@link BreadthFirstSearch}.
+ * <p>
+ * Optionally, the search is bidirectional: it expands breadth-first from both
+ * ends, one whole level at a time from the smaller frontier, and stops when
+ * the two searches meet. This visits far fewer vertices than a search from
+ * one end only. The visitation state is kept in primitive arrays over vertex
+ * pool indices, which are reused across queries and invalidated by a
+ * generation stamp, so repeated queries on the same graph do not clear or
+ * allocate O(V) state.
  *
  * @author Jean-Yves Tinevez
  *
  * @param <V>
- *            the {@link Vertex} type of the {@link Graph}.
+ *            the {@link Vertex} type of the {@link ReadOnlyGraph}.
  * @param <E>
- *            the {@link Edge} type of the {@link Graph}.
+ *            the {@link Edge} type of the {@link ReadOnlyGraph}.
  */
 public class ShortestPath< V extends Vertex< E >, E extends Edge< V > > extends AbstractGraphAlgorithm< V, E >
 {
 	private final SearchDirection directivity;
 
+	private final boolean bidirectional;
+
+	/**
+	 * State of the bidirectional search, created on first use.
+	 */
+	private BidirectionalSearch bidirectionalSearch;
+
 	/**
 	 * Creates a new shortest path searcher.
 	 *
@@ -59,10 +82,40 @@ public class ShortestPath< V extends Vertex< E >, E extends Edge< V > > extends
 	 * @param directivity
 	 *            whether the search takes into account the direction of edges.
 	 */
+	public ShortestPath( final ReadOnlyGraph< V, E > graph, final SearchDirection directivity )
+	{
+		this( graph, directivity, false );
+	}
+
+	/**
+	 * Creates a new shortest path searcher. Kept for binary compatibility with
+	 * code compiled against the former {@link Graph} signature.
+	 *
+	 * @param graph
+	 *            the graph to traverse.
+	 * @param directivity
+	 *            whether the search takes into account the direction of edges.
+	 */
 	public ShortestPath( final Graph< V, E > graph, final SearchDirection directivity )
+	{
+		this( ( ReadOnlyGraph< V, E > ) graph, directivity, false );
+	}
+
+	/**
+	 * Creates a new shortest path searcher.
+	 *
+	 * @param graph
+	 *            the graph to traverse.
+	 * @param directivity
+	 *            whether the search takes into account the direction of edges.
+	 * @param bidirectional
+	 *            whether to search from both ends at once.
+	 */
+	public ShortestPath( final ReadOnlyGraph< V, E > graph, final SearchDirection directivity, final boolean bidirectional )
 	{
 		super( graph );
 		this.directivity = directivity;
+		this.bidirectional = bidirectional;
 	}
 
 	/**
@@ -81,6 +134,13 @@ public class ShortestPath< V extends Vertex< E >, E extends Edge< V > > extends
 	 */
 	public RefList< V > findPath( final V from, final V to )
 	{
+		if ( bidirectional )
+		{
+			if ( bidirectionalSearch == null )
+				bidirectionalSearch = new BidirectionalSearch();
+			return bidirectionalSearch.findPath( from, to );
+		}
+
 		final BreadthFirstSearch< V, E > search = new BreadthFirstSearch<>( graph, directivity );
 		final VertexFinderListener vfl = new VertexFinderListener( to );
 		search.setTraversalListener( vfl );
@@ -140,4 +200,219 @@ public class ShortestPath< V extends Vertex< E >, E extends Edge< V > > extends
 		{}
 
 	}
+
+	/**
+	 * Visitation state of one end of the bidirectional search. Entries are
+	 * only valid for a vertex id if its {@code stamp} equals the current
+	 * generation.
+	 */
+	private static final class Side
+	{
+		final SearchDirection direction;
+
+		int[] stamp;
+
+		int[] parent;
+
+		int[] depth;
+
+		TIntArrayList frontier = new TIntArrayList();
+
+		TIntArrayList next = new TIntArrayList();
+
+		Side( final SearchDirection direction, final int capacity )
+		{
+			this.direction = direction;
+			stamp = new int[ capacity ];
+			parent = new int[ capacity ];
+			depth = new int[ capacity ];
+		}
+
+		boolean isVisited( final int id, final int generation )
+		{
+			return id < stamp.length && stamp[ id ] == generation;
+		}
+
+		void visit( final int id, final int parentId, final int d, final int generation )
+		{
+			if ( id >= stamp.length )
+			{
+				final int capacity = Math.max( id + 1, 2 * stamp.length );
+				stamp = Arrays.copyOf( stamp, capacity );
+				parent = Arrays.copyOf( parent, capacity );
+				depth = Arrays.copyOf( depth, capacity );
+			}
+			stamp[ id ] = generation;
+			parent[ id ] = parentId;
+			depth[ id ] = d;
+		}
+
+		void reset()
+		{
+			frontier.resetQuick();
+			next.resetQuick();
+		}
+
+		void swapFrontier()
+		{
+			final TIntArrayList tmp = frontier;
+			frontier = next;
+			next = tmp;
+			next.resetQuick();
+		}
+	}
+
+	private final class BidirectionalSearch
+	{
+		private final LazyVertexIds< V, E > ids;
+
+		private final Side forward;
+
+		private final Side backward;
+
+		private int generation;
+
+		private final V vref;
+
+		private final V oref;
+
+		private final boolean poolIndices;
+
+		BidirectionalSearch()
+		{
+			ids = new LazyVertexIds<>( graph );
+			final int capacity = Math.max( 16, graph.vertices().size() );
+			forward = new Side( directivity, capacity );
+			backward = new Side( reverse( directivity ), capacity );
+			generation = 0;
+			vref = vertexRef();
+			oref = vertexRef();
+			poolIndices = ids.isPoolIndex() && vref instanceof AbstractVertex;
+		}
+
+		RefList< V > findPath( final V from, final V to )
+		{
+			if ( ++generation == Integer.MAX_VALUE )
+			{
+				Arrays.fill( forward.stamp, 0 );
+				Arrays.fill( backward.stamp, 0 );
+				generation = 1;
+			}
+			ids.reset();
+			forward.reset();
+			backward.reset();
+
+			final int fromId = ids.id( from );
+			final int toId = ids.id( to );
+			forward.visit( fromId, -1, 0, generation );
+			forward.frontier.add( fromId );
+			backward.visit( toId, -1, 0, generation );
+			backward.frontier.add( toId );
+
+			int meet = fromId == toId ? fromId : -1;
+			while ( meet < 0 && !forward.frontier.isEmpty() && !backward.frontier.isEmpty() )
+			{
+				// Expand the smaller frontier by one level. The first vertex
+				// reached by both searches is on a shortest path.
+				if ( forward.frontier.size() <= backward.frontier.size() )
+					meet = expand( forward, backward );
+				else
+					meet = expand( backward, forward );
+			}
+			if ( meet < 0 )
+				return null;
+
+			// Path in reverse order: to, ..., meet, ..., from.
+			final RefList< V > path = createVertexList( forward.depth[ meet ] + backward.depth[ meet ] + 1 );
+			final TIntArrayList toMeet = new TIntArrayList( backward.depth[ meet ] + 1 );
+			for ( int id = meet; id >= 0; id = backward.parent[ id ] )
+				toMeet.add( id );
+			for ( int i = toMeet.size() - 1; i >= 0; --i )
+				path.add( ids.vertex( toMeet.getQuick( i ), vref ) );
+			for ( int id = forward.parent[ meet ]; id >= 0; id = forward.parent[ id ] )
+				path.add( ids.vertex( id, vref ) );
+			return path;
+		}
+
+		/**
+		 * Expands all vertices in the frontier of {@code side}.
+		 *
+		 * @return the id of a vertex reached by both searches, or {@code -1}.
+		 */
+		private int expand( final Side side, final Side other )
+		{
+			final TIntArrayList frontier = side.frontier;
+			for ( int i = 0; i < frontier.size(); ++i )
+			{
+				final int u = frontier.getQuick( i );
+				final V v = ids.vertex( u, vref );
+				if ( poolIndices )
+				{
+					final AbstractVertex< ?, ?, ?, ? > av = ( AbstractVertex< ?, ?, ?, ? > ) v;
+					if ( side.direction != SearchDirection.REVERSED )
+						for ( int e = av.firstOut(); e >= 0; e = av.nextOut( e ) )
+							if ( discover( side, other, u, av.targetOf( e ) ) )
+								return av.targetOf( e );
+					if ( side.direction != SearchDirection.DIRECTED )
+						for ( int e = av.firstIn(); e >= 0; e = av.nextIn( e ) )
+							if ( discover( side, other, u, av.sourceOf( e ) ) )
+								return av.sourceOf( e );
+				}
+				else
+				{
+					final Edges< E > edges;
+					switch ( side.direction )
+					{
+					case DIRECTED:
+						edges = v.outgoingEdges();
+						break;
+					case REVERSED:
+						edges = v.incomingEdges();
+						break;
+					case UNDIRECTED:
+					default:
+						edges = v.edges();
+						break;
+					}
+					for ( final E e : edges )
+					{
+						final int o = ids.id( Graphs.getOppositeVertex( e, v, oref ) );
+						if ( discover( side, other, u, o ) )
+							return o;
+					}
+				}
+			}
+			side.swapFrontier();
+			return -1;
+		}
+
+		/**
+		 * Visits {@code o} from {@code u} on {@code side}, if it was not
+		 * visited yet.
+		 *
+		 * @return {@code true} if {@code o} has been visited by both searches.
+		 */
+		private boolean discover( final Side side, final Side other, final int u, final int o )
+		{
+			if ( side.isVisited( o, generation ) )
+				return false;
+			side.visit( o, u, side.depth[ u ] + 1, generation );
+			side.next.add( o );
+			return other.isVisited( o, generation );
+		}
+	}
+
+	private static SearchDirection reverse( final SearchDirection direction )
+	{
+		switch ( direction )
+		{
+		case DIRECTED:
+			return SearchDirection.REVERSED;
+		case REVERSED:
+			return SearchDirection.DIRECTED;
+		case UNDIRECTED:
+		default:
+			return SearchDirection.UNDIRECTED;
+		}
+	}
 }
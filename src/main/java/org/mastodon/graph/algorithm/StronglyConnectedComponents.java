@@ -28,15 +28,16 @@
  */
 package org.mastodon.graph.algorithm;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
 import org.mastodon.collection.RefSet;
-import org.mastodon.collection.RefStack;
 import org.mastodon.graph.Edge;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
-import org.mastodon.properties.IntPropertyMap;
+
+import gnu.trove.list.array.TIntArrayList;
 
 /**
  * A class to generate the strongly connected components of a directed graph.
@@ -44,11 +45,14 @@ import org.mastodon.properties.IntPropertyMap;
  * "https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm">Tarjan's
  * strongly connected components algorithm</a>.
  * <p>
- * TODO: The current implementation is recursive, processes the whole graph
- * immediately, and collects all strongly connected components into a
- * {@code HashSet}. It is therefore not really suited to very large or deep
- * graphs. It would be better to convert recursion to iteration, then process
- * until one SCC is completed, and provide access to SCCs through an iterator.
+ * The depth-first search is iterative, with explicit stacks over vertex ids,
+ * so that very deep graphs do not overflow the call stack.
+ * <p>
+ * TODO: The current implementation processes the whole graph immediately, and
+ * collects all strongly connected components into a {@code HashSet}. It is
+ * therefore not really suited to very large graphs. It would be better to
+ * process until one SCC is completed, and provide access to SCCs through an
+ * iterator.
  *
  * @author Tobias Pietzsch.
  *
@@ -86,10 +90,6 @@ public class StronglyConnectedComponents< V extends Vertex< E >, E extends Edge<
 	public StronglyConnectedComponents( final ReadOnlyGraph< V, E > graph )
 	{
 		super( graph );
-		index = new IntPropertyMap<>( graph.vertices(), -1 );
-		lowlink = new IntPropertyMap<>( graph.vertices(), -1 );
-		onStack = createVertexSet();
-		stack = createVertexStack();
 	}
 
 	/**
@@ -111,81 +111,131 @@ public class StronglyConnectedComponents< V extends Vertex< E >, E extends Edge<
 
 	private int i;
 
-	private final IntPropertyMap< V > index;
+	private int[] index;
+
+	private int[] lowlink;
 
-	private final IntPropertyMap< V > lowlink;
+	private boolean[] onStack;
 
-	private final RefSet< V > onStack;
+	private TIntArrayList stack;
+
+	/**
+	 * Explicit DFS stack replacing the recursion of {@code strongconnect}:
+	 * vertex ids and, for each, the position of the next outgoing edge to
+	 * follow.
+	 */
+	private TIntArrayList callStack;
 
-	private final RefStack< V > stack;
+	private TIntArrayList cursors;
+
+	private IntAdjacency< V, E > adjacency;
 
 	private HashSet< RefSet< V > > components;
 
 	private void reset()
 	{
 		i = 0;
-		index.beforeClearPool(); // just clears without emitting events
-		lowlink.beforeClearPool(); // just clears without emitting events
-		onStack.clear();
-		stack.clear();
+		adjacency = new IntAdjacency<>( graph, false );
+		index = new int[ adjacency.numIds ];
+		Arrays.fill( index, -1 );
+		lowlink = new int[ adjacency.numIds ];
+		onStack = new boolean[ adjacency.numIds ];
+		stack = new TIntArrayList();
+		callStack = new TIntArrayList();
+		cursors = new TIntArrayList();
 		components = new HashSet<>();
 	}
 
 	private void compute()
 	{
-		for ( final V v : graph.vertices() )
+		for ( final int v : adjacency.vertexOrder )
 		{
-			if ( !index.isSet( v ) )
+			if ( index[ v ] < 0 )
 				strongconnect( v );
 		}
+		adjacency = null;
+		index = null;
+		lowlink = null;
+		onStack = null;
+		stack = null;
+		callStack = null;
+		cursors = null;
 	}
 
-	private void strongconnect( final V v )
+	private void strongconnect( final int root )
 	{
-		// Set the depth index for v to the smallest unused index
-		index.set( v, i );
-		lowlink.set( v, i );
-		++i;
-		stack.push( v );
-		onStack.add( v );
-
-		// Consider successors of v
+		final int[] outStart = adjacency.outStart;
+		final int[] outIds = adjacency.outIds;
 		final V ref = graph.vertexRef();
-		for ( final E e : v.outgoingEdges() )
+
+		enter( root );
+		while ( !callStack.isEmpty() )
 		{
-			final V w = e.getTarget( ref );
-			if ( !index.isSet( w ) )
+			final int top = callStack.size() - 1;
+			final int v = callStack.getQuick( top );
+			final int c = cursors.getQuick( top );
+
+			// Consider successors of v
+			if ( c < outStart[ v + 1 ] )
 			{
-				// Successor w has not yet been visited; recurse on it
-				strongconnect( w );
-				lowlink.set( v, Math.min( lowlink.getInt( v ), lowlink.getInt( w ) ) );
+				cursors.setQuick( top, c + 1 );
+				final int w = outIds[ c ];
+				if ( index[ w ] < 0 )
+				{
+					// Successor w has not yet been visited; descend into it
+					enter( w );
+				}
+				else if ( onStack[ w ] )
+				{
+					// Successor w is in stack S and hence in the current SCC
+					// If w is not on stack, then (v, w) is a cross-edge in the DFS tree and must be ignored
+					// Note: The next line may look odd - but is correct.
+					// It says w.index not w.lowlink; that is deliberate and from the original paper
+					lowlink[ v ] = Math.min( lowlink[ v ], index[ w ] );
+				}
+				continue;
 			}
-			else if ( onStack.contains( w ) )
+
+			// All successors of v are done.
+			callStack.removeAt( top );
+			cursors.removeAt( top );
+
+			// If v is a root node, pop the stack and generate an SCC
+			if ( lowlink[ v ] == index[ v ] )
 			{
-				// Successor w is in stack S and hence in the current SCC
-				// If w is not on stack, then (v, w) is a cross-edge in the DFS tree and must be ignored
-				// Note: The next line may look odd - but is correct.
-				// It says w.index not w.lowlink; that is deliberate and from the original paper
-				lowlink.set( v, Math.min( lowlink.getInt( v ), index.getInt( w ) ) );
+				// start a new strongly connected component
+				final RefSet< V > scc = createVertexSet();
+				int w;
+				do
+				{
+					w = stack.removeAt( stack.size() - 1 );
+					onStack[ w ] = false;
+					scc.add( adjacency.vertex( w, ref ) );
+				}
+				while ( w != v );
+				// output the current strongly connected component
+				components.add( scc );
 			}
-		}
 
-		// If v is a root node, pop the stack and generate an SCC
-		if ( lowlink.getInt( v ) == index.getInt( v ) )
-		{
-			// start a new strongly connected component
-			final RefSet< V > scc = createVertexSet();
-			V w;
-			do
+			// Back in the caller: propagate the lowlink of v
+			if ( top > 0 )
 			{
-				w = stack.pop( ref );
-				onStack.remove( w );
-				scc.add( w );
+				final int u = callStack.getQuick( top - 1 );
+				lowlink[ u ] = Math.min( lowlink[ u ], lowlink[ v ] );
 			}
-			while ( !w.equals( v ) );
-			// output the current strongly connected component
-			components.add( scc );
 		}
 		graph.releaseRef( ref );
 	}
+
+	private void enter( final int v )
+	{
+		// Set the depth index for v to the smallest unused index
+		index[ v ] = i;
+		lowlink[ v ] = i;
+		++i;
+		stack.add( v );
+		onStack[ v ] = true;
+		callStack.add( v );
+		cursors.add( adjacency.outStart[ v ] );
+	}
 }
@@ -28,19 +28,22 @@
  */
 package org.mastodon.graph.algorithm;
 
-import java.util.Iterator;
-
 import org.mastodon.collection.RefList;
-import org.mastodon.collection.RefSet;
 import org.mastodon.graph.Edge;
 import org.mastodon.graph.Graph;
+import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
 
+import gnu.trove.list.array.TIntArrayList;
+
 /**
  * A topological order sort for a direct acyclic graph.
  * <p>
  * If the graph provided is not acyclic, the flag returned by the
  * {@link #hasFailed()} method set to {@code true} to indicate the problem.
+ * <p>
+ * The depth-first search is iterative, with an explicit stack over vertex ids,
+ * so that very deep graphs do not overflow the call stack.
  *
  * @param <V>
  *            the type of vertices in the graph.
@@ -50,20 +53,32 @@ import org.mastodon.graph.Vertex;
  */
 public class TopologicalSort< V extends Vertex< E >, E extends Edge< V > > extends AbstractGraphAlgorithm< V, E >
 {
-	private boolean failed;
+	private static final byte UNMARKED = 0;
+
+	private static final byte TEMPORARY_MARKED = 1;
 
-	private RefSet< V > marked;
+	private static final byte MARKED = 2;
 
-	private RefSet< V > temporaryMarked;
+	private boolean failed;
 
 	private final RefList< V > list;
 
+	/**
+	 * Kept for binary compatibility with code compiled against the former
+	 * {@link Graph} signature.
+	 *
+	 * @param graph
+	 *            the graph to sort.
+	 */
 	public TopologicalSort( final Graph< V, E > graph )
+	{
+		this( ( ReadOnlyGraph< V, E > ) graph );
+	}
+
+	public TopologicalSort( final ReadOnlyGraph< V, E > graph )
 	{
 		super( graph );
 		this.failed = false;
-		this.marked = createVertexSet();
-		this.temporaryMarked = createVertexSet();
 		this.list = createVertexList();
 		fetchList();
 	}
@@ -91,41 +106,53 @@ public class TopologicalSort< V extends Vertex< E >, E extends Edge< V > > exten
 
 	private void fetchList()
 	{
-		final Iterator< V > vit = graph.vertices().iterator();
-		while ( vit.hasNext() && !failed )
-		{
-			final V v1 = vit.next();
-			if ( !marked.contains( v1 ) )
-			{
-				visit( v1 );
-			}
-		}
-		marked = null;
-		temporaryMarked = null;
-	}
+		final IntAdjacency< V, E > adjacency = new IntAdjacency<>( graph, false );
+		final int[] outStart = adjacency.outStart;
+		final int[] outIds = adjacency.outIds;
+		final byte[] marks = new byte[ adjacency.numIds ];
+		// Explicit DFS stack: vertex ids and, for each, the position of the
+		// next outgoing edge to follow.
+		final TIntArrayList stack = new TIntArrayList();
+		final TIntArrayList cursors = new TIntArrayList();
+		final V ref = vertexRef();
 
-	private void visit( final V vertex )
-	{
-		if ( temporaryMarked.contains( vertex ) )
+		final int[] vertexOrder = adjacency.vertexOrder;
+		for ( int i = 0; i < vertexOrder.length && !failed; ++i )
 		{
-			failed = true;
-			return;
-		}
+			final int v1 = vertexOrder[ i ];
+			if ( marks[ v1 ] == MARKED )
+				continue;
 
-		if ( !marked.contains( vertex ) )
-		{
-			V v2 = graph.vertexRef();
-			temporaryMarked.add( vertex );
-			for ( final Edge< V > e : vertex.outgoingEdges() )
+			marks[ v1 ] = TEMPORARY_MARKED;
+			stack.add( v1 );
+			cursors.add( outStart[ v1 ] );
+			while ( !stack.isEmpty() )
 			{
-				v2 = e.getTarget( v2 );
-				visit( v2 );
+				final int top = stack.size() - 1;
+				final int vertex = stack.getQuick( top );
+				final int c = cursors.getQuick( top );
+				if ( c < outStart[ vertex + 1 ] )
+				{
+					cursors.setQuick( top, c + 1 );
+					final int v2 = outIds[ c ];
+					if ( marks[ v2 ] == TEMPORARY_MARKED )
+						failed = true;
+					else if ( marks[ v2 ] == UNMARKED )
+					{
+						marks[ v2 ] = TEMPORARY_MARKED;
+						stack.add( v2 );
+						cursors.add( outStart[ v2 ] );
+					}
+				}
+				else
+				{
+					stack.removeAt( top );
+					cursors.removeAt( top );
+					marks[ vertex ] = MARKED;
+					list.add( adjacency.vertex( vertex, ref ) );
+				}
 			}
-			graph.releaseRef( v2 );
-
-			marked.add( vertex );
-			temporaryMarked.remove( vertex );
-			list.add( vertex );
 		}
+		releaseRef( ref );
 	}
 }
@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import org.mastodon.RefPool;
+import org.mastodon.collection.RefCollection;
+import org.mastodon.collection.RefCollections;
+import org.mastodon.collection.RefIntMap;
+import org.mastodon.collection.RefList;
+import org.mastodon.collection.RefMaps;
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+import org.mastodon.pool.PoolCollectionWrapper;
+
+/**
+ * Integer ids for the vertices of a graph, for algorithms that work on
+ * primitive arrays indexed by vertex.
+ * <p>
+ * For pool-based graphs the ids are the internal pool indices of the vertices,
+ * so the id range may contain holes left by removed vertices. For other graphs
+ * the ids are assigned in the order of {@link ReadOnlyGraph#vertices()}.
+ * <p>
+ * {@link #id(Vertex)} and {@link #vertex(int, Vertex)} only read, and may be
+ * called concurrently, with different refs, as long as the graph is not
+ * modified.
+ *
+ * @param <V>
+ *            the type of vertices in the graph.
+ * @param <E>
+ *            the type of edges in the graph.
+ */
+class VertexIds< V extends Vertex< E >, E extends Edge< V > >
+{
+	/**
+	 * Size of the id range. Arrays indexed by vertex id must have this length.
+	 */
+	final int numIds;
+
+	/**
+	 * The ids of all vertices, in the order of {@link ReadOnlyGraph#vertices()}.
+	 */
+	final int[] vertexOrder;
+
+	private final RefPool< V > pool;
+
+	private final RefList< V > vertices;
+
+	private final RefIntMap< V > ids;
+
+	@SuppressWarnings( "unchecked" )
+	VertexIds( final ReadOnlyGraph< V, E > graph )
+	{
+		final RefCollection< V > vs = graph.vertices();
+		final int n = vs.size();
+		vertexOrder = new int[ n ];
+		if ( vs instanceof PoolCollectionWrapper )
+		{
+			pool = ( RefPool< V > ) ( ( PoolCollectionWrapper< ? > ) vs ).getRefPool();
+			vertices = null;
+			ids = null;
+			int max = -1;
+			int i = 0;
+			for ( final V v : vs )
+			{
+				final int id = pool.getId( v );
+				vertexOrder[ i++ ] = id;
+				max = Math.max( max, id );
+			}
+			numIds = max + 1;
+		}
+		else
+		{
+			pool = null;
+			vertices = RefCollections.createRefList( vs, n );
+			ids = RefMaps.createRefIntMap( vs, -1, n );
+			int i = 0;
+			for ( final V v : vs )
+			{
+				vertices.add( v );
+				ids.put( v, i );
+				vertexOrder[ i ] = i;
+				++i;
+			}
+			numIds = n;
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the ids are internal pool indices.
+	 *
+	 * @return whether the ids are internal pool indices.
+	 */
+	boolean isPoolIndex()
+	{
+		return pool != null;
+	}
+
+	/**
+	 * Returns the id of the specified vertex.
+	 *
+	 * @param v
+	 *            a vertex of the graph.
+	 * @return the id of {@code v}.
+	 */
+	int id( final V v )
+	{
+		return pool != null ? pool.getId( v ) : ids.get( v );
+	}
+
+	/**
+	 * Returns the vertex with the specified id.
+	 *
+	 * @param id
+	 *            the vertex id.
+	 * @param ref
+	 *            a vertex reference that may be used to retrieve the vertex.
+	 * @return the vertex with the specified id.
+	 */
+	V vertex( final int id, final V ref )
+	{
+		return pool != null ? pool.getObject( id, ref ) : vertices.get( id, ref );
+	}
+}
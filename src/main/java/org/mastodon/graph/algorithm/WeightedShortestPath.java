@@ -0,0 +1,366 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+
+import org.mastodon.collection.RefList;
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.Edges;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
+import org.mastodon.graph.algorithm.util.Graphs;
+
+/**
+ * Shortest paths in graphs with non-negative edge costs, using
+ * <a href="https://en.wikipedia.org/wiki/Dijkstra%27s_algorithm">Dijkstra's
+ * algorithm</a>.
+ * <p>
+ * Edge costs are given by a {@link ToDoubleFunction}, for example
+ * {@code costs::getDouble} for a {@code DoublePropertyMap} {@code costs} over
+ * edges. Whether and how edges are followed is specified by a
+ * {@link SearchDirection}, like for {@link ShortestPath}.
+ * <p>
+ * {@link #findPath(Vertex, Vertex)} answers point-to-point queries, and stops
+ * as soon as the target is reached. {@link #computeTree(Vertex)} computes the
+ * shortest path tree from a single source to all reachable vertices. After
+ * either, {@link #getDistance(Vertex)}, {@link #getParent(Vertex, Vertex)} and
+ * {@link #getPath(Vertex)} give access to the result.
+ * <p>
+ * The open vertices are kept in an indexed binary heap keyed by vertex pool
+ * index (or by ids assigned on the fly for graphs that are not pool-based).
+ * Per-vertex state is kept in primitive arrays that are reused across queries,
+ * and invalidated by a generation stamp instead of being cleared.
+ *
+ * @param <V>
+ *            the {@link Vertex} type of the {@link ReadOnlyGraph}.
+ * @param <E>
+ *            the {@link Edge} type of the {@link ReadOnlyGraph}.
+ */
+public class WeightedShortestPath< V extends Vertex< E >, E extends Edge< V > > extends AbstractGraphAlgorithm< V, E >
+{
+	private final SearchDirection directivity;
+
+	private final ToDoubleFunction< E > cost;
+
+	private final LazyVertexIds< V, E > ids;
+
+	private final IndexedDoubleHeap heap;
+
+	/**
+	 * Current query. Entries in the arrays below are only valid for a vertex
+	 * id if its {@code reached} stamp equals the current generation.
+	 */
+	private int generation;
+
+	private int[] reached;
+
+	private int[] settled;
+
+	private double[] distance;
+
+	private int[] parent;
+
+	private int sourceId;
+
+	/**
+	 * Creates a new weighted shortest path searcher.
+	 *
+	 * @param graph
+	 *            the graph to traverse.
+	 * @param directivity
+	 *            whether the search takes into account the direction of edges.
+	 * @param cost
+	 *            the cost of each edge. Must be non-negative.
+	 */
+	public WeightedShortestPath( final ReadOnlyGraph< V, E > graph, final SearchDirection directivity, final ToDoubleFunction< E > cost )
+	{
+		super( graph );
+		this.directivity = directivity;
+		this.cost = cost;
+		this.ids = new LazyVertexIds<>( graph );
+		final int capacity = Math.max( 16, graph.vertices().size() );
+		heap = new IndexedDoubleHeap( capacity );
+		generation = 0;
+		reached = new int[ capacity ];
+		settled = new int[ capacity ];
+		distance = new double[ capacity ];
+		parent = new int[ capacity ];
+		sourceId = -1;
+	}
+
+	/**
+	 * Finds the path of least cost between the specified vertices.
+	 *
+	 * @param from
+	 *            the vertex to start search from.
+	 * @param to
+	 *            the vertex to reach.
+	 * @return a new {@link RefList}, containing the path found <b>in reverse
+	 *         order</b> ({@code to → from}). Returns {@code null} if a path
+	 *         cannot be found between the specified vertices.
+	 * @throws IllegalArgumentException
+	 *             if a negative edge cost is met.
+	 */
+	public RefList< V > findPath( final V from, final V to )
+	{
+		search( from, to );
+		return getPath( to );
+	}
+
+	/**
+	 * Computes the shortest path tree from the specified source to all
+	 * reachable vertices.
+	 *
+	 * @param source
+	 *            the vertex to start search from.
+	 * @throws IllegalArgumentException
+	 *             if a negative edge cost is met.
+	 */
+	public void computeTree( final V source )
+	{
+		search( source, null );
+	}
+
+	/**
+	 * Returns the cost of the shortest path from the source of the last search
+	 * to the specified vertex.
+	 * <p>
+	 * After {@link #findPath(Vertex, Vertex)}, this is only guaranteed to be
+	 * the least cost for the target, and for vertices settled before it.
+	 *
+	 * @param v
+	 *            the vertex.
+	 * @return the path cost, or {@link Double#POSITIVE_INFINITY} if {@code v}
+	 *         was not reached.
+	 */
+	public double getDistance( final V v )
+	{
+		final int id = lookup( v );
+		return isReached( id ) ? distance[ id ] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Returns the predecessor of the specified vertex on its shortest path from
+	 * the source of the last search.
+	 *
+	 * @param v
+	 *            the vertex.
+	 * @param ref
+	 *            a vertex reference that may be used to return the
+	 *            predecessor.
+	 * @return the predecessor, or {@code null} if {@code v} is the source or
+	 *         was not reached.
+	 */
+	public V getParent( final V v, final V ref )
+	{
+		final int id = lookup( v );
+		if ( !isReached( id ) || parent[ id ] < 0 )
+			return null;
+		return vertex( parent[ id ], ref );
+	}
+
+	/**
+	 * Returns the shortest path from the source of the last search to the
+	 * specified vertex.
+	 *
+	 * @param to
+	 *            the vertex to reach.
+	 * @return a new {@link RefList}, containing the path <b>in reverse
+	 *         order</b> ({@code to → source}). Returns {@code null} if
+	 *         {@code to} was not settled by the last search.
+	 */
+	public RefList< V > getPath( final V to )
+	{
+		int id = lookup( to );
+		if ( !isSettled( id ) )
+			return null;
+
+		final RefList< V > path = createVertexList();
+		final V tmp = vertexRef();
+		while ( id >= 0 )
+		{
+			path.add( vertex( id, tmp ) );
+			id = parent[ id ];
+		}
+		releaseRef( tmp );
+		return path;
+	}
+
+	/**
+	 * Returns an estimate of the cost from the specified vertex to the target
+	 * of the current point-to-point search. The base implementation returns
+	 * {@code 0}, which gives Dijkstra's algorithm. Subclasses may return a
+	 * consistent lower bound to get A*.
+	 *
+	 * @param vertex
+	 *            the vertex.
+	 * @return the estimated remaining cost.
+	 */
+	protected double heuristic( final V vertex )
+	{
+		return 0;
+	}
+
+	/**
+	 * Called before each point-to-point search, with the target to reach.
+	 *
+	 * @param target
+	 *            the target vertex.
+	 */
+	protected void setTarget( final V target )
+	{}
+
+	private void search( final V source, final V target )
+	{
+		newGeneration();
+		final boolean useHeuristic = target != null;
+		if ( useHeuristic )
+			setTarget( target );
+		final int targetId = useHeuristic ? id( target ) : -1;
+
+		sourceId = id( source );
+		reach( sourceId, 0, -1 );
+		heap.insertOrDecrease( sourceId, useHeuristic ? heuristic( source ) : 0 );
+
+		final V vref = vertexRef();
+		final V oref = vertexRef();
+		try
+		{
+			while ( !heap.isEmpty() )
+			{
+				final int vid = heap.poll();
+				settled[ vid ] = generation;
+				if ( vid == targetId )
+					break;
+
+				final V v = vertex( vid, vref );
+				final double d = distance[ vid ];
+				final Edges< E > edges;
+				switch ( directivity )
+				{
+				case DIRECTED:
+					edges = v.outgoingEdges();
+					break;
+				case REVERSED:
+					edges = v.incomingEdges();
+					break;
+				case UNDIRECTED:
+				default:
+					edges = v.edges();
+					break;
+				}
+				for ( final E e : edges )
+				{
+					final double c = cost.applyAsDouble( e );
+					if ( c < 0 )
+						throw new IllegalArgumentException( "Edge costs must be non-negative, was " + c + "." );
+					final V o = Graphs.getOppositeVertex( e, v, oref );
+					final int oid = id( o );
+					if ( settled[ oid ] == generation )
+						continue;
+					final double od = d + c;
+					if ( !isReached( oid ) || od < distance[ oid ] )
+					{
+						reach( oid, od, vid );
+						heap.insertOrDecrease( oid, useHeuristic ? od + heuristic( o ) : od );
+					}
+				}
+			}
+		}
+		finally
+		{
+			releaseRef( oref );
+			releaseRef( vref );
+		}
+	}
+
+	private void newGeneration()
+	{
+		heap.clear();
+		if ( ++generation == Integer.MAX_VALUE )
+		{
+			Arrays.fill( reached, 0 );
+			Arrays.fill( settled, 0 );
+			generation = 1;
+		}
+		ids.reset();
+	}
+
+	private void reach( final int id, final double d, final int p )
+	{
+		reached[ id ] = generation;
+		distance[ id ] = d;
+		parent[ id ] = p;
+	}
+
+	private boolean isReached( final int id )
+	{
+		return id >= 0 && id < reached.length && reached[ id ] == generation;
+	}
+
+	private boolean isSettled( final int id )
+	{
+		return id >= 0 && id < settled.length && settled[ id ] == generation;
+	}
+
+	/**
+	 * Returns the id of the specified vertex, assigning one if needed, and
+	 * makes sure the per-vertex arrays can hold it.
+	 */
+	private int id( final V v )
+	{
+		final int id = ids.id( v );
+		if ( id >= reached.length )
+		{
+			final int capacity = Math.max( id + 1, 2 * reached.length );
+			reached = Arrays.copyOf( reached, capacity );
+			settled = Arrays.copyOf( settled, capacity );
+			distance = Arrays.copyOf( distance, capacity );
+			parent = Arrays.copyOf( parent, capacity );
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the id of the specified vertex, or {@code -1} if it does not
+	 * have one.
+	 */
+	private int lookup( final V v )
+	{
+		return ids.lookup( v );
+	}
+
+	private V vertex( final int id, final V ref )
+	{
+		return ids.vertex( id, ref );
+	}
+}
@@ -29,13 +29,19 @@
 package org.mastodon.graph.algorithm.traversal;
 
 import java.util.Iterator;
+import java.util.function.IntConsumer;
 
+import org.mastodon.RefPool;
 import org.mastodon.collection.MaybeRefIterator;
+import org.mastodon.collection.RefCollection;
 import org.mastodon.collection.RefSet;
 import org.mastodon.graph.Edge;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
 import org.mastodon.graph.algorithm.AbstractGraphAlgorithm;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
+import org.mastodon.graph.ref.AbstractVertex;
+import org.mastodon.pool.PoolCollectionWrapper;
 import org.mastodon.pool.PoolObject;
 
 public abstract class AbstractGraphIteratorAlgorithm< V extends Vertex< E >, E extends Edge< V > > extends AbstractGraphAlgorithm< V, E > implements MaybeRefIterator, Iterator< V >
@@ -62,6 +68,20 @@ public abstract class AbstractGraphIteratorAlgorithm< V extends Vertex< E >, E e
 	protected final V nextRef;
 	protected final V fetchedRef;
 
+	/**
+	 * The vertex pool, if the graph vertices are {@link AbstractVertex}es.
+	 * Then, neighbors are found by internal pool index, without iterating
+	 * over edges. {@code null} otherwise.
+	 */
+	private final RefPool< V > vertexPool;
+
+	/**
+	 * Marks the vertex with the specified internal pool index as visited and
+	 * tosses it, if it was not visited yet.
+	 */
+	private final IntConsumer visitIndex;
+
+	@SuppressWarnings( "unchecked" )
 	public AbstractGraphIteratorAlgorithm( final ReadOnlyGraph< V, E > graph )
 	{
 		super( graph );
@@ -69,6 +89,18 @@ public abstract class AbstractGraphIteratorAlgorithm< V extends Vertex< E >, E e
 		tmpRef = vertexRef();
 		nextRef = vertexRef();
 		fetchedRef = vertexRef();
+		final RefCollection< V > vertices = graph.vertices();
+		vertexPool = vertices instanceof PoolCollectionWrapper && tmpRef instanceof AbstractVertex
+				? ( RefPool< V > ) ( ( PoolCollectionWrapper< ? > ) vertices ).getRefPool()
+				: null;
+		visitIndex = index -> {
+			final V target = vertexPool.getObject( index, tmpRef );
+			if ( !visited.contains( target ) )
+			{
+				visited.add( target );
+				toss( target );
+			}
+		};
 		reset();
 	}
 
@@ -107,6 +139,8 @@ public abstract class AbstractGraphIteratorAlgorithm< V extends Vertex< E >, E e
 		if ( canFetch() )
 		{
 			fetched = fetch( fetchedRef );
+			if ( visitNeighborIndices( fetched ) )
+				return;
 			for ( final E e : neighbors( fetched ) )
 			{
 				final V target = targetOf( fetched, e, tmpRef );
@@ -121,6 +155,72 @@ public abstract class AbstractGraphIteratorAlgorithm< V extends Vertex< E >, E e
 			fetched = null;
 	}
 
+	/**
+	 * Visits the neighbors of a vertex by internal pool index, if the vertex
+	 * is an {@link AbstractVertex}, and {@link #neighbors(Vertex)} are the
+	 * edges of the vertex in the {@link #neighborDirection()}. This avoids
+	 * {@code Edges} and {@code Iterator}s, and visits neighbors in the same
+	 * order. The neighbor indices are read from the edges, so overrides of
+	 * {@code AbstractEdge.getSource()} and {@code getTarget()} are not
+	 * called.
+	 *
+	 * @return {@code false} if the neighbors must be visited by iterating
+	 *         over {@link #neighbors(Vertex)}.
+	 */
+	private boolean visitNeighborIndices( final V vertex )
+	{
+		final SearchDirection direction = neighborDirection();
+		if ( vertexPool == null || direction == null )
+			return false;
+
+		final AbstractVertex< ?, ?, ?, ? > v = ( AbstractVertex< ?, ?, ?, ? > ) vertex;
+		final Iterable< E > neighbors = neighbors( vertex );
+		switch ( direction )
+		{
+		case DIRECTED:
+			if ( neighbors != v.outgoingEdges() )
+				return false;
+			v.forEachOutTarget( visitIndex );
+			return true;
+		case REVERSED:
+			if ( neighbors != v.incomingEdges() )
+				return false;
+			v.forEachInSource( visitIndex );
+			return true;
+		case UNDIRECTED:
+		default:
+			if ( neighbors != v.edges() )
+				return false;
+			v.forEachInSource( visitIndex );
+			v.forEachOutTarget( visitIndex );
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the direction in which {@link #neighbors(Vertex)} and
+	 * {@link #targetOf(Vertex, Edge, Vertex)} follow edges:
+	 * {@link SearchDirection#DIRECTED} for outgoing edges and their targets,
+	 * {@link SearchDirection#REVERSED} for incoming edges and their sources,
+	 * and {@link SearchDirection#UNDIRECTED} for all edges (incoming first)
+	 * and their opposite vertices.
+	 * <p>
+	 * If this is not {@code null}, neighbors of pool vertices are visited by
+	 * internal pool index, without calling
+	 * {@link #targetOf(Vertex, Edge, Vertex)}. Subclasses that override
+	 * {@code targetOf} in another way must override this to return
+	 * {@code null}.
+	 *
+	 * @return the direction of edges followed by this iterator, or
+	 *         {@code null} if neighbors must be visited through
+	 *         {@link #neighbors(Vertex)} and
+	 *         {@link #targetOf(Vertex, Edge, Vertex)}.
+	 */
+	protected SearchDirection neighborDirection()
+	{
+		return null;
+	}
+
 	@Override
 	public void remove()
 	{
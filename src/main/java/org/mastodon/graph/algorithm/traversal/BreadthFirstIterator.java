@@ -32,6 +32,7 @@ import org.mastodon.collection.RefDeque;
 import org.mastodon.graph.Edge;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
 
 /**
  * A Breadth-first iterator, that traverses edges only following their
@@ -60,6 +61,12 @@ public class BreadthFirstIterator< V extends Vertex< E >, E extends Edge< V > >
 		visited.add( root );
 	}
 
+	@Override
+	protected SearchDirection neighborDirection()
+	{
+		return SearchDirection.DIRECTED;
+	}
+
 	@Override
 	protected Iterable< E > neighbors( final V vertex )
 	{
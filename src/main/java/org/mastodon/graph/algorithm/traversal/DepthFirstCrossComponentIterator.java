@@ -34,6 +34,7 @@ import org.mastodon.graph.Edge;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
 import org.mastodon.graph.algorithm.RootFinder;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
 
 /**
  * A cross-component, depth-first iterator, that iterates through a whole graph,
@@ -123,6 +124,12 @@ public class DepthFirstCrossComponentIterator< V extends Vertex< E >, E extends
 		visited.add( start );
 	}
 
+	@Override
+	protected SearchDirection neighborDirection()
+	{
+		return SearchDirection.DIRECTED;
+	}
+
 	@Override
 	protected Iterable< E > neighbors( final V vertex )
 	{
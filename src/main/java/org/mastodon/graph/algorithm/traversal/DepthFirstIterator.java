@@ -32,6 +32,7 @@ import org.mastodon.collection.RefStack;
 import org.mastodon.graph.Edge;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
 
 /**
  * A Depth-first iterator, that traverses edges only following their direction.
@@ -71,6 +72,12 @@ public class DepthFirstIterator< V extends Vertex< E >, E extends Edge< V > > ex
 		visited.add( root );
 	}
 
+	@Override
+	protected SearchDirection neighborDirection()
+	{
+		return SearchDirection.DIRECTED;
+	}
+
 	@Override
 	protected Iterable< E > neighbors( final V vertex )
 	{
@@ -34,6 +34,7 @@ package org.mastodon.graph.algorithm.traversal;
 import org.mastodon.graph.Edge;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
 
 /**
  * Same as {@link BreadthFirstIterator} on a graph where all directed edges are
@@ -53,6 +54,12 @@ public class InverseBreadthFirstIterator< V extends Vertex< E >, E extends Edge<
 		super( root, graph );
 	}
 
+	@Override
+	protected SearchDirection neighborDirection()
+	{
+		return SearchDirection.REVERSED;
+	}
+
 	@Override
 	protected Iterable< E > neighbors( final V vertex )
 	{
@@ -32,6 +32,7 @@ import org.mastodon.graph.Edge;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
 import org.mastodon.graph.algorithm.LeafFinder;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
 
 /**
  * Same as {@link DepthFirstCrossComponentIterator} on a graph where all
@@ -89,6 +90,12 @@ public class InverseDepthFirstCrossComponentIterator< V extends Vertex< E >, E e
 		super( start, graph, leaves );
 	}
 
+	@Override
+	protected SearchDirection neighborDirection()
+	{
+		return SearchDirection.REVERSED;
+	}
+
 	@Override
 	protected Iterable< E > neighbors( final V vertex )
 	{
@@ -34,6 +34,7 @@ package org.mastodon.graph.algorithm.traversal;
 import org.mastodon.graph.Edge;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
 
 /**
  * Same as {@link DepthFirstIterator} on a graph where all directed edges are
@@ -59,6 +60,12 @@ public class InverseDepthFirstIterator< V extends Vertex< E >, E extends Edge< V
 		super( graph );
 	}
 
+	@Override
+	protected SearchDirection neighborDirection()
+	{
+		return SearchDirection.REVERSED;
+	}
+
 	@Override
 	protected Iterable< E > neighbors( final V vertex )
 	{
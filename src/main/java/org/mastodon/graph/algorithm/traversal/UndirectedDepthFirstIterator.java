@@ -32,6 +32,7 @@ import org.mastodon.collection.RefStack;
 import org.mastodon.graph.Edge;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
 import org.mastodon.graph.algorithm.util.Graphs;
 
 /**
@@ -73,6 +74,12 @@ public class UndirectedDepthFirstIterator< V extends Vertex< E >, E extends Edge
 		visited.add( root );
 	}
 
+	@Override
+	protected SearchDirection neighborDirection()
+	{
+		return SearchDirection.UNDIRECTED;
+	}
+
 	@Override
 	protected Iterable< E > neighbors( final V vertex )
 	{
@@ -0,0 +1,114 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm.util;
+
+import java.util.function.Supplier;
+
+import org.mastodon.graph.VersionedGraph;
+
+/**
+ * Memoizes the result of an algorithm run on a {@link VersionedGraph}. The
+ * result is recomputed on {@link #get()} only if the graph changed since it
+ * was last computed.
+ * <p>
+ * For example, the roots of a graph can be cached with
+ *
+ * <pre>
+ * final GraphVersionCache&lt; RefSet&lt; V &gt; &gt; roots = new GraphVersionCache&lt;&gt;( graph, false, () -&gt; RootFinder.getRoots( graph ) );
+ * </pre>
+ *
+ * @param <T>
+ *            the type of the result.
+ */
+public class GraphVersionCache< T >
+{
+	private final VersionedGraph graph;
+
+	private final boolean dependsOnAttributes;
+
+	private final Supplier< T > algorithm;
+
+	private boolean valid;
+
+	private long structureVersion;
+
+	private long attributeVersion;
+
+	private T result;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param graph
+	 *            the graph the algorithm runs on.
+	 * @param dependsOnAttributes
+	 *            whether the result depends on attributes of vertices or
+	 *            edges. If {@code false}, the result is only recomputed if
+	 *            the {@link VersionedGraph#getStructureVersion() structure} of
+	 *            the graph changed.
+	 * @param algorithm
+	 *            computes the result.
+	 */
+	public GraphVersionCache( final VersionedGraph graph, final boolean dependsOnAttributes, final Supplier< T > algorithm )
+	{
+		this.graph = graph;
+		this.dependsOnAttributes = dependsOnAttributes;
+		this.algorithm = algorithm;
+		this.valid = false;
+	}
+
+	/**
+	 * Returns the result of the algorithm, computing it if the graph changed
+	 * since it was last computed.
+	 *
+	 * @return the result of the algorithm.
+	 */
+	public synchronized T get()
+	{
+		final long s = graph.getStructureVersion();
+		final long a = graph.getAttributeVersion();
+		if ( !valid || s != structureVersion || ( dependsOnAttributes && a != attributeVersion ) )
+		{
+			result = algorithm.get();
+			structureVersion = s;
+			attributeVersion = a;
+			valid = true;
+		}
+		return result;
+	}
+
+	/**
+	 * Forces the result to be recomputed on the next {@link #get()}.
+	 */
+	public synchronized void invalidate()
+	{
+		valid = false;
+		result = null;
+	}
+}
@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.csr;
+
+import org.mastodon.graph.Edge;
+import org.mastodon.pool.ByteMappedElement;
+import org.mastodon.pool.PoolObject;
+
+/**
+ * Edge of a {@link CsrGraphSnapshot}.
+ */
+public class CsrEdge extends PoolObject< CsrEdge, CsrEdgePool, ByteMappedElement > implements Edge< CsrVertex >
+{
+	private static final int SOURCE_INDEX_OFFSET = CsrEdgePool.layout.source.getOffset();
+	private static final int TARGET_IN_INDEX_OFFSET = CsrEdgePool.layout.targetInIndex.getOffset();
+	private static final int ID_OFFSET = CsrEdgePool.layout.id.getOffset();
+
+	private final CsrGraphSnapshot snapshot;
+
+	private final CsrVertexPool vertexPool;
+
+	CsrEdge( final CsrEdgePool pool )
+	{
+		super( pool );
+		this.snapshot = pool.snapshot;
+		this.vertexPool = pool.vertexPool;
+	}
+
+	/**
+	 * Gets the id of the edge of the original graph that this edge is a
+	 * snapshot of.
+	 *
+	 * @return the id of the original edge in the {@code GraphIdBimap} the
+	 *         snapshot was created with.
+	 */
+	public int getId()
+	{
+		return access.getInt( ID_OFFSET );
+	}
+
+	void init( final int sourceIndex, final int id )
+	{
+		access.putIndex( sourceIndex, SOURCE_INDEX_OFFSET );
+		access.putInt( id, ID_OFFSET );
+	}
+
+	void setTargetInIndex( final int index )
+	{
+		access.putInt( index, TARGET_IN_INDEX_OFFSET );
+	}
+
+	int getSourceVertexInternalPoolIndex()
+	{
+		return access.getIndex( SOURCE_INDEX_OFFSET );
+	}
+
+	int getTargetVertexInternalPoolIndex()
+	{
+		return snapshot.outTargets[ getInternalPoolIndex() ];
+	}
+
+	@Override
+	protected void setToUninitializedState()
+	{}
+
+	@Override
+	public CsrVertex getSource()
+	{
+		return getSource( vertexPool.createRef() );
+	}
+
+	@Override
+	public CsrVertex getSource( final CsrVertex vertex )
+	{
+		return vertexPool.getObject( getSourceVertexInternalPoolIndex(), vertex );
+	}
+
+	@Override
+	public int getSourceOutIndex()
+	{
+		return getInternalPoolIndex() - snapshot.outOffsets[ getSourceVertexInternalPoolIndex() ];
+	}
+
+	@Override
+	public CsrVertex getTarget()
+	{
+		return getTarget( vertexPool.createRef() );
+	}
+
+	@Override
+	public CsrVertex getTarget( final CsrVertex vertex )
+	{
+		return vertexPool.getObject( getTargetVertexInternalPoolIndex(), vertex );
+	}
+
+	@Override
+	public int getTargetInIndex()
+	{
+		return access.getInt( TARGET_IN_INDEX_OFFSET );
+	}
+
+	@Override
+	public String toString()
+	{
+		return "CsrEdge(" + getId() + ")";
+	}
+}
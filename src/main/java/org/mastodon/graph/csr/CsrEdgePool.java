@@ -0,0 +1,75 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.csr;
+
+import org.mastodon.pool.ByteMappedElement;
+import org.mastodon.pool.ByteMappedElementArray;
+import org.mastodon.pool.Pool;
+import org.mastodon.pool.PoolObjectLayout;
+import org.mastodon.pool.SingleArrayMemPool;
+
+/**
+ * Pool of {@link CsrEdge} objects of a {@link CsrGraphSnapshot}. Edges are
+ * numbered in the order of the outgoing edge lists of the vertices, so the
+ * outgoing edges of a vertex have consecutive pool indices.
+ */
+public class CsrEdgePool extends Pool< CsrEdge, ByteMappedElement >
+{
+	static class CsrEdgeLayout extends PoolObjectLayout
+	{
+		final IndexField source = indexField();
+		final IntField targetInIndex = intField();
+		final IntField id = intField();
+	}
+
+	static CsrEdgeLayout layout = new CsrEdgeLayout();
+
+	final CsrGraphSnapshot snapshot;
+
+	final CsrVertexPool vertexPool;
+
+	CsrEdgePool( final int initialCapacity, final CsrVertexPool vertexPool )
+	{
+		super( initialCapacity, layout, CsrEdge.class, SingleArrayMemPool.factory( ByteMappedElementArray.factory ) );
+		this.snapshot = vertexPool.snapshot;
+		this.vertexPool = vertexPool;
+	}
+
+	@Override
+	protected CsrEdge createEmptyRef()
+	{
+		return new CsrEdge( this );
+	}
+
+	@Override
+	protected CsrEdge create( final CsrEdge edge )
+	{
+		return super.create( edge );
+	}
+}
@@ -0,0 +1,156 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.csr;
+
+import java.util.Iterator;
+
+import org.mastodon.graph.Edges;
+
+/**
+ * Incoming, outgoing, or all edges of a {@link CsrVertex}. Incoming edges are
+ * listed before outgoing edges, like in the linked-list based graphs.
+ */
+class CsrEdges implements Edges< CsrEdge >
+{
+	private final CsrVertex vertex;
+
+	private final CsrGraphSnapshot snapshot;
+
+	private final boolean incoming;
+
+	private final boolean outgoing;
+
+	private CsrEdgesIterator iterator;
+
+	CsrEdges( final CsrVertex vertex, final boolean incoming, final boolean outgoing )
+	{
+		this.vertex = vertex;
+		this.snapshot = vertex.snapshot;
+		this.incoming = incoming;
+		this.outgoing = outgoing;
+	}
+
+	private int numIncoming( final int v )
+	{
+		return incoming ? snapshot.inOffsets[ v + 1 ] - snapshot.inOffsets[ v ] : 0;
+	}
+
+	private int numOutgoing( final int v )
+	{
+		return outgoing ? snapshot.outOffsets[ v + 1 ] - snapshot.outOffsets[ v ] : 0;
+	}
+
+	/**
+	 * Gets the pool index of the <em>i</em>th edge in this list.
+	 */
+	private int edgeIndex( final int v, final int i )
+	{
+		final int numIncoming = numIncoming( v );
+		return i < numIncoming
+				? snapshot.inEdges[ snapshot.inOffsets[ v ] + i ]
+				: snapshot.outOffsets[ v ] + i - numIncoming;
+	}
+
+	@Override
+	public int size()
+	{
+		final int v = vertex.getInternalPoolIndex();
+		return numIncoming( v ) + numOutgoing( v );
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	@Override
+	public CsrEdge get( final int i )
+	{
+		return get( i, snapshot.edgeRef() );
+	}
+
+	@Override
+	public CsrEdge get( final int i, final CsrEdge edge )
+	{
+		return snapshot.edgePool.getObject( edgeIndex( vertex.getInternalPoolIndex(), i ), edge );
+	}
+
+	@Override
+	public Iterator< CsrEdge > iterator()
+	{
+		if ( iterator == null )
+			iterator = new CsrEdgesIterator();
+		else
+			iterator.reset();
+		return iterator;
+	}
+
+	@Override
+	public Iterator< CsrEdge > safe_iterator()
+	{
+		return new CsrEdgesIterator();
+	}
+
+	private class CsrEdgesIterator implements Iterator< CsrEdge >
+	{
+		private final CsrEdge edge;
+
+		private int v;
+
+		private int i;
+
+		private int size;
+
+		CsrEdgesIterator()
+		{
+			edge = snapshot.edgeRef();
+			reset();
+		}
+
+		void reset()
+		{
+			v = vertex.getInternalPoolIndex();
+			i = 0;
+			size = numIncoming( v ) + numOutgoing( v );
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return i < size;
+		}
+
+		@Override
+		public CsrEdge next()
+		{
+			return snapshot.edgePool.getObject( edgeIndex( v, i++ ), edge );
+		}
+	}
+}
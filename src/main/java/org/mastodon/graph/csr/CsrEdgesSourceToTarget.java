@@ -0,0 +1,148 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.csr;
+
+import java.util.Iterator;
+
+import org.mastodon.graph.Edges;
+
+/**
+ * The edges linking a source vertex to a target vertex in a
+ * {@link CsrGraphSnapshot}, found by scanning the outgoing edges of the
+ * source.
+ */
+class CsrEdgesSourceToTarget implements Edges< CsrEdge >
+{
+	private final CsrGraphSnapshot snapshot;
+
+	private final int source;
+
+	private final int target;
+
+	private CsrEdgesSourceToTargetIterator iterator;
+
+	CsrEdgesSourceToTarget( final CsrGraphSnapshot snapshot, final int source, final int target )
+	{
+		this.snapshot = snapshot;
+		this.source = source;
+		this.target = target;
+	}
+
+	/**
+	 * Returns the pool index of the first edge to the target at or after
+	 * the specified pool index, or the end of the outgoing edges of the
+	 * source if there is none.
+	 */
+	private int nextEdgeIndex( int k )
+	{
+		final int end = snapshot.outOffsets[ source + 1 ];
+		while ( k < end && snapshot.outTargets[ k ] != target )
+			++k;
+		return k;
+	}
+
+	@Override
+	public int size()
+	{
+		final int end = snapshot.outOffsets[ source + 1 ];
+		int numEdges = 0;
+		for ( int k = nextEdgeIndex( snapshot.outOffsets[ source ] ); k < end; k = nextEdgeIndex( k + 1 ) )
+			++numEdges;
+		return numEdges;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return nextEdgeIndex( snapshot.outOffsets[ source ] ) >= snapshot.outOffsets[ source + 1 ];
+	}
+
+	@Override
+	public CsrEdge get( final int i )
+	{
+		return get( i, snapshot.edgeRef() );
+	}
+
+	@Override
+	public CsrEdge get( int i, final CsrEdge edge )
+	{
+		int k = nextEdgeIndex( snapshot.outOffsets[ source ] );
+		while ( i-- > 0 )
+			k = nextEdgeIndex( k + 1 );
+		return snapshot.edgePool.getObject( k, edge );
+	}
+
+	@Override
+	public Iterator< CsrEdge > iterator()
+	{
+		if ( iterator == null )
+			iterator = new CsrEdgesSourceToTargetIterator();
+		else
+			iterator.reset();
+		return iterator;
+	}
+
+	@Override
+	public Iterator< CsrEdge > safe_iterator()
+	{
+		return new CsrEdgesSourceToTargetIterator();
+	}
+
+	private class CsrEdgesSourceToTargetIterator implements Iterator< CsrEdge >
+	{
+		private final CsrEdge edge;
+
+		private int k;
+
+		CsrEdgesSourceToTargetIterator()
+		{
+			edge = snapshot.edgeRef();
+			reset();
+		}
+
+		void reset()
+		{
+			k = nextEdgeIndex( snapshot.outOffsets[ source ] );
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return k < snapshot.outOffsets[ source + 1 ];
+		}
+
+		@Override
+		public CsrEdge next()
+		{
+			snapshot.edgePool.getObject( k, edge );
+			k = nextEdgeIndex( k + 1 );
+			return edge;
+		}
+	}
+}
@@ -0,0 +1,334 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.csr;
+
+import java.util.Arrays;
+
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.Edges;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+import org.mastodon.pool.PoolCollectionWrapper;
+
+/**
+ * An immutable snapshot of a {@link ReadOnlyGraph} in compressed sparse row
+ * (CSR) format.
+ * <p>
+ * The adjacency of the snapshot is stored in primitive arrays, in both
+ * directions. Vertices are numbered {@code 0 ... numVertices-1}, and edges are
+ * numbered {@code 0 ... numEdges-1} in the order of the outgoing edge lists of
+ * the vertices. The outgoing edges of vertex {@code v} are the edges
+ * {@code outOffsets[v] ... outOffsets[v+1]-1}, and their targets are
+ * {@code outTargets[outOffsets[v]] ...}. The incoming edges of vertex
+ * {@code v} are {@code inEdges[inOffsets[v]] ... inEdges[inOffsets[v+1]-1]},
+ * and their sources are {@code inSources[inOffsets[v]] ...}. The order of the
+ * adjacency lists of the original graph is preserved.
+ * <p>
+ * The snapshot implements {@link ReadOnlyGraph} with its own ref-based
+ * {@link CsrVertex} and {@link CsrEdge} types, so that the algorithms in
+ * {@code org.mastodon.graph.algorithm} can run on it unchanged. Traversing
+ * the snapshot reads consecutive array elements instead of chasing the linked
+ * adjacency lists of the original graph. Snapshot vertices and edges know the
+ * ids ({@link CsrVertex#getId()}, {@link CsrEdge#getId()}) of the original
+ * vertices and edges in the {@link GraphIdBimap} the snapshot was created
+ * with, and can be looked up by these ids.
+ * <p>
+ * The snapshot does not follow modifications of the original graph.
+ */
+public class CsrGraphSnapshot implements ReadOnlyGraph< CsrVertex, CsrEdge >
+{
+	final CsrVertexPool vertexPool;
+
+	final CsrEdgePool edgePool;
+
+	final int[] outOffsets;
+
+	final int[] outTargets;
+
+	final int[] inOffsets;
+
+	final int[] inEdges;
+
+	final int[] inSources;
+
+	/**
+	 * Maps ids of original vertices to snapshot vertex indices, -1 for unused
+	 * ids.
+	 */
+	private final int[] vertexIdToIndex;
+
+	/**
+	 * Maps ids of original edges to snapshot edge indices, -1 for unused ids.
+	 */
+	private final int[] edgeIdToIndex;
+
+	/**
+	 * Creates a snapshot of the specified graph.
+	 *
+	 * @param graph
+	 *            the graph.
+	 * @param idmap
+	 *            the id bimap of the graph.
+	 */
+	public < V extends Vertex< E >, E extends Edge< V > > CsrGraphSnapshot(
+			final ReadOnlyGraph< V, E > graph,
+			final GraphIdBimap< V, E > idmap )
+	{
+		final int numVertices = graph.vertices().size();
+		final int numEdges = graph.edges().size();
+		vertexPool = new CsrVertexPool( Math.max( 1, numVertices ), this );
+		edgePool = new CsrEdgePool( Math.max( 1, numEdges ), vertexPool );
+		outOffsets = new int[ numVertices + 1 ];
+		outTargets = new int[ numEdges ];
+		inOffsets = new int[ numVertices + 1 ];
+		inEdges = new int[ numEdges ];
+		inSources = new int[ numEdges ];
+
+		int maxVertexId = -1;
+		for ( final V v : graph.vertices() )
+			maxVertexId = Math.max( maxVertexId, idmap.getVertexId( v ) );
+		vertexIdToIndex = new int[ maxVertexId + 1 ];
+		Arrays.fill( vertexIdToIndex, -1 );
+		int maxEdgeId = -1;
+		for ( final E e : graph.edges() )
+			maxEdgeId = Math.max( maxEdgeId, idmap.getEdgeId( e ) );
+		edgeIdToIndex = new int[ maxEdgeId + 1 ];
+		Arrays.fill( edgeIdToIndex, -1 );
+
+		final CsrVertex vref = vertexPool.createRef();
+		final CsrEdge eref = edgePool.createRef();
+		final V v1 = graph.vertexRef();
+		final V v2 = graph.vertexRef();
+
+		// create vertices, in the iteration order of the original graph
+		for ( final V v : graph.vertices() )
+		{
+			final int id = idmap.getVertexId( v );
+			vertexPool.create( vref ).setId( id );
+			vertexIdToIndex[ id ] = vref.getInternalPoolIndex();
+		}
+
+		// create edges in the order of the outgoing edge lists, and count incoming edges
+		int k = 0;
+		for ( int vi = 0; vi < numVertices; ++vi )
+		{
+			outOffsets[ vi ] = k;
+			final V v = idmap.getVertex( vertexPool.getObject( vi, vref ).getId(), v1 );
+			for ( final E e : v.outgoingEdges() )
+			{
+				final int ti = vertexIdToIndex[ idmap.getVertexId( e.getTarget( v2 ) ) ];
+				final int id = idmap.getEdgeId( e );
+				edgePool.create( eref ).init( vi, id );
+				edgeIdToIndex[ id ] = k;
+				outTargets[ k ] = ti;
+				++inOffsets[ ti + 1 ];
+				++k;
+			}
+		}
+		outOffsets[ numVertices ] = k;
+		for ( int vi = 0; vi < numVertices; ++vi )
+			inOffsets[ vi + 1 ] += inOffsets[ vi ];
+
+		// fill incoming edge lists
+		for ( int vi = 0; vi < numVertices; ++vi )
+		{
+			final V v = idmap.getVertex( vertexPool.getObject( vi, vref ).getId(), v1 );
+			int j = 0;
+			for ( final E e : v.incomingEdges() )
+			{
+				final int ei = edgeIdToIndex[ idmap.getEdgeId( e ) ];
+				edgePool.getObject( ei, eref ).setTargetInIndex( j );
+				inEdges[ inOffsets[ vi ] + j ] = ei;
+				inSources[ inOffsets[ vi ] + j ] = eref.getSourceVertexInternalPoolIndex();
+				++j;
+			}
+		}
+
+		graph.releaseRef( v1 );
+		graph.releaseRef( v2 );
+		vertexPool.releaseRef( vref );
+		edgePool.releaseRef( eref );
+	}
+
+	/**
+	 * Gets the snapshot vertex of the original vertex with the specified id.
+	 *
+	 * @param id
+	 *            the id of the original vertex.
+	 * @param ref
+	 *            a vertex reference used for retrieval.
+	 * @return the snapshot vertex, or {@code null} if there is no vertex with
+	 *         this id in the snapshot.
+	 */
+	public CsrVertex getVertex( final int id, final CsrVertex ref )
+	{
+		if ( id < 0 || id >= vertexIdToIndex.length || vertexIdToIndex[ id ] < 0 )
+			return null;
+		return vertexPool.getObject( vertexIdToIndex[ id ], ref );
+	}
+
+	/**
+	 * Gets the snapshot edge of the original edge with the specified id.
+	 *
+	 * @param id
+	 *            the id of the original edge.
+	 * @param ref
+	 *            an edge reference used for retrieval.
+	 * @return the snapshot edge, or {@code null} if there is no edge with this
+	 *         id in the snapshot.
+	 */
+	public CsrEdge getEdge( final int id, final CsrEdge ref )
+	{
+		if ( id < 0 || id >= edgeIdToIndex.length || edgeIdToIndex[ id ] < 0 )
+			return null;
+		return edgePool.getObject( edgeIdToIndex[ id ], ref );
+	}
+
+	/**
+	 * Offsets of the outgoing edges of each vertex, of length
+	 * {@code numVertices+1}. Must not be modified.
+	 *
+	 * @return the offsets array.
+	 */
+	public int[] getOutOffsets()
+	{
+		return outOffsets;
+	}
+
+	/**
+	 * Target vertex index of each edge, of length {@code numEdges}. Must not
+	 * be modified.
+	 *
+	 * @return the targets array.
+	 */
+	public int[] getOutTargets()
+	{
+		return outTargets;
+	}
+
+	/**
+	 * Offsets of the incoming edges of each vertex into {@link #getInEdges()}
+	 * and {@link #getInSources()}, of length {@code numVertices+1}. Must not
+	 * be modified.
+	 *
+	 * @return the offsets array.
+	 */
+	public int[] getInOffsets()
+	{
+		return inOffsets;
+	}
+
+	/**
+	 * Edge indices of the incoming edges of all vertices, of length
+	 * {@code numEdges}. Must not be modified.
+	 *
+	 * @return the incoming edges array.
+	 */
+	public int[] getInEdges()
+	{
+		return inEdges;
+	}
+
+	/**
+	 * Source vertex indices of the incoming edges of all vertices, of length
+	 * {@code numEdges}. Must not be modified.
+	 *
+	 * @return the sources array.
+	 */
+	public int[] getInSources()
+	{
+		return inSources;
+	}
+
+	@Override
+	public CsrEdge getEdge( final CsrVertex source, final CsrVertex target )
+	{
+		return getEdge( source, target, edgeRef() );
+	}
+
+	@Override
+	public CsrEdge getEdge( final CsrVertex source, final CsrVertex target, final CsrEdge ref )
+	{
+		final int s = source.getInternalPoolIndex();
+		final int t = target.getInternalPoolIndex();
+		for ( int k = outOffsets[ s ]; k < outOffsets[ s + 1 ]; ++k )
+			if ( outTargets[ k ] == t )
+				return edgePool.getObject( k, ref );
+		return null;
+	}
+
+	@Override
+	public Edges< CsrEdge > getEdges( final CsrVertex source, final CsrVertex target )
+	{
+		return new CsrEdgesSourceToTarget( this, source.getInternalPoolIndex(), target.getInternalPoolIndex() );
+	}
+
+	@Override
+	public Edges< CsrEdge > getEdges( final CsrVertex source, final CsrVertex target, final CsrVertex ref )
+	{
+		return getEdges( source, target );
+	}
+
+	@Override
+	public CsrVertex vertexRef()
+	{
+		return vertexPool.createRef();
+	}
+
+	@Override
+	public CsrEdge edgeRef()
+	{
+		return edgePool.createRef();
+	}
+
+	@Override
+	public void releaseRef( final CsrVertex ref )
+	{
+		vertexPool.releaseRef( ref );
+	}
+
+	@Override
+	public void releaseRef( final CsrEdge ref )
+	{
+		edgePool.releaseRef( ref );
+	}
+
+	@Override
+	public PoolCollectionWrapper< CsrVertex > vertices()
+	{
+		return vertexPool.asRefCollection();
+	}
+
+	@Override
+	public PoolCollectionWrapper< CsrEdge > edges()
+	{
+		return edgePool.asRefCollection();
+	}
+}
@@ -0,0 +1,107 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.csr;
+
+import org.mastodon.graph.Edges;
+import org.mastodon.graph.Vertex;
+import org.mastodon.pool.ByteMappedElement;
+import org.mastodon.pool.PoolObject;
+
+/**
+ * Vertex of a {@link CsrGraphSnapshot}.
+ */
+public class CsrVertex extends PoolObject< CsrVertex, CsrVertexPool, ByteMappedElement > implements Vertex< CsrEdge >
+{
+	private static final int ID_OFFSET = CsrVertexPool.layout.id.getOffset();
+
+	final CsrGraphSnapshot snapshot;
+
+	private CsrEdges incomingEdges;
+
+	private CsrEdges outgoingEdges;
+
+	private CsrEdges edges;
+
+	CsrVertex( final CsrVertexPool pool )
+	{
+		super( pool );
+		this.snapshot = pool.snapshot;
+	}
+
+	/**
+	 * Gets the id of the vertex of the original graph that this vertex is a
+	 * snapshot of.
+	 *
+	 * @return the id of the original vertex in the {@code GraphIdBimap} the
+	 *         snapshot was created with.
+	 */
+	public int getId()
+	{
+		return access.getInt( ID_OFFSET );
+	}
+
+	void setId( final int id )
+	{
+		access.putInt( id, ID_OFFSET );
+	}
+
+	@Override
+	protected void setToUninitializedState()
+	{}
+
+	@Override
+	public Edges< CsrEdge > incomingEdges()
+	{
+		if ( incomingEdges == null )
+			incomingEdges = new CsrEdges( this, true, false );
+		return incomingEdges;
+	}
+
+	@Override
+	public Edges< CsrEdge > outgoingEdges()
+	{
+		if ( outgoingEdges == null )
+			outgoingEdges = new CsrEdges( this, false, true );
+		return outgoingEdges;
+	}
+
+	@Override
+	public Edges< CsrEdge > edges()
+	{
+		if ( edges == null )
+			edges = new CsrEdges( this, true, true );
+		return edges;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "CsrVertex(" + getId() + ")";
+	}
+}
@@ -0,0 +1,154 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses everything written to it with a {@link Deflater}, in
+ * independent blocks of at most {@link #BLOCK_SIZE} bytes. Each block is
+ * written to the underlying {@link DataOutput} as its compressed length, its
+ * uncompressed length, and the compressed bytes. {@link #finish()} writes a
+ * block with compressed length {@code 0} that marks the end of the stream.
+ * <p>
+ * Because the end is marked explicitly, a reader never consumes more from the
+ * underlying stream than was written here, and data written after
+ * {@link #finish()} can be read normally.
+ * <p>
+ * {@link #close()} finishes the stream and releases the {@link Deflater}, but
+ * does not close the underlying stream.
+ */
+class DeflateBlockOutputStream extends OutputStream
+{
+	static final int BLOCK_SIZE = 1 << 16;
+
+	private final DataOutput out;
+
+	private final Deflater deflater;
+
+	private final byte[] block;
+
+	private byte[] compressed;
+
+	private int length;
+
+	private boolean finished;
+
+	DeflateBlockOutputStream( final DataOutput out )
+	{
+		this.out = out;
+		deflater = new Deflater( Deflater.BEST_SPEED );
+		block = new byte[ BLOCK_SIZE ];
+		compressed = new byte[ BLOCK_SIZE ];
+		length = 0;
+		finished = false;
+	}
+
+	@Override
+	public void write( final int b ) throws IOException
+	{
+		if ( length == BLOCK_SIZE )
+			flushBlock();
+		block[ length++ ] = ( byte ) b;
+	}
+
+	@Override
+	public void write( final byte[] b, int off, int len ) throws IOException
+	{
+		while ( len > 0 )
+		{
+			if ( length == BLOCK_SIZE )
+				flushBlock();
+			final int n = Math.min( len, BLOCK_SIZE - length );
+			System.arraycopy( b, off, block, length, n );
+			length += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Compresses and writes the remaining buffered bytes, and marks the end of
+	 * the stream, unless this was already done. Does not close the underlying
+	 * stream.
+	 */
+	public void finish() throws IOException
+	{
+		if ( finished )
+			return;
+		flushBlock();
+		out.writeInt( 0 );
+		finished = true;
+	}
+
+	/**
+	 * Finishes the stream and releases the {@link Deflater}, also if writing
+	 * to the underlying stream fails. Does not close the underlying stream.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			finish();
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+
+	private void flushBlock() throws IOException
+	{
+		if ( length == 0 )
+			return;
+
+		deflater.reset();
+		deflater.setInput( block, 0, length );
+		deflater.finish();
+		int clen = 0;
+		while ( !deflater.finished() )
+		{
+			if ( clen == compressed.length )
+			{
+				final byte[] tmp = new byte[ 2 * compressed.length ];
+				System.arraycopy( compressed, 0, tmp, 0, clen );
+				compressed = tmp;
+			}
+			clen += deflater.deflate( compressed, clen, compressed.length - clen );
+		}
+		out.writeInt( clen );
+		out.writeInt( length );
+		out.write( compressed, 0, clen );
+		length = 0;
+	}
+}
@@ -0,0 +1,524 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.Graph;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.GraphListener;
+import org.mastodon.graph.ListenableReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+import org.mastodon.graph.io.RawGraphIO.FileIdToGraphMap;
+import org.mastodon.graph.io.RawGraphIO.GraphToFileIdMap;
+import org.mastodon.io.AttributeSerializer;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * Write/read the changes made to a graph since a full snapshot was written
+ * with {@link RawGraphIO}.
+ * <p>
+ * A {@link DeltaWriter} listens to a {@link ListenableReadOnlyGraph} and
+ * journals vertex and edge additions and removals, together with their
+ * attribute bytes. Each {@link DeltaWriter#write(ObjectOutputStream)} writes
+ * the changes since the previous one as a self-contained segment, so that
+ * saving is proportional to the size of the edit instead of the size of the
+ * graph.
+ * <p>
+ * To reconstruct the graph, read the snapshot with
+ * {@link RawGraphIO#read(Graph, GraphIdBimap, GraphSerializer, ObjectInputStream)}
+ * and then apply all segments in order with a {@link DeltaReader}.
+ * <p>
+ * Vertices and edges are identified in the journal by file ids. Objects from
+ * the snapshot keep the file id they have in the snapshot, objects added
+ * later get new file ids, counting up from the number of objects in the
+ * snapshot.
+ */
+public class DeltaGraphIO
+{
+	private static final byte ADD_VERTEX = 1;
+
+	private static final byte REMOVE_VERTEX = 2;
+
+	private static final byte SET_VERTEX = 3;
+
+	private static final byte ADD_EDGE = 4;
+
+	private static final byte REMOVE_EDGE = 5;
+
+	private static final byte SET_EDGE = 6;
+
+	/**
+	 * Journals changes to a graph since a snapshot.
+	 * <p>
+	 * {@link GraphListener} events do not cover changes of the attributes of
+	 * existing vertices and edges. These must be reported with
+	 * {@link #vertexChanged(Vertex)} and {@link #edgeChanged(Edge)}.
+	 *
+	 * @param <V>
+	 *            the type of vertices in the graph.
+	 * @param <E>
+	 *            the type of edges in the graph.
+	 */
+	public static class DeltaWriter< V extends Vertex< E >, E extends Edge< V > > implements GraphListener< V, E >
+	{
+		private final ListenableReadOnlyGraph< V, E > graph;
+
+		private final GraphIdBimap< V, E > idmap;
+
+		private final GraphToFileIdMap< V, E > snapshot;
+
+		private final AttributeSerializer< V > vio;
+
+		private final AttributeSerializer< E > eio;
+
+		private final byte[] vbytes;
+
+		private final byte[] ebytes;
+
+		/**
+		 * Maps ids of vertices added since the snapshot to file ids.
+		 */
+		private final TIntIntHashMap vertexIdToFileId;
+
+		/**
+		 * Maps ids of edges added since the snapshot to file ids.
+		 */
+		private final TIntIntHashMap edgeIdToFileId;
+
+		private int nextVertexFileId;
+
+		private int nextEdgeFileId;
+
+		private final ByteArrayOutputStream buffer;
+
+		private final DataOutputStream out;
+
+		private boolean rebuilt;
+
+		/**
+		 * Creates a {@link DeltaWriter} and registers it as a listener to
+		 * {@code graph}. This must be called directly after the snapshot was
+		 * written, before the graph is modified.
+		 *
+		 * @param graph
+		 *            the graph to listen to.
+		 * @param idmap
+		 *            the id bimap of the graph.
+		 * @param io
+		 *            the attribute serializers.
+		 * @param snapshot
+		 *            the mapping returned by
+		 *            {@link RawGraphIO#write(org.mastodon.graph.ReadOnlyGraph, GraphIdBimap, GraphSerializer, ObjectOutputStream)}
+		 *            when writing the snapshot.
+		 */
+		public DeltaWriter(
+				final ListenableReadOnlyGraph< V, E > graph,
+				final GraphIdBimap< V, E > idmap,
+				final GraphSerializer< V, E > io,
+				final GraphToFileIdMap< V, E > snapshot )
+		{
+			this.graph = graph;
+			this.idmap = idmap;
+			this.snapshot = snapshot;
+			vio = io.getVertexSerializer();
+			eio = io.getEdgeSerializer();
+			vbytes = new byte[ vio.getNumBytes() ];
+			ebytes = new byte[ eio.getNumBytes() ];
+			vertexIdToFileId = new TIntIntHashMap( 10, 0.75f, -1, -1 );
+			edgeIdToFileId = new TIntIntHashMap( 10, 0.75f, -1, -1 );
+			nextVertexFileId = graph.vertices().size();
+			nextEdgeFileId = graph.edges().size();
+			buffer = new ByteArrayOutputStream();
+			out = new DataOutputStream( buffer );
+			rebuilt = false;
+			graph.addGraphListener( this );
+		}
+
+		/**
+		 * Stops listening to the graph.
+		 */
+		public void close()
+		{
+			graph.removeGraphListener( this );
+		}
+
+		/**
+		 * Returns {@code true} if there are no changes since the last
+		 * {@link #write(ObjectOutputStream)}.
+		 *
+		 * @return whether there are unwritten changes.
+		 */
+		public boolean isEmpty()
+		{
+			return buffer.size() == 0;
+		}
+
+		/**
+		 * Writes the changes since the last {@link #write(ObjectOutputStream)}
+		 * (or since the snapshot) as one segment, and clears them.
+		 *
+		 * @param oos
+		 *            the stream to write to.
+		 * @throws IOException
+		 *             if writing fails.
+		 * @throws IllegalStateException
+		 *             if the graph was rebuilt since the snapshot. The journal
+		 *             cannot represent that, and a new snapshot must be
+		 *             written.
+		 */
+		public void write( final ObjectOutputStream oos ) throws IOException
+		{
+			if ( rebuilt )
+				throw new IllegalStateException( "The graph was rebuilt since the snapshot. A new snapshot must be written." );
+			out.flush();
+			oos.writeInt( buffer.size() );
+			buffer.writeTo( oos );
+			buffer.reset();
+		}
+
+		/**
+		 * Journals the current attribute bytes of the specified vertex.
+		 *
+		 * @param vertex
+		 *            the changed vertex.
+		 */
+		public void vertexChanged( final V vertex )
+		{
+			if ( vbytes.length == 0 )
+				return;
+			try
+			{
+				out.writeByte( SET_VERTEX );
+				out.writeInt( getFileId( vertex ) );
+				vio.getBytes( vertex, vbytes );
+				out.write( vbytes );
+			}
+			catch ( final IOException e )
+			{
+				throw new RuntimeException( e );
+			}
+		}
+
+		/**
+		 * Journals the current attribute bytes of the specified edge.
+		 *
+		 * @param edge
+		 *            the changed edge.
+		 */
+		public void edgeChanged( final E edge )
+		{
+			if ( ebytes.length == 0 )
+				return;
+			try
+			{
+				out.writeByte( SET_EDGE );
+				out.writeInt( getFileId( edge ) );
+				eio.getBytes( edge, ebytes );
+				out.write( ebytes );
+			}
+			catch ( final IOException e )
+			{
+				throw new RuntimeException( e );
+			}
+		}
+
+		@Override
+		public void graphRebuilt()
+		{
+			rebuilt = true;
+		}
+
+		@Override
+		public void vertexAdded( final V vertex )
+		{
+			final int fileId = nextVertexFileId++;
+			vertexIdToFileId.put( idmap.getVertexId( vertex ), fileId );
+			try
+			{
+				out.writeByte( ADD_VERTEX );
+				out.writeInt( fileId );
+				vio.getBytes( vertex, vbytes );
+				out.write( vbytes );
+			}
+			catch ( final IOException e )
+			{
+				throw new RuntimeException( e );
+			}
+		}
+
+		@Override
+		public void vertexRemoved( final V vertex )
+		{
+			final int fileId = getFileId( vertex );
+			vertexIdToFileId.remove( idmap.getVertexId( vertex ) );
+			try
+			{
+				out.writeByte( REMOVE_VERTEX );
+				out.writeInt( fileId );
+			}
+			catch ( final IOException e )
+			{
+				throw new RuntimeException( e );
+			}
+		}
+
+		@Override
+		public void edgeAdded( final E edge )
+		{
+			final int fileId = nextEdgeFileId++;
+			edgeIdToFileId.put( idmap.getEdgeId( edge ), fileId );
+			final V v = graph.vertexRef();
+			try
+			{
+				out.writeByte( ADD_EDGE );
+				out.writeInt( fileId );
+				out.writeInt( getFileId( edge.getSource( v ) ) );
+				out.writeInt( getFileId( edge.getTarget( v ) ) );
+				out.writeInt( edge.getSourceOutIndex() );
+				out.writeInt( edge.getTargetInIndex() );
+				eio.getBytes( edge, ebytes );
+				out.write( ebytes );
+			}
+			catch ( final IOException e )
+			{
+				throw new RuntimeException( e );
+			}
+			finally
+			{
+				graph.releaseRef( v );
+			}
+		}
+
+		@Override
+		public void edgeRemoved( final E edge )
+		{
+			final int fileId = getFileId( edge );
+			edgeIdToFileId.remove( idmap.getEdgeId( edge ) );
+			try
+			{
+				out.writeByte( REMOVE_EDGE );
+				out.writeInt( fileId );
+			}
+			catch ( final IOException e )
+			{
+				throw new RuntimeException( e );
+			}
+		}
+
+		private int getFileId( final V vertex )
+		{
+			final int fileId = vertexIdToFileId.get( idmap.getVertexId( vertex ) );
+			return fileId >= 0 ? fileId : snapshot.vertices().getId( vertex );
+		}
+
+		private int getFileId( final E edge )
+		{
+			final int fileId = edgeIdToFileId.get( idmap.getEdgeId( edge ) );
+			return fileId >= 0 ? fileId : snapshot.edges().getId( edge );
+		}
+	}
+
+	/**
+	 * Applies segments written by a {@link DeltaWriter} to a graph that was
+	 * read from the corresponding snapshot.
+	 *
+	 * @param <V>
+	 *            the type of vertices in the graph.
+	 * @param <E>
+	 *            the type of edges in the graph.
+	 */
+	public static class DeltaReader< V extends Vertex< E >, E extends Edge< V > >
+	{
+		private final Graph< V, E > graph;
+
+		private final GraphIdBimap< V, E > idmap;
+
+		private final FileIdToGraphMap< V, E > snapshot;
+
+		private final AttributeSerializer< V > vio;
+
+		private final AttributeSerializer< E > eio;
+
+		private final byte[] vbytes;
+
+		private final byte[] ebytes;
+
+		/**
+		 * Maps file ids of vertices added since the snapshot to vertex ids.
+		 */
+		private final TIntIntHashMap fileIdToVertexId;
+
+		/**
+		 * Maps file ids of edges added since the snapshot to edge ids.
+		 */
+		private final TIntIntHashMap fileIdToEdgeId;
+
+		/**
+		 * @param graph
+		 *            the graph to modify.
+		 * @param idmap
+		 *            the id bimap of the graph.
+		 * @param io
+		 *            the attribute serializers.
+		 * @param snapshot
+		 *            the mapping returned by
+		 *            {@link RawGraphIO#read(Graph, GraphIdBimap, GraphSerializer, ObjectInputStream)}
+		 *            when reading the snapshot.
+		 */
+		public DeltaReader(
+				final Graph< V, E > graph,
+				final GraphIdBimap< V, E > idmap,
+				final GraphSerializer< V, E > io,
+				final FileIdToGraphMap< V, E > snapshot )
+		{
+			this.graph = graph;
+			this.idmap = idmap;
+			this.snapshot = snapshot;
+			vio = io.getVertexSerializer();
+			eio = io.getEdgeSerializer();
+			vbytes = new byte[ vio.getNumBytes() ];
+			ebytes = new byte[ eio.getNumBytes() ];
+			fileIdToVertexId = new TIntIntHashMap( 10, 0.75f, -1, -1 );
+			fileIdToEdgeId = new TIntIntHashMap( 10, 0.75f, -1, -1 );
+		}
+
+		/**
+		 * Reads one segment written by
+		 * {@link DeltaWriter#write(ObjectOutputStream)} and applies it to the
+		 * graph.
+		 *
+		 * @param ois
+		 *            the stream to read from.
+		 * @throws IOException
+		 *             if reading fails or the segment is malformed.
+		 */
+		public void read( final ObjectInputStream ois ) throws IOException
+		{
+			final byte[] bytes = new byte[ ois.readInt() ];
+			ois.readFully( bytes );
+			final DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes ) );
+
+			final V v1 = graph.vertexRef();
+			final V v2 = graph.vertexRef();
+			final E e = graph.edgeRef();
+			try
+			{
+				while ( in.available() > 0 )
+				{
+					final byte type = in.readByte();
+					final int fileId = in.readInt();
+					switch ( type )
+					{
+					case ADD_VERTEX:
+					{
+						graph.addVertex( v1 );
+						in.readFully( vbytes );
+						if ( vbytes.length > 0 )
+							vio.setBytes( v1, vbytes );
+						vio.notifySet( v1 );
+						fileIdToVertexId.put( fileId, idmap.getVertexId( v1 ) );
+						break;
+					}
+					case REMOVE_VERTEX:
+						graph.remove( getVertex( fileId, v1 ) );
+						fileIdToVertexId.remove( fileId );
+						break;
+					case SET_VERTEX:
+						in.readFully( vbytes );
+						vio.setBytes( getVertex( fileId, v1 ), vbytes );
+						vio.notifySet( v1 );
+						break;
+					case ADD_EDGE:
+					{
+						final V source = getVertex( in.readInt(), v1 );
+						final V target = getVertex( in.readInt(), v2 );
+						final int sourceOutIndex = in.readInt();
+						final int targetInIndex = in.readInt();
+						graph.insertEdge( source, sourceOutIndex, target, targetInIndex, e );
+						in.readFully( ebytes );
+						if ( ebytes.length > 0 )
+							eio.setBytes( e, ebytes );
+						eio.notifySet( e );
+						fileIdToEdgeId.put( fileId, idmap.getEdgeId( e ) );
+						break;
+					}
+					case REMOVE_EDGE:
+						graph.remove( getEdge( fileId, e ) );
+						fileIdToEdgeId.remove( fileId );
+						break;
+					case SET_EDGE:
+						in.readFully( ebytes );
+						eio.setBytes( getEdge( fileId, e ), ebytes );
+						eio.notifySet( e );
+						break;
+					default:
+						throw new IOException( "Unknown journal record type " + type + "." );
+					}
+				}
+			}
+			finally
+			{
+				graph.releaseRef( v1 );
+				graph.releaseRef( v2 );
+				graph.releaseRef( e );
+			}
+		}
+
+		private V getVertex( final int fileId, final V ref ) throws IOException
+		{
+			final int id = fileIdToVertexId.get( fileId );
+			final V vertex = id >= 0
+					? idmap.getVertex( id, ref )
+					: snapshot.vertices().getObject( fileId, ref );
+			if ( vertex == null )
+				throw new IOException( "Unknown vertex file id " + fileId + "." );
+			return vertex;
+		}
+
+		private E getEdge( final int fileId, final E ref ) throws IOException
+		{
+			final int id = fileIdToEdgeId.get( fileId );
+			final E edge = id >= 0
+					? idmap.getEdge( id, ref )
+					: snapshot.edges().getObject( fileId, ref );
+			if ( edge == null )
+				throw new IOException( "Unknown edge file id " + fileId + "." );
+			return edge;
+		}
+	}
+}
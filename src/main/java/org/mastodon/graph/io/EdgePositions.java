@@ -0,0 +1,109 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * The positions of all edges of a graph in the outgoing edge list of their
+ * source and the incoming edge list of their target, computed in one pass over
+ * the adjacency lists of all vertices.
+ * <p>
+ * {@link Edge#getSourceOutIndex()} and {@link Edge#getTargetInIndex()} walk
+ * the adjacency list of one vertex per call. When the positions of all edges
+ * are needed (e.g. to serialize the graph), this is quadratic in the vertex
+ * degrees, whereas constructing {@link EdgePositions} is linear in the number
+ * of edges.
+ * <p>
+ * The positions are a snapshot, and become invalid when the graph is
+ * modified.
+ */
+public class EdgePositions
+{
+	private final TIntIntHashMap edgeIdToSourceOutIndex;
+
+	private final TIntIntHashMap edgeIdToTargetInIndex;
+
+	/**
+	 * Computes the positions of all edges of the specified graph.
+	 *
+	 * @param graph
+	 *            the graph.
+	 * @param idmap
+	 *            provides the ids by which edges are looked up.
+	 */
+	public < V extends Vertex< E >, E extends Edge< V > > EdgePositions(
+			final ReadOnlyGraph< V, E > graph,
+			final GraphIdBimap< V, E > idmap )
+	{
+		final int numEdges = graph.edges().size();
+		edgeIdToSourceOutIndex = new TIntIntHashMap( 2 * numEdges, 0.75f, -1, -1 );
+		edgeIdToTargetInIndex = new TIntIntHashMap( 2 * numEdges, 0.75f, -1, -1 );
+		for ( final V v : graph.vertices() )
+		{
+			int i = 0;
+			for ( final E e : v.outgoingEdges() )
+				edgeIdToSourceOutIndex.put( idmap.getEdgeId( e ), i++ );
+			i = 0;
+			for ( final E e : v.incomingEdges() )
+				edgeIdToTargetInIndex.put( idmap.getEdgeId( e ), i++ );
+		}
+	}
+
+	/**
+	 * Gets the position of an edge in the outgoing edge list of its source.
+	 *
+	 * @param edgeId
+	 *            the id of the edge.
+	 * @return the same value as {@link Edge#getSourceOutIndex()}, or -1 if the
+	 *         edge is unknown.
+	 */
+	public int getSourceOutIndex( final int edgeId )
+	{
+		return edgeIdToSourceOutIndex.get( edgeId );
+	}
+
+	/**
+	 * Gets the position of an edge in the incoming edge list of its target.
+	 *
+	 * @param edgeId
+	 *            the id of the edge.
+	 * @return the same value as {@link Edge#getTargetInIndex()}, or -1 if the
+	 *         edge is unknown.
+	 */
+	public int getTargetInIndex( final int edgeId )
+	{
+		return edgeIdToTargetInIndex.get( edgeId );
+	}
+}
@@ -0,0 +1,280 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import java.util.Map;
+
+import gnu.trove.TIntCollection;
+import gnu.trove.function.TIntFunction;
+import gnu.trove.iterator.TIntIntIterator;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.procedure.TIntIntProcedure;
+import gnu.trove.procedure.TIntProcedure;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * The read-only identity map on the keys {@code 0 ... size-1}. Used by
+ * {@link MappedGraphIO} instead of a hash map when file indices and ids are
+ * the same. All modifying methods throw {@link UnsupportedOperationException}.
+ */
+final class IdentityIntIntMap implements TIntIntMap
+{
+	private static final int NO_ENTRY = -1;
+
+	private final int size;
+
+	IdentityIntIntMap( final int size )
+	{
+		this.size = size;
+	}
+
+	@Override
+	public int getNoEntryKey()
+	{
+		return NO_ENTRY;
+	}
+
+	@Override
+	public int getNoEntryValue()
+	{
+		return NO_ENTRY;
+	}
+
+	@Override
+	public boolean containsKey( final int key )
+	{
+		return key >= 0 && key < size;
+	}
+
+	@Override
+	public boolean containsValue( final int value )
+	{
+		return containsKey( value );
+	}
+
+	@Override
+	public int get( final int key )
+	{
+		return containsKey( key ) ? key : NO_ENTRY;
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	@Override
+	public int[] keys()
+	{
+		return keys( new int[ size ] );
+	}
+
+	@Override
+	public int[] keys( final int[] array )
+	{
+		final int[] keys = array.length >= size ? array : new int[ size ];
+		for ( int i = 0; i < size; ++i )
+			keys[ i ] = i;
+		return keys;
+	}
+
+	@Override
+	public int[] values()
+	{
+		return keys();
+	}
+
+	@Override
+	public int[] values( final int[] array )
+	{
+		return keys( array );
+	}
+
+	/**
+	 * Returns a copy of the keys. The map cannot be modified through it.
+	 */
+	@Override
+	public TIntSet keySet()
+	{
+		return new TIntHashSet( keys() );
+	}
+
+	/**
+	 * Returns a copy of the values. The map cannot be modified through it.
+	 */
+	@Override
+	public TIntCollection valueCollection()
+	{
+		return new TIntArrayList( values() );
+	}
+
+	@Override
+	public TIntIntIterator iterator()
+	{
+		return new TIntIntIterator()
+		{
+			private int key = -1;
+
+			@Override
+			public boolean hasNext()
+			{
+				return key + 1 < size;
+			}
+
+			@Override
+			public void advance()
+			{
+				++key;
+			}
+
+			@Override
+			public int key()
+			{
+				return key;
+			}
+
+			@Override
+			public int value()
+			{
+				return key;
+			}
+
+			@Override
+			public int setValue( final int value )
+			{
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public boolean forEachKey( final TIntProcedure procedure )
+	{
+		for ( int i = 0; i < size; ++i )
+			if ( !procedure.execute( i ) )
+				return false;
+		return true;
+	}
+
+	@Override
+	public boolean forEachValue( final TIntProcedure procedure )
+	{
+		return forEachKey( procedure );
+	}
+
+	@Override
+	public boolean forEachEntry( final TIntIntProcedure procedure )
+	{
+		for ( int i = 0; i < size; ++i )
+			if ( !procedure.execute( i, i ) )
+				return false;
+		return true;
+	}
+
+	@Override
+	public int put( final int key, final int value )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int putIfAbsent( final int key, final int value )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void putAll( final Map< ? extends Integer, ? extends Integer > map )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void putAll( final TIntIntMap map )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int remove( final int key )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void clear()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void transformValues( final TIntFunction function )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean retainEntries( final TIntIntProcedure procedure )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean increment( final int key )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean adjustValue( final int key, final int amount )
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int adjustOrPutValue( final int key, final int adjustAmount, final int putAmount )
+	{
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,158 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a stream written by {@link DeflateBlockOutputStream}. Reading stops
+ * at the end marker, so the underlying {@link DataInput} is left positioned
+ * directly after the compressed data once {@link #finish()} returns.
+ * {@link #close()} releases the {@link Inflater}, but does not close the
+ * underlying stream.
+ */
+class InflateBlockInputStream extends InputStream
+{
+	private final DataInput in;
+
+	private final Inflater inflater;
+
+	private byte[] block;
+
+	private byte[] compressed;
+
+	private int length;
+
+	private int pos;
+
+	private boolean end;
+
+	InflateBlockInputStream( final DataInput in )
+	{
+		this.in = in;
+		inflater = new Inflater();
+		block = new byte[ DeflateBlockOutputStream.BLOCK_SIZE ];
+		compressed = new byte[ DeflateBlockOutputStream.BLOCK_SIZE ];
+		length = 0;
+		pos = 0;
+		end = false;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		if ( pos == length && !nextBlock() )
+			return -1;
+		return block[ pos++ ] & 0xff;
+	}
+
+	@Override
+	public int read( final byte[] b, final int off, final int len ) throws IOException
+	{
+		if ( len == 0 )
+			return 0;
+		if ( pos == length && !nextBlock() )
+			return -1;
+		final int n = Math.min( len, length - pos );
+		System.arraycopy( block, pos, b, off, n );
+		pos += n;
+		return n;
+	}
+
+	@Override
+	public int available()
+	{
+		return length - pos;
+	}
+
+	/**
+	 * Skips the remaining blocks up to the end marker. Does not close the
+	 * underlying stream.
+	 */
+	public void finish() throws IOException
+	{
+		while ( nextBlock() )
+			;
+	}
+
+	/**
+	 * Releases the {@link Inflater}. Does not skip the remaining blocks, and
+	 * does not close the underlying stream.
+	 */
+	@Override
+	public void close()
+	{
+		inflater.end();
+	}
+
+	private boolean nextBlock() throws IOException
+	{
+		pos = 0;
+		length = 0;
+		if ( end )
+			return false;
+
+		final int clen = in.readInt();
+		if ( clen == 0 )
+		{
+			end = true;
+			return false;
+		}
+		final int ulen = in.readInt();
+		if ( clen < 0 || ulen <= 0 )
+			throw new IOException( "Malformed compressed block." );
+		if ( compressed.length < clen )
+			compressed = new byte[ clen ];
+		if ( block.length < ulen )
+			block = new byte[ ulen ];
+		in.readFully( compressed, 0, clen );
+
+		inflater.reset();
+		inflater.setInput( compressed, 0, clen );
+		try
+		{
+			while ( length < ulen )
+			{
+				final int n = inflater.inflate( block, length, ulen - length );
+				if ( n == 0 && ( inflater.finished() || inflater.needsInput() ) )
+					throw new IOException( "Truncated compressed block." );
+				length += n;
+			}
+		}
+		catch ( final DataFormatException e )
+		{
+			throw new IOException( e );
+		}
+		return true;
+	}
+}
@@ -0,0 +1,336 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+import org.mastodon.graph.io.RawGraphIO.FileIdToGraphMap;
+import org.mastodon.graph.io.RawGraphIO.GraphToFileIdMap;
+import org.mastodon.graph.ref.AbstractEdge;
+import org.mastodon.graph.ref.AbstractVertex;
+import org.mastodon.graph.ref.GraphBuilder;
+import org.mastodon.graph.ref.GraphImp;
+import org.mastodon.io.AttributeSerializer;
+import org.mastodon.io.FileIdToObjectMap;
+import org.mastodon.io.ObjectToFileIdMap;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * Write/read a graph to/from a file in a fixed-width block format, as an
+ * alternative to {@link RawGraphIO} for large graphs.
+ * <p>
+ * The file consists of a header, followed by
+ * <ol>
+ * <li>the vertex attribute bytes of all vertices,</li>
+ * <li>the (source, target, sourceOutIndex, targetInIndex) tuples of all
+ * edges, as 4 ints per edge, and</li>
+ * <li>the edge attribute bytes of all edges.</li>
+ * </ol>
+ * Like for {@link RawGraphIO}, vertices and edges are identified by their
+ * index in the file. Files are written through a {@link FileChannel}, and read
+ * by memory-mapping the blocks.
+ * <p>
+ * If the ids of vertices (edges) are dense, that is, the file index of each
+ * vertex (edge) is equal to its id, no id remapping tables are built, and the
+ * returned maps are the identity. This is the case for graphs that have not
+ * had vertices or edges removed.
+ */
+public class MappedGraphIO
+{
+	private static final int MAGIC = 0x4d475246; // "MGRF"
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 32;
+
+	private static final int EDGE_TUPLE_SIZE = 16;
+
+	/**
+	 * Size of the buffer used for writing.
+	 */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Maximum size of memory-mapped windows when reading.
+	 */
+	private static final int MAX_WINDOW_SIZE = 1 << 30;
+
+	public static < V extends Vertex< E >, E extends Edge< V > >
+			GraphToFileIdMap< V, E > write(
+					final ReadOnlyGraph< V, E > graph,
+					final GraphIdBimap< V, E > idmap,
+					final GraphSerializer< V, E > io,
+					final File file )
+			throws IOException
+	{
+		final int numVertices = graph.vertices().size();
+		final int numEdges = graph.edges().size();
+		final AttributeSerializer< V > vio = io.getVertexSerializer();
+		final AttributeSerializer< E > eio = io.getEdgeSerializer();
+
+		try (final FileChannel channel = FileChannel.open( file.toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ))
+		{
+			final ByteBuffer buffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+			buffer.putInt( MAGIC );
+			buffer.putInt( VERSION );
+			buffer.putInt( numVertices );
+			buffer.putInt( numEdges );
+			buffer.putInt( vio.getNumBytes() );
+			buffer.putInt( eio.getNumBytes() );
+			buffer.position( HEADER_SIZE );
+
+			// vertex attributes
+			final byte[] vbytes = new byte[ vio.getNumBytes() ];
+			TIntIntHashMap vertexIdToFileIndex = null;
+			int i = 0;
+			for ( final V v : graph.vertices() )
+			{
+				if ( vbytes.length > 0 )
+				{
+					vio.getBytes( v, vbytes );
+					put( channel, buffer, vbytes );
+				}
+				final int id = idmap.getVertexId( v );
+				if ( vertexIdToFileIndex == null && id != i )
+					vertexIdToFileIndex = identityPrefix( i, numVertices );
+				if ( vertexIdToFileIndex != null )
+					vertexIdToFileIndex.put( id, i );
+				++i;
+			}
+
+			// edge tuples
+			final EdgePositions positions = new EdgePositions( graph, idmap );
+			TIntIntHashMap edgeIdToFileIndex = null;
+			final V ref = graph.vertexRef();
+			i = 0;
+			for ( final E e : graph.edges() )
+			{
+				if ( buffer.remaining() < EDGE_TUPLE_SIZE )
+					flush( channel, buffer );
+				final int id = idmap.getEdgeId( e );
+				final int from = idmap.getVertexId( e.getSource( ref ) );
+				final int to = idmap.getVertexId( e.getTarget( ref ) );
+				buffer.putInt( vertexIdToFileIndex == null ? from : vertexIdToFileIndex.get( from ) );
+				buffer.putInt( vertexIdToFileIndex == null ? to : vertexIdToFileIndex.get( to ) );
+				buffer.putInt( positions.getSourceOutIndex( id ) );
+				buffer.putInt( positions.getTargetInIndex( id ) );
+				if ( edgeIdToFileIndex == null && id != i )
+					edgeIdToFileIndex = identityPrefix( i, numEdges );
+				if ( edgeIdToFileIndex != null )
+					edgeIdToFileIndex.put( id, i );
+				++i;
+			}
+			graph.releaseRef( ref );
+
+			// edge attributes
+			final byte[] ebytes = new byte[ eio.getNumBytes() ];
+			if ( ebytes.length > 0 )
+			{
+				for ( final E e : graph.edges() )
+				{
+					eio.getBytes( e, ebytes );
+					put( channel, buffer, ebytes );
+				}
+			}
+			flush( channel, buffer );
+
+			final ObjectToFileIdMap< V > vertexToFileIdMap = new ObjectToFileIdMap<>( orIdentity( vertexIdToFileIndex, numVertices ), idmap.vertexIdBimap() );
+			final ObjectToFileIdMap< E > edgeToFileIdMap = new ObjectToFileIdMap<>( orIdentity( edgeIdToFileIndex, numEdges ), idmap.edgeIdBimap() );
+			return new GraphToFileIdMap<>( vertexToFileIdMap, edgeToFileIdMap );
+		}
+	}
+
+	public static < V extends AbstractVertex< V, E, ?, ? >, E extends AbstractEdge< E, V, ?, ? > >
+			FileIdToGraphMap< V, E > read(
+					final GraphImp< ?, ?, V, E, ? > graph,
+					final GraphIdBimap< V, E > idmap,
+					final GraphSerializer< V, E > io,
+					final File file )
+			throws IOException
+	{
+		final AttributeSerializer< V > vio = io.getVertexSerializer();
+		final AttributeSerializer< E > eio = io.getEdgeSerializer();
+
+		try (final FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ))
+		{
+			final MappedByteBuffer header = channel.map( MapMode.READ_ONLY, 0, HEADER_SIZE );
+			if ( header.getInt() != MAGIC )
+				throw new IOException( file + " is not a mapped graph file." );
+			final int version = header.getInt();
+			if ( version != VERSION )
+				throw new IOException( "Unsupported mapped graph file version " + version + "." );
+			final int numVertices = header.getInt();
+			final int numEdges = header.getInt();
+			final int vertexBytes = header.getInt();
+			final int edgeBytes = header.getInt();
+			if ( vertexBytes != vio.getNumBytes() || edgeBytes != eio.getNumBytes() )
+				throw new IOException( "Attribute sizes in " + file + " do not match the GraphSerializer." );
+
+			final long vertexBlock = HEADER_SIZE;
+			final long edgeTupleBlock = vertexBlock + ( long ) numVertices * vertexBytes;
+			final long edgeBlock = edgeTupleBlock + ( long ) numEdges * EDGE_TUPLE_SIZE;
+			if ( channel.size() < edgeBlock + ( long ) numEdges * edgeBytes )
+				throw new IOException( file + " is truncated." );
+
+			final V v = graph.vertexRef();
+			final E e = graph.edgeRef();
+			TIntIntHashMap fileIndexToVertexId = null;
+			TIntIntHashMap fileIndexToEdgeId = null;
+			try ( final GraphBuilder< V, E > builder = new GraphBuilder<>( graph, numVertices, numEdges ) )
+			{
+				// vertices
+				final byte[] vbytes = new byte[ vertexBytes ];
+				for ( int first = 0; first < numVertices; )
+				{
+					final int count = windowSize( numVertices - first, vertexBytes );
+					final ByteBuffer window = map( channel, vertexBlock, first, count, vertexBytes );
+					for ( int i = first; i < first + count; ++i )
+					{
+						builder.addVertex( v );
+						if ( vertexBytes > 0 )
+						{
+							window.get( vbytes );
+							vio.setBytes( v, vbytes );
+						}
+						vio.notifySet( v );
+						final int id = idmap.getVertexId( v );
+						if ( fileIndexToVertexId == null && id != i )
+							fileIndexToVertexId = identityPrefix( i, numVertices );
+						if ( fileIndexToVertexId != null )
+							fileIndexToVertexId.put( i, id );
+					}
+					first += count;
+				}
+
+				// edges
+				final byte[] ebytes = new byte[ edgeBytes ];
+				for ( int first = 0; first < numEdges; )
+				{
+					final int count = windowSize( numEdges - first, Math.max( EDGE_TUPLE_SIZE, edgeBytes ) );
+					final IntBuffer tupleWindow = map( channel, edgeTupleBlock, first, count, EDGE_TUPLE_SIZE ).asIntBuffer();
+					final ByteBuffer window = edgeBytes > 0 ? map( channel, edgeBlock, first, count, edgeBytes ) : null;
+					for ( int i = 0; i < count; ++i )
+					{
+						final int t = 4 * i;
+						builder.addEdge( tupleWindow.get( t ), tupleWindow.get( t + 1 ), tupleWindow.get( t + 2 ), tupleWindow.get( t + 3 ), e );
+						if ( edgeBytes > 0 )
+						{
+							window.get( ebytes );
+							eio.setBytes( e, ebytes );
+						}
+						eio.notifySet( e );
+						final int id = idmap.getEdgeId( e );
+						if ( fileIndexToEdgeId == null && id != first + i )
+							fileIndexToEdgeId = identityPrefix( first + i, numEdges );
+						if ( fileIndexToEdgeId != null )
+							fileIndexToEdgeId.put( first + i, id );
+					}
+					first += count;
+				}
+				builder.finish();
+			}
+			finally
+			{
+				graph.releaseRef( v );
+				graph.releaseRef( e );
+			}
+
+			final FileIdToObjectMap< V > fileIdToVertexMap = new FileIdToObjectMap<>( orIdentity( fileIndexToVertexId, numVertices ), idmap.vertexIdBimap() );
+			final FileIdToObjectMap< E > fileIdToEdgeMap = new FileIdToObjectMap<>( orIdentity( fileIndexToEdgeId, numEdges ), idmap.edgeIdBimap() );
+			return new FileIdToGraphMap<>( fileIdToVertexMap, fileIdToEdgeMap );
+		}
+	}
+
+	private static void put( final FileChannel channel, final ByteBuffer buffer, final byte[] bytes ) throws IOException
+	{
+		if ( buffer.remaining() < bytes.length )
+			flush( channel, buffer );
+		if ( buffer.remaining() < bytes.length )
+		{
+			final ByteBuffer wrapped = ByteBuffer.wrap( bytes );
+			while ( wrapped.hasRemaining() )
+				channel.write( wrapped );
+			return;
+		}
+		buffer.put( bytes );
+	}
+
+	/**
+	 * Creates the id map for objects whose ids turned out not to be dense at
+	 * index {@code n}: all objects before it map to themselves.
+	 */
+	private static TIntIntHashMap identityPrefix( final int n, final int capacity )
+	{
+		final TIntIntHashMap map = new TIntIntHashMap( 2 * capacity, 0.75f, -1, -1 );
+		for ( int i = 0; i < n; ++i )
+			map.put( i, i );
+		return map;
+	}
+
+	private static TIntIntMap orIdentity( final TIntIntHashMap map, final int size )
+	{
+		return map == null ? new IdentityIntIntMap( size ) : map;
+	}
+
+	private static void flush( final FileChannel channel, final ByteBuffer buffer ) throws IOException
+	{
+		buffer.flip();
+		while ( buffer.hasRemaining() )
+			channel.write( buffer );
+		buffer.clear();
+	}
+
+	/**
+	 * Returns how many of {@code n} records of the specified size fit into one
+	 * memory-mapped window.
+	 */
+	private static int windowSize( final int n, final int recordSize )
+	{
+		return recordSize == 0 ? n : Math.min( n, MAX_WINDOW_SIZE / recordSize );
+	}
+
+	private static MappedByteBuffer map( final FileChannel channel, final long block, final int first, final int count, final int recordSize ) throws IOException
+	{
+		return channel.map( MapMode.READ_ONLY, block + ( long ) first * recordSize, ( long ) count * recordSize );
+	}
+}
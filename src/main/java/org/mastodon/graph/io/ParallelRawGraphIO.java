@@ -0,0 +1,469 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.Graph;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.Vertex;
+import org.mastodon.graph.io.RawGraphIO.FileIdToGraphMap;
+import org.mastodon.graph.io.RawGraphIO.GraphToFileIdMap;
+import org.mastodon.graph.ref.AbstractEdge;
+import org.mastodon.graph.ref.AbstractVertex;
+import org.mastodon.graph.ref.GraphBuilder;
+import org.mastodon.graph.ref.GraphImp;
+import org.mastodon.io.AttributeSerializer;
+import org.mastodon.io.FileIdToObjectMap;
+import org.mastodon.io.ObjectToFileIdMap;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * Multi-threaded variant of {@link RawGraphIO}, producing and consuming the
+ * same format.
+ * <p>
+ * The vertices and edges are split into chunks of {@value #CHUNK_SIZE}
+ * objects. When writing, the bytes of each chunk (attribute bytes, and edge
+ * tuples) are serialized into a per-chunk buffer by a task on a
+ * {@link ForkJoinPool}, and the buffers are written to the stream in order.
+ * When reading, vertices and edges are created sequentially, and the edge
+ * tuples are decoded and the attribute bytes are deserialized in parallel
+ * tasks. Finally, the adjacency lists are linked in one sequential pass by a
+ * {@link GraphBuilder}. The stream is read chunk by chunk, as the tasks need
+ * the chunks, so only a few chunks of raw bytes are in memory at any time.
+ * Because all edges must be created before their attributes are set, the
+ * decoded edge tuples and edge attribute bytes of the whole graph are held
+ * in memory until the edge attributes are set.
+ * <p>
+ * The {@link AttributeSerializer}s of the {@link GraphSerializer} must
+ * support concurrent calls of {@link AttributeSerializer#getBytes} and
+ * {@link AttributeSerializer#setBytes} for different objects.
+ * {@link AttributeSerializer#notifySet} is called sequentially.
+ */
+public class ParallelRawGraphIO
+{
+	static final int CHUNK_SIZE = 1 << 14;
+
+	/**
+	 * Size of one edge tuple (from, to, sourceOutIndex, targetInIndex) in
+	 * bytes.
+	 */
+	private static final int EDGE_TUPLE_SIZE = 16;
+
+	/**
+	 * Writes the graph in the format of
+	 * {@link RawGraphIO#write(ReadOnlyGraph, GraphIdBimap, GraphSerializer, ObjectOutputStream)},
+	 * serializing chunks of vertices and edges in parallel.
+	 *
+	 * @param graph
+	 *            the graph to write.
+	 * @param idmap
+	 *            the id bimap of the graph.
+	 * @param io
+	 *            the attribute serializers.
+	 * @param oos
+	 *            the stream to write to.
+	 * @param forkJoinPool
+	 *            the pool to run serialization tasks on.
+	 * @param <V>
+	 *            the type of vertices in the graph.
+	 * @param <E>
+	 *            the type of edges in the graph.
+	 * @return the mapping from vertices and edges to file ids.
+	 * @throws IOException
+	 *             if writing fails.
+	 */
+	public static < V extends Vertex< E >, E extends Edge< V > >
+			GraphToFileIdMap< V, E > write(
+					final ReadOnlyGraph< V, E > graph,
+					final GraphIdBimap< V, E > idmap,
+					final GraphSerializer< V, E > io,
+					final ObjectOutputStream oos,
+					final ForkJoinPool forkJoinPool )
+			throws IOException
+	{
+		final AttributeSerializer< V > vio = io.getVertexSerializer();
+		final AttributeSerializer< E > eio = io.getEdgeSerializer();
+
+		final int numVertices = graph.vertices().size();
+		oos.writeInt( numVertices );
+
+		final int[] vertexIds = new int[ numVertices ];
+		final TIntIntHashMap vertexIdToFileIndex = new TIntIntHashMap( 2 * numVertices, 0.75f, -1, -1 );
+		int i = 0;
+		for ( final V v : graph.vertices() )
+		{
+			final int id = idmap.getVertexId( v );
+			vertexIds[ i ] = id;
+			vertexIdToFileIndex.put( id, i );
+			++i;
+		}
+
+		final int vertexBytes = vio.getNumBytes();
+		if ( vertexBytes > 0 )
+		{
+			final byte[][] chunks = new byte[ numChunks( numVertices ) ][];
+			forEachChunk( graph, numVertices, forkJoinPool, null,
+					( chunk, first, count, vref, eref ) -> {
+						final byte[] bytes = new byte[ count * vertexBytes ];
+						final byte[] vbytes = new byte[ vertexBytes ];
+						for ( int j = 0; j < count; ++j )
+						{
+							vio.getBytes( idmap.getVertex( vertexIds[ first + j ], vref ), vbytes );
+							System.arraycopy( vbytes, 0, bytes, j * vertexBytes, vertexBytes );
+						}
+						chunks[ chunk ] = bytes;
+					},
+					chunk -> {
+						oos.write( chunks[ chunk ], 0, chunks[ chunk ].length );
+						chunks[ chunk ] = null;
+					} );
+		}
+
+		final int numEdges = graph.edges().size();
+		oos.writeInt( numEdges );
+
+		final int[] edgeIds = new int[ numEdges ];
+		final TIntIntHashMap edgeIdToFileIndex = new TIntIntHashMap( 2 * numEdges, 0.75f, -1, -1 );
+		i = 0;
+		for ( final E e : graph.edges() )
+		{
+			final int id = idmap.getEdgeId( e );
+			edgeIds[ i ] = id;
+			edgeIdToFileIndex.put( id, i );
+			++i;
+		}
+		final EdgePositions positions = new EdgePositions( graph, idmap );
+
+		final int edgeBytes = eio.getNumBytes();
+		final int recordSize = EDGE_TUPLE_SIZE + edgeBytes;
+		final byte[][] chunks = new byte[ numChunks( numEdges ) ][];
+		forEachChunk( graph, numEdges, forkJoinPool, null,
+				( chunk, first, count, vref, eref ) -> {
+					final ByteBuffer bytes = ByteBuffer.allocate( count * recordSize );
+					final byte[] ebytes = new byte[ edgeBytes ];
+					for ( int j = 0; j < count; ++j )
+					{
+						final int id = edgeIds[ first + j ];
+						final E e = idmap.getEdge( id, eref );
+						bytes.putInt( vertexIdToFileIndex.get( idmap.getVertexId( e.getSource( vref ) ) ) );
+						bytes.putInt( vertexIdToFileIndex.get( idmap.getVertexId( e.getTarget( vref ) ) ) );
+						bytes.putInt( positions.getSourceOutIndex( id ) );
+						bytes.putInt( positions.getTargetInIndex( id ) );
+						if ( edgeBytes > 0 )
+						{
+							eio.getBytes( e, ebytes );
+							bytes.put( ebytes );
+						}
+					}
+					chunks[ chunk ] = bytes.array();
+				},
+				chunk -> {
+					oos.write( chunks[ chunk ], 0, chunks[ chunk ].length );
+					chunks[ chunk ] = null;
+				} );
+
+		final ObjectToFileIdMap< V > vertexToFileIdMap = new ObjectToFileIdMap<>( vertexIdToFileIndex, idmap.vertexIdBimap() );
+		final ObjectToFileIdMap< E > edgeToFileIdMap = new ObjectToFileIdMap<>( edgeIdToFileIndex, idmap.edgeIdBimap() );
+		return new GraphToFileIdMap<>( vertexToFileIdMap, edgeToFileIdMap );
+	}
+
+	/**
+	 * Reads a graph written by {@link RawGraphIO#write} or
+	 * {@link #write(ReadOnlyGraph, GraphIdBimap, GraphSerializer, ObjectOutputStream, ForkJoinPool)},
+	 * adding its vertices and edges to the specified graph.
+	 * <p>
+	 * If the graph is not a {@link GraphImp}, or if the graph was written in
+	 * compressed form, this falls back to the sequential
+	 * {@link RawGraphIO#read(Graph, GraphIdBimap, GraphSerializer, ObjectInputStream)}.
+	 *
+	 * @param graph
+	 *            the graph to add to.
+	 * @param idmap
+	 *            the id bimap of the graph.
+	 * @param io
+	 *            the attribute serializers.
+	 * @param ois
+	 *            the stream to read from.
+	 * @param forkJoinPool
+	 *            the pool to run deserialization tasks on.
+	 * @param <V>
+	 *            the type of vertices in the graph.
+	 * @param <E>
+	 *            the type of edges in the graph.
+	 * @return the mapping from file ids to vertices and edges.
+	 * @throws IOException
+	 *             if reading fails.
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	public static < V extends Vertex< E >, E extends Edge< V > >
+			FileIdToGraphMap< V, E > read(
+					final Graph< V, E > graph,
+					final GraphIdBimap< V, E > idmap,
+					final GraphSerializer< V, E > io,
+					final ObjectInputStream ois,
+					final ForkJoinPool forkJoinPool )
+			throws IOException
+	{
+		if ( graph instanceof GraphImp )
+			return readParallel( ( GraphImp ) graph, ( GraphIdBimap ) idmap, ( GraphSerializer ) io, ois, forkJoinPool );
+		return RawGraphIO.read( graph, idmap, io, ois );
+	}
+
+	private static < V extends AbstractVertex< V, E, ?, ? >, E extends AbstractEdge< E, V, ?, ? > >
+			FileIdToGraphMap< V, E > readParallel(
+					final GraphImp< ?, ?, V, E, ? > graph,
+					final GraphIdBimap< V, E > idmap,
+					final GraphSerializer< V, E > io,
+					final ObjectInputStream ois,
+					final ForkJoinPool forkJoinPool )
+			throws IOException
+	{
+		final AttributeSerializer< V > vio = io.getVertexSerializer();
+		final AttributeSerializer< E > eio = io.getEdgeSerializer();
+
+		/*
+		 * Vertices. Create all vertices first, such that the vertex pool does
+		 * not grow while setBytes() tasks run. Then read the attribute bytes
+		 * chunk by chunk.
+		 */
+		final int numVertices = ois.readInt();
+		if ( numVertices == RawGraphIO.COMPRESSED )
+			return RawGraphIO.readCompressed( graph, idmap, io, ois );
+		final int vertexBytes = vio.getNumBytes();
+		final byte[][] vertexChunks = new byte[ numChunks( numVertices ) ][];
+		final V v = graph.vertexRef();
+		final E e = graph.edgeRef();
+		final TIntIntHashMap fileIndexToVertexId;
+		final TIntIntHashMap fileIndexToEdgeId;
+		// The number of edges is not known yet. Expect about as many edges as vertices.
+		try ( final GraphBuilder< V, E > builder = new GraphBuilder<>( graph, numVertices, numVertices ) )
+		{
+			final int[] fileIndexToVertexIdArray = new int[ numVertices ];
+			fileIndexToVertexId = new TIntIntHashMap( 2 * numVertices, 0.75f, -1, -1 );
+			for ( int i = 0; i < numVertices; ++i )
+			{
+				final int id = idmap.getVertexId( builder.addVertex( v ) );
+				fileIndexToVertexIdArray[ i ] = id;
+				fileIndexToVertexId.put( i, id );
+			}
+			forEachChunk( graph, numVertices, forkJoinPool,
+					chunk -> vertexChunks[ chunk ] = readChunk( ois, chunk, numVertices, vertexBytes ),
+					( chunk, first, count, vref, eref ) -> {
+						if ( vertexBytes == 0 )
+							return;
+						final byte[] vbytes = new byte[ vertexBytes ];
+						for ( int j = 0; j < count; ++j )
+						{
+							System.arraycopy( vertexChunks[ chunk ], j * vertexBytes, vbytes, 0, vertexBytes );
+							vio.setBytes( idmap.getVertex( fileIndexToVertexIdArray[ first + j ], vref ), vbytes );
+						}
+					},
+					chunk -> {
+						vertexChunks[ chunk ] = null;
+						final int first = chunk * CHUNK_SIZE;
+						final int last = Math.min( first + CHUNK_SIZE, numVertices );
+						for ( int i = first; i < last; ++i )
+							vio.notifySet( idmap.getVertex( fileIndexToVertexIdArray[ i ], v ) );
+					} );
+
+			/*
+			 * Edges. Read the records chunk by chunk, and split them in
+			 * parallel into the tuples and the attribute bytes. Create all
+			 * edges, then set attributes in parallel.
+			 */
+			final int numEdges = ois.readInt();
+			final int edgeBytes = eio.getNumBytes();
+			final int recordSize = EDGE_TUPLE_SIZE + edgeBytes;
+			final byte[][] edgeChunks = new byte[ numChunks( numEdges ) ][];
+			final int[] tuples = new int[ 4 * numEdges ];
+			forEachChunk( graph, numEdges, forkJoinPool,
+					chunk -> edgeChunks[ chunk ] = readChunk( ois, chunk, numEdges, recordSize ),
+					( chunk, first, count, vref, eref ) -> {
+						final ByteBuffer bytes = ByteBuffer.wrap( edgeChunks[ chunk ] );
+						final byte[] attributes = new byte[ count * edgeBytes ];
+						for ( int j = 0; j < count; ++j )
+						{
+							for ( int k = 0; k < 4; ++k )
+								tuples[ 4 * ( first + j ) + k ] = bytes.getInt();
+							bytes.get( attributes, j * edgeBytes, edgeBytes );
+						}
+						edgeChunks[ chunk ] = attributes;
+					},
+					null );
+			final int[] fileIndexToEdgeIdArray = new int[ numEdges ];
+			fileIndexToEdgeId = new TIntIntHashMap( 2 * numEdges, 0.75f, -1, -1 );
+			for ( int i = 0; i < numEdges; ++i )
+			{
+				final int id = idmap.getEdgeId( builder.addEdge( tuples[ 4 * i ], tuples[ 4 * i + 1 ], tuples[ 4 * i + 2 ], tuples[ 4 * i + 3 ], e ) );
+				fileIndexToEdgeIdArray[ i ] = id;
+				fileIndexToEdgeId.put( i, id );
+			}
+			forEachChunk( graph, numEdges, forkJoinPool, null,
+					( chunk, first, count, vref, eref ) -> {
+						if ( edgeBytes == 0 )
+							return;
+						final byte[] ebytes = new byte[ edgeBytes ];
+						for ( int j = 0; j < count; ++j )
+						{
+							System.arraycopy( edgeChunks[ chunk ], j * edgeBytes, ebytes, 0, edgeBytes );
+							eio.setBytes( idmap.getEdge( fileIndexToEdgeIdArray[ first + j ], eref ), ebytes );
+						}
+					},
+					chunk -> {
+						edgeChunks[ chunk ] = null;
+						final int first = chunk * CHUNK_SIZE;
+						final int last = Math.min( first + CHUNK_SIZE, numEdges );
+						for ( int i = first; i < last; ++i )
+							eio.notifySet( idmap.getEdge( fileIndexToEdgeIdArray[ i ], e ) );
+					} );
+			builder.finish();
+		}
+		finally
+		{
+			graph.releaseRef( v );
+			graph.releaseRef( e );
+		}
+
+		final FileIdToObjectMap< V > fileIdToVertexMap = new FileIdToObjectMap<>( fileIndexToVertexId, idmap.vertexIdBimap() );
+		final FileIdToObjectMap< E > fileIdToEdgeMap = new FileIdToObjectMap<>( fileIndexToEdgeId, idmap.edgeIdBimap() );
+		return new FileIdToGraphMap<>( fileIdToVertexMap, fileIdToEdgeMap );
+	}
+
+	private static int numChunks( final int n )
+	{
+		return ( n + CHUNK_SIZE - 1 ) / CHUNK_SIZE;
+	}
+
+	/**
+	 * Reads the bytes of the specified chunk of {@code n} records of the
+	 * specified size. Chunks must be read in order.
+	 */
+	private static byte[] readChunk( final ObjectInputStream ois, final int chunk, final int n, final int recordSize ) throws IOException
+	{
+		final int count = Math.min( CHUNK_SIZE, n - chunk * CHUNK_SIZE );
+		final byte[] bytes = new byte[ count * recordSize ];
+		ois.readFully( bytes );
+		return bytes;
+	}
+
+	private interface ChunkRead
+	{
+		void read( int chunk ) throws IOException;
+	}
+
+	private interface ChunkTask< V, E >
+	{
+		void run( int chunk, int first, int count, V vref, E eref );
+	}
+
+	private interface ChunkDone
+	{
+		void done( int chunk ) throws IOException;
+	}
+
+	/**
+	 * Runs {@code task} for all chunks of {@code n} objects on the specified
+	 * pool. Calls {@code read} (if not {@code null}) for each chunk in order,
+	 * on the calling thread, before its task is submitted, and {@code done}
+	 * (if not {@code null}) for each chunk in order, on the calling thread,
+	 * after its task completed.
+	 * <p>
+	 * At most {@code 2 * parallelism} chunks are in flight at any time. Each
+	 * in-flight chunk gets its own vertex and edge refs, which are created and
+	 * released on the calling thread. If a task or callback fails, the tasks
+	 * still in flight are awaited before the refs are released.
+	 */
+	private static < V extends Vertex< E >, E extends Edge< V > > void forEachChunk(
+			final ReadOnlyGraph< V, E > graph,
+			final int n,
+			final ForkJoinPool forkJoinPool,
+			final ChunkRead read,
+			final ChunkTask< V, E > task,
+			final ChunkDone done )
+			throws IOException
+	{
+		final int numChunks = numChunks( n );
+		final int window = Math.min( numChunks, 2 * forkJoinPool.getParallelism() );
+		final List< V > vrefs = new ArrayList<>();
+		final List< E > erefs = new ArrayList<>();
+		final ArrayDeque< ForkJoinTask< ? > > pending = new ArrayDeque<>();
+		try
+		{
+			for ( int i = 0; i < window; ++i )
+			{
+				vrefs.add( graph.vertexRef() );
+				erefs.add( graph.edgeRef() );
+			}
+
+			int submitted = 0;
+			for ( int chunk = 0; chunk < numChunks; ++chunk )
+			{
+				while ( submitted < numChunks && submitted < chunk + window )
+				{
+					final int c = submitted;
+					final int first = c * CHUNK_SIZE;
+					final int count = Math.min( CHUNK_SIZE, n - first );
+					final V vref = vrefs.get( c % window );
+					final E eref = erefs.get( c % window );
+					if ( read != null )
+						read.read( c );
+					pending.add( forkJoinPool.submit( () -> task.run( c, first, count, vref, eref ) ) );
+					++submitted;
+				}
+				pending.poll().join();
+				if ( done != null )
+					done.done( chunk );
+			}
+		}
+		finally
+		{
+			for ( final ForkJoinTask< ? > t : pending )
+			{
+				t.cancel( false );
+				t.quietlyJoin();
+			}
+			for ( final V vref : vrefs )
+				graph.releaseRef( vref );
+			for ( final E eref : erefs )
+				graph.releaseRef( eref );
+		}
+	}
+}
@@ -28,15 +28,26 @@
  */
 package org.mastodon.graph.io;
 
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.zip.Deflater;
 
 import org.mastodon.graph.Edge;
 import org.mastodon.graph.Graph;
 import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.GraphListener;
 import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.Vertex;
+import org.mastodon.graph.ref.AbstractEdge;
+import org.mastodon.graph.ref.AbstractVertex;
+import org.mastodon.graph.ref.GraphBuilder;
+import org.mastodon.graph.ref.GraphImp;
+import org.mastodon.graph.ref.ListenableGraphImp;
 import org.mastodon.io.AttributeSerializer;
 import org.mastodon.io.FileIdToObjectMap;
 import org.mastodon.io.ObjectToFileIdMap;
@@ -52,6 +63,18 @@ import gnu.trove.map.hash.TIntIntHashMap;
  */
 public class RawGraphIO
 {
+	/**
+	 * Flag written instead of the number of vertices, to mark the compressed
+	 * form.
+	 */
+	static final int COMPRESSED = -1;
+
+	/**
+	 * Compression codec: delta/varint coded edge tuples, {@link Deflater}
+	 * blocks.
+	 */
+	private static final int DEFLATE = 1;
+
 	public static final class GraphToFileIdMap< V extends Vertex< E >, E extends Edge< V > >
 	{
 		private final ObjectToFileIdMap< V > vertices;
@@ -109,9 +132,72 @@ public class RawGraphIO
 					final GraphSerializer< V, E > io,
 					final ObjectOutputStream oos )
 			throws IOException
+	{
+		return writeGraph( graph, idmap, io, oos, false );
+	}
+
+	/**
+	 * Writes a graph, optionally in compressed form.
+	 * <p>
+	 * If {@code compressed} is {@code true}, the edge tuples (from, to,
+	 * sourceOutIndex, targetInIndex) are delta and varint coded, and all
+	 * data is compressed with a {@link Deflater} in independent blocks. The
+	 * compressed form is marked by a header flag, and is recognized by
+	 * {@link #read(Graph, GraphIdBimap, GraphSerializer, ObjectInputStream)}.
+	 *
+	 * @param graph
+	 *            the graph to write.
+	 * @param idmap
+	 *            the id bimap of the graph.
+	 * @param io
+	 *            the attribute serializers.
+	 * @param oos
+	 *            the stream to write to.
+	 * @param compressed
+	 *            whether to write the compressed form.
+	 * @param <V>
+	 *            the type of vertices in the graph.
+	 * @param <E>
+	 *            the type of edges in the graph.
+	 * @return the mapping from vertices and edges to file ids.
+	 * @throws IOException
+	 *             if writing fails.
+	 */
+	public static < V extends Vertex< E >, E extends Edge< V > >
+			GraphToFileIdMap< V, E > write(
+					final ReadOnlyGraph< V, E > graph,
+					final GraphIdBimap< V, E > idmap,
+					final GraphSerializer< V, E > io,
+					final ObjectOutputStream oos,
+					final boolean compressed )
+			throws IOException
+	{
+		if ( !compressed )
+			return writeGraph( graph, idmap, io, oos, false );
+
+		oos.writeInt( COMPRESSED );
+		oos.writeInt( DEFLATE );
+		try (final DeflateBlockOutputStream blocks = new DeflateBlockOutputStream( oos ))
+		{
+			final DataOutputStream out = new DataOutputStream( blocks );
+			final GraphToFileIdMap< V, E > map = writeGraph( graph, idmap, io, out, true );
+			out.flush();
+			blocks.finish();
+			return map;
+		}
+	}
+
+	private static < V extends Vertex< E >, E extends Edge< V > >
+			GraphToFileIdMap< V, E > writeGraph(
+					final ReadOnlyGraph< V, E > graph,
+					final GraphIdBimap< V, E > idmap,
+					final GraphSerializer< V, E > io,
+					final DataOutput out,
+					final boolean packed )
+			throws IOException
 	{
 		final int numVertices = graph.vertices().size();
-		oos.writeInt( numVertices );
+		out.writeInt( numVertices );
 
 		final AttributeSerializer< V > vio = io.getVertexSerializer();
 		final AttributeSerializer< E > eio = io.getEdgeSerializer();
@@ -125,7 +211,7 @@ public class RawGraphIO
 			if ( writeVertexBytes )
 			{
 				vio.getBytes( v, vbytes );
-				oos.write( vbytes );
+				out.write( vbytes );
 			}
 
 			final int id = idmap.getVertexId( v );
@@ -134,31 +220,44 @@ public class RawGraphIO
 		}
 
 		final int numEdges = graph.edges().size();
-		oos.writeInt( numEdges );
+		out.writeInt( numEdges );
 
 		final byte[] ebytes = new byte[ eio.getNumBytes() ];
 		final boolean writeEdgeBytes = eio.getNumBytes() > 0;
 		final V v = graph.vertexRef();
 		final TIntIntHashMap edgeIdToFileIndex = new TIntIntHashMap( 2 * numEdges, 0.75f, -1, -1 );
+		final EdgePositions positions = new EdgePositions( graph, idmap );
+		int prevFrom = 0;
 		i = 0;
 		for( final E e : graph.edges() )
 		{
+			final int id = idmap.getEdgeId( e );
 			final int from = vertexIdToFileIndex.get( idmap.getVertexId( e.getSource( v ) ) );
 			final int to = vertexIdToFileIndex.get( idmap.getVertexId( e.getTarget( v ) ) );
-			final int sourceOutIndex = e.getSourceOutIndex();
-			final int targetInIndex = e.getTargetInIndex();
-			oos.writeInt( from );
-			oos.writeInt( to );
-			oos.writeInt( sourceOutIndex );
-			oos.writeInt( targetInIndex );
+			final int sourceOutIndex = positions.getSourceOutIndex( id );
+			final int targetInIndex = positions.getTargetInIndex( id );
+			if ( packed )
+			{
+				writeVarint( out, zigzag( from - prevFrom ) );
+				writeVarint( out, zigzag( to - from ) );
+				writeVarint( out, sourceOutIndex );
+				writeVarint( out, targetInIndex );
+				prevFrom = from;
+			}
+			else
+			{
+				out.writeInt( from );
+				out.writeInt( to );
+				out.writeInt( sourceOutIndex );
+				out.writeInt( targetInIndex );
+			}
 
 			if ( writeEdgeBytes )
 			{
 				eio.getBytes( e, ebytes );
-				oos.write( ebytes );
+				out.write( ebytes );
 			}
 
-			final int id = idmap.getEdgeId( e );
 			edgeIdToFileIndex.put( id, i );
 			++i;
 		}
@@ -169,6 +268,25 @@ public class RawGraphIO
 		return new GraphToFileIdMap<>( vertexToFileIdMap, edgeToFileIdMap );
 	}
 
+	/**
+	 * Reads a graph written by {@link #write}, adding its vertices and edges to
+	 * the specified graph.
+	 * <p>
+	 * Both the plain and the
+	 * {@link #write(ReadOnlyGraph, GraphIdBimap, GraphSerializer, ObjectOutputStream, boolean)
+	 * compressed} form are read.
+	 * <p>
+	 * If the graph is a {@link GraphImp}, it is constructed with a
+	 * {@link GraphBuilder}, which links the adjacency lists of all edges at
+	 * once. In this case, a {@link ListenableGraphImp} with events enabled
+	 * sends a single {@link GraphListener#graphRebuilt()} instead of
+	 * {@link GraphListener#vertexAdded(Vertex)} and
+	 * {@link GraphListener#edgeAdded(Edge)} for every read object. If the
+	 * graph is simple, and the stream contains several edges between the same
+	 * source and target, an {@link IllegalArgumentException} is thrown and the
+	 * graph is left unchanged. If reading fails, the read vertices and edges
+	 * are removed again.
+	 */
 	public static < V extends Vertex< E >, E extends Edge< V > >
 			FileIdToGraphMap< V, E > read(
 					final Graph< V, E > graph,
@@ -177,7 +295,50 @@ public class RawGraphIO
 					final ObjectInputStream ois )
 			throws IOException
 	{
-		final int numVertices = ois.readInt();
+		final int header = ois.readInt();
+		if ( header == COMPRESSED )
+			return readCompressed( graph, idmap, io, ois );
+		return readGraph( graph, idmap, io, ois, header, false );
+	}
+
+	/**
+	 * Reads the compressed form of a graph, after the {@link #COMPRESSED} flag
+	 * has been read from the stream.
+	 */
+	static < V extends Vertex< E >, E extends Edge< V > >
+			FileIdToGraphMap< V, E > readCompressed(
+					final Graph< V, E > graph,
+					final GraphIdBimap< V, E > idmap,
+					final GraphSerializer< V, E > io,
+					final ObjectInputStream ois )
+			throws IOException
+	{
+		final int codec = ois.readInt();
+		if ( codec != DEFLATE )
+			throw new IOException( "Unknown graph compression " + codec + "." );
+		try (final InflateBlockInputStream blocks = new InflateBlockInputStream( ois ))
+		{
+			final DataInputStream in = new DataInputStream( blocks );
+			final FileIdToGraphMap< V, E > map = readGraph( graph, idmap, io, in, in.readInt(), true );
+			blocks.finish();
+			return map;
+		}
+	}
+
+	@SuppressWarnings( { "unchecked", "rawtypes" } )
+	private static < V extends Vertex< E >, E extends Edge< V > >
+			FileIdToGraphMap< V, E > readGraph(
+					final Graph< V, E > graph,
+					final GraphIdBimap< V, E > idmap,
+					final GraphSerializer< V, E > io,
+					final DataInput in,
+					final int numVertices,
+					final boolean packed )
+			throws IOException
+	{
+		if ( graph instanceof GraphImp )
+			return readBulk( ( GraphImp ) graph, ( GraphIdBimap ) idmap, ( GraphSerializer ) io, in, numVertices, packed );
+
 		final V v1 = graph.vertexRef();
 		final V v2 = graph.vertexRef();
 		final E e = graph.edgeRef();
@@ -193,29 +354,31 @@ public class RawGraphIO
 			graph.addVertex( v1 );
 			if ( readVertexBytes )
 			{
-				ois.readFully( vbytes );
+				in.readFully( vbytes );
 				vio.setBytes( v1, vbytes );
 			}
 			vio.notifySet( v1 );
 			fileIndexToVertexId.put( i, idmap.getVertexId( v1 ) );
 		}
 
-		final int numEdges = ois.readInt();
+		final int numEdges = in.readInt();
 		final byte[] ebytes = new byte[ eio.getNumBytes() ];
 		final boolean readEdgeBytes = eio.getNumBytes() > 0;
 		final TIntIntHashMap fileIndexToEdgeId = new TIntIntHashMap( 2 * numEdges, 0.75f, -1, -1 );
+		final int[] tuple = new int[ 4 ];
 		for ( int i = 0; i < numEdges; ++i )
 		{
-			final int from = fileIndexToVertexId.get( ois.readInt() );
-			final int to = fileIndexToVertexId.get( ois.readInt() );
-			final int sourceOutIndex = ois.readInt();
-			final int targetInIndex = ois.readInt();
+			readEdgeTuple( in, packed, tuple );
+			final int from = fileIndexToVertexId.get( tuple[ 0 ] );
+			final int to = fileIndexToVertexId.get( tuple[ 1 ] );
+			final int sourceOutIndex = tuple[ 2 ];
+			final int targetInIndex = tuple[ 3 ];
 			idmap.getVertex( from, v1 );
 			idmap.getVertex( to, v2 );
 			graph.insertEdge( v1, sourceOutIndex, v2, targetInIndex, e );
 			if ( readEdgeBytes )
 			{
-				ois.readFully( ebytes );
+				in.readFully( ebytes );
 				eio.setBytes( e, ebytes );
 			}
 			eio.notifySet( e );
@@ -230,4 +393,128 @@ public class RawGraphIO
 		final FileIdToObjectMap< E > fileIdToEdgeMap = new FileIdToObjectMap<>( fileIndexToEdgeId, idmap.edgeIdBimap() );
 		return new FileIdToGraphMap<>( fileIdToVertexMap, fileIdToEdgeMap );
 	}
+
+	private static < V extends AbstractVertex< V, E, ?, ? >, E extends AbstractEdge< E, V, ?, ? > >
+			FileIdToGraphMap< V, E > readBulk(
+					final GraphImp< ?, ?, V, E, ? > graph,
+					final GraphIdBimap< V, E > idmap,
+					final GraphSerializer< V, E > io,
+					final DataInput in,
+					final int numVertices,
+					final boolean packed )
+			throws IOException
+	{
+		final V v = graph.vertexRef();
+		final E e = graph.edgeRef();
+
+		final AttributeSerializer< V > vio = io.getVertexSerializer();
+		final AttributeSerializer< E > eio = io.getEdgeSerializer();
+
+		final TIntIntHashMap fileIndexToVertexId;
+		final TIntIntHashMap fileIndexToEdgeId;
+		// The number of edges is not known yet. Expect about as many edges as vertices.
+		try ( final GraphBuilder< V, E > builder = new GraphBuilder<>( graph, numVertices, numVertices ) )
+		{
+			final byte[] vbytes = new byte[ vio.getNumBytes() ];
+			final boolean readVertexBytes = vio.getNumBytes() > 0;
+			fileIndexToVertexId = new TIntIntHashMap( 2 * numVertices, 0.75f, -1, -1 );
+			for ( int i = 0; i < numVertices; ++i )
+			{
+				builder.addVertex( v );
+				if ( readVertexBytes )
+				{
+					in.readFully( vbytes );
+					vio.setBytes( v, vbytes );
+				}
+				vio.notifySet( v );
+				fileIndexToVertexId.put( i, idmap.getVertexId( v ) );
+			}
+
+			final int numEdges = in.readInt();
+			final byte[] ebytes = new byte[ eio.getNumBytes() ];
+			final boolean readEdgeBytes = eio.getNumBytes() > 0;
+			fileIndexToEdgeId = new TIntIntHashMap( 2 * numEdges, 0.75f, -1, -1 );
+			final int[] tuple = new int[ 4 ];
+			for ( int i = 0; i < numEdges; ++i )
+			{
+				readEdgeTuple( in, packed, tuple );
+				builder.addEdge( tuple[ 0 ], tuple[ 1 ], tuple[ 2 ], tuple[ 3 ], e );
+				if ( readEdgeBytes )
+				{
+					in.readFully( ebytes );
+					eio.setBytes( e, ebytes );
+				}
+				eio.notifySet( e );
+				fileIndexToEdgeId.put( i, idmap.getEdgeId( e ) );
+			}
+			builder.finish();
+		}
+		finally
+		{
+			graph.releaseRef( v );
+			graph.releaseRef( e );
+		}
+
+		final FileIdToObjectMap< V > fileIdToVertexMap = new FileIdToObjectMap<>( fileIndexToVertexId, idmap.vertexIdBimap() );
+		final FileIdToObjectMap< E > fileIdToEdgeMap = new FileIdToObjectMap<>( fileIndexToEdgeId, idmap.edgeIdBimap() );
+		return new FileIdToGraphMap<>( fileIdToVertexMap, fileIdToEdgeMap );
+	}
+
+	/**
+	 * Reads an edge tuple (from, to, sourceOutIndex, targetInIndex) into
+	 * {@code tuple}. In the packed form, {@code from} is coded relative to
+	 * the {@code from} of the previous tuple, which is expected in
+	 * {@code tuple[0]}.
+	 */
+	private static void readEdgeTuple( final DataInput in, final boolean packed, final int[] tuple ) throws IOException
+	{
+		if ( packed )
+		{
+			final int from = tuple[ 0 ] + unzigzag( readVarint( in ) );
+			tuple[ 0 ] = from;
+			tuple[ 1 ] = from + unzigzag( readVarint( in ) );
+			tuple[ 2 ] = readVarint( in );
+			tuple[ 3 ] = readVarint( in );
+		}
+		else
+		{
+			tuple[ 0 ] = in.readInt();
+			tuple[ 1 ] = in.readInt();
+			tuple[ 2 ] = in.readInt();
+			tuple[ 3 ] = in.readInt();
+		}
+	}
+
+	private static int zigzag( final int value )
+	{
+		return ( value << 1 ) ^ ( value >> 31 );
+	}
+
+	private static int unzigzag( final int value )
+	{
+		return ( value >>> 1 ) ^ -( value & 1 );
+	}
+
+	private static void writeVarint( final DataOutput out, int value ) throws IOException
+	{
+		while ( ( value & ~0x7f ) != 0 )
+		{
+			out.writeByte( ( value & 0x7f ) | 0x80 );
+			value >>>= 7;
+		}
+		out.writeByte( value );
+	}
+
+	private static int readVarint( final DataInput in ) throws IOException
+	{
+		int value = 0;
+		for ( int shift = 0; shift < 32; shift += 7 )
+		{
+			final byte b = in.readByte();
+			value |= ( b & 0x7f ) << shift;
+			if ( b >= 0 )
+				return value;
+		}
+		throw new IOException( "Malformed varint." );
+	}
 }
@@ -30,6 +30,8 @@ package org.mastodon.graph.object;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.mastodon.collection.RefCollection;
 import org.mastodon.collection.wrap.RefCollectionWrapper;
@@ -172,6 +174,53 @@ public abstract class AbstractObjectGraph< V extends AbstractObjectVertex< V, E
 		}
 	}
 
+	@Override
+	public void removeAll( final RefCollection< V > vertices )
+	{
+		final Set< V > removedVertices = new HashSet<>();
+		final Set< E > removedEdges = new HashSet<>();
+		for ( final V vertex : vertices )
+		{
+			if ( this.vertices.contains( vertex ) && removedVertices.add( vertex ) )
+			{
+				removedEdges.addAll( vertex.incoming.edges );
+				removedEdges.addAll( vertex.outgoing.edges );
+			}
+		}
+		removeEdges( removedEdges );
+		this.vertices.removeIf( removedVertices::contains );
+	}
+
+	@Override
+	public void removeAllEdges( final RefCollection< E > edges )
+	{
+		final Set< E > removedEdges = new HashSet<>();
+		for ( final E edge : edges )
+			removedEdges.add( edge );
+		removedEdges.retainAll( this.edges );
+		removeEdges( removedEdges );
+	}
+
+	/**
+	 * Removes the specified edges from the edge lists of their source and
+	 * target vertices, visiting each edge list once.
+	 */
+	private void removeEdges( final Set< E > removedEdges )
+	{
+		final Set< V > sources = new HashSet<>();
+		final Set< V > targets = new HashSet<>();
+		for ( final E edge : removedEdges )
+		{
+			sources.add( edge.getSource() );
+			targets.add( edge.getTarget() );
+		}
+		for ( final V source : sources )
+			source.outgoing.edges.removeIf( removedEdges::contains );
+		for ( final V target : targets )
+			target.incoming.edges.removeIf( removedEdges::contains );
+		edges.removeIf( removedEdges::contains );
+	}
+
 	@Override
 	public RefCollection< V > vertices()
 	{
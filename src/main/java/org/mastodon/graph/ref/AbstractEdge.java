@@ -59,12 +59,27 @@ public class AbstractEdge<
 	protected static final int NEXT_SOURCE_EDGE_INDEX_OFFSET = AbstractEdgePool.layout.nextSourceEdge.getOffset();
 	protected static final int NEXT_TARGET_EDGE_INDEX_OFFSET = AbstractEdgePool.layout.nextTargetEdge.getOffset();
 
+	/**
+	 * Offset of the previous source edge index, or {@code -1} if the edge
+	 * layout does not store previous edge indices.
+	 */
+	private final int prevSourceEdgeIndexOffset;
+
+	/**
+	 * Offset of the previous target edge index, or {@code -1} if the edge
+	 * layout does not store previous edge indices.
+	 */
+	private final int prevTargetEdgeIndexOffset;
+
 	protected final AbstractVertexPool< V, ?, ? > vertexPool;
 
 	protected AbstractEdge( final EP pool )
 	{
 		super( pool );
 		this.vertexPool = pool.vertexPool;
+		final AbstractEdgePool.AbstractEdgeLayout layout = pool.edgeLayout;
+		prevSourceEdgeIndexOffset = layout.hasPrevEdgeIndices() ? layout.prevSourceEdge.getOffset() : -1;
+		prevTargetEdgeIndexOffset = layout.hasPrevEdgeIndices() ? layout.prevTargetEdge.getOffset() : -1;
 	}
 
 	protected int getSourceVertexInternalPoolIndex()
@@ -107,11 +122,89 @@ public class AbstractEdge<
 		access.putIndex( index, NEXT_TARGET_EDGE_INDEX_OFFSET );
 	}
 
+	/**
+	 * Only valid if the edge layout
+	 * {@link AbstractEdgePool.AbstractEdgeLayout#hasPrevEdgeIndices() has
+	 * previous edge indices}.
+	 *
+	 * @return the index of the previous edge in the outgoing edge list of the
+	 *         source, or -1 if there is none.
+	 */
+	protected int getPrevSourceEdgeIndex()
+	{
+		return access.getIndex( prevSourceEdgeIndexOffset );
+	}
+
+	/**
+	 * Does nothing if the edge layout does not
+	 * {@link AbstractEdgePool.AbstractEdgeLayout#hasPrevEdgeIndices() have
+	 * previous edge indices}.
+	 *
+	 * @param index
+	 *            the index of the previous edge in the outgoing edge list of
+	 *            the source, or -1 if there is none.
+	 */
+	protected void setPrevSourceEdgeIndex( final int index )
+	{
+		if ( prevSourceEdgeIndexOffset >= 0 )
+			access.putIndex( index, prevSourceEdgeIndexOffset );
+	}
+
+	/**
+	 * Only valid if the edge layout
+	 * {@link AbstractEdgePool.AbstractEdgeLayout#hasPrevEdgeIndices() has
+	 * previous edge indices}.
+	 *
+	 * @return the index of the previous edge in the incoming edge list of the
+	 *         target, or -1 if there is none.
+	 */
+	protected int getPrevTargetEdgeIndex()
+	{
+		return access.getIndex( prevTargetEdgeIndexOffset );
+	}
+
+	/**
+	 * Does nothing if the edge layout does not
+	 * {@link AbstractEdgePool.AbstractEdgeLayout#hasPrevEdgeIndices() have
+	 * previous edge indices}.
+	 *
+	 * @param index
+	 *            the index of the previous edge in the incoming edge list of
+	 *            the target, or -1 if there is none.
+	 */
+	protected void setPrevTargetEdgeIndex( final int index )
+	{
+		if ( prevTargetEdgeIndexOffset >= 0 )
+			access.putIndex( index, prevTargetEdgeIndexOffset );
+	}
+
+	/**
+	 * Copies the first {@code numBytes} bytes of this edge to {@code bytes},
+	 * starting at {@code offset}.
+	 */
+	void getRawBytes( final byte[] bytes, final int offset, final int numBytes )
+	{
+		for ( int i = 0; i < numBytes; ++i )
+			bytes[ offset + i ] = access.getByte( i );
+	}
+
+	/**
+	 * Copies {@code numBytes} bytes from {@code bytes}, starting at
+	 * {@code offset}, to the first {@code numBytes} bytes of this edge.
+	 */
+	void setRawBytes( final byte[] bytes, final int offset, final int numBytes )
+	{
+		for ( int i = 0; i < numBytes; ++i )
+			access.putByte( bytes[ offset + i ], i );
+	}
+
 	@Override
 	protected void setToUninitializedState()
 	{
 		setNextSourceEdgeIndex( -1 );
 		setNextTargetEdgeIndex( -1 );
+		setPrevSourceEdgeIndex( -1 );
+		setPrevTargetEdgeIndex( -1 );
 	}
 
 	@Override
@@ -127,19 +220,43 @@ public class AbstractEdge<
 		return vertex;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the edge layout
+	 * {@link AbstractEdgePool.AbstractEdgeLayout#hasPrevEdgeIndices() has
+	 * previous edge indices}, this counts the predecessors of this edge.
+	 * Otherwise, this walks the outgoing edge list of the source up to this
+	 * edge. Either way, the cost is linear in the returned position, and no
+	 * objects are allocated.
+	 */
 	@Override
 	public int getSourceOutIndex()
 	{
-		final V ref = vertexPool.createRef();
-		final V source = getSource( ref );
+		final E tmp = pool.createRef();
 		int outIndex = 0;
-		for ( final Object e : source.outgoingEdges() )
+		if ( prevSourceEdgeIndexOffset >= 0 )
+		{
+			int index = getPrevSourceEdgeIndex();
+			while ( index >= 0 )
+			{
+				++outIndex;
+				index = pool.getObject( index, tmp ).getPrevSourceEdgeIndex();
+			}
+		}
+		else
 		{
-			if ( e.equals( this ) )
-				break;
-			++outIndex;
+			final V ref = vertexPool.createRef();
+			int index = getSource( ref ).getFirstOutEdgeIndex();
+			vertexPool.releaseRef( ref );
+			final int thisIndex = getInternalPoolIndex();
+			while ( index >= 0 && index != thisIndex )
+			{
+				++outIndex;
+				index = pool.getObject( index, tmp ).getNextSourceEdgeIndex();
+			}
 		}
-		vertexPool.releaseRef( ref );
+		pool.releaseRef( tmp );
 		return outIndex;
 	}
 
@@ -156,19 +273,43 @@ public class AbstractEdge<
 		return vertex;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the edge layout
+	 * {@link AbstractEdgePool.AbstractEdgeLayout#hasPrevEdgeIndices() has
+	 * previous edge indices}, this counts the predecessors of this edge.
+	 * Otherwise, this walks the incoming edge list of the target up to this
+	 * edge. Either way, the cost is linear in the returned position, and no
+	 * objects are allocated.
+	 */
 	@Override
 	public int getTargetInIndex()
 	{
-		final V ref = vertexPool.createRef();
-		final V target = getTarget( ref );
+		final E tmp = pool.createRef();
 		int inIndex = 0;
-		for ( final Object e : target.incomingEdges() )
+		if ( prevTargetEdgeIndexOffset >= 0 )
+		{
+			int index = getPrevTargetEdgeIndex();
+			while ( index >= 0 )
+			{
+				++inIndex;
+				index = pool.getObject( index, tmp ).getPrevTargetEdgeIndex();
+			}
+		}
+		else
 		{
-			if ( e.equals( this ) )
-				break;
-			++inIndex;
+			final V ref = vertexPool.createRef();
+			int index = getTarget( ref ).getFirstInEdgeIndex();
+			vertexPool.releaseRef( ref );
+			final int thisIndex = getInternalPoolIndex();
+			while ( index >= 0 && index != thisIndex )
+			{
+				++inIndex;
+				index = pool.getObject( index, tmp ).getNextTargetEdgeIndex();
+			}
 		}
-		vertexPool.releaseRef( ref );
+		pool.releaseRef( tmp );
 		return inIndex;
 	}
 }
@@ -28,6 +28,8 @@
  */
 package org.mastodon.graph.ref;
 
+import java.util.BitSet;
+
 import org.mastodon.pool.MappedElement;
 import org.mastodon.pool.MemPool;
 import org.mastodon.pool.Pool;
@@ -54,16 +56,89 @@ public abstract class AbstractEdgePool<
 {
 	final AbstractVertexPool< V, ?, ? > vertexPool;
 
+	/**
+	 * Whether vertices store the indices of their last incoming and outgoing
+	 * edges. If so, edges can be appended to adjacency lists without walking
+	 * them.
+	 */
+	private final boolean lastEdgeIndices;
+
+	/**
+	 * Whether edges store the indices of their predecessors in the adjacency
+	 * lists. If so, edges can be unlinked from adjacency lists without walking
+	 * them.
+	 */
+	private final boolean prevEdgeIndices;
+
+	/**
+	 * Whether vertices store their in-degree and out-degree.
+	 */
+	private final boolean degrees;
+
+	/**
+	 * Index of the first edge between source and target vertices, or
+	 * {@code null} if edges are found by walking the outgoing edge list of
+	 * the source.
+	 */
+	private AdjacencyIndex adjacencyIndex;
+
+	/**
+	 * Metrics of the graph, or {@code null} if not enabled. Set by
+	 * {@link ListenableGraphImp#enableMetrics()}.
+	 */
+	GraphMetrics metrics;
+
+	/**
+	 * Layout of the graph-specific part of edges. Stores the indices of the
+	 * source and target vertices, and the indices of the next edges in the
+	 * outgoing edge list of the source and the incoming edge list of the
+	 * target.
+	 * <p>
+	 * Optionally, the layout also stores the indices of the previous edges in
+	 * these lists, making them doubly-linked. This costs 8 bytes per edge, but
+	 * makes removing edges ({@link AbstractEdgePool#delete}, and removing
+	 * vertices with all their edges) independent of the degree of the source
+	 * and target vertices.
+	 * <p>
+	 * Like for {@link AbstractVertexPool.AbstractVertexLayout}, the optional
+	 * fields are placed before any fields added by derived layouts.
+	 */
 	public static class AbstractEdgeLayout extends PoolObjectLayout
 	{
 		final IndexField source = indexField();
 		final IndexField target = indexField();
 		final IndexField nextSourceEdge = indexField();
 		final IndexField nextTargetEdge = indexField();
+		final IndexField prevSourceEdge;
+		final IndexField prevTargetEdge;
+
+		public AbstractEdgeLayout()
+		{
+			this( false );
+		}
+
+		/**
+		 * @param prevEdgeIndices
+		 *            whether to store the indices of the previous edges in the
+		 *            outgoing edge list of the source and the incoming edge
+		 *            list of the target.
+		 */
+		public AbstractEdgeLayout( final boolean prevEdgeIndices )
+		{
+			prevSourceEdge = prevEdgeIndices ? indexField() : null;
+			prevTargetEdge = prevEdgeIndices ? indexField() : null;
+		}
+
+		public boolean hasPrevEdgeIndices()
+		{
+			return prevSourceEdge != null;
+		}
 	}
 
 	public static AbstractEdgeLayout layout = new AbstractEdgeLayout();
 
+	final AbstractEdgeLayout edgeLayout;
+
 	public AbstractEdgePool(
 			final int initialCapacity,
 			final AbstractEdgeLayout layout,
@@ -73,6 +148,10 @@ public abstract class AbstractEdgePool<
 	{
 		super( initialCapacity, layout, edgeClass, memPoolFactory );
 		this.vertexPool = vertexPool;
+		this.edgeLayout = layout;
+		this.prevEdgeIndices = layout.hasPrevEdgeIndices();
+		this.lastEdgeIndices = vertexPool.vertexLayout.hasLastEdgeIndices();
+		this.degrees = vertexPool.vertexLayout.hasDegrees();
 	}
 
 	/**
@@ -101,18 +180,33 @@ public abstract class AbstractEdgePool<
 			// source has no outgoing edge yet. Set this one as the first.
 			source.setFirstOutEdgeIndex( edge.getInternalPoolIndex() );
 		}
+		else if ( lastEdgeIndices )
+		{
+			// source has outgoing edges. Append this one after the last.
+			getObject( source.getLastOutEdgeIndex(), tmp );
+			tmp.setNextSourceEdgeIndex( edge.getInternalPoolIndex() );
+			edge.setPrevSourceEdgeIndex( tmp.getInternalPoolIndex() );
+		}
 		else
 		{
 			// source has outgoing edges. Append this one to the end of the linked list.
 			getObject( sourceOutIndex, tmp );
 			int nextSourceEdgeIndex = tmp.getNextSourceEdgeIndex();
+			int hops = 1;
 			while ( nextSourceEdgeIndex >= 0 )
 			{
 				getObject( nextSourceEdgeIndex, tmp );
 				nextSourceEdgeIndex = tmp.getNextSourceEdgeIndex();
+				++hops;
 			}
+			if ( metrics != null )
+				metrics.adjacencyHops( hops );
 			tmp.setNextSourceEdgeIndex( edge.getInternalPoolIndex() );
+			edge.setPrevSourceEdgeIndex( tmp.getInternalPoolIndex() );
 		}
+		source.setLastOutEdgeIndex( edge.getInternalPoolIndex() );
+		if ( degrees )
+			source.setOutDegree( source.getOutDegree() + 1 );
 
 		final int targetInIndex = target.getFirstInEdgeIndex();
 		if ( targetInIndex < 0 )
@@ -120,17 +214,42 @@ public abstract class AbstractEdgePool<
 			// target has no incoming edge yet. Set this one as the first.
 			target.setFirstInEdgeIndex( edge.getInternalPoolIndex() );
 		}
+		else if ( lastEdgeIndices )
+		{
+			// target has incoming edges. Append this one after the last.
+			getObject( target.getLastInEdgeIndex(), tmp );
+			tmp.setNextTargetEdgeIndex( edge.getInternalPoolIndex() );
+			edge.setPrevTargetEdgeIndex( tmp.getInternalPoolIndex() );
+		}
 		else
 		{
 			// target has incoming edges. Append this one to the end of the linked list.
 			getObject( targetInIndex, tmp );
 			int nextTargetEdgeIndex = tmp.getNextTargetEdgeIndex();
+			int hops = 1;
 			while ( nextTargetEdgeIndex >= 0 )
 			{
 				getObject( nextTargetEdgeIndex, tmp );
 				nextTargetEdgeIndex = tmp.getNextTargetEdgeIndex();
+				++hops;
 			}
+			if ( metrics != null )
+				metrics.adjacencyHops( hops );
 			tmp.setNextTargetEdgeIndex( edge.getInternalPoolIndex() );
+			edge.setPrevTargetEdgeIndex( tmp.getInternalPoolIndex() );
+		}
+		target.setLastInEdgeIndex( edge.getInternalPoolIndex() );
+		if ( degrees )
+			target.setInDegree( target.getInDegree() + 1 );
+
+		if ( adjacencyIndex != null )
+		{
+			// the edge is last in the outgoing edge list, so it is only the
+			// first edge to target if there is no other
+			if ( adjacencyIndex.isIndexed( source.getInternalPoolIndex() ) )
+				adjacencyIndex.putIfAbsent( source.getInternalPoolIndex(), target.getInternalPoolIndex(), edge.getInternalPoolIndex() );
+			else if ( reachesMinDegree( source, tmp ) )
+				indexSource( source, tmp );
 		}
 
 		releaseRef( tmp );
@@ -176,7 +295,16 @@ public abstract class AbstractEdgePool<
 		if ( insertIndex == 0 )
 			source.setFirstOutEdgeIndex( edge.getInternalPoolIndex() );
 		else
+		{
 			tmp.setNextSourceEdgeIndex( edge.getInternalPoolIndex() );
+			edge.setPrevSourceEdgeIndex( tmp.getInternalPoolIndex() );
+		}
+		if ( nextSourceEdgeIndex < 0 )
+			source.setLastOutEdgeIndex( edge.getInternalPoolIndex() );
+		else if ( prevEdgeIndices )
+			getObject( nextSourceEdgeIndex, tmp ).setPrevSourceEdgeIndex( edge.getInternalPoolIndex() );
+		if ( degrees )
+			source.setOutDegree( source.getOutDegree() + 1 );
 
 		int nextTargetEdgeIndex = target.getFirstInEdgeIndex();
 		insertIndex = 0;
@@ -190,26 +318,284 @@ public abstract class AbstractEdgePool<
 		if ( insertIndex == 0 )
 			target.setFirstInEdgeIndex( edge.getInternalPoolIndex() );
 		else
+		{
 			tmp.setNextTargetEdgeIndex( edge.getInternalPoolIndex() );
+			edge.setPrevTargetEdgeIndex( tmp.getInternalPoolIndex() );
+		}
+		if ( nextTargetEdgeIndex < 0 )
+			target.setLastInEdgeIndex( edge.getInternalPoolIndex() );
+		else if ( prevEdgeIndices )
+			getObject( nextTargetEdgeIndex, tmp ).setPrevTargetEdgeIndex( edge.getInternalPoolIndex() );
+		if ( degrees )
+			target.setInDegree( target.getInDegree() + 1 );
+
+		if ( adjacencyIndex != null )
+		{
+			if ( adjacencyIndex.isIndexed( source.getInternalPoolIndex() ) )
+			{
+				// the edge is the first edge to target, unless there is another
+				// edge to target before it in the outgoing edge list
+				final int first = adjacencyIndex.get( source.getInternalPoolIndex(), target.getInternalPoolIndex() );
+				if ( first < 0 || findEdgeIndex( edge.getNextSourceEdgeIndex(), first, tmp ) )
+					adjacencyIndex.put( source.getInternalPoolIndex(), target.getInternalPoolIndex(), edge.getInternalPoolIndex() );
+			}
+			else if ( reachesMinDegree( source, tmp ) )
+				indexSource( source, tmp );
+		}
 
 		releaseRef( tmp );
 		return edge;
 	}
 
+	/**
+	 * Creates an edge between the specified source and target, without adding
+	 * it to the adjacency lists of the source and target vertices. Used by
+	 * {@link GraphBuilder}, which links the adjacency lists of all edges at
+	 * once.
+	 *
+	 * @param sourceIndex
+	 *            the internal pool index of the source vertex.
+	 * @param targetIndex
+	 *            the internal pool index of the target vertex.
+	 * @param edge
+	 *            a reference object used for operation.
+	 * @return the created edge.
+	 */
+	E createUnlinkedEdge( final int sourceIndex, final int targetIndex, final E edge )
+	{
+		create( edge );
+		edge.setSourceVertexInternalPoolIndex( sourceIndex );
+		edge.setTargetVertexInternalPoolIndex( targetIndex );
+		return edge;
+	}
+
+	/**
+	 * Deletes an edge without unlinking it from the adjacency lists of its
+	 * source and target. Used to discard edges created by
+	 * {@link #createUnlinkedEdge}. The caller is responsible for the
+	 * adjacency lists and the adjacency index.
+	 *
+	 * @param edge
+	 *            the edge to delete.
+	 */
+	void deleteUnlinkedEdge( final E edge )
+	{
+		super.delete( edge );
+	}
+
 	public E getEdge( final AbstractVertex< ?, ?, ?, ? > source, final AbstractVertex< ?, ?, ?, ? > target, final E edge )
 	{
+		final int index = getEdgeIndex( source, target.getInternalPoolIndex(), edge );
+		return index < 0 ? null : getObject( index, edge );
+	}
+
+	/**
+	 * Enables an index of the edges between source and target vertices, for
+	 * all source vertices. This makes {@link #getEdge}, and the check for
+	 * existing edges in {@link AbstractSimpleEdgePool}, constant time
+	 * operations, instead of linear in the out-degree of the source. The
+	 * index costs memory for each (source, target) pair connected by an
+	 * edge, and has to be updated when edges are added and removed.
+	 */
+	public void enableAdjacencyIndex()
+	{
+		enableAdjacencyIndex( 0 );
+	}
+
+	/**
+	 * Enables an index of the edges between source and target vertices, for
+	 * source vertices with high out-degree. The outgoing edges of a source
+	 * are indexed when {@link #addEdge} or {@link #insertEdge} brings it to
+	 * {@code minDegree} outgoing edges, or when the index is enabled or
+	 * rebuilt. Once indexed, a source remains indexed until it is removed.
+	 * Lookups never modify the index, so they are safe for concurrent readers.
+	 *
+	 * @param minDegree
+	 *            the out-degree from which sources are indexed. If
+	 *            {@code minDegree <= 0}, all sources are indexed.
+	 * @see #enableAdjacencyIndex()
+	 */
+	public void enableAdjacencyIndex( final int minDegree )
+	{
+		adjacencyIndex = new AdjacencyIndex( minDegree );
+		rebuildAdjacencyIndex();
+	}
+
+	/**
+	 * Disables and discards the index of the edges between source and target
+	 * vertices.
+	 */
+	public void disableAdjacencyIndex()
+	{
+		adjacencyIndex = null;
+	}
+
+	public boolean hasAdjacencyIndex()
+	{
+		return adjacencyIndex != null;
+	}
+
+	/**
+	 * Re-creates the adjacency index, if it is enabled. Must be called after
+	 * the adjacency lists are modified by other means than {@link #addEdge},
+	 * {@link #insertEdge} and {@link #delete}, for example after
+	 * {@link #createUnlinkedEdge}.
+	 */
+	void rebuildAdjacencyIndex()
+	{
+		if ( adjacencyIndex == null )
+			return;
+
+		adjacencyIndex.clear();
+		final boolean complete = adjacencyIndex.isComplete();
+		final E tmp = createRef();
+		for ( final V vertex : vertexPool )
+			if ( complete || reachesMinDegree( vertex, tmp ) )
+				indexSource( vertex, tmp );
+		releaseRef( tmp );
+	}
+
+	/**
+	 * Whether there may be several edges with the same source and target.
+	 * Used to avoid searching for more edges between source and target, after
+	 * the first one is found.
+	 */
+	boolean allowsParallelEdges()
+	{
+		return true;
+	}
+
+	/**
+	 * Finds the index of the first edge from {@code source} to the vertex with
+	 * the specified internal pool index, using the adjacency index if the
+	 * source is indexed.
+	 *
+	 * @param source
+	 *            the source vertex.
+	 * @param targetIndex
+	 *            the internal pool index of the target vertex.
+	 * @param tmp
+	 *            a reference object used for operation. Its value is
+	 *            undefined afterwards.
+	 * @return the index of the first edge from source to target, or -1 if
+	 *         there is none.
+	 */
+	int getEdgeIndex( final AbstractVertex< ?, ?, ?, ? > source, final int targetIndex, final E tmp )
+	{
+		final int sourceIndex = source.getInternalPoolIndex();
+		if ( adjacencyIndex != null && adjacencyIndex.isIndexed( sourceIndex ) )
+		{
+			if ( metrics != null )
+				metrics.indexedEdgeLookup();
+			return adjacencyIndex.get( sourceIndex, targetIndex );
+		}
+
+		int found = -1;
+		int numVisited = 0;
 		int nextSourceEdgeIndex = source.getFirstOutEdgeIndex();
-		if ( nextSourceEdgeIndex < 0 )
-			return null;
-		do
+		while ( nextSourceEdgeIndex >= 0 )
+		{
+			getObject( nextSourceEdgeIndex, tmp );
+			++numVisited;
+			if ( tmp.getTargetVertexInternalPoolIndex() == targetIndex )
+			{
+				found = nextSourceEdgeIndex;
+				break;
+			}
+			nextSourceEdgeIndex = tmp.getNextSourceEdgeIndex();
+		}
+		if ( metrics != null )
+			metrics.edgeLookup( numVisited );
+		return found;
+	}
+
+	/**
+	 * Whether {@code source} has at least {@link AdjacencyIndex#getMinDegree()}
+	 * outgoing edges. Constant time if the vertex layout stores degrees,
+	 * otherwise walks at most {@code minDegree} edges of the outgoing edge
+	 * list.
+	 */
+	private boolean reachesMinDegree( final AbstractVertex< ?, ?, ?, ? > source, final E tmp )
+	{
+		final int minDegree = adjacencyIndex.getMinDegree();
+		if ( degrees )
+			return source.getOutDegree() >= minDegree;
+
+		int numVisited = 0;
+		int nextSourceEdgeIndex = source.getFirstOutEdgeIndex();
+		while ( nextSourceEdgeIndex >= 0 && numVisited < minDegree )
+		{
+			getObject( nextSourceEdgeIndex, tmp );
+			nextSourceEdgeIndex = tmp.getNextSourceEdgeIndex();
+			++numVisited;
+		}
+		return numVisited >= minDegree;
+	}
+
+	/**
+	 * Adds the outgoing edges of {@code source} to the adjacency index.
+	 */
+	private void indexSource( final AbstractVertex< ?, ?, ?, ? > source, final E tmp )
+	{
+		final int sourceIndex = source.getInternalPoolIndex();
+		adjacencyIndex.addSource( sourceIndex );
+		int nextSourceEdgeIndex = source.getFirstOutEdgeIndex();
+		while ( nextSourceEdgeIndex >= 0 )
+		{
+			getObject( nextSourceEdgeIndex, tmp );
+			adjacencyIndex.putIfAbsent( sourceIndex, tmp.getTargetVertexInternalPoolIndex(), nextSourceEdgeIndex );
+			nextSourceEdgeIndex = tmp.getNextSourceEdgeIndex();
+		}
+	}
+
+	/**
+	 * Walks an outgoing edge list, starting at {@code startIndex}, looking for
+	 * the edge with index {@code edgeIndex}.
+	 *
+	 * @return whether the edge was found.
+	 */
+	private boolean findEdgeIndex( final int startIndex, final int edgeIndex, final E tmp )
+	{
+		int nextSourceEdgeIndex = startIndex;
+		while ( nextSourceEdgeIndex >= 0 )
 		{
-			getObject( nextSourceEdgeIndex, edge );
-			if ( edge.getTargetVertexInternalPoolIndex() == target.getInternalPoolIndex() )
-				return edge;
-			nextSourceEdgeIndex = edge.getNextSourceEdgeIndex();
+			if ( nextSourceEdgeIndex == edgeIndex )
+				return true;
+			nextSourceEdgeIndex = getObject( nextSourceEdgeIndex, tmp ).getNextSourceEdgeIndex();
 		}
-		while ( nextSourceEdgeIndex >= 0 );
-		return null;
+		return false;
+	}
+
+	/**
+	 * Removes {@code edge} from the adjacency index, before it is deleted. If
+	 * it was the first edge from its source to its target, the next edge from
+	 * source to target becomes the first.
+	 */
+	private void unindex( final E edge, final E tmp )
+	{
+		final int sourceIndex = edge.getSourceVertexInternalPoolIndex();
+		if ( adjacencyIndex == null || !adjacencyIndex.isIndexed( sourceIndex ) )
+			return;
+
+		final int targetIndex = edge.getTargetVertexInternalPoolIndex();
+		if ( adjacencyIndex.get( sourceIndex, targetIndex ) != edge.getInternalPoolIndex() )
+			return;
+
+		if ( allowsParallelEdges() )
+		{
+			int nextSourceEdgeIndex = edge.getNextSourceEdgeIndex();
+			while ( nextSourceEdgeIndex >= 0 )
+			{
+				getObject( nextSourceEdgeIndex, tmp );
+				if ( tmp.getTargetVertexInternalPoolIndex() == targetIndex )
+				{
+					adjacencyIndex.put( sourceIndex, targetIndex, nextSourceEdgeIndex );
+					return;
+				}
+				nextSourceEdgeIndex = tmp.getNextSourceEdgeIndex();
+			}
+		}
+		adjacencyIndex.remove( sourceIndex, targetIndex );
 	}
 
 	public void deleteAllLinkedEdges( final AbstractVertex< ?, ?, ?, ? > vertex )
@@ -221,21 +607,32 @@ public abstract class AbstractEdgePool<
 		// release all outgoing edges
 		int index = vertex.getFirstOutEdgeIndex();
 		vertex.setFirstOutEdgeIndex( -1 );
+		vertex.setLastOutEdgeIndex( -1 );
+		vertex.setOutDegree( 0 );
 		while ( index >= 0 )
 		{
 			getObject( index, edge );
 			unlinkFromTarget( edge, tmpEdge, tmpVertex );
+			if ( adjacencyIndex != null )
+				adjacencyIndex.remove( vertex.getInternalPoolIndex(), edge.getTargetVertexInternalPoolIndex() );
 			index = edge.getNextSourceEdgeIndex();
 			super.delete( edge );
 		}
+		if ( adjacencyIndex != null )
+			adjacencyIndex.removeSource( vertex.getInternalPoolIndex() );
 
 		// release all incoming edges
 		index = vertex.getFirstInEdgeIndex();
 		vertex.setFirstInEdgeIndex( -1 );
+		vertex.setLastInEdgeIndex( -1 );
+		vertex.setInDegree( 0 );
 		while ( index >= 0 )
 		{
 			getObject( index, edge );
 			unlinkFromSource( edge, tmpEdge, tmpVertex );
+			// all edges from this source to vertex are removed
+			if ( adjacencyIndex != null )
+				adjacencyIndex.remove( edge.getSourceVertexInternalPoolIndex(), vertex.getInternalPoolIndex() );
 			index = edge.getNextTargetEdgeIndex();
 			super.delete( edge );
 		}
@@ -245,12 +642,100 @@ public abstract class AbstractEdgePool<
 		releaseRef( tmpEdge );
 	}
 
+	/**
+	 * Marks the incoming and outgoing edges of the specified vertices.
+	 *
+	 * @param vertices
+	 *            the internal pool indices of the vertices.
+	 * @param edges
+	 *            the internal pool indices of the linked edges are added to
+	 *            this set.
+	 */
+	void markLinkedEdges( final BitSet vertices, final BitSet edges )
+	{
+		final V vertex = vertexPool.createRef();
+		final E edge = createRef();
+		for ( int i = vertices.nextSetBit( 0 ); i >= 0; i = vertices.nextSetBit( i + 1 ) )
+		{
+			vertexPool.getObject( i, vertex );
+			for ( int index = vertex.getFirstOutEdgeIndex(); index >= 0; index = getObject( index, edge ).getNextSourceEdgeIndex() )
+				edges.set( index );
+			for ( int index = vertex.getFirstInEdgeIndex(); index >= 0; index = getObject( index, edge ).getNextTargetEdgeIndex() )
+				edges.set( index );
+		}
+		vertexPool.releaseRef( vertex );
+		releaseRef( edge );
+	}
+
+	/**
+	 * Deletes the specified vertices and edges. Instead of unlinking edges
+	 * one by one, the adjacency lists of the remaining vertices that lose
+	 * edges are relinked once, skipping all deleted edges.
+	 *
+	 * @param vertices
+	 *            the internal pool indices of the vertices to delete.
+	 * @param edges
+	 *            the internal pool indices of the edges to delete. Must
+	 *            contain all edges linked to the deleted vertices (see
+	 *            {@link #markLinkedEdges(BitSet, BitSet)}).
+	 */
+	void deleteAll( final BitSet vertices, final BitSet edges )
+	{
+		final V vertex = vertexPool.createRef();
+		final E edge = createRef();
+		final E tmp = createRef();
+
+		// remaining vertices with deleted outgoing or incoming edges
+		final BitSet sources = new BitSet();
+		final BitSet targets = new BitSet();
+		for ( int i = edges.nextSetBit( 0 ); i >= 0; i = edges.nextSetBit( i + 1 ) )
+		{
+			getObject( i, edge );
+			final int source = edge.getSourceVertexInternalPoolIndex();
+			final int target = edge.getTargetVertexInternalPoolIndex();
+			if ( !vertices.get( source ) )
+				sources.set( source );
+			if ( !vertices.get( target ) )
+				targets.set( target );
+			if ( adjacencyIndex != null )
+				adjacencyIndex.remove( source, target );
+		}
+
+		for ( int i = sources.nextSetBit( 0 ); i >= 0; i = sources.nextSetBit( i + 1 ) )
+		{
+			relinkOutgoing( vertexPool.getObject( i, vertex ), edges, edge, tmp );
+			// re-index remaining edges to targets that lost their first edge
+			if ( adjacencyIndex != null && adjacencyIndex.isIndexed( i ) )
+				indexSource( vertex, edge );
+		}
+		for ( int i = targets.nextSetBit( 0 ); i >= 0; i = targets.nextSetBit( i + 1 ) )
+			relinkIncoming( vertexPool.getObject( i, vertex ), edges, edge, tmp );
+
+		for ( int i = edges.nextSetBit( 0 ); i >= 0; i = edges.nextSetBit( i + 1 ) )
+			super.delete( getObject( i, edge ) );
+		for ( int i = vertices.nextSetBit( 0 ); i >= 0; i = vertices.nextSetBit( i + 1 ) )
+		{
+			// the edges are already deleted
+			vertexPool.getObject( i, vertex );
+			vertex.setFirstOutEdgeIndex( -1 );
+			vertex.setFirstInEdgeIndex( -1 );
+			if ( adjacencyIndex != null )
+				adjacencyIndex.removeSource( i );
+			vertexPool.delete( vertex );
+		}
+
+		vertexPool.releaseRef( vertex );
+		releaseRef( edge );
+		releaseRef( tmp );
+	}
+
 	@Override
 	public void delete( final E edge )
 	{
 		final V tmpVertex = vertexPool.createRef();
 		final E tmp = createRef();
 
+		unindex( edge, tmp );
 		unlinkFromSource( edge, tmp, tmpVertex );
 		unlinkFromTarget( edge, tmp, tmpVertex );
 		super.delete( edge );
@@ -268,12 +753,35 @@ public abstract class AbstractEdgePool<
 
 	private void unlinkFromSource( final E edge, final E tmpEdge, final V tmpVertex )
 	{
+		if ( prevEdgeIndices )
+		{
+			final int prevSourceEdgeIndex = edge.getPrevSourceEdgeIndex();
+			final int nextSourceEdgeIndex = edge.getNextSourceEdgeIndex();
+			if ( degrees || prevSourceEdgeIndex < 0 || nextSourceEdgeIndex < 0 )
+				vertexPool.getObject( edge.getSourceVertexInternalPoolIndex(), tmpVertex );
+			if ( degrees )
+				tmpVertex.setOutDegree( tmpVertex.getOutDegree() - 1 );
+			if ( prevSourceEdgeIndex < 0 )
+				tmpVertex.setFirstOutEdgeIndex( nextSourceEdgeIndex );
+			else
+				getObject( prevSourceEdgeIndex, tmpEdge ).setNextSourceEdgeIndex( nextSourceEdgeIndex );
+			if ( nextSourceEdgeIndex < 0 )
+				tmpVertex.setLastOutEdgeIndex( prevSourceEdgeIndex );
+			else
+				getObject( nextSourceEdgeIndex, tmpEdge ).setPrevSourceEdgeIndex( prevSourceEdgeIndex );
+			return;
+		}
+
 		vertexPool.getObject( edge.getSourceVertexInternalPoolIndex(), tmpVertex );
+		if ( degrees )
+			tmpVertex.setOutDegree( tmpVertex.getOutDegree() - 1 );
 		final int sourceOutIndex = tmpVertex.getFirstOutEdgeIndex();
 		if ( sourceOutIndex == edge.getInternalPoolIndex() )
 		{
 			// this edge is the first in the sources list of outgoing edges
 			tmpVertex.setFirstOutEdgeIndex( edge.getNextSourceEdgeIndex() );
+			if ( edge.getNextSourceEdgeIndex() < 0 )
+				tmpVertex.setLastOutEdgeIndex( -1 );
 		}
 		else
 		{
@@ -286,17 +794,42 @@ public abstract class AbstractEdgePool<
 				nextSourceEdgeIndex = tmpEdge.getNextSourceEdgeIndex();
 			}
 			tmpEdge.setNextSourceEdgeIndex( edge.getNextSourceEdgeIndex() );
+			if ( edge.getNextSourceEdgeIndex() < 0 )
+				tmpVertex.setLastOutEdgeIndex( tmpEdge.getInternalPoolIndex() );
 		}
 	}
 
 	private void unlinkFromTarget( final E edge, final E tmpEdge, final V tmpVertex )
 	{
+		if ( prevEdgeIndices )
+		{
+			final int prevTargetEdgeIndex = edge.getPrevTargetEdgeIndex();
+			final int nextTargetEdgeIndex = edge.getNextTargetEdgeIndex();
+			if ( degrees || prevTargetEdgeIndex < 0 || nextTargetEdgeIndex < 0 )
+				vertexPool.getObject( edge.getTargetVertexInternalPoolIndex(), tmpVertex );
+			if ( degrees )
+				tmpVertex.setInDegree( tmpVertex.getInDegree() - 1 );
+			if ( prevTargetEdgeIndex < 0 )
+				tmpVertex.setFirstInEdgeIndex( nextTargetEdgeIndex );
+			else
+				getObject( prevTargetEdgeIndex, tmpEdge ).setNextTargetEdgeIndex( nextTargetEdgeIndex );
+			if ( nextTargetEdgeIndex < 0 )
+				tmpVertex.setLastInEdgeIndex( prevTargetEdgeIndex );
+			else
+				getObject( nextTargetEdgeIndex, tmpEdge ).setPrevTargetEdgeIndex( prevTargetEdgeIndex );
+			return;
+		}
+
 		vertexPool.getObject( edge.getTargetVertexInternalPoolIndex(), tmpVertex );
+		if ( degrees )
+			tmpVertex.setInDegree( tmpVertex.getInDegree() - 1 );
 		final int targetInIndex = tmpVertex.getFirstInEdgeIndex();
 		if ( targetInIndex == edge.getInternalPoolIndex() )
 		{
 			// this edge is the first in the targets list of incoming edges
 			tmpVertex.setFirstInEdgeIndex( edge.getNextTargetEdgeIndex() );
+			if ( edge.getNextTargetEdgeIndex() < 0 )
+				tmpVertex.setLastInEdgeIndex( -1 );
 		}
 		else
 		{
@@ -309,6 +842,74 @@ public abstract class AbstractEdgePool<
 				nextTargetEdgeIndex = tmpEdge.getNextTargetEdgeIndex();
 			}
 			tmpEdge.setNextTargetEdgeIndex( edge.getNextTargetEdgeIndex() );
+			if ( edge.getNextTargetEdgeIndex() < 0 )
+				tmpVertex.setLastInEdgeIndex( tmpEdge.getInternalPoolIndex() );
+		}
+	}
+
+	/**
+	 * Rebuilds the outgoing edge list of {@code vertex} without the edges in
+	 * {@code deleted}.
+	 */
+	private void relinkOutgoing( final AbstractVertex< ?, ?, ?, ? > vertex, final BitSet deleted, final E edge, final E tmp )
+	{
+		int first = -1;
+		int last = -1;
+		int degree = 0;
+		int index = vertex.getFirstOutEdgeIndex();
+		while ( index >= 0 )
+		{
+			getObject( index, edge );
+			final int next = edge.getNextSourceEdgeIndex();
+			if ( !deleted.get( index ) )
+			{
+				if ( last < 0 )
+					first = index;
+				else
+					getObject( last, tmp ).setNextSourceEdgeIndex( index );
+				edge.setPrevSourceEdgeIndex( last );
+				last = index;
+				++degree;
+			}
+			index = next;
+		}
+		if ( last >= 0 )
+			getObject( last, tmp ).setNextSourceEdgeIndex( -1 );
+		vertex.setFirstOutEdgeIndex( first );
+		vertex.setLastOutEdgeIndex( last );
+		vertex.setOutDegree( degree );
+	}
+
+	/**
+	 * Rebuilds the incoming edge list of {@code vertex} without the edges in
+	 * {@code deleted}.
+	 */
+	private void relinkIncoming( final AbstractVertex< ?, ?, ?, ? > vertex, final BitSet deleted, final E edge, final E tmp )
+	{
+		int first = -1;
+		int last = -1;
+		int degree = 0;
+		int index = vertex.getFirstInEdgeIndex();
+		while ( index >= 0 )
+		{
+			getObject( index, edge );
+			final int next = edge.getNextTargetEdgeIndex();
+			if ( !deleted.get( index ) )
+			{
+				if ( last < 0 )
+					first = index;
+				else
+					getObject( last, tmp ).setNextTargetEdgeIndex( index );
+				edge.setPrevTargetEdgeIndex( last );
+				last = index;
+				++degree;
+			}
+			index = next;
 		}
+		if ( last >= 0 )
+			getObject( last, tmp ).setNextTargetEdgeIndex( -1 );
+		vertex.setFirstInEdgeIndex( first );
+		vertex.setLastInEdgeIndex( last );
+		vertex.setInDegree( degree );
 	}
 }
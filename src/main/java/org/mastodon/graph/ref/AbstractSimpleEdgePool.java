@@ -118,4 +118,10 @@ public abstract class AbstractSimpleEdgePool<
 
 		return super.insertEdge( source, sourceOutInsertAt, target, targetInInsertAt, edge );
 	}
+
+	@Override
+	boolean allowsParallelEdges()
+	{
+		return false;
+	}
 }
@@ -28,6 +28,8 @@
  */
 package org.mastodon.graph.ref;
 
+import java.util.function.IntConsumer;
+
 import org.mastodon.graph.Vertex;
 import org.mastodon.pool.MappedElement;
 import org.mastodon.pool.PoolObject;
@@ -57,9 +59,38 @@ public class AbstractVertex<
 	protected static final int FIRST_IN_EDGE_INDEX_OFFSET = AbstractVertexPool.layout.firstInEdge.getOffset();
 	protected static final int FIRST_OUT_EDGE_INDEX_OFFSET = AbstractVertexPool.layout.firstOutEdge.getOffset();
 
+	/**
+	 * Offset of the last incoming edge index, or {@code -1} if the vertex
+	 * layout does not store last edge indices.
+	 */
+	private final int lastInEdgeIndexOffset;
+
+	/**
+	 * Offset of the last outgoing edge index, or {@code -1} if the vertex
+	 * layout does not store last edge indices.
+	 */
+	private final int lastOutEdgeIndexOffset;
+
+	/**
+	 * Offset of the in-degree, or {@code -1} if the vertex layout does not
+	 * store degrees.
+	 */
+	private final int inDegreeOffset;
+
+	/**
+	 * Offset of the out-degree, or {@code -1} if the vertex layout does not
+	 * store degrees.
+	 */
+	private final int outDegreeOffset;
+
 	protected AbstractVertex( final VP pool )
 	{
 		super( pool );
+		final AbstractVertexPool.AbstractVertexLayout layout = pool.vertexLayout;
+		lastInEdgeIndexOffset = layout.hasLastEdgeIndices() ? layout.lastInEdge.getOffset() : -1;
+		lastOutEdgeIndexOffset = layout.hasLastEdgeIndices() ? layout.lastOutEdge.getOffset() : -1;
+		inDegreeOffset = layout.hasDegrees() ? layout.inDegree.getOffset() : -1;
+		outDegreeOffset = layout.hasDegrees() ? layout.outDegree.getOffset() : -1;
 	}
 
 	protected int getFirstInEdgeIndex()
@@ -82,11 +113,149 @@ public class AbstractVertex<
 		access.putIndex( index, FIRST_OUT_EDGE_INDEX_OFFSET );
 	}
 
+	/**
+	 * Only valid if the vertex layout
+	 * {@link AbstractVertexPool.AbstractVertexLayout#hasLastEdgeIndices() has
+	 * last edge indices}.
+	 *
+	 * @return the index of the last incoming edge, or -1 if there is none.
+	 */
+	protected int getLastInEdgeIndex()
+	{
+		return access.getIndex( lastInEdgeIndexOffset );
+	}
+
+	/**
+	 * Does nothing if the vertex layout does not
+	 * {@link AbstractVertexPool.AbstractVertexLayout#hasLastEdgeIndices() have
+	 * last edge indices}.
+	 *
+	 * @param index
+	 *            the index of the last incoming edge, or -1 if there is none.
+	 */
+	protected void setLastInEdgeIndex( final int index )
+	{
+		if ( lastInEdgeIndexOffset >= 0 )
+			access.putIndex( index, lastInEdgeIndexOffset );
+	}
+
+	/**
+	 * Only valid if the vertex layout
+	 * {@link AbstractVertexPool.AbstractVertexLayout#hasLastEdgeIndices() has
+	 * last edge indices}.
+	 *
+	 * @return the index of the last outgoing edge, or -1 if there is none.
+	 */
+	protected int getLastOutEdgeIndex()
+	{
+		return access.getIndex( lastOutEdgeIndexOffset );
+	}
+
+	/**
+	 * Does nothing if the vertex layout does not
+	 * {@link AbstractVertexPool.AbstractVertexLayout#hasLastEdgeIndices() have
+	 * last edge indices}.
+	 *
+	 * @param index
+	 *            the index of the last outgoing edge, or -1 if there is none.
+	 */
+	protected void setLastOutEdgeIndex( final int index )
+	{
+		if ( lastOutEdgeIndexOffset >= 0 )
+			access.putIndex( index, lastOutEdgeIndexOffset );
+	}
+
+	/**
+	 * @return whether the vertex layout
+	 *         {@link AbstractVertexPool.AbstractVertexLayout#hasDegrees() has
+	 *         degrees}.
+	 */
+	protected boolean hasDegrees()
+	{
+		return inDegreeOffset >= 0;
+	}
+
+	/**
+	 * Only valid if the vertex layout
+	 * {@link AbstractVertexPool.AbstractVertexLayout#hasDegrees() has
+	 * degrees}.
+	 *
+	 * @return the number of incoming edges.
+	 */
+	protected int getInDegree()
+	{
+		return access.getInt( inDegreeOffset );
+	}
+
+	/**
+	 * Does nothing if the vertex layout does not
+	 * {@link AbstractVertexPool.AbstractVertexLayout#hasDegrees() have
+	 * degrees}.
+	 *
+	 * @param degree
+	 *            the number of incoming edges.
+	 */
+	protected void setInDegree( final int degree )
+	{
+		if ( inDegreeOffset >= 0 )
+			access.putInt( degree, inDegreeOffset );
+	}
+
+	/**
+	 * Only valid if the vertex layout
+	 * {@link AbstractVertexPool.AbstractVertexLayout#hasDegrees() has
+	 * degrees}.
+	 *
+	 * @return the number of outgoing edges.
+	 */
+	protected int getOutDegree()
+	{
+		return access.getInt( outDegreeOffset );
+	}
+
+	/**
+	 * Does nothing if the vertex layout does not
+	 * {@link AbstractVertexPool.AbstractVertexLayout#hasDegrees() have
+	 * degrees}.
+	 *
+	 * @param degree
+	 *            the number of outgoing edges.
+	 */
+	protected void setOutDegree( final int degree )
+	{
+		if ( outDegreeOffset >= 0 )
+			access.putInt( degree, outDegreeOffset );
+	}
+
+	/**
+	 * Copies the first {@code numBytes} bytes of this vertex to
+	 * {@code bytes}, starting at {@code offset}.
+	 */
+	void getRawBytes( final byte[] bytes, final int offset, final int numBytes )
+	{
+		for ( int i = 0; i < numBytes; ++i )
+			bytes[ offset + i ] = access.getByte( i );
+	}
+
+	/**
+	 * Copies {@code numBytes} bytes from {@code bytes}, starting at
+	 * {@code offset}, to the first {@code numBytes} bytes of this vertex.
+	 */
+	void setRawBytes( final byte[] bytes, final int offset, final int numBytes )
+	{
+		for ( int i = 0; i < numBytes; ++i )
+			access.putByte( bytes[ offset + i ], i );
+	}
+
 	@Override
 	protected void setToUninitializedState()
 	{
 		setFirstInEdgeIndex( -1 );
 		setFirstOutEdgeIndex( -1 );
+		setLastInEdgeIndex( -1 );
+		setLastOutEdgeIndex( -1 );
+		setInDegree( 0 );
+		setOutDegree( 0 );
 	}
 
 	private AbstractEdgePool< E, ?, ? > edgePool;
@@ -117,6 +286,174 @@ public class AbstractVertex<
 		return edges;
 	}
 
+	/*
+	 * Adjacency lists by internal pool index.
+	 *
+	 * These methods walk adjacency lists without Edges, Iterator, or vertex
+	 * refs. Each call borrows an edge ref from the edge pool and returns it
+	 * before returning. They read the source and target indices stored in
+	 * the edges, so overrides of AbstractEdge.getSource() and getTarget() in
+	 * subclasses are not called.
+	 */
+
+	/**
+	 * @return the internal pool index of the first outgoing edge of this
+	 *         vertex, or -1 if it has none.
+	 */
+	public int firstOut()
+	{
+		return getFirstOutEdgeIndex();
+	}
+
+	/**
+	 * @param edgeIndex
+	 *            the internal pool index of an outgoing edge of this vertex.
+	 * @return the internal pool index of the next outgoing edge of this
+	 *         vertex, or -1 if there is none.
+	 */
+	public int nextOut( final int edgeIndex )
+	{
+		final E edge = edgePool.createRef();
+		try
+		{
+			return edgePool.getObject( edgeIndex, edge ).getNextSourceEdgeIndex();
+		}
+		finally
+		{
+			edgePool.releaseRef( edge );
+		}
+	}
+
+	/**
+	 * @return the internal pool index of the first incoming edge of this
+	 *         vertex, or -1 if it has none.
+	 */
+	public int firstIn()
+	{
+		return getFirstInEdgeIndex();
+	}
+
+	/**
+	 * @param edgeIndex
+	 *            the internal pool index of an incoming edge of this vertex.
+	 * @return the internal pool index of the next incoming edge of this
+	 *         vertex, or -1 if there is none.
+	 */
+	public int nextIn( final int edgeIndex )
+	{
+		final E edge = edgePool.createRef();
+		try
+		{
+			return edgePool.getObject( edgeIndex, edge ).getNextTargetEdgeIndex();
+		}
+		finally
+		{
+			edgePool.releaseRef( edge );
+		}
+	}
+
+	/**
+	 * Returns the internal pool index of the target vertex stored in the
+	 * specified edge. Overrides of {@link AbstractEdge#getTarget()} are
+	 * not called.
+	 *
+	 * @param edgeIndex
+	 *            the internal pool index of an edge.
+	 * @return the internal pool index of the target vertex of the edge.
+	 */
+	public int targetOf( final int edgeIndex )
+	{
+		final E edge = edgePool.createRef();
+		try
+		{
+			return edgePool.getObject( edgeIndex, edge ).getTargetVertexInternalPoolIndex();
+		}
+		finally
+		{
+			edgePool.releaseRef( edge );
+		}
+	}
+
+	/**
+	 * Returns the internal pool index of the source vertex stored in the
+	 * specified edge. Overrides of {@link AbstractEdge#getSource()} are
+	 * not called.
+	 *
+	 * @param edgeIndex
+	 *            the internal pool index of an edge.
+	 * @return the internal pool index of the source vertex of the edge.
+	 */
+	public int sourceOf( final int edgeIndex )
+	{
+		final E edge = edgePool.createRef();
+		try
+		{
+			return edgePool.getObject( edgeIndex, edge ).getSourceVertexInternalPoolIndex();
+		}
+		finally
+		{
+			edgePool.releaseRef( edge );
+		}
+	}
+
+	/**
+	 * Calls {@code action} with the internal pool index of the target of each
+	 * outgoing edge of this vertex, in the order of
+	 * {@link #outgoingEdges()}. The target indices stored in the edges are
+	 * used, overrides of {@link AbstractEdge#getTarget()} are not
+	 * called.
+	 *
+	 * @param action
+	 *            the action to perform for each target.
+	 */
+	public void forEachOutTarget( final IntConsumer action )
+	{
+		final E edge = edgePool.createRef();
+		try
+		{
+			int index = getFirstOutEdgeIndex();
+			while ( index >= 0 )
+			{
+				edgePool.getObject( index, edge );
+				index = edge.getNextSourceEdgeIndex();
+				action.accept( edge.getTargetVertexInternalPoolIndex() );
+			}
+		}
+		finally
+		{
+			edgePool.releaseRef( edge );
+		}
+	}
+
+	/**
+	 * Calls {@code action} with the internal pool index of the source of each
+	 * incoming edge of this vertex, in the order of
+	 * {@link #incomingEdges()}. The source indices stored in the edges are
+	 * used, overrides of {@link AbstractEdge#getSource()} are not
+	 * called.
+	 *
+	 * @param action
+	 *            the action to perform for each source.
+	 */
+	public void forEachInSource( final IntConsumer action )
+	{
+		final E edge = edgePool.createRef();
+		try
+		{
+			int index = getFirstInEdgeIndex();
+			while ( index >= 0 )
+			{
+				edgePool.getObject( index, edge );
+				index = edge.getNextTargetEdgeIndex();
+				action.accept( edge.getSourceVertexInternalPoolIndex() );
+			}
+		}
+		finally
+		{
+			edgePool.releaseRef( edge );
+		}
+	}
+
 	void linkEdgePool( final AbstractEdgePool< E, ?, ? > edgePool )
 	{
 		if ( this.edgePool != edgePool )
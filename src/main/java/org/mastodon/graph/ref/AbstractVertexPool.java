@@ -28,6 +28,7 @@
  */
 package org.mastodon.graph.ref;
 
+import org.mastodon.graph.Edges;
 import org.mastodon.pool.MappedElement;
 import org.mastodon.pool.MemPool;
 import org.mastodon.pool.Pool;
@@ -42,14 +43,83 @@ public abstract class AbstractVertexPool<
 	// TODO make it private again when we do not need this anymore.
 	protected AbstractEdgePool< E, ?, ? > edgePool;
 
+	/**
+	 * Layout of the graph-specific part of vertices. Stores the indices of the
+	 * first incoming and first outgoing edge of the vertex.
+	 * <p>
+	 * Optionally, the layout also stores the indices of the last incoming and
+	 * last outgoing edge. This costs 8 bytes per vertex, but makes appending
+	 * edges to the adjacency lists ({@link AbstractEdgePool#addEdge}) a
+	 * constant time operation, instead of linear in the degree of the source
+	 * and target vertices.
+	 * <p>
+	 * Optionally, the layout also stores the in-degree and out-degree of the
+	 * vertex. This costs 8 bytes per vertex, but makes {@link Edges#size()} of
+	 * {@link AbstractVertex#incomingEdges()},
+	 * {@link AbstractVertex#outgoingEdges()}, and {@link AbstractVertex#edges()}
+	 * a constant time operation, instead of linear in the degree of the vertex.
+	 * <p>
+	 * Note that the optional fields are placed before any fields added by
+	 * derived layouts. Attribute serializers covering the fields of derived
+	 * layouts must therefore start at the size of the
+	 * {@code AbstractVertexLayout} that is actually used, not at the size of
+	 * the default {@link AbstractVertexPool#layout}.
+	 */
 	public static class AbstractVertexLayout extends PoolObjectLayout
 	{
 		final IndexField firstInEdge = indexField();
 		final IndexField firstOutEdge = indexField();
+		final IndexField lastInEdge;
+		final IndexField lastOutEdge;
+		final IntField inDegree;
+		final IntField outDegree;
+
+		public AbstractVertexLayout()
+		{
+			this( false );
+		}
+
+		/**
+		 * @param lastEdgeIndices
+		 *            whether to store the indices of the last incoming and
+		 *            last outgoing edge of each vertex.
+		 */
+		public AbstractVertexLayout( final boolean lastEdgeIndices )
+		{
+			this( lastEdgeIndices, false );
+		}
+
+		/**
+		 * @param lastEdgeIndices
+		 *            whether to store the indices of the last incoming and
+		 *            last outgoing edge of each vertex.
+		 * @param degrees
+		 *            whether to store the in-degree and out-degree of each
+		 *            vertex.
+		 */
+		public AbstractVertexLayout( final boolean lastEdgeIndices, final boolean degrees )
+		{
+			lastInEdge = lastEdgeIndices ? indexField() : null;
+			lastOutEdge = lastEdgeIndices ? indexField() : null;
+			inDegree = degrees ? intField() : null;
+			outDegree = degrees ? intField() : null;
+		}
+
+		public boolean hasLastEdgeIndices()
+		{
+			return lastInEdge != null;
+		}
+
+		public boolean hasDegrees()
+		{
+			return inDegree != null;
+		}
 	}
 
 	public static AbstractVertexLayout layout = new AbstractVertexLayout();
 
+	final AbstractVertexLayout vertexLayout;
+
 	public AbstractVertexPool(
 			final int initialCapacity,
 			final AbstractVertexLayout layout,
@@ -57,6 +127,7 @@ public abstract class AbstractVertexPool<
 			final MemPool.Factory< T > memPoolFactory )
 	{
 		super( initialCapacity, layout, vertexClass, memPoolFactory );
+		this.vertexLayout = layout;
 	}
 
 	public void linkEdgePool( final AbstractEdgePool< E, ?, ? > edgePool )
@@ -0,0 +1,132 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * Hash index from (source, target) vertex pairs to the first edge between
+ * them, in the order of the outgoing edge list of the source. Used by
+ * {@link AbstractEdgePool} to find edges without walking adjacency lists.
+ * <p>
+ * If {@code minDegree > 0}, the index is adaptive: only the edges of sources
+ * that reached at least {@code minDegree} outgoing edges when an edge was added
+ * are indexed. For all other sources, the index has no entries, and adjacency
+ * lists must be walked.
+ */
+final class AdjacencyIndex
+{
+	private final int minDegree;
+
+	/**
+	 * Maps (source, target) pairs to the index of the first edge from source
+	 * to target.
+	 */
+	private final TLongIntHashMap edges;
+
+	/**
+	 * The indices of indexed sources, or {@code null} if all sources are
+	 * indexed.
+	 */
+	private final TIntHashSet sources;
+
+	AdjacencyIndex( final int minDegree )
+	{
+		this.minDegree = minDegree;
+		edges = new TLongIntHashMap( 10, 0.75f, Long.MIN_VALUE, -1 );
+		sources = minDegree > 0 ? new TIntHashSet() : null;
+	}
+
+	/**
+	 * @return whether all sources are indexed.
+	 */
+	boolean isComplete()
+	{
+		return sources == null;
+	}
+
+	int getMinDegree()
+	{
+		return minDegree;
+	}
+
+	boolean isIndexed( final int source )
+	{
+		return sources == null || sources.contains( source );
+	}
+
+	void addSource( final int source )
+	{
+		if ( sources != null )
+			sources.add( source );
+	}
+
+	void removeSource( final int source )
+	{
+		if ( sources != null )
+			sources.remove( source );
+	}
+
+	/**
+	 * @return the index of the first edge from source to target, or -1 if
+	 *         there is none.
+	 */
+	int get( final int source, final int target )
+	{
+		return edges.get( key( source, target ) );
+	}
+
+	void put( final int source, final int target, final int edge )
+	{
+		edges.put( key( source, target ), edge );
+	}
+
+	void putIfAbsent( final int source, final int target, final int edge )
+	{
+		edges.putIfAbsent( key( source, target ), edge );
+	}
+
+	void remove( final int source, final int target )
+	{
+		edges.remove( key( source, target ) );
+	}
+
+	void clear()
+	{
+		edges.clear();
+		if ( sources != null )
+			sources.clear();
+	}
+
+	private static long key( final int source, final int target )
+	{
+		return ( ( long ) source << 32 ) | ( target & 0xffffffffL );
+	}
+}
@@ -52,6 +52,9 @@ public class AllEdges< E extends AbstractEdge< E, ?, ?, ? > > implements Edges<
 	@Override
 	public int size()
 	{
+		if ( vertex.hasDegrees() )
+			return vertex.getInDegree() + vertex.getOutDegree();
+
 		int numEdges = 0;
 		int inEdgeIndex = vertex.getFirstInEdgeIndex();
 		int outEdgeIndex = vertex.getFirstOutEdgeIndex();
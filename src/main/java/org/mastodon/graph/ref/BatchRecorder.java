@@ -0,0 +1,129 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * Records the ids of objects added and removed in a batch of graph changes,
+ * coalescing additions and removals of the same object. Used by
+ * {@link ListenableGraphImp} to collect changes for
+ * {@link org.mastodon.graph.BatchGraphListener}s.
+ */
+final class BatchRecorder
+{
+	private static final int NONE = 0;
+
+	private static final int ADDED = 1;
+
+	private static final int REMOVED = 2;
+
+	private static final int REMOVED_ADDED = REMOVED | ADDED;
+
+	/**
+	 * Maps ids to their state in the batch. Ids that are not in the map are
+	 * {@link #NONE}.
+	 */
+	private final TIntIntHashMap states = new TIntIntHashMap( 10, 0.5f, -1, NONE );
+
+	/**
+	 * Ids in the order they were first recorded. May contain ids that are no
+	 * longer in {@link #states}, and duplicates.
+	 */
+	private final TIntArrayList ids = new TIntArrayList();
+
+	void added( final int id )
+	{
+		final int state = states.get( id );
+		if ( state == NONE )
+		{
+			states.put( id, ADDED );
+			ids.add( id );
+		}
+		else if ( state == REMOVED )
+			states.put( id, REMOVED_ADDED );
+	}
+
+	void removed( final int id )
+	{
+		final int state = states.get( id );
+		if ( state == NONE )
+		{
+			states.put( id, REMOVED );
+			ids.add( id );
+		}
+		else if ( state == ADDED )
+			states.remove( id );
+		else if ( state == REMOVED_ADDED )
+			states.put( id, REMOVED );
+	}
+
+	/**
+	 * @return {@code true} if the id was added in the batch and not removed
+	 *         since.
+	 */
+	boolean isAdded( final int id )
+	{
+		return ( states.get( id ) & ADDED ) != 0;
+	}
+
+	/**
+	 * @return {@code true} if no changes are recorded, or all recorded
+	 *         changes cancelled each other.
+	 */
+	boolean isEmpty()
+	{
+		return states.isEmpty();
+	}
+
+	/**
+	 * Puts the recorded ids into {@code added} and {@code removed} in the
+	 * order they were first recorded, and clears this recorder.
+	 */
+	void drainTo( final TIntArrayList added, final TIntArrayList removed )
+	{
+		for ( int i = 0; i < ids.size(); ++i )
+		{
+			final int id = ids.get( i );
+			final int state = states.remove( id );
+			if ( ( state & REMOVED ) != 0 )
+				removed.add( id );
+			if ( ( state & ADDED ) != 0 )
+				added.add( id );
+		}
+		ids.resetQuick();
+	}
+
+	void clear()
+	{
+		states.clear();
+		ids.resetQuick();
+	}
+}
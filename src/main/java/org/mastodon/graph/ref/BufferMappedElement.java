@@ -0,0 +1,152 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.nio.ByteBuffer;
+
+import org.mastodon.pool.MappedElement;
+
+/**
+ * A {@link MappedElement} that accesses the bytes of one element of a
+ * {@link BufferMappedElementArray}, i.e., of a direct or memory-mapped
+ * {@link ByteBuffer}.
+ */
+public final class BufferMappedElement implements MappedElement
+{
+	private BufferMappedElementArray array;
+
+	private int page;
+
+	private int baseOffset;
+
+	BufferMappedElement( final BufferMappedElementArray array, final int index )
+	{
+		setElementIndex( array, index );
+	}
+
+	void setElementIndex( final BufferMappedElementArray array, final int index )
+	{
+		this.array = array;
+		page = index / array.elementsPerPage;
+		baseOffset = ( index % array.elementsPerPage ) * array.bytesPerElement;
+	}
+
+	/*
+	 * The page is looked up on every access, because resizing the array may
+	 * replace the buffers.
+	 */
+	private ByteBuffer buffer()
+	{
+		return array.pages[ page ];
+	}
+
+	@Override
+	public void putByte( final byte value, final int offset )
+	{
+		buffer().put( baseOffset + offset, value );
+	}
+
+	@Override
+	public byte getByte( final int offset )
+	{
+		return buffer().get( baseOffset + offset );
+	}
+
+	@Override
+	public void putBoolean( final boolean value, final int offset )
+	{
+		putByte( value ? ( byte ) 1 : ( byte ) 0, offset );
+	}
+
+	@Override
+	public boolean getBoolean( final int offset )
+	{
+		return getByte( offset ) != 0;
+	}
+
+	@Override
+	public void putInt( final int value, final int offset )
+	{
+		buffer().putInt( baseOffset + offset, value );
+	}
+
+	@Override
+	public int getInt( final int offset )
+	{
+		return buffer().getInt( baseOffset + offset );
+	}
+
+	@Override
+	public void putIndex( final int value, final int offset )
+	{
+		putInt( value, offset );
+	}
+
+	@Override
+	public int getIndex( final int offset )
+	{
+		return getInt( offset );
+	}
+
+	@Override
+	public void putLong( final long value, final int offset )
+	{
+		buffer().putLong( baseOffset + offset, value );
+	}
+
+	@Override
+	public long getLong( final int offset )
+	{
+		return buffer().getLong( baseOffset + offset );
+	}
+
+	@Override
+	public void putFloat( final float value, final int offset )
+	{
+		buffer().putFloat( baseOffset + offset, value );
+	}
+
+	@Override
+	public float getFloat( final int offset )
+	{
+		return buffer().getFloat( baseOffset + offset );
+	}
+
+	@Override
+	public void putDouble( final double value, final int offset )
+	{
+		buffer().putDouble( baseOffset + offset, value );
+	}
+
+	@Override
+	public double getDouble( final int offset )
+	{
+		return buffer().getDouble( baseOffset + offset );
+	}
+}
@@ -0,0 +1,284 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.mastodon.pool.MappedElementArray;
+import org.mastodon.pool.SingleArrayMemPool;
+
+/**
+ * A {@link MappedElementArray} that stores its elements outside of the Java
+ * heap, in direct {@link ByteBuffer}s ({@link #factory}) or in a
+ * memory-mapped file ({@link #mapped(File)}). Because the garbage collector
+ * does not need to scan or copy the elements, this avoids long GC pauses for
+ * very large pools.
+ * <p>
+ * Elements are stored in pages of at most 1 GB, so the array is not limited
+ * to 2 GB. All values are stored in little-endian byte order, so mapped files
+ * are portable.
+ * <p>
+ * Use with {@link SingleArrayMemPool}, for example:
+ *
+ * <pre>
+ * SingleArrayMemPool.factory( BufferMappedElementArray.factory )
+ * </pre>
+ */
+public class BufferMappedElementArray implements MappedElementArray< BufferMappedElementArray, BufferMappedElement >
+{
+	private static final int MAX_PAGE_BYTES = 1 << 30;
+
+	final int bytesPerElement;
+
+	final int elementsPerPage;
+
+	ByteBuffer[] pages;
+
+	private int size;
+
+	/**
+	 * The file of a mapped array, or {@code null} for direct buffers. The file
+	 * is only opened while pages are mapped. Mapped pages stay valid after it
+	 * is closed.
+	 */
+	private final File file;
+
+	private final byte[] swapTmp;
+
+	private BufferMappedElementArray( final int numElements, final int bytesPerElement, final File file, final int maxPageBytes )
+	{
+		this.bytesPerElement = bytesPerElement;
+		this.elementsPerPage = Math.max( 1, maxPageBytes / Math.max( 1, bytesPerElement ) );
+		this.file = file;
+		this.swapTmp = new byte[ bytesPerElement ];
+		pages = new ByteBuffer[ 0 ];
+		size = 0;
+		resize( numElements );
+	}
+
+	@Override
+	public int size()
+	{
+		return size;
+	}
+
+	@Override
+	public int maxSize()
+	{
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public BufferMappedElement createAccess()
+	{
+		return new BufferMappedElement( this, 0 );
+	}
+
+	@Override
+	public void updateAccess( final BufferMappedElement access, final int index )
+	{
+		access.setElementIndex( this, index );
+	}
+
+	@Override
+	public void swapElement( final int index, final BufferMappedElementArray array, final int arrayIndex )
+	{
+		final ByteBuffer page = pages[ index / elementsPerPage ];
+		final int offset = ( index % elementsPerPage ) * bytesPerElement;
+		final ByteBuffer arrayPage = array.pages[ arrayIndex / array.elementsPerPage ];
+		final int arrayOffset = ( arrayIndex % array.elementsPerPage ) * array.bytesPerElement;
+		for ( int i = 0; i < bytesPerElement; ++i )
+			swapTmp[ i ] = page.get( offset + i );
+		for ( int i = 0; i < bytesPerElement; ++i )
+			page.put( offset + i, arrayPage.get( arrayOffset + i ) );
+		for ( int i = 0; i < bytesPerElement; ++i )
+			arrayPage.put( arrayOffset + i, swapTmp[ i ] );
+	}
+
+	/**
+	 * Resizes the array to the specified number of elements. Direct buffers
+	 * are copied. Mapped arrays are re-mapped, and never shrink below the size
+	 * of the file, such that data from an earlier session remains accessible.
+	 */
+	@Override
+	public void resize( final int numElements )
+	{
+		int newSize = numElements;
+		try (final RandomAccessFile raf = file == null ? null : new RandomAccessFile( file, "rw" ))
+		{
+			final FileChannel channel = raf == null ? null : raf.getChannel();
+			if ( channel != null )
+				newSize = ( int ) Math.max( newSize, Math.min( Integer.MAX_VALUE, channel.size() / Math.max( 1, bytesPerElement ) ) );
+
+			final int numPages = Math.max( 1, ( int ) ( ( ( long ) newSize + elementsPerPage - 1 ) / elementsPerPage ) );
+			final ByteBuffer[] newPages = new ByteBuffer[ numPages ];
+			for ( int p = 0; p < numPages; ++p )
+			{
+				final int pageElements = Math.min( elementsPerPage, newSize - p * elementsPerPage );
+				final int pageBytes = Math.max( 1, pageElements * bytesPerElement );
+				final ByteBuffer old = p < pages.length ? pages[ p ] : null;
+				if ( old != null && old.capacity() == pageBytes )
+					newPages[ p ] = old;
+				else if ( channel != null )
+					newPages[ p ] = channel.map( MapMode.READ_WRITE, ( long ) p * elementsPerPage * bytesPerElement, pageBytes );
+				else
+				{
+					newPages[ p ] = ByteBuffer.allocateDirect( pageBytes );
+					if ( old != null )
+					{
+						final ByteBuffer src = old.duplicate();
+						src.clear().limit( Math.min( src.capacity(), pageBytes ) );
+						newPages[ p ].put( src );
+						newPages[ p ].clear();
+					}
+				}
+				newPages[ p ].order( ByteOrder.LITTLE_ENDIAN );
+			}
+			pages = newPages;
+			size = newSize;
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/**
+	 * Writes changes of a mapped array to the file. Does nothing for direct
+	 * buffers.
+	 */
+	public void force()
+	{
+		if ( file != null )
+			for ( final ByteBuffer page : pages )
+				( ( MappedByteBuffer ) page ).force();
+	}
+
+	public static final MappedElementArray.Factory< BufferMappedElementArray > factory = factory( MAX_PAGE_BYTES );
+
+	/**
+	 * Creates a factory for direct arrays with the specified page size. For
+	 * testing.
+	 */
+	static MappedElementArray.Factory< BufferMappedElementArray > factory( final int maxPageBytes )
+	{
+		return new MappedElementArray.Factory< BufferMappedElementArray >()
+		{
+			@Override
+			public BufferMappedElementArray createArray( final int numElements, final int bytesPerElement )
+			{
+				return new BufferMappedElementArray( numElements, bytesPerElement, null, maxPageBytes );
+			}
+		};
+	}
+
+	/**
+	 * Creates a factory for a {@link BufferMappedElementArray} that is mapped
+	 * to the specified file. If the file exists, its contents are kept, and
+	 * the pool using the array can be re-populated with
+	 * {@link GraphImp#restore(int, int)}.
+	 * <p>
+	 * The factory can create only one array, i.e., it can be used for only one
+	 * pool.
+	 *
+	 * @param file
+	 *            the file to map.
+	 * @return a factory for the mapped array.
+	 */
+	public static MappedFactory mapped( final File file )
+	{
+		return new MappedFactory( file, MAX_PAGE_BYTES );
+	}
+
+	/**
+	 * Creates a factory for a mapped array with the specified page size. For
+	 * testing.
+	 */
+	static MappedFactory mapped( final File file, final int maxPageBytes )
+	{
+		return new MappedFactory( file, maxPageBytes );
+	}
+
+	/**
+	 * Factory for a {@link BufferMappedElementArray} mapped to a file. Keeps
+	 * the created array, to {@link #force()} changes to the file. The file is
+	 * only kept open while the array maps pages, so no file handle needs to
+	 * be released when the pool is no longer used.
+	 */
+	public static class MappedFactory implements MappedElementArray.Factory< BufferMappedElementArray >
+	{
+		private final File file;
+
+		private final int maxPageBytes;
+
+		private BufferMappedElementArray array;
+
+		private MappedFactory( final File file, final int maxPageBytes )
+		{
+			this.file = file;
+			this.maxPageBytes = maxPageBytes;
+		}
+
+		@Override
+		public BufferMappedElementArray createArray( final int numElements, final int bytesPerElement )
+		{
+			if ( array != null )
+				throw new IllegalStateException( "An array is already mapped to " + file + "." );
+			array = new BufferMappedElementArray( numElements, bytesPerElement, file, maxPageBytes );
+			return array;
+		}
+
+		/**
+		 * Writes changes of the mapped array to the file.
+		 */
+		public void force()
+		{
+			if ( array != null )
+				array.force();
+		}
+
+		/**
+		 * Writes changes of the mapped array to the file. The file itself is
+		 * not kept open, so this is the same as {@link #force()}. The pool
+		 * using the array should not be modified after this.
+		 */
+		public void close()
+		{
+			force();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import org.mastodon.RefPool;
+import org.mastodon.graph.BatchGraphListener;
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.GraphListener;
+import org.mastodon.graph.Vertex;
+
+/**
+ * Adapts a {@link GraphListener} to receive the coalesced changes of a
+ * {@link BatchGraphListener}. Sends the vertices and then the edges added in
+ * a batch to the {@link GraphListener} when the batch completes. Removals are
+ * sent by {@link ListenableGraphImp} when they happen, unless the removed
+ * vertex or edge was added in the same batch.
+ *
+ * @param <V>
+ *            the vertex type.
+ * @param <E>
+ *            the edge type.
+ *
+ * @see ListenableGraphImp#addCoalescedGraphListener(GraphListener)
+ */
+final class CoalescedGraphListenerAdapter< V extends Vertex< E >, E extends Edge< V > > implements BatchGraphListener
+{
+	final GraphListener< V, E > listener;
+
+	private final RefPool< V > vertexPool;
+
+	private final RefPool< E > edgePool;
+
+	CoalescedGraphListenerAdapter( final RefPool< V > vertexPool, final RefPool< E > edgePool, final GraphListener< V, E > listener )
+	{
+		this.vertexPool = vertexPool;
+		this.edgePool = edgePool;
+		this.listener = listener;
+	}
+
+	@Override
+	public void graphRebuilt()
+	{
+		listener.graphRebuilt();
+	}
+
+	@Override
+	public void batchCompleted( final int[] addedVertices, final int[] removedVertices, final int[] addedEdges, final int[] removedEdges )
+	{
+		final V vertex = vertexPool.createRef();
+		try
+		{
+			for ( final int id : addedVertices )
+				listener.vertexAdded( vertexPool.getObject( id, vertex ) );
+		}
+		finally
+		{
+			vertexPool.releaseRef( vertex );
+		}
+
+		final E edge = edgePool.createRef();
+		try
+		{
+			for ( final int id : addedEdges )
+				listener.edgeAdded( edgePool.getObject( id, edge ) );
+		}
+		finally
+		{
+			edgePool.releaseRef( edge );
+		}
+	}
+}
@@ -0,0 +1,418 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.util.Arrays;
+
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.GraphListener;
+import org.mastodon.graph.Vertex;
+
+/**
+ * Bulk construction of a {@link GraphImp}, for example when loading a graph
+ * from a file.
+ * <p>
+ * Vertices are added with {@link #addVertex(AbstractVertex)}, and are
+ * identified by the order in which they were added ({@code 0, 1, 2, ...}).
+ * Edges are added with {@link #addEdge(int, int, int, int, AbstractEdge)} as
+ * (source, target, sourceOutIndex, targetInIndex) tuples, where source and
+ * target refer to vertices added to this builder, and sourceOutIndex and
+ * targetInIndex are the positions of the edge in the outgoing edge list of the
+ * source and the incoming edge list of the target <em>in the final graph</em>.
+ * Edges are created immediately, but only added to the adjacency lists of
+ * their source and target in {@link #finish()}, which links all adjacency
+ * lists at once. Until then, the added vertices have no edges.
+ * <p>
+ * Compared to {@link GraphImp#addVertex()} and
+ * {@link GraphImp#insertEdge(AbstractVertex, int, AbstractVertex, int)}, this
+ * avoids walking the adjacency lists for every edge. For
+ * {@link AbstractSimpleEdgePool simple} graphs, edges between the same source
+ * and target are not rejected by {@link #addEdge}, but {@link #finish()}
+ * checks all edges at once and throws an {@link IllegalArgumentException} if
+ * there are any.
+ * <p>
+ * If the graph is a {@link ListenableGraphImp} with events enabled, events are
+ * paused while building. Listeners do not receive
+ * {@link GraphListener#vertexAdded(Vertex)} and
+ * {@link GraphListener#edgeAdded(Edge)} for the added objects, but a single
+ * {@link GraphListener#graphRebuilt()} sent by {@link #finish()}. If events
+ * were already paused, they remain paused. Like with
+ * {@link GraphImp#addVertex()}, the vertices and edges of a listenable graph
+ * need to be initialized by the caller right after they are added.
+ * <p>
+ * A builder that is {@link #close() closed} before it is finished removes the
+ * vertices and edges it added, and resumes the events it paused. Use it in a
+ * try-with-resources statement, so that the graph is left unchanged if
+ * building fails:
+ *
+ * <pre>
+ * try ( GraphBuilder&lt; V, E &gt; builder = new GraphBuilder&lt;&gt;( graph, numVertices, numEdges ) )
+ * {
+ * 	// add vertices and edges
+ * 	builder.finish();
+ * }
+ * </pre>
+ * <p>
+ * The pools of the graph grow as vertices and edges are added. Their size
+ * cannot be changed after construction, so to avoid growing the pools, create
+ * the graph with an initial capacity that fits the vertices and edges to add.
+ * The expected counts given to the builder size its own bookkeeping.
+ *
+ * @param <V>
+ *            the vertex type.
+ * @param <E>
+ *            the edge type.
+ */
+public class GraphBuilder<
+			V extends AbstractVertex< V, E, ?, ? >,
+			E extends AbstractEdge< E, V, ?, ? > >
+		implements AutoCloseable
+{
+	private final AbstractVertexPool< V, ?, ? > vertexPool;
+
+	private final AbstractEdgePool< E, V, ? > edgePool;
+
+	/**
+	 * The graph whose events were paused by this builder, or {@code null}.
+	 */
+	private final ListenableGraphImp< ?, ?, ?, ?, ? > pausedGraph;
+
+	private int numVertices;
+
+	/**
+	 * Internal pool indices of the added vertices.
+	 */
+	private int[] vertexIndices;
+
+	private int numEdges;
+
+	/**
+	 * Internal pool indices of the added edges.
+	 */
+	private int[] edgeIndices;
+
+	private int[] sources;
+
+	private int[] targets;
+
+	private int[] sourceOutIndices;
+
+	private int[] targetInIndices;
+
+	/**
+	 * Whether the builder is finished or closed.
+	 */
+	private boolean closed;
+
+	/**
+	 * Creates a builder that adds vertices and edges to the specified graph.
+	 *
+	 * @param graph
+	 *            the graph to add to.
+	 * @param numVertices
+	 *            the expected number of vertices to add. Only used to size
+	 *            internal arrays, which grow as needed.
+	 * @param numEdges
+	 *            the expected number of edges to add. Only used to size
+	 *            internal arrays, which grow as needed.
+	 */
+	public GraphBuilder( final GraphImp< ?, ?, V, E, ? > graph, final int numVertices, final int numEdges )
+	{
+		vertexPool = graph.vertexPool;
+		edgePool = graph.edgePool;
+		vertexIndices = new int[ Math.max( 1, numVertices ) ];
+		edgeIndices = new int[ Math.max( 1, numEdges ) ];
+		sources = new int[ edgeIndices.length ];
+		targets = new int[ edgeIndices.length ];
+		sourceOutIndices = new int[ edgeIndices.length ];
+		targetInIndices = new int[ edgeIndices.length ];
+
+		if ( graph instanceof ListenableGraphImp && ( ( ListenableGraphImp< ?, ?, ?, ?, ? > ) graph ).emitEvents )
+		{
+			pausedGraph = ( ListenableGraphImp< ?, ?, ?, ?, ? > ) graph;
+			pausedGraph.pauseListeners();
+		}
+		else
+			pausedGraph = null;
+	}
+
+	/**
+	 * Adds a new vertex to the graph.
+	 *
+	 * @param ref
+	 *            a vertex reference used for operation.
+	 * @return the new vertex.
+	 */
+	public V addVertex( final V ref )
+	{
+		checkOpen();
+		vertexPool.create( ref );
+		if ( numVertices == vertexIndices.length )
+			vertexIndices = Arrays.copyOf( vertexIndices, 2 * numVertices );
+		vertexIndices[ numVertices++ ] = ref.getInternalPoolIndex();
+		return ref;
+	}
+
+	/**
+	 * Adds a new edge to the graph. The edge is added to the adjacency lists
+	 * of its source and target in {@link #finish()}. Edges with equal
+	 * positions in an adjacency list keep the order in which they were added.
+	 *
+	 * @param source
+	 *            the source vertex, as the index of the vertex in the order
+	 *            vertices were added to this builder.
+	 * @param target
+	 *            the target vertex, as the index of the vertex in the order
+	 *            vertices were added to this builder.
+	 * @param sourceOutIndex
+	 *            the position of the edge in the outgoing edge list of the
+	 *            source.
+	 * @param targetInIndex
+	 *            the position of the edge in the incoming edge list of the
+	 *            target.
+	 * @param ref
+	 *            an edge reference used for operation.
+	 * @return the new edge.
+	 */
+	public E addEdge( final int source, final int target, final int sourceOutIndex, final int targetInIndex, final E ref )
+	{
+		checkOpen();
+		if ( source < 0 || source >= numVertices )
+			throw new IllegalArgumentException( "No vertex " + source + " was added to this builder." );
+		if ( target < 0 || target >= numVertices )
+			throw new IllegalArgumentException( "No vertex " + target + " was added to this builder." );
+		if ( sourceOutIndex < 0 || targetInIndex < 0 )
+			throw new IllegalArgumentException( "Edge positions must not be negative." );
+
+		edgePool.createUnlinkedEdge( vertexIndices[ source ], vertexIndices[ target ], ref );
+		if ( numEdges == edgeIndices.length )
+		{
+			final int capacity = 2 * numEdges;
+			edgeIndices = Arrays.copyOf( edgeIndices, capacity );
+			sources = Arrays.copyOf( sources, capacity );
+			targets = Arrays.copyOf( targets, capacity );
+			sourceOutIndices = Arrays.copyOf( sourceOutIndices, capacity );
+			targetInIndices = Arrays.copyOf( targetInIndices, capacity );
+		}
+		edgeIndices[ numEdges ] = ref.getInternalPoolIndex();
+		sources[ numEdges ] = source;
+		targets[ numEdges ] = target;
+		sourceOutIndices[ numEdges ] = sourceOutIndex;
+		targetInIndices[ numEdges ] = targetInIndex;
+		++numEdges;
+		return ref;
+	}
+
+	/**
+	 * Links the adjacency lists of all added edges, and resumes events of the
+	 * graph if they were paused by this builder. No vertices or edges can be
+	 * added after this.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the graph is {@link AbstractSimpleEdgePool simple}, and
+	 *             several edges were added between the same source and target.
+	 *             The graph is left unchanged when the builder is
+	 *             {@link #close() closed}.
+	 */
+	public void finish()
+	{
+		checkOpen();
+
+		final int[] offsets = new int[ numVertices + 1 ];
+		final long[] keys = new long[ numEdges ];
+		final V vertex = vertexPool.createRef();
+		final E edge = edgePool.createRef();
+		try
+		{
+			// link outgoing edge lists
+			sortEdges( sources, sourceOutIndices, offsets, keys );
+			if ( !edgePool.allowsParallelEdges() )
+				checkNoParallelEdges( offsets, keys );
+			for ( int v = 0; v < numVertices; ++v )
+			{
+				final int begin = offsets[ v ];
+				final int end = offsets[ v + 1 ];
+				if ( begin == end )
+					continue;
+				vertexPool.getObject( vertexIndices[ v ], vertex );
+				vertex.setFirstOutEdgeIndex( edgeIndex( keys[ begin ] ) );
+				vertex.setLastOutEdgeIndex( edgeIndex( keys[ end - 1 ] ) );
+				vertex.setOutDegree( end - begin );
+				int prev = -1;
+				for ( int k = begin; k < end; ++k )
+				{
+					final int index = edgeIndex( keys[ k ] );
+					edgePool.getObject( index, edge );
+					edge.setPrevSourceEdgeIndex( prev );
+					edge.setNextSourceEdgeIndex( k + 1 < end ? edgeIndex( keys[ k + 1 ] ) : -1 );
+					prev = index;
+				}
+			}
+
+			// link incoming edge lists
+			sortEdges( targets, targetInIndices, offsets, keys );
+			for ( int v = 0; v < numVertices; ++v )
+			{
+				final int begin = offsets[ v ];
+				final int end = offsets[ v + 1 ];
+				if ( begin == end )
+					continue;
+				vertexPool.getObject( vertexIndices[ v ], vertex );
+				vertex.setFirstInEdgeIndex( edgeIndex( keys[ begin ] ) );
+				vertex.setLastInEdgeIndex( edgeIndex( keys[ end - 1 ] ) );
+				vertex.setInDegree( end - begin );
+				int prev = -1;
+				for ( int k = begin; k < end; ++k )
+				{
+					final int index = edgeIndex( keys[ k ] );
+					edgePool.getObject( index, edge );
+					edge.setPrevTargetEdgeIndex( prev );
+					edge.setNextTargetEdgeIndex( k + 1 < end ? edgeIndex( keys[ k + 1 ] ) : -1 );
+					prev = index;
+				}
+			}
+		}
+		finally
+		{
+			vertexPool.releaseRef( vertex );
+			edgePool.releaseRef( edge );
+		}
+		edgePool.rebuildAdjacencyIndex();
+		closed = true;
+
+		if ( pausedGraph != null )
+		{
+			pausedGraph.resumeListeners();
+			pausedGraph.notifyGraphChanged();
+		}
+	}
+
+	/**
+	 * If the builder is not {@link #finish() finished}, removes all vertices
+	 * and edges added by this builder, and resumes events of the graph if they
+	 * were paused by this builder. Does nothing if the builder is finished or
+	 * already closed.
+	 */
+	@Override
+	public void close()
+	{
+		if ( closed )
+			return;
+		closed = true;
+
+		final V vertex = vertexPool.createRef();
+		final E edge = edgePool.createRef();
+		try
+		{
+			// The adjacency lists may be partially linked by a failed
+			// finish(). Free the edges directly, and unlink the vertices
+			// before deleting them.
+			for ( int i = 0; i < numEdges; ++i )
+				edgePool.deleteUnlinkedEdge( edgePool.getObject( edgeIndices[ i ], edge ) );
+			for ( int i = 0; i < numVertices; ++i )
+			{
+				vertexPool.getObject( vertexIndices[ i ], vertex );
+				vertex.setFirstOutEdgeIndex( -1 );
+				vertex.setLastOutEdgeIndex( -1 );
+				vertex.setOutDegree( 0 );
+				vertex.setFirstInEdgeIndex( -1 );
+				vertex.setLastInEdgeIndex( -1 );
+				vertex.setInDegree( 0 );
+				vertexPool.delete( vertex );
+			}
+			edgePool.rebuildAdjacencyIndex();
+		}
+		finally
+		{
+			vertexPool.releaseRef( vertex );
+			edgePool.releaseRef( edge );
+			if ( pausedGraph != null )
+				pausedGraph.resumeListeners();
+		}
+	}
+
+	/**
+	 * Throws an {@link IllegalArgumentException} if any two edges of a source
+	 * vertex have the same target. Expects the edges sorted by source, as
+	 * computed by {@link #sortEdges}.
+	 */
+	private void checkNoParallelEdges( final int[] offsets, final long[] keys )
+	{
+		int[] edgeTargets = new int[ 16 ];
+		for ( int v = 0; v < numVertices; ++v )
+		{
+			final int begin = offsets[ v ];
+			final int n = offsets[ v + 1 ] - begin;
+			if ( n < 2 )
+				continue;
+			if ( n > edgeTargets.length )
+				edgeTargets = new int[ Math.max( n, 2 * edgeTargets.length ) ];
+			for ( int k = 0; k < n; ++k )
+				edgeTargets[ k ] = targets[ ( int ) keys[ begin + k ] ];
+			Arrays.sort( edgeTargets, 0, n );
+			for ( int k = 1; k < n; ++k )
+				if ( edgeTargets[ k ] == edgeTargets[ k - 1 ] )
+					throw new IllegalArgumentException( "Several edges from vertex " + v + " to vertex " + edgeTargets[ k ] + " were added to a simple graph." );
+		}
+	}
+
+	/**
+	 * Sorts the added edges by vertex, and by position in the adjacency list
+	 * of each vertex. The edges of vertex {@code v} are stored in
+	 * {@code keys[offsets[v]] ... keys[offsets[v+1]-1]}, where each key holds
+	 * the position in the upper and the edge number in the lower 32 bits.
+	 */
+	private void sortEdges( final int[] vertices, final int[] positions, final int[] offsets, final long[] keys )
+	{
+		Arrays.fill( offsets, 0 );
+		for ( int i = 0; i < numEdges; ++i )
+			++offsets[ vertices[ i ] + 1 ];
+		for ( int v = 0; v < numVertices; ++v )
+			offsets[ v + 1 ] += offsets[ v ];
+
+		final int[] fill = Arrays.copyOf( offsets, numVertices );
+		for ( int i = 0; i < numEdges; ++i )
+			keys[ fill[ vertices[ i ] ]++ ] = ( ( long ) positions[ i ] << 32 ) | i;
+
+		for ( int v = 0; v < numVertices; ++v )
+			if ( offsets[ v + 1 ] - offsets[ v ] > 1 )
+				Arrays.sort( keys, offsets[ v ], offsets[ v + 1 ] );
+	}
+
+	private int edgeIndex( final long key )
+	{
+		return edgeIndices[ ( int ) key ];
+	}
+
+	private void checkOpen()
+	{
+		if ( closed )
+			throw new IllegalStateException( "GraphBuilder is already finished or closed." );
+	}
+}
@@ -0,0 +1,383 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.mastodon.RefPool;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.GraphListener;
+import org.mastodon.properties.PropertyMap;
+import org.mastodon.spatial.HasTimepoint;
+
+/**
+ * The result of {@link GraphImp#compact(int[], Collection, Collection)
+ * compacting} a graph: the mapping from old to new internal pool indices of
+ * vertices and edges.
+ * <p>
+ * Compaction removes the holes left in the vertex and edge pools by removed
+ * objects, and renumbers vertices in a specified order. Edges are renumbered
+ * by source vertex (in the new vertex order), and by position in the
+ * outgoing edge list of the source. This way, vertices that are visited
+ * together in a traversal, and the outgoing edges of each vertex, are stored
+ * close to each other in memory.
+ * <p>
+ * Internal pool indices are also the ids of a {@link GraphIdBimap}. Anything
+ * that stores ids or pool indices of vertices or edges must be updated with
+ * {@link #getNewVertexIndex(int)} and {@link #getNewEdgeIndex(int)}. Vertex
+ * and edge references keep pointing to their old index.
+ * <p>
+ * Compaction re-creates the pools through {@link org.mastodon.pool.Pool#clear()
+ * Pool.clear()}, which clears property maps registered with the vertex or
+ * edge pool. Property maps passed to
+ * {@link GraphImp#compact(int[], Collection, Collection)} are carried over:
+ * their values are moved to the new indices.
+ * <p>
+ * Static methods of this class provide vertex orders for
+ * {@link GraphImp#compact(int[])}.
+ */
+public class GraphCompaction
+{
+	/**
+	 * Number of objects whose bytes are buffered in one array.
+	 */
+	private static final int PAGE_SIZE = 1 << 16;
+
+	/**
+	 * Marks objects without a value in a carried-over property map.
+	 */
+	private static final Object NOT_SET = new Object();
+
+	private final int[] vertexOldToNew;
+
+	private final int[] edgeOldToNew;
+
+	private GraphCompaction( final int[] vertexOldToNew, final int[] edgeOldToNew )
+	{
+		this.vertexOldToNew = vertexOldToNew;
+		this.edgeOldToNew = edgeOldToNew;
+	}
+
+	/**
+	 * Returns the new internal pool index of a vertex.
+	 *
+	 * @param oldIndex
+	 *            the internal pool index of the vertex before compaction.
+	 * @return the internal pool index of the vertex after compaction, or
+	 *         {@code -1} if there was no vertex at {@code oldIndex}.
+	 */
+	public int getNewVertexIndex( final int oldIndex )
+	{
+		return oldIndex >= 0 && oldIndex < vertexOldToNew.length ? vertexOldToNew[ oldIndex ] : -1;
+	}
+
+	/**
+	 * Returns the new internal pool index of an edge.
+	 *
+	 * @param oldIndex
+	 *            the internal pool index of the edge before compaction.
+	 * @return the internal pool index of the edge after compaction, or
+	 *         {@code -1} if there was no edge at {@code oldIndex}.
+	 */
+	public int getNewEdgeIndex( final int oldIndex )
+	{
+		return oldIndex >= 0 && oldIndex < edgeOldToNew.length ? edgeOldToNew[ oldIndex ] : -1;
+	}
+
+	/**
+	 * Returns the vertices of the graph in their current pool order.
+	 * Compacting with this order only removes the holes.
+	 *
+	 * @param graph
+	 *            the graph.
+	 * @return internal pool indices of all vertices, in pool order.
+	 */
+	public static int[] poolOrder( final GraphImp< ?, ?, ?, ?, ? > graph )
+	{
+		final int[] order = new int[ graph.vertexPool.size() ];
+		int i = 0;
+		for ( final AbstractVertex< ?, ?, ?, ? > v : graph.vertexPool )
+			order[ i++ ] = v.getInternalPoolIndex();
+		return order;
+	}
+
+	/**
+	 * Returns the vertices of the graph in breadth-first order, following
+	 * outgoing edges. The search starts from the roots (vertices without
+	 * incoming edges) in pool order. Vertices that are not reachable from any
+	 * root are appended in the same way, starting from the first unvisited
+	 * vertex in pool order.
+	 *
+	 * @param graph
+	 *            the graph.
+	 * @return internal pool indices of all vertices, in breadth-first order.
+	 */
+	public static < V extends AbstractVertex< V, E, ?, ? >, E extends AbstractEdge< E, V, ?, ? > >
+			int[] breadthFirstOrder( final GraphImp< ?, ?, V, E, ? > graph )
+	{
+		final int[] poolOrder = poolOrder( graph );
+		final boolean[] visited = new boolean[ maxIndex( poolOrder ) + 1 ];
+		final int[] order = new int[ poolOrder.length ];
+		int head = 0;
+		int tail = 0;
+
+		final V v = graph.vertexRef();
+		final V ref = graph.vertexRef();
+		for ( int pass = 0; pass < 2; ++pass )
+		{
+			for ( final int root : poolOrder )
+			{
+				if ( visited[ root ] )
+					continue;
+				graph.vertexPool.getObject( root, v );
+				if ( pass == 0 && v.getFirstInEdgeIndex() >= 0 )
+					continue;
+
+				visited[ root ] = true;
+				order[ tail++ ] = root;
+				while ( head < tail )
+				{
+					graph.vertexPool.getObject( order[ head++ ], v );
+					for ( final E e : v.outgoingEdges() )
+					{
+						final int target = e.getTarget( ref ).getInternalPoolIndex();
+						if ( !visited[ target ] )
+						{
+							visited[ target ] = true;
+							order[ tail++ ] = target;
+						}
+					}
+				}
+			}
+		}
+		graph.releaseRef( v );
+		graph.releaseRef( ref );
+		return order;
+	}
+
+	/**
+	 * Returns the vertices of the graph sorted by timepoint. Vertices with the
+	 * same timepoint keep their pool order.
+	 *
+	 * @param graph
+	 *            the graph.
+	 * @return internal pool indices of all vertices, sorted by timepoint.
+	 */
+	public static < V extends AbstractVertex< V, E, ?, ? > & HasTimepoint, E extends AbstractEdge< E, V, ?, ? > >
+			int[] timepointOrder( final GraphImp< ?, ?, V, E, ? > graph )
+	{
+		final int[] poolOrder = poolOrder( graph );
+		final long[] keys = new long[ poolOrder.length ];
+		final V v = graph.vertexRef();
+		for ( int i = 0; i < poolOrder.length; ++i )
+		{
+			final int timepoint = graph.vertexPool.getObject( poolOrder[ i ], v ).getTimepoint();
+			keys[ i ] = ( ( long ) timepoint << 32 ) | i;
+		}
+		graph.releaseRef( v );
+		Arrays.sort( keys );
+		final int[] order = new int[ poolOrder.length ];
+		for ( int i = 0; i < order.length; ++i )
+			order[ i ] = poolOrder[ ( int ) keys[ i ] ];
+		return order;
+	}
+
+	/**
+	 * Compacts the pools of a graph. See
+	 * {@link GraphImp#compact(int[], Collection, Collection)}. Does not send
+	 * any {@link GraphListener} events. For listenable graphs, events must be
+	 * paused while this runs.
+	 */
+	static < V extends AbstractVertex< V, E, ?, ? >, E extends AbstractEdge< E, V, ?, ? > >
+			GraphCompaction compact(
+					final GraphImp< ?, ?, V, E, ? > graph,
+					final int[] vertexOrder,
+					final Collection< ? extends PropertyMap< V, ? > > vertexProperties,
+					final Collection< ? extends PropertyMap< E, ? > > edgeProperties )
+	{
+		final AbstractVertexPool< V, ?, ? > vertexPool = graph.vertexPool;
+		final AbstractEdgePool< E, V, ? > edgePool = graph.edgePool;
+		final int numVertices = vertexPool.size();
+		final int numEdges = edgePool.size();
+		if ( vertexOrder.length != numVertices )
+			throw new IllegalArgumentException( "Vertex order has " + vertexOrder.length + " entries, but the graph has " + numVertices + " vertices." );
+
+		final V v = graph.vertexRef();
+		final E e = graph.edgeRef();
+
+		// old-to-new vertex indices
+		final int[] vertexOldToNew = new int[ maxIndex( poolOrder( graph ) ) + 1 ];
+		Arrays.fill( vertexOldToNew, -1 );
+		for ( int i = 0; i < numVertices; ++i )
+		{
+			final int old = vertexOrder[ i ];
+			if ( old < 0 || old >= vertexOldToNew.length || vertexPool.getObjectIfExists( old, v ) == null )
+				throw new IllegalArgumentException( "Vertex order contains " + old + ", which is not a vertex of the graph." );
+			if ( vertexOldToNew[ old ] >= 0 )
+				throw new IllegalArgumentException( "Vertex order contains " + old + " more than once." );
+			vertexOldToNew[ old ] = i;
+		}
+
+		// edges by source vertex, in outgoing edge list order
+		final int[] edgeOrder = new int[ numEdges ];
+		int maxEdgeIndex = -1;
+		int numOrderedEdges = 0;
+		for ( int i = 0; i < numVertices; ++i )
+		{
+			int index = vertexPool.getObject( vertexOrder[ i ], v ).getFirstOutEdgeIndex();
+			while ( index >= 0 )
+			{
+				edgeOrder[ numOrderedEdges++ ] = index;
+				maxEdgeIndex = Math.max( maxEdgeIndex, index );
+				index = edgePool.getObject( index, e ).getNextSourceEdgeIndex();
+			}
+		}
+		final int[] edgeOldToNew = new int[ maxEdgeIndex + 1 ];
+		Arrays.fill( edgeOldToNew, -1 );
+		for ( int i = 0; i < numEdges; ++i )
+			edgeOldToNew[ edgeOrder[ i ] ] = i;
+
+		// buffer the bytes of all vertices and edges in the new order
+		final int vertexBytes = vertexPool.vertexLayout.getSizeInBytes();
+		final int edgeBytes = edgePool.edgeLayout.getSizeInBytes();
+		final byte[][] vertexData = pages( numVertices, vertexBytes );
+		final byte[][] edgeData = pages( numEdges, edgeBytes );
+		for ( int i = 0; i < numVertices; ++i )
+			vertexPool.getObject( vertexOrder[ i ], v ).getRawBytes( vertexData[ i / PAGE_SIZE ], ( i % PAGE_SIZE ) * vertexBytes, vertexBytes );
+		for ( int i = 0; i < numEdges; ++i )
+			edgePool.getObject( edgeOrder[ i ], e ).getRawBytes( edgeData[ i / PAGE_SIZE ], ( i % PAGE_SIZE ) * edgeBytes, edgeBytes );
+
+		// take the values of the carried-over property maps in the new order
+		final List< Object[] > vertexValues = new ArrayList<>( vertexProperties.size() );
+		for ( final PropertyMap< V, ? > map : vertexProperties )
+			vertexValues.add( takeValues( map, vertexPool, vertexOrder, numVertices, v ) );
+		final List< Object[] > edgeValues = new ArrayList<>( edgeProperties.size() );
+		for ( final PropertyMap< E, ? > map : edgeProperties )
+			edgeValues.add( takeValues( map, edgePool, edgeOrder, numEdges, e ) );
+
+		// re-create vertices and edges in the new order
+		graph.clear();
+		for ( int i = 0; i < numVertices; ++i )
+		{
+			vertexPool.create( v );
+			v.setRawBytes( vertexData[ i / PAGE_SIZE ], ( i % PAGE_SIZE ) * vertexBytes, vertexBytes );
+			v.setFirstInEdgeIndex( remap( edgeOldToNew, v.getFirstInEdgeIndex() ) );
+			v.setFirstOutEdgeIndex( remap( edgeOldToNew, v.getFirstOutEdgeIndex() ) );
+			if ( vertexPool.vertexLayout.hasLastEdgeIndices() )
+			{
+				v.setLastInEdgeIndex( remap( edgeOldToNew, v.getLastInEdgeIndex() ) );
+				v.setLastOutEdgeIndex( remap( edgeOldToNew, v.getLastOutEdgeIndex() ) );
+			}
+			if ( v instanceof AbstractListenableVertex )
+				( ( AbstractListenableVertex< ?, ?, ?, ? > ) v ).initDone();
+		}
+		for ( int i = 0; i < numEdges; ++i )
+		{
+			edgePool.createUnlinkedEdge( -1, -1, e );
+			e.setRawBytes( edgeData[ i / PAGE_SIZE ], ( i % PAGE_SIZE ) * edgeBytes, edgeBytes );
+			e.setSourceVertexInternalPoolIndex( vertexOldToNew[ e.getSourceVertexInternalPoolIndex() ] );
+			e.setTargetVertexInternalPoolIndex( vertexOldToNew[ e.getTargetVertexInternalPoolIndex() ] );
+			e.setNextSourceEdgeIndex( remap( edgeOldToNew, e.getNextSourceEdgeIndex() ) );
+			e.setNextTargetEdgeIndex( remap( edgeOldToNew, e.getNextTargetEdgeIndex() ) );
+			if ( edgePool.edgeLayout.hasPrevEdgeIndices() )
+			{
+				e.setPrevSourceEdgeIndex( remap( edgeOldToNew, e.getPrevSourceEdgeIndex() ) );
+				e.setPrevTargetEdgeIndex( remap( edgeOldToNew, e.getPrevTargetEdgeIndex() ) );
+			}
+			if ( e instanceof AbstractListenableEdge )
+				( ( AbstractListenableEdge< ?, ?, ?, ? > ) e ).initDone();
+		}
+
+		edgePool.rebuildAdjacencyIndex();
+
+		int p = 0;
+		for ( final PropertyMap< V, ? > map : vertexProperties )
+			putValues( map, vertexPool, vertexValues.get( p++ ), v );
+		p = 0;
+		for ( final PropertyMap< E, ? > map : edgeProperties )
+			putValues( map, edgePool, edgeValues.get( p++ ), e );
+
+		graph.releaseRef( v );
+		graph.releaseRef( e );
+		return new GraphCompaction( vertexOldToNew, edgeOldToNew );
+	}
+
+	/**
+	 * Removes the values of a property map for the objects at the specified
+	 * internal pool indices, and returns them, in the same order.
+	 * {@link #NOT_SET} marks objects without a value.
+	 */
+	private static < O > Object[] takeValues( final PropertyMap< O, ? > map, final RefPool< O > pool, final int[] order, final int n, final O ref )
+	{
+		final Object[] values = new Object[ n ];
+		for ( int i = 0; i < n; ++i )
+		{
+			final O o = pool.getObject( order[ i ], ref );
+			values[ i ] = map.isSet( o ) ? map.remove( o ) : NOT_SET;
+		}
+		return values;
+	}
+
+	/**
+	 * Sets the values taken by {@link #takeValues} for the objects at internal
+	 * pool indices {@code 0 ... values.length-1}.
+	 */
+	@SuppressWarnings( "unchecked" )
+	private static < O, T > void putValues( final PropertyMap< O, T > map, final RefPool< O > pool, final Object[] values, final O ref )
+	{
+		for ( int i = 0; i < values.length; ++i )
+			if ( values[ i ] != NOT_SET )
+				map.set( pool.getObject( i, ref ), ( T ) values[ i ] );
+	}
+
+	private static int remap( final int[] oldToNew, final int index )
+	{
+		return index < 0 ? -1 : oldToNew[ index ];
+	}
+
+	private static int maxIndex( final int[] indices )
+	{
+		int max = -1;
+		for ( final int index : indices )
+			max = Math.max( max, index );
+		return max;
+	}
+
+	private static byte[][] pages( final int numObjects, final int bytesPerObject )
+	{
+		final int numPages = ( numObjects + PAGE_SIZE - 1 ) / PAGE_SIZE;
+		final byte[][] pages = new byte[ numPages ][];
+		for ( int p = 0; p < numPages; ++p )
+			pages[ p ] = new byte[ Math.min( PAGE_SIZE, numObjects - p * PAGE_SIZE ) * bytesPerObject ];
+		return pages;
+	}
+}
@@ -28,10 +28,16 @@
  */
 package org.mastodon.graph.ref;
 
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.mastodon.collection.RefCollection;
 import org.mastodon.graph.Edges;
 import org.mastodon.graph.Graph;
 import org.mastodon.pool.MappedElement;
 import org.mastodon.pool.PoolCollectionWrapper;
+import org.mastodon.properties.PropertyMap;
 
 public class GraphImp<
 		VP extends AbstractVertexPool< V, E, T >,
@@ -46,6 +52,12 @@ public class GraphImp<
 
 	protected final EP edgePool;
 
+	/**
+	 * Tracks refs, or {@code null} if not {@link #enableRefTracking()
+	 * enabled}.
+	 */
+	private RefTracker refTracker = null;
+
 	public GraphImp( final VP vertexPool, final EP edgePool )
 	{
 		this.vertexPool = vertexPool;
@@ -123,6 +135,36 @@ public class GraphImp<
 		return ref.outgoingEdgesToTarget;
 	}
 
+	/**
+	 * Enables an index of the edges between source and target vertices, which
+	 * makes {@link #getEdge(AbstractVertex, AbstractVertex)} and adding edges
+	 * to simple graphs constant time operations.
+	 *
+	 * @see AbstractEdgePool#enableAdjacencyIndex()
+	 */
+	public void enableAdjacencyIndex()
+	{
+		edgePool.enableAdjacencyIndex();
+	}
+
+	/**
+	 * Enables an index of the edges between source and target vertices, for
+	 * vertices with at least {@code minDegree} outgoing edges.
+	 *
+	 * @param minDegree
+	 *            the out-degree from which vertices are indexed.
+	 * @see AbstractEdgePool#enableAdjacencyIndex(int)
+	 */
+	public void enableAdjacencyIndex( final int minDegree )
+	{
+		edgePool.enableAdjacencyIndex( minDegree );
+	}
+
+	public void disableAdjacencyIndex()
+	{
+		edgePool.disableAdjacencyIndex();
+	}
+
 	@Override
 	public PoolCollectionWrapper< V > vertices()
 	{
@@ -147,33 +189,249 @@ public class GraphImp<
 		edgePool.delete( edge );
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All vertices and edges to remove are marked first. Then the adjacency
+	 * lists of remaining vertices that lose edges are relinked once each,
+	 * instead of once per removed edge.
+	 */
+	@Override
+	public void removeAll( final RefCollection< V > vertices )
+	{
+		final BitSet vertexIndices = new BitSet();
+		for ( final V vertex : vertices )
+			vertexIndices.set( vertex.getInternalPoolIndex() );
+		final BitSet edgeIndices = new BitSet();
+		edgePool.markLinkedEdges( vertexIndices, edgeIndices );
+		removeAll( vertexIndices, edgeIndices );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All edges to remove are marked first. Then the adjacency lists of their
+	 * sources and targets are relinked once each, instead of once per removed
+	 * edge.
+	 */
+	@Override
+	public void removeAllEdges( final RefCollection< E > edges )
+	{
+		final BitSet edgeIndices = new BitSet();
+		for ( final E edge : edges )
+			edgeIndices.set( edge.getInternalPoolIndex() );
+		removeAll( new BitSet(), edgeIndices );
+	}
+
+	/**
+	 * Removes the vertices and edges with the specified internal pool
+	 * indices.
+	 *
+	 * @param vertexIndices
+	 *            the internal pool indices of the vertices to remove.
+	 * @param edgeIndices
+	 *            the internal pool indices of the edges to remove, including
+	 *            all edges linked to the removed vertices.
+	 */
+	protected void removeAll( final BitSet vertexIndices, final BitSet edgeIndices )
+	{
+		edgePool.deleteAll( vertexIndices, edgeIndices );
+	}
+
 	@Override
 	public V vertexRef()
 	{
-		return vertexPool.createRef();
+		final V ref = vertexPool.createRef();
+		if ( refTracker != null )
+			refTracker.acquired( ref, true );
+		return ref;
 	}
 
 	@Override
 	public E edgeRef()
 	{
-		return edgePool.createRef();
+		final E ref = edgePool.createRef();
+		if ( refTracker != null )
+			refTracker.acquired( ref, false );
+		return ref;
 	}
 
 	@Override
 	public void releaseRef( final V ref )
 	{
+		if ( refTracker != null )
+			refTracker.released( ref );
 		vertexPool.releaseRef( ref );
 	}
 
 	@Override
 	public void releaseRef( final E ref )
 	{
+		if ( refTracker != null )
+			refTracker.released( ref );
 		edgePool.releaseRef( ref );
 	}
 
+	/**
+	 * Enables tracking the refs acquired with {@link #vertexRef()} and
+	 * {@link #edgeRef()}, and released with {@link #releaseRef(AbstractVertex)}
+	 * and {@link #releaseRef(AbstractEdge)}. This is a debugging aid that
+	 * makes acquiring refs much slower, see {@link RefTracker}. Does nothing if
+	 * tracking is already enabled.
+	 *
+	 * @return the ref tracker of this graph.
+	 */
+	public RefTracker enableRefTracking()
+	{
+		if ( refTracker == null )
+			refTracker = new RefTracker();
+		return refTracker;
+	}
+
+	/**
+	 * Stops tracking refs. Previously returned trackers keep their
+	 * statistics.
+	 */
+	public void disableRefTracking()
+	{
+		refTracker = null;
+	}
+
+	/**
+	 * @return the ref tracker of this graph, or {@code null} if ref tracking
+	 *         is not {@link #enableRefTracking() enabled}.
+	 */
+	public RefTracker getRefTracker()
+	{
+		return refTracker;
+	}
+
+	/**
+	 * Removes the holes left in the vertex and edge pools by removed objects,
+	 * keeping the current order of vertices.
+	 *
+	 * @return the mapping from old to new internal pool indices.
+	 * @see #compact(int[])
+	 */
+	public GraphCompaction compact()
+	{
+		return compact( GraphCompaction.poolOrder( this ) );
+	}
+
+	/**
+	 * Removes the holes left in the vertex and edge pools by removed objects,
+	 * and renumbers vertices in the specified order. Property maps registered
+	 * with the vertex and edge pools are cleared.
+	 *
+	 * @param vertexOrder
+	 *            the internal pool indices of all vertices, in the new order.
+	 * @return the mapping from old to new internal pool indices.
+	 * @throws IllegalArgumentException
+	 *             if {@code vertexOrder} is not a permutation of the internal
+	 *             pool indices of the vertices of this graph.
+	 * @see #compact(int[], Collection, Collection)
+	 */
+	public GraphCompaction compact( final int[] vertexOrder )
+	{
+		return compact( vertexOrder, Collections.emptyList(), Collections.emptyList() );
+	}
+
+	/**
+	 * Removes the holes left in the vertex and edge pools by removed objects,
+	 * and renumbers vertices in the specified order. Edges are renumbered by
+	 * source vertex, and by position in the outgoing edge list of the source.
+	 * {@link GraphCompaction} provides common vertex orders.
+	 * <p>
+	 * All internal pool indices (and therefore the ids of a
+	 * {@link org.mastodon.graph.GraphIdBimap GraphIdBimap}) change. The
+	 * returned {@link GraphCompaction} maps old to new indices.
+	 * <p>
+	 * The values of the specified property maps are moved to the new indices.
+	 * Other property maps registered with the vertex and edge pools are
+	 * cleared. Carrying a property map over temporarily holds all its values
+	 * as objects.
+	 *
+	 * @param vertexOrder
+	 *            the internal pool indices of all vertices, in the new order.
+	 * @param vertexProperties
+	 *            vertex property maps whose values are kept.
+	 * @param edgeProperties
+	 *            edge property maps whose values are kept.
+	 * @return the mapping from old to new internal pool indices.
+	 * @throws IllegalArgumentException
+	 *             if {@code vertexOrder} is not a permutation of the internal
+	 *             pool indices of the vertices of this graph.
+	 */
+	public GraphCompaction compact(
+			final int[] vertexOrder,
+			final Collection< ? extends PropertyMap< V, ? > > vertexProperties,
+			final Collection< ? extends PropertyMap< E, ? > > edgeProperties )
+	{
+		return GraphCompaction.compact( this, vertexOrder, vertexProperties, edgeProperties );
+	}
+
+	/**
+	 * Re-creates the first {@code numVertices} vertices and {@code numEdges}
+	 * edges from data that is already present in the memory of the vertex and
+	 * edge pools. This is used to reopen a graph whose pools are backed by
+	 * {@link BufferMappedElementArray#mapped(java.io.File) memory-mapped
+	 * files} from an earlier session, without deserializing it.
+	 * <p>
+	 * The graph must have been {@link #compact() compacted} before the files
+	 * were last written, and {@code numVertices} and {@code numEdges} must be
+	 * the sizes of the graph at that time.
+	 *
+	 * @param numVertices
+	 *            the number of vertices stored in the vertex pool.
+	 * @param numEdges
+	 *            the number of edges stored in the edge pool.
+	 * @throws IllegalStateException
+	 *             if the graph is not empty.
+	 */
+	public void restore( final int numVertices, final int numEdges )
+	{
+		if ( vertexPool.size() != 0 || edgePool.size() != 0 )
+			throw new IllegalStateException( "Can only restore an empty graph." );
+
+		final V v = vertexRef();
+		final V vtmp = vertexRef();
+		final int vertexBytes = vertexPool.vertexLayout.getSizeInBytes();
+		final byte[] vbytes = new byte[ vertexBytes ];
+		for ( int i = 0; i < numVertices; ++i )
+		{
+			// creating the vertex overwrites its links, so copy its bytes first
+			vertexPool.getObject( i, vtmp ).getRawBytes( vbytes, 0, vertexBytes );
+			if ( vertexPool.create( v ).getInternalPoolIndex() != i )
+				throw new IllegalStateException( "The vertex pool has free elements." );
+			v.setRawBytes( vbytes, 0, vertexBytes );
+			if ( v instanceof AbstractListenableVertex )
+				( ( AbstractListenableVertex< ?, ?, ?, ? > ) v ).initDone();
+		}
+		releaseRef( v );
+		releaseRef( vtmp );
+
+		final E e = edgeRef();
+		final E etmp = edgeRef();
+		final int edgeBytes = edgePool.edgeLayout.getSizeInBytes();
+		final byte[] ebytes = new byte[ edgeBytes ];
+		for ( int i = 0; i < numEdges; ++i )
+		{
+			edgePool.getObject( i, etmp ).getRawBytes( ebytes, 0, edgeBytes );
+			if ( edgePool.createUnlinkedEdge( -1, -1, e ).getInternalPoolIndex() != i )
+				throw new IllegalStateException( "The edge pool has free elements." );
+			e.setRawBytes( ebytes, 0, edgeBytes );
+			if ( e instanceof AbstractListenableEdge )
+				( ( AbstractListenableEdge< ?, ?, ?, ? > ) e ).initDone();
+		}
+		releaseRef( e );
+		releaseRef( etmp );
+		edgePool.rebuildAdjacencyIndex();
+	}
+
 	protected void clear()
 	{
 		vertexPool.clear();
 		edgePool.clear();
+		edgePool.rebuildAdjacencyIndex();
 	}
 }
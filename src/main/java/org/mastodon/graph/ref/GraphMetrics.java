@@ -0,0 +1,408 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.lang.management.ManagementFactory;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts and times operations on a {@link ListenableGraphImp} and its edge
+ * pool. Enabled with {@link ListenableGraphImp#enableMetrics()}. When metrics
+ * are not enabled, the graph only pays for a {@code null} check per
+ * operation.
+ * <p>
+ * Collected are
+ * <ul>
+ * <li>the number of added and removed vertices and edges,</li>
+ * <li>the number of edge lookups ({@link GraphImp#getEdge}) and the number
+ * of adjacency list hops made by lookups and by appending edges,</li>
+ * <li>the number of changes of properties
+ * {@link ListenableGraphImp#trackVertexProperty tracked} by the graph,</li>
+ * <li>the size of the vertex and edge pools, and the number of slots and
+ * free slots (slots of removed objects that are not reused yet),</li>
+ * <li>the time taken by removing vertices and edges, and the time spent in
+ * each registered {@link org.mastodon.graph.GraphListener} and
+ * {@link org.mastodon.graph.BatchGraphListener}.</li>
+ * </ul>
+ * Metrics of modifications are recorded by the thread modifying the graph
+ * without synchronization. Edge lookups may run concurrently in several
+ * reading threads, so lookups and adjacency hops are counted with
+ * {@link LongAdder}s. Values read by other threads, for example through JMX,
+ * may be slightly out of date.
+ */
+public class GraphMetrics implements GraphMetricsMXBean
+{
+	private final GraphImp< ?, ?, ?, ?, ? > graph;
+
+	private long verticesAdded;
+
+	private long verticesRemoved;
+
+	private long edgesAdded;
+
+	private long edgesRemoved;
+
+	private final LongAdder edgeLookups = new LongAdder();
+
+	private final LongAdder indexedEdgeLookups = new LongAdder();
+
+	private final LongAdder adjacencyHops = new LongAdder();
+
+	private long propertyChanges;
+
+	/**
+	 * One more than the largest internal pool index of a vertex since the
+	 * last rebuild.
+	 */
+	private int vertexSlots;
+
+	/**
+	 * One more than the largest internal pool index of an edge since the
+	 * last rebuild.
+	 */
+	private int edgeSlots;
+
+	private final LatencyHistogram removeVertexTimes = new LatencyHistogram();
+
+	private final LatencyHistogram removeEdgeTimes = new LatencyHistogram();
+
+	private final LatencyHistogram removeAllTimes = new LatencyHistogram();
+
+	private final Map< Object, LatencyHistogram > listenerTimes = new IdentityHashMap<>();
+
+	private ObjectName objectName;
+
+	GraphMetrics( final GraphImp< ?, ?, ?, ?, ? > graph )
+	{
+		this.graph = graph;
+		countSlots();
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server, under the
+	 * object name {@code org.mastodon.graph:type=GraphMetrics,name=<name>}.
+	 *
+	 * @param name
+	 *            the name of the graph.
+	 * @return the object name of the MBean.
+	 * @throws JMException
+	 *             if the MBean could not be registered.
+	 */
+	public synchronized ObjectName registerMBean( final String name ) throws JMException
+	{
+		unregisterMBean();
+		final ObjectName on = new ObjectName( "org.mastodon.graph:type=GraphMetrics,name=" + ObjectName.quote( name ) );
+		ManagementFactory.getPlatformMBeanServer().registerMBean( this, on );
+		objectName = on;
+		return on;
+	}
+
+	/**
+	 * Unregisters these metrics from the platform MBean server, if they were
+	 * registered with {@link #registerMBean(String)}.
+	 *
+	 * @throws JMException
+	 *             if the MBean could not be unregistered.
+	 */
+	public synchronized void unregisterMBean() throws JMException
+	{
+		if ( objectName != null )
+		{
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if ( server.isRegistered( objectName ) )
+				server.unregisterMBean( objectName );
+			objectName = null;
+		}
+	}
+
+	@Override
+	public long getVerticesAdded()
+	{
+		return verticesAdded;
+	}
+
+	@Override
+	public long getVerticesRemoved()
+	{
+		return verticesRemoved;
+	}
+
+	@Override
+	public long getEdgesAdded()
+	{
+		return edgesAdded;
+	}
+
+	@Override
+	public long getEdgesRemoved()
+	{
+		return edgesRemoved;
+	}
+
+	/**
+	 * @return the number of lookups of edges by source and target, including
+	 *         the {@link #getIndexedEdgeLookups() indexed} ones.
+	 */
+	@Override
+	public long getEdgeLookups()
+	{
+		return edgeLookups.sum();
+	}
+
+	/**
+	 * @return the number of lookups of edges by source and target that were
+	 *         answered by the adjacency index.
+	 */
+	@Override
+	public long getIndexedEdgeLookups()
+	{
+		return indexedEdgeLookups.sum();
+	}
+
+	/**
+	 * @return the number of adjacency list entries visited by edge lookups
+	 *         and by appending edges to adjacency lists.
+	 */
+	@Override
+	public long getAdjacencyHops()
+	{
+		return adjacencyHops.sum();
+	}
+
+	@Override
+	public long getPropertyChanges()
+	{
+		return propertyChanges;
+	}
+
+	@Override
+	public int getVertexCount()
+	{
+		return graph.vertexPool.size();
+	}
+
+	@Override
+	public int getEdgeCount()
+	{
+		return graph.edgePool.size();
+	}
+
+	@Override
+	public int getVertexSlots()
+	{
+		return Math.max( vertexSlots, getVertexCount() );
+	}
+
+	@Override
+	public int getFreeVertexSlots()
+	{
+		return getVertexSlots() - getVertexCount();
+	}
+
+	@Override
+	public int getEdgeSlots()
+	{
+		return Math.max( edgeSlots, getEdgeCount() );
+	}
+
+	@Override
+	public int getFreeEdgeSlots()
+	{
+		return getEdgeSlots() - getEdgeCount();
+	}
+
+	/**
+	 * @return copies of the histograms of the time taken by removing a
+	 *         vertex ({@code "removeVertex"}), an edge ({@code "removeEdge"}),
+	 *         and a collection of vertices or edges ({@code "removeAll"}),
+	 *         including listener notification.
+	 */
+	@Override
+	public synchronized Map< String, LatencyHistogram > getOperationTimes()
+	{
+		final Map< String, LatencyHistogram > times = new TreeMap<>();
+		times.put( "removeVertex", removeVertexTimes.copy() );
+		times.put( "removeEdge", removeEdgeTimes.copy() );
+		times.put( "removeAll", removeAllTimes.copy() );
+		return times;
+	}
+
+	/**
+	 * @return copies of the histograms of the time spent in each listener
+	 *         per event, by listener class name and identity hash code.
+	 */
+	@Override
+	public synchronized Map< String, LatencyHistogram > getListenerTimes()
+	{
+		final Map< String, LatencyHistogram > times = new TreeMap<>();
+		listenerTimes.forEach( ( listener, histogram ) -> times.put(
+				listener.getClass().getName() + "@" + Integer.toHexString( System.identityHashCode( listener ) ),
+				histogram.copy() ) );
+		return times;
+	}
+
+	/**
+	 * Returns the histogram of the time spent in the specified listener per
+	 * event.
+	 *
+	 * @param listener
+	 *            a {@link org.mastodon.graph.GraphListener} or
+	 *            {@link org.mastodon.graph.BatchGraphListener} of the graph.
+	 * @return the histogram, or {@code null} if the listener was not called
+	 *         since metrics were enabled or reset.
+	 */
+	public synchronized LatencyHistogram getListenerTimes( final Object listener )
+	{
+		final LatencyHistogram histogram = listenerTimes.get( listener );
+		return histogram == null ? null : histogram.copy();
+	}
+
+	@Override
+	public synchronized void reset()
+	{
+		verticesAdded = 0;
+		verticesRemoved = 0;
+		edgesAdded = 0;
+		edgesRemoved = 0;
+		edgeLookups.reset();
+		indexedEdgeLookups.reset();
+		adjacencyHops.reset();
+		propertyChanges = 0;
+		removeVertexTimes.reset();
+		removeEdgeTimes.reset();
+		removeAllTimes.reset();
+		listenerTimes.clear();
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder sb = new StringBuilder( "GraphMetrics {\n" );
+		sb.append( "  vertices = " + getVertexCount() + " (+" + verticesAdded + ", -" + verticesRemoved + "), slots = " + getVertexSlots() + ", free = " + getFreeVertexSlots() + "\n" );
+		sb.append( "  edges = " + getEdgeCount() + " (+" + edgesAdded + ", -" + edgesRemoved + "), slots = " + getEdgeSlots() + ", free = " + getFreeEdgeSlots() + "\n" );
+		sb.append( "  edge lookups = " + getEdgeLookups() + " (indexed " + getIndexedEdgeLookups() + "), adjacency hops = " + getAdjacencyHops() + "\n" );
+		sb.append( "  property changes = " + propertyChanges + "\n" );
+		getOperationTimes().forEach( ( name, histogram ) -> sb.append( "  " + name + ": " + histogram + "\n" ) );
+		getListenerTimes().forEach( ( name, histogram ) -> sb.append( "  " + name + ": " + histogram + "\n" ) );
+		sb.append( "}" );
+		return sb.toString();
+	}
+
+	/*
+	 * Recording, called by ListenableGraphImp and AbstractEdgePool.
+	 */
+
+	void vertexAdded( final int index )
+	{
+		++verticesAdded;
+		if ( index >= vertexSlots )
+			vertexSlots = index + 1;
+	}
+
+	void edgeAdded( final int index )
+	{
+		++edgesAdded;
+		if ( index >= edgeSlots )
+			edgeSlots = index + 1;
+	}
+
+	void removed( final int numVertices, final int numEdges )
+	{
+		verticesRemoved += numVertices;
+		edgesRemoved += numEdges;
+	}
+
+	void removedVertex( final long nanos )
+	{
+		removeVertexTimes.record( nanos );
+	}
+
+	void removedEdge( final long nanos )
+	{
+		removeEdgeTimes.record( nanos );
+	}
+
+	void removedAll( final long nanos )
+	{
+		removeAllTimes.record( nanos );
+	}
+
+	void edgeLookup( final int hops )
+	{
+		edgeLookups.increment();
+		adjacencyHops.add( hops );
+	}
+
+	void indexedEdgeLookup()
+	{
+		edgeLookups.increment();
+		indexedEdgeLookups.increment();
+	}
+
+	void adjacencyHops( final int hops )
+	{
+		adjacencyHops.add( hops );
+	}
+
+	void propertyChanged()
+	{
+		++propertyChanges;
+	}
+
+	void listenerCalled( final Object listener, final long nanos )
+	{
+		final LatencyHistogram histogram;
+		synchronized ( this )
+		{
+			histogram = listenerTimes.computeIfAbsent( listener, l -> new LatencyHistogram() );
+		}
+		histogram.record( nanos );
+	}
+
+	/**
+	 * Recounts the slots of the vertex and edge pools, after the graph was
+	 * rebuilt.
+	 */
+	void countSlots()
+	{
+		vertexSlots = 0;
+		for ( final AbstractVertex< ?, ?, ?, ? > v : graph.vertexPool )
+			vertexSlots = Math.max( vertexSlots, v.getInternalPoolIndex() + 1 );
+		edgeSlots = 0;
+		for ( final AbstractEdge< ?, ?, ?, ? > e : graph.edgePool )
+			edgeSlots = Math.max( edgeSlots, e.getInternalPoolIndex() + 1 );
+	}
+}
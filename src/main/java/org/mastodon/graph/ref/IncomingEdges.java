@@ -52,6 +52,9 @@ public class IncomingEdges< E extends AbstractEdge< E, ?, ?, ? > > implements Ed
 	@Override
 	public int size()
 	{
+		if ( vertex.hasDegrees() )
+			return vertex.getInDegree();
+
 		int numEdges = 0;
 		int edgeIndex = vertex.getFirstInEdgeIndex();
 		if ( edgeIndex >= 0 )
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of durations in nanoseconds, with one bucket per power of two.
+ * Recording a duration costs a few instructions and does not allocate.
+ * Percentiles are approximate: they are reported as the upper bound of the
+ * bucket that contains them.
+ * <p>
+ * Not thread-safe. Values read while durations are recorded by another
+ * thread may be slightly inconsistent.
+ */
+public final class LatencyHistogram
+{
+	private final long[] buckets = new long[ 64 ];
+
+	private long count;
+
+	private long totalNanos;
+
+	private long maxNanos;
+
+	/**
+	 * Records a duration.
+	 *
+	 * @param nanos
+	 *            the duration in nanoseconds.
+	 */
+	public void record( final long nanos )
+	{
+		final long n = Math.max( nanos, 0 );
+		++buckets[ 63 - Long.numberOfLeadingZeros( n | 1 ) ];
+		++count;
+		totalNanos += n;
+		if ( n > maxNanos )
+			maxNanos = n;
+	}
+
+	public long getCount()
+	{
+		return count;
+	}
+
+	public long getTotalNanos()
+	{
+		return totalNanos;
+	}
+
+	public long getMaxNanos()
+	{
+		return maxNanos;
+	}
+
+	public double getMeanNanos()
+	{
+		return count == 0 ? 0 : ( double ) totalNanos / count;
+	}
+
+	public long getMedianNanos()
+	{
+		return getPercentileNanos( 0.5 );
+	}
+
+	public long getP99Nanos()
+	{
+		return getPercentileNanos( 0.99 );
+	}
+
+	/**
+	 * Returns an upper bound of the specified percentile of the recorded
+	 * durations.
+	 *
+	 * @param fraction
+	 *            the percentile, in {@code [0, 1]}.
+	 * @return an upper bound of the percentile in nanoseconds, or 0 if
+	 *         nothing was recorded.
+	 */
+	public long getPercentileNanos( final double fraction )
+	{
+		if ( count == 0 )
+			return 0;
+		final long rank = Math.max( 1, ( long ) Math.ceil( fraction * count ) );
+		long seen = 0;
+		for ( int i = 0; i < buckets.length; ++i )
+		{
+			seen += buckets[ i ];
+			if ( seen >= rank )
+				return Math.min( maxNanos, i == 63 ? Long.MAX_VALUE : ( 2L << i ) - 1 );
+		}
+		return maxNanos;
+	}
+
+	public void reset()
+	{
+		Arrays.fill( buckets, 0 );
+		count = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+	}
+
+	LatencyHistogram copy()
+	{
+		final LatencyHistogram copy = new LatencyHistogram();
+		System.arraycopy( buckets, 0, copy.buckets, 0, buckets.length );
+		copy.count = count;
+		copy.totalNanos = totalNanos;
+		copy.maxNanos = maxNanos;
+		return copy;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format( "count = %d, mean = %.0f ns, median <= %d ns, p99 <= %d ns, max = %d ns",
+				count, getMeanNanos(), getMedianNanos(), getP99Nanos(), maxNanos );
+	}
+}
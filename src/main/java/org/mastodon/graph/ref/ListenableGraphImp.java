@@ -29,11 +29,20 @@
 package org.mastodon.graph.ref;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 
+import org.mastodon.graph.BatchGraphListener;
 import org.mastodon.graph.GraphChangeListener;
 import org.mastodon.graph.GraphListener;
 import org.mastodon.graph.ListenableGraph;
+import org.mastodon.graph.VersionedGraph;
 import org.mastodon.pool.MappedElement;
+import org.mastodon.properties.Property;
+import org.mastodon.properties.PropertyMap;
+
+import gnu.trove.list.array.TIntArrayList;
 
 public class ListenableGraphImp<
 		VP extends AbstractListenableVertexPool< V, E, T >,
@@ -42,14 +51,63 @@ public class ListenableGraphImp<
 		E extends AbstractListenableEdge< E, V, EP, T >,
 		T extends MappedElement >
 	extends GraphImp< VP, EP, V, E, T >
-	implements ListenableGraph< V, E >
+	implements ListenableGraph< V, E >, VersionedGraph
 {
 	protected final ArrayList< GraphListener< V, E > > listeners;
 
 	protected final ArrayList< GraphChangeListener > changeListeners;
 
+	protected final ArrayList< BatchGraphListener > batchListeners = new ArrayList<>();
+
+	/**
+	 * Adapters of the {@link GraphListener}s registered with
+	 * {@link #addCoalescedGraphListener(GraphListener)}. Also in
+	 * {@link #batchListeners}.
+	 */
+	private final ArrayList< CoalescedGraphListenerAdapter< V, E > > coalescedListeners = new ArrayList<>();
+
 	protected boolean emitEvents;
 
+	/**
+	 * Vertices added and removed in the current batch, or {@code null} if
+	 * there are no {@link #batchListeners}.
+	 */
+	private BatchRecorder vertexBatch = null;
+
+	/**
+	 * Edges added and removed in the current batch, or {@code null} if there
+	 * are no {@link #batchListeners}.
+	 */
+	private BatchRecorder edgeBatch = null;
+
+	/**
+	 * Nesting depth of {@link #beginBatch()}.
+	 */
+	private int batchDepth = 0;
+
+	private long structureVersion = 0;
+
+	private long attributeVersion = 0;
+
+	/**
+	 * Version stamps of vertex pool slots, or {@code null} if
+	 * {@link #enableVertexVersions() not enabled}. May be shorter than the
+	 * vertex pool. Stamps of slots beyond the end are
+	 * {@link #vertexVersionFloor}.
+	 */
+	private long[] vertexVersions = null;
+
+	/**
+	 * Lower bound of all vertex version stamps. Set when vertex versions are
+	 * enabled and when the graph is rebuilt.
+	 */
+	private long vertexVersionFloor = 0;
+
+	/**
+	 * Metrics, or {@code null} if not {@link #enableMetrics() enabled}.
+	 */
+	private GraphMetrics metrics = null;
+
 	public ListenableGraphImp( final VP vertexPool, final EP edgePool )
 	{
 		super( vertexPool, edgePool );
@@ -88,24 +146,157 @@ public class ListenableGraphImp<
 	@Override
 	public void remove( final V vertex )
 	{
+		final long t0 = metrics == null ? 0 : System.nanoTime();
+		if ( metrics != null )
+			metrics.removed( 1, vertex.edges().size() );
+		++structureVersion;
+		if ( vertexVersions != null )
+		{
+			for ( final E edge : vertex.edges() )
+				stampEdge( edge );
+			stampVertex( vertex.getInternalPoolIndex() );
+		}
 		if ( emitEvents )
 		{
 			for ( final E edge : vertex.edges() )
-				for ( final GraphListener< V, E > listener : listeners )
-					listener.edgeRemoved( edge );
-			for ( final GraphListener< V, E > listener : listeners )
-				listener.vertexRemoved( vertex );
+			{
+				fireEdgeRemoved( edge );
+				recordEdgeRemoved( edge );
+			}
+			fireVertexRemoved( vertex );
+			recordVertexRemoved( vertex );
 		}
 		vertexPool.delete( vertex );
+		notifyBatchCompleted();
+		if ( metrics != null )
+			metrics.removedVertex( System.nanoTime() - t0 );
 	}
 
 	@Override
 	public void remove( final E edge )
 	{
+		final long t0 = metrics == null ? 0 : System.nanoTime();
+		if ( metrics != null )
+			metrics.removed( 0, 1 );
+		++structureVersion;
+		if ( vertexVersions != null )
+			stampEdge( edge );
 		if ( emitEvents )
-			for ( final GraphListener< V, E > listener : listeners )
-				listener.edgeRemoved( edge );
+		{
+			fireEdgeRemoved( edge );
+			recordEdgeRemoved( edge );
+		}
 		edgePool.delete( edge );
+		notifyBatchCompleted();
+		if ( metrics != null )
+			metrics.removedEdge( System.nanoTime() - t0 );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Before anything is removed, sends {@link GraphListener#edgeRemoved} for
+	 * each removed edge (once, even if both its source and target are
+	 * removed), and then {@link GraphListener#vertexRemoved} for each removed
+	 * vertex.
+	 */
+	@Override
+	protected void removeAll( final BitSet vertexIndices, final BitSet edgeIndices )
+	{
+		final long t0 = metrics == null ? 0 : System.nanoTime();
+		if ( metrics != null )
+			metrics.removed( vertexIndices.cardinality(), edgeIndices.cardinality() );
+		++structureVersion;
+		if ( vertexVersions != null )
+		{
+			final E edge = edgeRef();
+			for ( int i = edgeIndices.nextSetBit( 0 ); i >= 0; i = edgeIndices.nextSetBit( i + 1 ) )
+				stampEdge( edgePool.getObject( i, edge ) );
+			releaseRef( edge );
+			for ( int i = vertexIndices.nextSetBit( 0 ); i >= 0; i = vertexIndices.nextSetBit( i + 1 ) )
+				stampVertex( i );
+		}
+		if ( emitEvents )
+		{
+			final E edge = edgeRef();
+			for ( int i = edgeIndices.nextSetBit( 0 ); i >= 0; i = edgeIndices.nextSetBit( i + 1 ) )
+			{
+				edgePool.getObject( i, edge );
+				fireEdgeRemoved( edge );
+				recordEdgeRemoved( edge );
+			}
+			releaseRef( edge );
+			final V vertex = vertexRef();
+			for ( int i = vertexIndices.nextSetBit( 0 ); i >= 0; i = vertexIndices.nextSetBit( i + 1 ) )
+			{
+				vertexPool.getObject( i, vertex );
+				fireVertexRemoved( vertex );
+				recordVertexRemoved( vertex );
+			}
+			releaseRef( vertex );
+		}
+		super.removeAll( vertexIndices, edgeIndices );
+		notifyBatchCompleted();
+		if ( metrics != null )
+			metrics.removedAll( System.nanoTime() - t0 );
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Sends {@link GraphListener#graphRebuilt()} and
+	 * {@link GraphChangeListener#graphChanged()} to registered listeners
+	 * afterwards (if sending events is not currently {@link #pauseListeners()
+	 * paused}).
+	 */
+	@Override
+	public GraphCompaction compact(
+			final int[] vertexOrder,
+			final Collection< ? extends PropertyMap< V, ? > > vertexProperties,
+			final Collection< ? extends PropertyMap< E, ? > > edgeProperties )
+	{
+		if ( !emitEvents )
+			return super.compact( vertexOrder, vertexProperties, edgeProperties );
+
+		pauseListeners();
+		try
+		{
+			return super.compact( vertexOrder, vertexProperties, edgeProperties );
+		}
+		finally
+		{
+			resumeListeners();
+			notifyGraphChanged();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Sends {@link GraphListener#graphRebuilt()} and
+	 * {@link GraphChangeListener#graphChanged()} to registered listeners
+	 * afterwards (if sending events is not currently {@link #pauseListeners()
+	 * paused}).
+	 */
+	@Override
+	public void restore( final int numVertices, final int numEdges )
+	{
+		if ( !emitEvents )
+		{
+			super.restore( numVertices, numEdges );
+			return;
+		}
+
+		pauseListeners();
+		try
+		{
+			super.restore( numVertices, numEdges );
+		}
+		finally
+		{
+			resumeListeners();
+			notifyGraphChanged();
+		}
 	}
 
 	@Override
@@ -125,6 +316,276 @@ public class ListenableGraphImp<
 		return listeners.remove( listener );
 	}
 
+	/**
+	 * Registers a {@link BatchGraphListener}. Changes made between
+	 * {@link #beginBatch()} and {@link #endBatch()} are sent to it as one
+	 * batch. Changes made outside of {@link #beginBatch()} and
+	 * {@link #endBatch()} are sent as one batch per graph operation, where
+	 * removing a vertex includes removing its edges.
+	 *
+	 * @param listener
+	 *            the listener to register.
+	 * @return {@code true} if the listener was successfully registered.
+	 *         {@code false} if it was already registered.
+	 */
+	public synchronized boolean addBatchGraphListener( final BatchGraphListener listener )
+	{
+		if ( ! batchListeners.contains( listener ) )
+		{
+			if ( batchListeners.isEmpty() )
+			{
+				vertexBatch = new BatchRecorder();
+				edgeBatch = new BatchRecorder();
+			}
+			batchListeners.add( listener );
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Removes the specified {@link BatchGraphListener}. Changes of an
+	 * unfinished batch are not sent to it.
+	 *
+	 * @param listener
+	 *            the listener to remove.
+	 * @return {@code true} if the listener was present in the listeners of
+	 *         this graph and was successfully removed.
+	 */
+	public synchronized boolean removeBatchGraphListener( final BatchGraphListener listener )
+	{
+		final boolean removed = batchListeners.remove( listener );
+		if ( batchListeners.isEmpty() )
+		{
+			vertexBatch = null;
+			edgeBatch = null;
+		}
+		return removed;
+	}
+
+	/**
+	 * Registers a {@link GraphListener} that receives coalesced changes, like
+	 * a {@link BatchGraphListener}. Additions are sent when the batch
+	 * completes, vertices before edges. Removals of vertices and edges that
+	 * existed before the batch are sent immediately, because the removed
+	 * objects are no longer accessible when the batch completes. Vertices
+	 * and edges that are added and removed in the same batch are not
+	 * reported at all.
+	 * <p>
+	 * Use this for existing {@link GraphListener}s that only need to see the
+	 * net effect of a batch.
+	 *
+	 * @param listener
+	 *            the listener to register.
+	 * @return {@code true} if the listener was successfully registered.
+	 *         {@code false} if it was already registered.
+	 */
+	public synchronized boolean addCoalescedGraphListener( final GraphListener< V, E > listener )
+	{
+		for ( final CoalescedGraphListenerAdapter< V, E > adapter : coalescedListeners )
+			if ( adapter.listener == listener )
+				return false;
+		final CoalescedGraphListenerAdapter< V, E > adapter = new CoalescedGraphListenerAdapter<>( vertexPool, edgePool, listener );
+		coalescedListeners.add( adapter );
+		addBatchGraphListener( adapter );
+		return true;
+	}
+
+	/**
+	 * Removes the specified {@link GraphListener} registered with
+	 * {@link #addCoalescedGraphListener(GraphListener)}. Additions of an
+	 * unfinished batch are not sent to it.
+	 *
+	 * @param listener
+	 *            the listener to remove.
+	 * @return {@code true} if the listener was present in the coalesced
+	 *         listeners of this graph and was successfully removed.
+	 */
+	public synchronized boolean removeCoalescedGraphListener( final GraphListener< V, E > listener )
+	{
+		for ( int i = 0; i < coalescedListeners.size(); ++i )
+		{
+			final CoalescedGraphListenerAdapter< V, E > adapter = coalescedListeners.get( i );
+			if ( adapter.listener == listener )
+			{
+				coalescedListeners.remove( i );
+				removeBatchGraphListener( adapter );
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Begins a batch of graph changes. Until the matching {@link #endBatch()},
+	 * changes are collected and not sent to {@link BatchGraphListener}s.
+	 * {@link GraphListener}s still receive every change immediately.
+	 * <p>
+	 * Batches can be nested. Changes are sent when the outermost batch ends.
+	 */
+	public void beginBatch()
+	{
+		++batchDepth;
+	}
+
+	/**
+	 * Ends a batch of graph changes started with {@link #beginBatch()}. If
+	 * this ends the outermost batch, the changes are sent to
+	 * {@link BatchGraphListener}s.
+	 *
+	 * @throws IllegalStateException
+	 *             if there is no batch to end.
+	 */
+	public void endBatch()
+	{
+		if ( batchDepth == 0 )
+			throw new IllegalStateException( "endBatch() without beginBatch()" );
+		--batchDepth;
+		notifyBatchCompleted();
+	}
+
+	/**
+	 * Enables collecting {@link GraphMetrics} for this graph and its edge
+	 * pool. Does nothing if metrics are already enabled.
+	 *
+	 * @return the metrics of this graph.
+	 */
+	public GraphMetrics enableMetrics()
+	{
+		if ( metrics == null )
+		{
+			metrics = new GraphMetrics( this );
+			edgePool.metrics = metrics;
+		}
+		return metrics;
+	}
+
+	/**
+	 * Stops collecting {@link GraphMetrics} for this graph. Previously
+	 * returned metrics keep their values.
+	 */
+	public void disableMetrics()
+	{
+		metrics = null;
+		edgePool.metrics = null;
+	}
+
+	/**
+	 * @return the metrics of this graph, or {@code null} if metrics are not
+	 *         {@link #enableMetrics() enabled}.
+	 */
+	public GraphMetrics getMetrics()
+	{
+		return metrics;
+	}
+
+	@Override
+	public long getStructureVersion()
+	{
+		return structureVersion;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Only changes of properties registered with
+	 * {@link #trackVertexProperty(Property)} and
+	 * {@link #trackEdgeProperty(Property)} are counted.
+	 */
+	@Override
+	public long getAttributeVersion()
+	{
+		return attributeVersion;
+	}
+
+	/**
+	 * Counts changes of the specified vertex property in the
+	 * {@link #getAttributeVersion() attribute version} and in the
+	 * {@link #getVertexVersion(AbstractListenableVertex) version stamp} of the changed
+	 * vertex.
+	 *
+	 * @param property
+	 *            the vertex property to track.
+	 */
+	public void trackVertexProperty( final Property< V > property )
+	{
+		property.propertyChangeListeners().add( vertex -> {
+			++attributeVersion;
+			if ( metrics != null )
+				metrics.propertyChanged();
+			if ( vertexVersions != null )
+				stampVertex( vertex.getInternalPoolIndex() );
+		} );
+	}
+
+	/**
+	 * Counts changes of the specified edge property in the
+	 * {@link #getAttributeVersion() attribute version}.
+	 *
+	 * @param property
+	 *            the edge property to track.
+	 */
+	public void trackEdgeProperty( final Property< E > property )
+	{
+		property.propertyChangeListeners().add( edge -> {
+			++attributeVersion;
+			if ( metrics != null )
+				metrics.propertyChanged();
+		} );
+	}
+
+	/**
+	 * Enables version stamps per vertex pool slot, see
+	 * {@link #getVertexVersion(AbstractListenableVertex)}. This costs 8 bytes per
+	 * vertex, and a little time for each graph change.
+	 */
+	public void enableVertexVersions()
+	{
+		if ( vertexVersions == null )
+		{
+			vertexVersionFloor = structureVersion + attributeVersion;
+			vertexVersions = new long[ 0 ];
+		}
+	}
+
+	/**
+	 * Returns the version stamp of the pool slot of the specified vertex. The
+	 * stamp moves whenever a vertex is added to or removed from the slot,
+	 * whenever an edge of the vertex is added or removed, whenever a
+	 * {@link #trackVertexProperty(Property) tracked} property of the vertex
+	 * changes, and when the graph is rebuilt. Like the graph versions, stamps
+	 * increase monotonically.
+	 *
+	 * @param vertex
+	 *            the vertex.
+	 * @return the version stamp of the slot of the vertex.
+	 * @throws IllegalStateException
+	 *             if vertex versions are not {@link #enableVertexVersions()
+	 *             enabled}.
+	 */
+	public long getVertexVersion( final V vertex )
+	{
+		if ( vertexVersions == null )
+			throw new IllegalStateException( "Vertex versions are not enabled." );
+		final int index = vertex.getInternalPoolIndex();
+		return index < vertexVersions.length
+				? Math.max( vertexVersions[ index ], vertexVersionFloor )
+				: vertexVersionFloor;
+	}
+
+	private void stampVertex( final int index )
+	{
+		if ( index >= vertexVersions.length )
+			vertexVersions = Arrays.copyOf( vertexVersions, Math.max( index + 1, 2 * vertexVersions.length ) );
+		vertexVersions[ index ] = structureVersion + attributeVersion;
+	}
+
+	private void stampEdge( final E edge )
+	{
+		stampVertex( edge.getSourceVertexInternalPoolIndex() );
+		stampVertex( edge.getTargetVertexInternalPoolIndex() );
+	}
+
 	@Override
 	public synchronized boolean addGraphChangeListener( final GraphChangeListener listener )
 	{
@@ -144,16 +605,187 @@ public class ListenableGraphImp<
 
 	protected void notifyVertexAdded( final V vertex )
 	{
+		if ( metrics != null )
+			metrics.vertexAdded( vertex.getInternalPoolIndex() );
+		++structureVersion;
+		if ( vertexVersions != null )
+			stampVertex( vertex.getInternalPoolIndex() );
 		if ( emitEvents )
-			for ( final GraphListener< V, E > listener : listeners )
-				listener.vertexAdded( vertex );
+		{
+			fireVertexAdded( vertex );
+			if ( vertexBatch != null )
+			{
+				vertexBatch.added( vertex.getInternalPoolIndex() );
+				notifyBatchCompleted();
+			}
+		}
 	}
 
 	protected void notifyEdgeAdded( final E edge )
 	{
+		if ( metrics != null )
+			metrics.edgeAdded( edge.getInternalPoolIndex() );
+		++structureVersion;
+		if ( vertexVersions != null )
+			stampEdge( edge );
 		if ( emitEvents )
+		{
+			fireEdgeAdded( edge );
+			if ( edgeBatch != null )
+			{
+				edgeBatch.added( edge.getInternalPoolIndex() );
+				notifyBatchCompleted();
+			}
+		}
+	}
+
+	/**
+	 * Records the removal of a vertex for {@link BatchGraphListener}s, and
+	 * sends it to coalesced {@link GraphListener}s, unless the vertex was
+	 * added in the current batch.
+	 */
+	private void recordVertexRemoved( final V vertex )
+	{
+		if ( vertexBatch == null )
+			return;
+		final int id = vertex.getInternalPoolIndex();
+		if ( !vertexBatch.isAdded( id ) )
+			for ( final CoalescedGraphListenerAdapter< V, E > adapter : coalescedListeners )
+				adapter.listener.vertexRemoved( vertex );
+		vertexBatch.removed( id );
+	}
+
+	/**
+	 * Records the removal of an edge for {@link BatchGraphListener}s, and
+	 * sends it to coalesced {@link GraphListener}s, unless the edge was added
+	 * in the current batch.
+	 */
+	private void recordEdgeRemoved( final E edge )
+	{
+		if ( edgeBatch == null )
+			return;
+		final int id = edge.getInternalPoolIndex();
+		if ( !edgeBatch.isAdded( id ) )
+			for ( final CoalescedGraphListenerAdapter< V, E > adapter : coalescedListeners )
+				adapter.listener.edgeRemoved( edge );
+		edgeBatch.removed( id );
+	}
+
+	/**
+	 * Sends the changes collected since the last batch to all
+	 * {@link BatchGraphListener}s, unless a batch is in progress or all
+	 * changes cancelled each other.
+	 */
+	private void notifyBatchCompleted()
+	{
+		if ( batchDepth > 0 || vertexBatch == null )
+			return;
+		if ( vertexBatch.isEmpty() && edgeBatch.isEmpty() )
+		{
+			vertexBatch.clear();
+			edgeBatch.clear();
+			return;
+		}
+
+		final TIntArrayList addedVertices = new TIntArrayList();
+		final TIntArrayList removedVertices = new TIntArrayList();
+		final TIntArrayList addedEdges = new TIntArrayList();
+		final TIntArrayList removedEdges = new TIntArrayList();
+		vertexBatch.drainTo( addedVertices, removedVertices );
+		edgeBatch.drainTo( addedEdges, removedEdges );
+		if ( addedVertices.isEmpty() && removedVertices.isEmpty() && addedEdges.isEmpty() && removedEdges.isEmpty() )
+			return;
+
+		final int[] av = addedVertices.toArray();
+		final int[] rv = removedVertices.toArray();
+		final int[] ae = addedEdges.toArray();
+		final int[] re = removedEdges.toArray();
+		if ( metrics == null )
+		{
+			for ( final BatchGraphListener listener : batchListeners )
+				listener.batchCompleted( av, rv, ae, re );
+		}
+		else
+		{
+			for ( final BatchGraphListener listener : batchListeners )
+			{
+				final long t0 = System.nanoTime();
+				listener.batchCompleted( av, rv, ae, re );
+				metrics.listenerCalled( listener, System.nanoTime() - t0 );
+			}
+		}
+	}
+
+	private void fireVertexAdded( final V vertex )
+	{
+		if ( metrics == null )
+		{
+			for ( final GraphListener< V, E > listener : listeners )
+				listener.vertexAdded( vertex );
+		}
+		else
+		{
+			for ( final GraphListener< V, E > listener : listeners )
+			{
+				final long t0 = System.nanoTime();
+				listener.vertexAdded( vertex );
+				metrics.listenerCalled( listener, System.nanoTime() - t0 );
+			}
+		}
+	}
+
+	private void fireVertexRemoved( final V vertex )
+	{
+		if ( metrics == null )
+		{
 			for ( final GraphListener< V, E > listener : listeners )
+				listener.vertexRemoved( vertex );
+		}
+		else
+		{
+			for ( final GraphListener< V, E > listener : listeners )
+			{
+				final long t0 = System.nanoTime();
+				listener.vertexRemoved( vertex );
+				metrics.listenerCalled( listener, System.nanoTime() - t0 );
+			}
+		}
+	}
+
+	private void fireEdgeAdded( final E edge )
+	{
+		if ( metrics == null )
+		{
+			for ( final GraphListener< V, E > listener : listeners )
+				listener.edgeAdded( edge );
+		}
+		else
+		{
+			for ( final GraphListener< V, E > listener : listeners )
+			{
+				final long t0 = System.nanoTime();
 				listener.edgeAdded( edge );
+				metrics.listenerCalled( listener, System.nanoTime() - t0 );
+			}
+		}
+	}
+
+	private void fireEdgeRemoved( final E edge )
+	{
+		if ( metrics == null )
+		{
+			for ( final GraphListener< V, E > listener : listeners )
+				listener.edgeRemoved( edge );
+		}
+		else
+		{
+			for ( final GraphListener< V, E > listener : listeners )
+			{
+				final long t0 = System.nanoTime();
+				listener.edgeRemoved( edge );
+				metrics.listenerCalled( listener, System.nanoTime() - t0 );
+			}
+		}
 	}
 
 	/**
@@ -182,11 +814,23 @@ public class ListenableGraphImp<
 	 */
 	protected void resumeListeners()
 	{
+		++structureVersion;
+		++attributeVersion;
+		vertexVersionFloor = structureVersion + attributeVersion;
+		if ( metrics != null )
+			metrics.countSlots();
 		emitEvents = true;
 		vertexPool.getProperties().resumeListeners();
 		edgePool.getProperties().resumeListeners();
 		for ( final GraphListener< V, E > listener : listeners )
 			listener.graphRebuilt();
+		if ( vertexBatch != null )
+		{
+			vertexBatch.clear();
+			edgeBatch.clear();
+		}
+		for ( final BatchGraphListener listener : batchListeners )
+			listener.graphRebuilt();
 	}
 
 	/**
@@ -52,6 +52,9 @@ public class OutgoingEdges< E extends AbstractEdge< E, ?, ?, ? > > implements Ed
 	@Override
 	public int size()
 	{
+		if ( vertex.hasDegrees() )
+			return vertex.getOutDegree();
+
 		int numEdges = 0;
 		int edgeIndex = vertex.getFirstOutEdgeIndex();
 		if ( edgeIndex >= 0 )
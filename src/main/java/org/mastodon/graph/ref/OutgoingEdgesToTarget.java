@@ -60,10 +60,12 @@ public class OutgoingEdgesToTarget< E extends AbstractEdge< E, ?, ?, ? > > imple
 	public int size()
 	{
 		int numEdges = 0;
-		int edgeIndex = vertex.getFirstOutEdgeIndex();
-		if ( edgeIndex >= 0 )
+		final E edge = edgePool.createRef();
+		int edgeIndex = edgePool.getEdgeIndex( vertex, targetInternalPoolIndex, edge );
+		if ( edgeIndex >= 0 && !edgePool.allowsParallelEdges() )
+			numEdges = 1;
+		else
 		{
-			final E edge = edgePool.createRef();
 			while ( edgeIndex >= 0 )
 			{
 				edgePool.getObject( edgeIndex, edge );
@@ -71,15 +73,20 @@ public class OutgoingEdgesToTarget< E extends AbstractEdge< E, ?, ?, ? > > imple
 					++numEdges;
 				edgeIndex = edge.getNextSourceEdgeIndex();
 			}
-			edgePool.releaseRef( edge );
 		}
+		edgePool.releaseRef( edge );
 		return numEdges;
 	}
 
 	@Override
 	public boolean isEmpty()
 	{
-		return vertex.getFirstOutEdgeIndex() < 0 || size() == 0;
+		if ( vertex.getFirstOutEdgeIndex() < 0 )
+			return true;
+		final E edge = edgePool.createRef();
+		final boolean empty = edgePool.getEdgeIndex( vertex, targetInternalPoolIndex, edge ) < 0;
+		edgePool.releaseRef( edge );
+		return empty;
 	}
 
 	@Override
@@ -92,7 +99,7 @@ public class OutgoingEdgesToTarget< E extends AbstractEdge< E, ?, ?, ? > > imple
 	@Override
 	public E get( int i, final E edge )
 	{
-		int edgeIndex = vertex.getFirstOutEdgeIndex();
+		int edgeIndex = edgePool.getEdgeIndex( vertex, targetInternalPoolIndex, edge );
 		while( i-- >= 0 )
 		{
 			edgePool.getObject( edgeIndex, edge );
@@ -136,18 +143,17 @@ public class OutgoingEdgesToTarget< E extends AbstractEdge< E, ?, ?, ? > > imple
 
 		public void reset()
 		{
-			edgeIndex = vertex.getFirstOutEdgeIndex();
-			while ( edgeIndex >= 0 )
-			{
-				edgePool.getObject( edgeIndex, edge );
-				if ( edge.getTargetVertexInternalPoolIndex() == targetInternalPoolIndex )
-					break;
-				edgeIndex = edge.getNextSourceEdgeIndex();
-			}
+			edgeIndex = edgePool.getEdgeIndex( vertex, targetInternalPoolIndex, edge );
 		}
 
 		private void prefetch()
 		{
+			if ( !edgePool.allowsParallelEdges() )
+			{
+				// there is no other edge to target
+				edgeIndex = -1;
+				return;
+			}
 			edgePool.getObject( edgeIndex, edge );
 			edgeIndex = edge.getNextSourceEdgeIndex();
 			while ( edgeIndex >= 0 )
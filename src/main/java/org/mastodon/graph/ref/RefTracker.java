@@ -0,0 +1,359 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks the vertex and edge refs handed out by {@link GraphImp#vertexRef()}
+ * and {@link GraphImp#edgeRef()} (including the refs created by methods such
+ * as {@link GraphImp#addVertex()}), to find leaked refs and allocation
+ * hotspots. Enabled with {@link GraphImp#enableRefTracking()}.
+ * <p>
+ * For each call site acquiring refs, the tracker counts acquired and
+ * released refs, and the current and peak number of outstanding refs. Refs
+ * that are still outstanding when the code using them is done have leaked:
+ * they are never returned to the pool. The tracker also counts how many
+ * acquired refs were reused after being released through the graph, versus
+ * newly created (or released to the pool by other means), and how often a
+ * ref was released twice (which makes the pool hand out the same ref to two
+ * users).
+ * <p>
+ * This is a debugging aid. Acquiring a ref captures a stack trace, which is
+ * slow, and outstanding refs are kept reachable until they are released.
+ */
+public class RefTracker
+{
+	/**
+	 * Statistics of the refs acquired at one call site.
+	 */
+	public static class CallSite
+	{
+		private final String location;
+
+		private final boolean vertex;
+
+		private long acquired;
+
+		private long released;
+
+		private int outstanding;
+
+		private int peakOutstanding;
+
+		CallSite( final String location, final boolean vertex )
+		{
+			this.location = location;
+			this.vertex = vertex;
+		}
+
+		/**
+		 * @return the stack frame that acquired the refs.
+		 */
+		public String getLocation()
+		{
+			return location;
+		}
+
+		/**
+		 * @return whether this call site acquired vertex refs (or edge refs).
+		 */
+		public boolean isVertex()
+		{
+			return vertex;
+		}
+
+		public long getAcquired()
+		{
+			return acquired;
+		}
+
+		public long getReleased()
+		{
+			return released;
+		}
+
+		public int getOutstanding()
+		{
+			return outstanding;
+		}
+
+		public int getPeakOutstanding()
+		{
+			return peakOutstanding;
+		}
+
+		@Override
+		public String toString()
+		{
+			return ( vertex ? "vertex" : "edge" ) + " refs at " + location
+					+ ": acquired = " + acquired
+					+ ", released = " + released
+					+ ", outstanding = " + outstanding
+					+ ", peak = " + peakOutstanding;
+		}
+	}
+
+	/**
+	 * Call sites by kind and location.
+	 */
+	private final Map< String, CallSite > sites = new LinkedHashMap<>();
+
+	/**
+	 * Outstanding refs, and the call sites that acquired them.
+	 */
+	private final Map< Object, CallSite > outstanding = new IdentityHashMap<>();
+
+	/**
+	 * Refs returned to the pool, that the pool may hand out again.
+	 */
+	private final Map< Object, Boolean > released = new IdentityHashMap<>();
+
+	private long createdVertexRefs;
+
+	private long reusedVertexRefs;
+
+	private long createdEdgeRefs;
+
+	private long reusedEdgeRefs;
+
+	private long doubleReleases;
+
+	private long untrackedReleases;
+
+	private int peakOutstanding;
+
+	RefTracker()
+	{}
+
+	synchronized void acquired( final Object ref, final boolean vertex )
+	{
+		final boolean reused = released.remove( ref ) != null;
+		if ( vertex )
+		{
+			if ( reused )
+				++reusedVertexRefs;
+			else
+				++createdVertexRefs;
+		}
+		else
+		{
+			if ( reused )
+				++reusedEdgeRefs;
+			else
+				++createdEdgeRefs;
+		}
+
+		final String location = callSite();
+		final String key = ( vertex ? "V " : "E " ) + location;
+		CallSite site = sites.get( key );
+		if ( site == null )
+		{
+			site = new CallSite( location, vertex );
+			sites.put( key, site );
+		}
+		++site.acquired;
+		site.peakOutstanding = Math.max( site.peakOutstanding, ++site.outstanding );
+		outstanding.put( ref, site );
+		peakOutstanding = Math.max( peakOutstanding, outstanding.size() );
+	}
+
+	synchronized void released( final Object ref )
+	{
+		if ( released.put( ref, Boolean.TRUE ) != null )
+		{
+			++doubleReleases;
+			return;
+		}
+		final CallSite site = outstanding.remove( ref );
+		if ( site == null )
+		{
+			++untrackedReleases;
+			return;
+		}
+		++site.released;
+		--site.outstanding;
+	}
+
+	/**
+	 * Returns the first stack frame that is not in this class, not in
+	 * {@link GraphImp}, and not in a method delegating to
+	 * {@link GraphImp#vertexRef()} or {@link GraphImp#edgeRef()}.
+	 */
+	private static String callSite()
+	{
+		for ( final StackTraceElement frame : new Throwable().getStackTrace() )
+		{
+			final String cls = frame.getClassName();
+			final String method = frame.getMethodName();
+			if ( cls.equals( RefTracker.class.getName() )
+					|| cls.equals( GraphImp.class.getName() )
+					|| method.equals( "vertexRef" )
+					|| method.equals( "edgeRef" ) )
+				continue;
+			return frame.toString();
+		}
+		return "unknown";
+	}
+
+	public synchronized long getCreatedVertexRefs()
+	{
+		return createdVertexRefs;
+	}
+
+	public synchronized long getReusedVertexRefs()
+	{
+		return reusedVertexRefs;
+	}
+
+	public synchronized long getCreatedEdgeRefs()
+	{
+		return createdEdgeRefs;
+	}
+
+	public synchronized long getReusedEdgeRefs()
+	{
+		return reusedEdgeRefs;
+	}
+
+	/**
+	 * @return how often a ref was released while it was already released.
+	 */
+	public synchronized long getDoubleReleases()
+	{
+		return doubleReleases;
+	}
+
+	/**
+	 * @return how often a ref was released that was not acquired from the
+	 *         graph while tracking was enabled, for example a ref created
+	 *         before tracking was enabled.
+	 */
+	public synchronized long getUntrackedReleases()
+	{
+		return untrackedReleases;
+	}
+
+	/**
+	 * @return the number of refs acquired and not yet released.
+	 */
+	public synchronized int getOutstanding()
+	{
+		return outstanding.size();
+	}
+
+	/**
+	 * @return the largest number of refs that were outstanding at the same
+	 *         time.
+	 */
+	public synchronized int getPeakOutstanding()
+	{
+		return peakOutstanding;
+	}
+
+	/**
+	 * @return copies of the statistics of all call sites, sorted by the
+	 *         number of acquired refs, largest first.
+	 */
+	public synchronized List< CallSite > getCallSites()
+	{
+		final List< CallSite > list = new ArrayList<>();
+		for ( final CallSite site : sites.values() )
+			list.add( copy( site ) );
+		Collections.sort( list, ( a, b ) -> Long.compare( b.acquired, a.acquired ) );
+		return list;
+	}
+
+	/**
+	 * @return copies of the statistics of all call sites with outstanding
+	 *         refs, sorted by the number of outstanding refs, largest first.
+	 */
+	public synchronized List< CallSite > getLeaks()
+	{
+		final List< CallSite > list = new ArrayList<>();
+		for ( final CallSite site : sites.values() )
+			if ( site.outstanding > 0 )
+				list.add( copy( site ) );
+		Collections.sort( list, ( a, b ) -> Integer.compare( b.outstanding, a.outstanding ) );
+		return list;
+	}
+
+	/**
+	 * Forgets all statistics. Refs that are currently outstanding are no
+	 * longer tracked.
+	 */
+	public synchronized void reset()
+	{
+		sites.clear();
+		outstanding.clear();
+		released.clear();
+		createdVertexRefs = 0;
+		reusedVertexRefs = 0;
+		createdEdgeRefs = 0;
+		reusedEdgeRefs = 0;
+		doubleReleases = 0;
+		untrackedReleases = 0;
+		peakOutstanding = 0;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		final StringBuilder sb = new StringBuilder( "RefTracker {\n" );
+		sb.append( "  vertex refs: created = " + createdVertexRefs + ", reused = " + reusedVertexRefs + "\n" );
+		sb.append( "  edge refs: created = " + createdEdgeRefs + ", reused = " + reusedEdgeRefs + "\n" );
+		sb.append( "  outstanding = " + outstanding.size() + ", peak = " + peakOutstanding + "\n" );
+		sb.append( "  double releases = " + doubleReleases + ", untracked releases = " + untrackedReleases + "\n" );
+		final List< CallSite > leaks = getLeaks();
+		if ( !leaks.isEmpty() )
+		{
+			sb.append( "  leaks = {\n" );
+			for ( final CallSite site : leaks )
+				sb.append( "    " + site + "\n" );
+			sb.append( "  }\n" );
+		}
+		sb.append( "}" );
+		return sb.toString();
+	}
+
+	private static CallSite copy( final CallSite site )
+	{
+		final CallSite copy = new CallSite( site.location, site.vertex );
+		copy.acquired = site.acquired;
+		copy.released = site.released;
+		copy.outstanding = site.outstanding;
+		copy.peakOutstanding = site.peakOutstanding;
+		return copy;
+	}
+}
@@ -0,0 +1,252 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link AsyncBatchGraphListener} delivers events in order on its
+ * own thread, and that {@link AsyncBatchGraphListener#flush()} waits for
+ * pending events.
+ */
+public class AsyncBatchGraphListenerTest
+{
+	/**
+	 * Records the number of added vertices of each batch, and the thread
+	 * delivering it.
+	 */
+	private static class Recorder implements BatchGraphListener
+	{
+		final List< Integer > batches = Collections.synchronizedList( new ArrayList<>() );
+
+		volatile Thread thread;
+
+		@Override
+		public void graphRebuilt()
+		{
+			batches.add( -1 );
+		}
+
+		@Override
+		public void batchCompleted( final int[] addedVertices, final int[] removedVertices, final int[] addedEdges, final int[] removedEdges )
+		{
+			thread = Thread.currentThread();
+			batches.add( addedVertices.length );
+		}
+	}
+
+	@Test
+	public void testOrderedDelivery() throws InterruptedException
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final Recorder recorder = new Recorder();
+		final AsyncBatchGraphListener async = new AsyncBatchGraphListener( recorder, 4, "test" );
+		graph.addBatchGraphListener( async );
+
+		final List< Integer > expected = new ArrayList<>();
+		for ( int i = 1; i <= 100; ++i )
+		{
+			graph.beginBatch();
+			for ( int j = 0; j < i; ++j )
+				graph.addVertex().init( 0, 0 );
+			graph.endBatch();
+			expected.add( i );
+		}
+		async.flush();
+		assertEquals( expected, recorder.batches );
+		assertNotEquals( Thread.currentThread(), recorder.thread );
+		async.close();
+	}
+
+	@Test
+	public void testFlushWaitsForListener() throws InterruptedException
+	{
+		final CountDownLatch started = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final Recorder recorder = new Recorder()
+		{
+			@Override
+			public void graphRebuilt()
+			{
+				started.countDown();
+				try
+				{
+					release.await();
+				}
+				catch ( final InterruptedException e )
+				{
+					throw new RuntimeException( e );
+				}
+				super.graphRebuilt();
+			}
+		};
+		final AsyncBatchGraphListener async = new AsyncBatchGraphListener( recorder );
+		async.graphRebuilt();
+		async.batchCompleted( new int[ 3 ], new int[ 0 ], new int[ 0 ], new int[ 0 ] );
+
+		// graphRebuilt() blocks the consumer, and batchCompleted() returned
+		// immediately
+		started.await();
+		assertEquals( 0, recorder.batches.size() );
+
+		release.countDown();
+		async.flush();
+		assertEquals( 2, recorder.batches.size() );
+		assertEquals( -1, recorder.batches.get( 0 ).intValue() );
+		assertEquals( 3, recorder.batches.get( 1 ).intValue() );
+		async.close();
+	}
+
+	@Test
+	public void testFailure() throws InterruptedException
+	{
+		final RuntimeException exception = new RuntimeException();
+		final Recorder recorder = new Recorder()
+		{
+			@Override
+			public void graphRebuilt()
+			{
+				throw exception;
+			}
+		};
+		final AsyncBatchGraphListener async = new AsyncBatchGraphListener( recorder );
+		async.graphRebuilt();
+		async.batchCompleted( new int[ 1 ], new int[ 0 ], new int[ 0 ], new int[ 0 ] );
+		try
+		{
+			async.flush();
+			fail();
+		}
+		catch ( final IllegalStateException e )
+		{
+			assertSame( exception, e.getCause() );
+		}
+
+		// events after the failing one are still delivered
+		assertEquals( 1, recorder.batches.size() );
+		async.flush();
+		async.close();
+	}
+
+	@Test
+	public void testConsumerInterrupted() throws InterruptedException
+	{
+		final AsyncBatchGraphListener async = new AsyncBatchGraphListener( new Recorder(), 4, "testConsumerInterrupted" );
+		final Thread consumer = findThread( "testConsumerInterrupted" );
+		consumer.interrupt();
+		consumer.join();
+		try
+		{
+			async.graphRebuilt();
+			fail();
+		}
+		catch ( final IllegalStateException e )
+		{
+			// the consumer thread has stopped
+		}
+		async.close();
+	}
+
+	@Test
+	public void testConsumerStopped() throws InterruptedException
+	{
+		final CountDownLatch started = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final Recorder recorder = new Recorder()
+		{
+			@Override
+			public void graphRebuilt()
+			{
+				started.countDown();
+				try
+				{
+					release.await();
+				}
+				catch ( final InterruptedException e )
+				{
+					throw new RuntimeException( e );
+				}
+				throw new AssertionError( "expected by testConsumerStopped" );
+			}
+		};
+		final AsyncBatchGraphListener async = new AsyncBatchGraphListener( recorder, 1, "testConsumerStopped" );
+		findThread( "testConsumerStopped" ).setUncaughtExceptionHandler( ( t, e ) -> {} );
+		async.graphRebuilt();
+		started.await();
+		async.batchCompleted( new int[ 1 ], new int[ 0 ], new int[ 0 ], new int[ 0 ] );
+		release.countDown();
+		try
+		{
+			// the ring buffer is full until the consumer thread stops
+			async.batchCompleted( new int[ 1 ], new int[ 0 ], new int[ 0 ], new int[ 0 ] );
+			fail();
+		}
+		catch ( final IllegalStateException e )
+		{
+			// the consumer thread has stopped
+		}
+		try
+		{
+			async.flush();
+			fail();
+		}
+		catch ( final IllegalStateException e )
+		{
+			// the pending event was not delivered
+		}
+		assertEquals( 0, recorder.batches.size() );
+		async.close();
+	}
+
+	private static Thread findThread( final String name )
+	{
+		for ( final Thread thread : Thread.getAllStackTraces().keySet() )
+			if ( thread.getName().equals( name ) )
+				return thread;
+		throw new AssertionError( "No thread " + name );
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testClosed() throws InterruptedException
+	{
+		final AsyncBatchGraphListener async = new AsyncBatchGraphListener( new Recorder() );
+		async.close();
+		async.graphRebuilt();
+	}
+}
@@ -43,6 +43,19 @@ public class ListenableTestGraph extends ListenableGraphImp< ListenableTestVerte
 		this( 10 );
 	}
 
+	/**
+	 * Creates a graph with the specified initial capacity.
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity of the vertex and edge pools.
+	 * @param degrees
+	 *            whether vertices store their in-degree and out-degree.
+	 */
+	public ListenableTestGraph( final int initialCapacity, final boolean degrees )
+	{
+		super( new ListenableTestEdgePool( initialCapacity, new ListenableTestVertexPool( initialCapacity, new ListenableTestVertexPool.ListenableTestVertexLayout( false, degrees ) ) ) );
+	}
+
 	public ListenableTestVertexPool getVertexPool()
 	{
 		return vertexPool;
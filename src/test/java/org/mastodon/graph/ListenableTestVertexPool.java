@@ -42,6 +42,14 @@ public class ListenableTestVertexPool extends AbstractListenableVertexPool< List
 
 	static class ListenableTestVertexLayout extends AbstractVertexLayout
 	{
+		ListenableTestVertexLayout()
+		{}
+
+		ListenableTestVertexLayout( final boolean lastEdgeIndices, final boolean degrees )
+		{
+			super( lastEdgeIndices, degrees );
+		}
+
 		final IntField id = intField();
 		final IntField timepoint = intField();
 	}
@@ -53,6 +61,11 @@ public class ListenableTestVertexPool extends AbstractListenableVertexPool< List
 	final IntAttribute< ListenableTestVertex > timepoint;
 
 	public ListenableTestVertexPool( final int initialCapacity )
+	{
+		this( initialCapacity, layout );
+	}
+
+	ListenableTestVertexPool( final int initialCapacity, final ListenableTestVertexLayout layout )
 	{
 		super( initialCapacity, layout, ListenableTestVertex.class, SingleArrayMemPool.factory( ByteMappedElementArray.factory ) );
 		id = new IntAttribute<>( layout.id, this );
@@ -36,10 +36,15 @@ import org.mastodon.pool.SingleArrayMemPool;
 public class TestEdgePool extends AbstractEdgePool< TestEdge, TestVertex, ByteMappedElement >
 {
 	public TestEdgePool( final int initialCapacity, final TestVertexPool vertexPool )
+	{
+		this( initialCapacity, vertexPool, AbstractEdgePool.layout );
+	}
+
+	TestEdgePool( final int initialCapacity, final TestVertexPool vertexPool, final AbstractEdgeLayout layout )
 	{
 		super(
 				initialCapacity,
-				AbstractEdgePool.layout,
+				layout,
 				TestEdge.class,
 				SingleArrayMemPool.factory( ByteMappedElementArray.factory ),
 				vertexPool );
@@ -28,6 +28,7 @@
  */
 package org.mastodon.graph;
 
+import org.mastodon.graph.ref.AbstractEdgePool;
 import org.mastodon.graph.ref.GraphImp;
 import org.mastodon.pool.ByteMappedElement;
 
@@ -43,6 +44,59 @@ public class TestGraph extends GraphImp< TestVertexPool, TestEdgePool, TestVerte
 		this( 10 );
 	}
 
+	/**
+	 * Creates a graph with the specified initial capacity.
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity of the vertex and edge pools.
+	 * @param lastEdgeIndices
+	 *            whether vertices store the indices of their last incoming and
+	 *            outgoing edges.
+	 */
+	public TestGraph( final int initialCapacity, final boolean lastEdgeIndices )
+	{
+		this( initialCapacity, lastEdgeIndices, false );
+	}
+
+	/**
+	 * Creates a graph with the specified initial capacity.
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity of the vertex and edge pools.
+	 * @param lastEdgeIndices
+	 *            whether vertices store the indices of their last incoming and
+	 *            outgoing edges.
+	 * @param prevEdgeIndices
+	 *            whether edges store the indices of their predecessors in the
+	 *            adjacency lists.
+	 */
+	public TestGraph( final int initialCapacity, final boolean lastEdgeIndices, final boolean prevEdgeIndices )
+	{
+		this( initialCapacity, lastEdgeIndices, prevEdgeIndices, false );
+	}
+
+	/**
+	 * Creates a graph with the specified initial capacity.
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity of the vertex and edge pools.
+	 * @param lastEdgeIndices
+	 *            whether vertices store the indices of their last incoming and
+	 *            outgoing edges.
+	 * @param prevEdgeIndices
+	 *            whether edges store the indices of their predecessors in the
+	 *            adjacency lists.
+	 * @param degrees
+	 *            whether vertices store their in-degree and out-degree.
+	 */
+	public TestGraph( final int initialCapacity, final boolean lastEdgeIndices, final boolean prevEdgeIndices, final boolean degrees )
+	{
+		super( new TestEdgePool(
+				initialCapacity,
+				new TestVertexPool( initialCapacity, new TestVertexPool.TestVertexLayout( lastEdgeIndices, degrees ) ),
+				new AbstractEdgePool.AbstractEdgeLayout( prevEdgeIndices ) ) );
+	}
+
 	public TestVertexPool getVertexPool()
 	{
 		return vertexPool;
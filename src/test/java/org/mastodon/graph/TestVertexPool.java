@@ -38,6 +38,19 @@ public class TestVertexPool extends AbstractVertexPool< TestVertex, TestEdge, By
 {
 	static class TestVertexLayout extends AbstractVertexLayout
 	{
+		TestVertexLayout()
+		{}
+
+		TestVertexLayout( final boolean lastEdgeIndices )
+		{
+			super( lastEdgeIndices );
+		}
+
+		TestVertexLayout( final boolean lastEdgeIndices, final boolean degrees )
+		{
+			super( lastEdgeIndices, degrees );
+		}
+
 		final IntField id = intField();
 	}
 
@@ -46,6 +59,11 @@ public class TestVertexPool extends AbstractVertexPool< TestVertex, TestEdge, By
 	final IntAttribute< TestVertex > id;
 
 	public TestVertexPool( final int initialCapacity )
+	{
+		this( initialCapacity, layout );
+	}
+
+	TestVertexPool( final int initialCapacity, final TestVertexLayout layout )
 	{
 		super( initialCapacity, layout, TestVertex.class, SingleArrayMemPool.factory( ByteMappedElementArray.factory ) );
 		id = new IntAttribute<>( layout.id, this );
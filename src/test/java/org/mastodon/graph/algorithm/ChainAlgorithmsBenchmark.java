@@ -0,0 +1,115 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.TestSimpleEdge;
+import org.mastodon.graph.TestSimpleGraph;
+import org.mastodon.graph.TestSimpleVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link ConnectedComponents}, {@link TopologicalSort} and
+ * {@link StronglyConnectedComponents} on a single chain of vertices, the shape
+ * of a long single-cell track. With the former recursive implementations, this
+ * needed a call stack as deep as the chain is long.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS )
+@Measurement( iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS )
+@State( Scope.Benchmark )
+public class ChainAlgorithmsBenchmark
+{
+	@Param( { "1000000" } )
+	private int numVertices;
+
+	private TestSimpleGraph graph;
+
+	@Setup
+	public void buildChain()
+	{
+		graph = new TestSimpleGraph( numVertices );
+		final TestSimpleVertex previous = graph.vertexRef();
+		final TestSimpleVertex current = graph.vertexRef();
+		final TestSimpleEdge e = graph.edgeRef();
+		graph.addVertex( previous ).init( 0 );
+		for ( int i = 1; i < numVertices; ++i )
+		{
+			graph.addVertex( current ).init( i );
+			graph.addEdge( previous, current, e );
+			previous.refTo( current );
+		}
+		graph.releaseRef( previous );
+		graph.releaseRef( current );
+		graph.releaseRef( e );
+	}
+
+	@Benchmark
+	public int benchmarkConnectedComponents()
+	{
+		return new ConnectedComponents<>( graph ).get().size();
+	}
+
+	@Benchmark
+	public int benchmarkTopologicalSort()
+	{
+		return new TopologicalSort<>( graph ).get().size();
+	}
+
+	@Benchmark
+	public int benchmarkStronglyConnectedComponents()
+	{
+		return new StronglyConnectedComponents<>( graph ).get().size();
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder()
+				.include( ChainAlgorithmsBenchmark.class.getName() )
+				.build();
+		new Runner( options ).run();
+	}
+}
@@ -0,0 +1,161 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.mastodon.collection.RefCollections;
+import org.mastodon.collection.RefList;
+import org.mastodon.collection.RefSet;
+import org.mastodon.graph.ListenableTestEdge;
+import org.mastodon.graph.ListenableTestGraph;
+import org.mastodon.graph.ListenableTestVertex;
+
+public class DynamicConnectedComponentsTest
+{
+	@Test
+	public void testAddAndRemove()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestVertex c = graph.addVertex().init( 2, 0 );
+
+		final DynamicConnectedComponents< ListenableTestVertex, ListenableTestEdge > cc = new DynamicConnectedComponents<>( graph, graph.getVertexPool() );
+		assertEquals( 3, cc.getNumComponents() );
+		assertFalse( cc.sameComponent( a, b ) );
+
+		final ListenableTestEdge ab = graph.addEdge( a, b ).init();
+		graph.addEdge( c, b ).init();
+		assertEquals( 1, cc.getNumComponents() );
+		assertTrue( cc.sameComponent( a, c ) );
+		assertEquals( 3, cc.componentSize( a ) );
+
+		graph.remove( ab );
+		assertEquals( 2, cc.getNumComponents() );
+		assertFalse( cc.sameComponent( a, c ) );
+		assertEquals( 1, cc.componentSize( a ) );
+		assertEquals( 2, cc.componentSize( c ) );
+
+		graph.remove( b );
+		assertEquals( 2, cc.getNumComponents() );
+		assertEquals( 1, cc.componentSize( c ) );
+
+		final ListenableTestVertex d = graph.addVertex().init( 3, 0 );
+		graph.addEdge( d, a ).init();
+		assertEquals( 2, cc.getNumComponents() );
+		assertTrue( cc.sameComponent( a, d ) );
+		assertEquals( 2, cc.componentSize( d ) );
+	}
+
+	@Test
+	public void testGraphRebuilt()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestEdge ab = graph.addEdge( a, b ).init();
+		graph.addVertex().init( 2, 0 );
+		final DynamicConnectedComponents< ListenableTestVertex, ListenableTestEdge > cc = new DynamicConnectedComponents<>( graph, graph.getVertexPool() );
+		assertEquals( 2, cc.getNumComponents() );
+
+		graph.remove( ab );
+		cc.graphRebuilt();
+		assertEquals( 3, cc.getNumComponents() );
+		assertFalse( cc.sameComponent( a, b ) );
+	}
+
+	@Test
+	public void testRandomEdits()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final DynamicConnectedComponents< ListenableTestVertex, ListenableTestEdge > cc = new DynamicConnectedComponents<>( graph, graph.getVertexPool() );
+		final RefList< ListenableTestVertex > vertices = RefCollections.createRefList( graph.vertices() );
+		final RefList< ListenableTestEdge > edges = RefCollections.createRefList( graph.edges() );
+		final ListenableTestVertex v1 = graph.vertexRef();
+		final ListenableTestVertex v2 = graph.vertexRef();
+		final ListenableTestEdge e = graph.edgeRef();
+
+		final Random random = new Random( 1l );
+		for ( int i = 0; i < 2000; ++i )
+		{
+			final int op = random.nextInt( 10 );
+			if ( op < 3 || vertices.size() < 2 )
+				vertices.add( graph.addVertex( v1 ).init( i, 0 ) );
+			else if ( op < 7 )
+			{
+				vertices.get( random.nextInt( vertices.size() ), v1 );
+				vertices.get( random.nextInt( vertices.size() ), v2 );
+				graph.addEdge( v1, v2, e ).init();
+			}
+			else if ( op < 9 )
+			{
+				edges.clear();
+				edges.addAll( graph.edges() );
+				if ( !edges.isEmpty() )
+					graph.remove( edges.get( random.nextInt( edges.size() ), e ) );
+			}
+			else
+			{
+				vertices.remove( random.nextInt( vertices.size() ), v1 );
+				graph.remove( v1 );
+			}
+
+			if ( i % 50 == 0 )
+				assertConsistent( graph, cc );
+		}
+		assertConsistent( graph, cc );
+	}
+
+	private static void assertConsistent(
+			final ListenableTestGraph graph,
+			final DynamicConnectedComponents< ListenableTestVertex, ListenableTestEdge > cc )
+	{
+		final Set< RefSet< ListenableTestVertex > > expected = new ConnectedComponents<>( graph ).get();
+		assertEquals( expected.size(), cc.getNumComponents() );
+		for ( final RefSet< ListenableTestVertex > component : expected )
+		{
+			int id = -1;
+			for ( final ListenableTestVertex v : component )
+			{
+				if ( id < 0 )
+					id = cc.componentOf( v );
+				else
+					assertEquals( id, cc.componentOf( v ) );
+				assertEquals( component.size(), cc.componentSize( v ) );
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+import org.mastodon.collection.RefList;
+import org.mastodon.collection.RefSet;
+import org.mastodon.graph.TestSimpleEdge;
+import org.mastodon.graph.TestSimpleGraph;
+import org.mastodon.graph.TestSimpleVertex;
+import org.mastodon.graph.object.ObjectEdge;
+import org.mastodon.graph.object.ObjectGraph;
+import org.mastodon.graph.object.ObjectVertex;
+
+/**
+ * Runs {@link ConnectedComponents}, {@link TopologicalSort} and
+ * {@link StronglyConnectedComponents} on chains long enough to overflow the
+ * call stack of a recursive implementation.
+ */
+public class LongChainTest
+{
+	private static final int N = 200_000;
+
+	private static TestSimpleGraph chain( final boolean closed )
+	{
+		final TestSimpleGraph graph = new TestSimpleGraph( N );
+		final TestSimpleVertex first = graph.addVertex().init( 0 );
+		final TestSimpleVertex previous = graph.vertexRef().refTo( first );
+		final TestSimpleVertex current = graph.vertexRef();
+		for ( int i = 1; i < N; ++i )
+		{
+			graph.addVertex( current ).init( i );
+			graph.addEdge( previous, current );
+			previous.refTo( current );
+		}
+		if ( closed )
+			graph.addEdge( previous, first );
+		return graph;
+	}
+
+	@Test
+	public void testConnectedComponents()
+	{
+		final TestSimpleGraph graph = chain( false );
+		final Set< RefSet< TestSimpleVertex > > components = new ConnectedComponents<>( graph ).get();
+		assertEquals( 1, components.size() );
+		assertEquals( N, components.iterator().next().size() );
+	}
+
+	@Test
+	public void testTopologicalSort()
+	{
+		final TestSimpleGraph graph = chain( false );
+		final TopologicalSort< TestSimpleVertex, TestSimpleEdge > sort = new TopologicalSort<>( graph );
+		assertFalse( sort.hasFailed() );
+		final RefList< TestSimpleVertex > list = sort.get();
+		assertEquals( N, list.size() );
+		final TestSimpleVertex ref = graph.vertexRef();
+		for ( int i = 0; i < N; ++i )
+			assertEquals( N - 1 - i, list.get( i, ref ).getId() );
+	}
+
+	@Test
+	public void testTopologicalSortCycle()
+	{
+		assertTrue( new TopologicalSort<>( chain( true ) ).hasFailed() );
+	}
+
+	@Test
+	public void testStronglyConnectedComponents()
+	{
+		final Set< RefSet< TestSimpleVertex > > open = StronglyConnectedComponents.stronglyConnectedComponents( chain( false ) );
+		assertEquals( N, open.size() );
+
+		final Set< RefSet< TestSimpleVertex > > closed = StronglyConnectedComponents.stronglyConnectedComponents( chain( true ) );
+		assertEquals( 1, closed.size() );
+		assertEquals( N, closed.iterator().next().size() );
+	}
+
+	@Test
+	public void testObjectGraph()
+	{
+		final ObjectGraph< Integer > graph = new ObjectGraph<>();
+		ObjectVertex< Integer > previous = graph.addVertex().init( 0 );
+		for ( int i = 1; i < N; ++i )
+		{
+			final ObjectVertex< Integer > current = graph.addVertex().init( i );
+			graph.addEdge( previous, current );
+			previous = current;
+		}
+
+		assertEquals( 1, new ConnectedComponents<>( graph ).get().size() );
+		final TopologicalSort< ObjectVertex< Integer >, ObjectEdge< Integer > > sort = new TopologicalSort<>( graph );
+		assertFalse( sort.hasFailed() );
+		assertEquals( Integer.valueOf( N - 1 ), sort.get().get( 0 ).getContent() );
+		assertEquals( N, StronglyConnectedComponents.stronglyConnectedComponents( graph ).size() );
+	}
+}
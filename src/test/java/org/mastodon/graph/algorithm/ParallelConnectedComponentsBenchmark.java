@@ -0,0 +1,128 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.TestSimpleEdge;
+import org.mastodon.graph.TestSimpleGraph;
+import org.mastodon.graph.TestSimpleVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares labeling the connected components of a random graph with
+ * {@link ParallelConnectedComponents} on different numbers of threads, and
+ * with the sequential {@link ConnectedComponents}.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS )
+@Measurement( iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS )
+@State( Scope.Benchmark )
+public class ParallelConnectedComponentsBenchmark
+{
+	@Param( { "1000000" } )
+	private int numVertices;
+
+	@Param( { "4" } )
+	private int outDegree;
+
+	@Param( { "1", "2", "4", "8" } )
+	private int parallelism;
+
+	private TestSimpleGraph graph;
+
+	private ForkJoinPool forkJoinPool;
+
+	@Setup
+	public void buildRandomGraph()
+	{
+		graph = new TestSimpleGraph( numVertices );
+		for ( int i = 0; i < numVertices; ++i )
+			graph.addVertex().init( i );
+		final Random random = new Random( 1l );
+		final TestSimpleVertex s = graph.vertexRef();
+		final TestSimpleVertex t = graph.vertexRef();
+		final TestSimpleEdge e = graph.edgeRef();
+		for ( int i = 0; i < numVertices; ++i )
+		{
+			graph.getVertexPool().getObject( i, s );
+			for ( int j = 0; j < outDegree; ++j )
+				graph.addEdge( s, graph.getVertexPool().getObject( random.nextInt( numVertices ), t ), e );
+		}
+		graph.releaseRef( s );
+		graph.releaseRef( t );
+		graph.releaseRef( e );
+		forkJoinPool = new ForkJoinPool( parallelism );
+	}
+
+	@TearDown
+	public void shutdown()
+	{
+		forkJoinPool.shutdown();
+	}
+
+	@Benchmark
+	public int benchmarkParallel()
+	{
+		return new ParallelConnectedComponents<>( graph, forkJoinPool ).compute();
+	}
+
+	@Benchmark
+	public int benchmarkSequential()
+	{
+		return new ConnectedComponents<>( graph ).get().size();
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder()
+				.include( ParallelConnectedComponentsBenchmark.class.getName() )
+				.build();
+		new Runner( options ).run();
+	}
+}
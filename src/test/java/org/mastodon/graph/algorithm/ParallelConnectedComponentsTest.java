@@ -0,0 +1,170 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.mastodon.collection.RefCollections;
+import org.mastodon.collection.RefList;
+import org.mastodon.collection.RefSet;
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.TestSimpleEdge;
+import org.mastodon.graph.TestSimpleGraph;
+import org.mastodon.graph.TestSimpleVertex;
+import org.mastodon.graph.Vertex;
+import org.mastodon.graph.object.ObjectEdge;
+import org.mastodon.graph.object.ObjectGraph;
+import org.mastodon.graph.object.ObjectVertex;
+
+import gnu.trove.set.hash.TIntHashSet;
+
+public class ParallelConnectedComponentsTest
+{
+	private static final ForkJoinPool pool = new ForkJoinPool( 4 );
+
+	@AfterClass
+	public static void shutdown()
+	{
+		pool.shutdown();
+	}
+
+	@Test
+	public void testSmall()
+	{
+		final TestSimpleGraph graph = new TestSimpleGraph();
+		final TestSimpleVertex a = graph.addVertex().init( 0 );
+		final TestSimpleVertex b = graph.addVertex().init( 1 );
+		final TestSimpleVertex c = graph.addVertex().init( 2 );
+		final TestSimpleVertex d = graph.addVertex().init( 3 );
+		graph.addVertex().init( 4 );
+		graph.addEdge( b, a );
+		graph.addEdge( c, d );
+		graph.addEdge( d, d );
+
+		final ParallelConnectedComponents< TestSimpleVertex, TestSimpleEdge > cc = new ParallelConnectedComponents<>( graph, pool );
+		assertEquals( 3, cc.compute() );
+		assertEquals( 3, cc.getNumComponents() );
+		assertArrayEquals( new int[] { 0, 0, 1, 1, 2 }, cc.getComponentIds() );
+		assertArrayEquals( new int[] { 2, 2, 1 }, cc.getComponentSizes() );
+		assertEquals( 1, cc.getComponentId( d ) );
+	}
+
+	@Test
+	public void testRandomPoolGraph()
+	{
+		final int n = 50_000;
+		final TestSimpleGraph graph = new TestSimpleGraph( n );
+		final RefList< TestSimpleVertex > vertices = RefCollections.createRefList( graph.vertices(), n );
+		for ( int i = 0; i < n; ++i )
+			vertices.add( graph.addVertex().init( i ) );
+		final Random random = new Random( 1l );
+		final TestSimpleVertex s = graph.vertexRef();
+		final TestSimpleVertex t = graph.vertexRef();
+		for ( int i = 0; i < n * 9 / 10; ++i )
+			graph.addEdge( vertices.get( random.nextInt( n ), s ), vertices.get( random.nextInt( n ), t ) );
+		// Leave holes in the pool index range.
+		for ( int i = 0; i < n / 100; ++i )
+			graph.remove( vertices.get( i * 100, s ) );
+
+		final ParallelConnectedComponents< TestSimpleVertex, TestSimpleEdge > cc = new ParallelConnectedComponents<>( graph, pool );
+		cc.compute();
+		assertEquals( -1, cc.getComponentIds()[ 0 ] );
+		assertSameComponents( graph, cc );
+	}
+
+	@Test
+	public void testRandomObjectGraph()
+	{
+		final int n = 10_000;
+		final ObjectGraph< Integer > graph = new ObjectGraph<>();
+		@SuppressWarnings( "unchecked" )
+		final ObjectVertex< Integer >[] vertices = new ObjectVertex[ n ];
+		for ( int i = 0; i < n; ++i )
+			vertices[ i ] = graph.addVertex().init( i );
+		final Random random = new Random( 1l );
+		for ( int i = 0; i < n * 9 / 10; ++i )
+			graph.addEdge( vertices[ random.nextInt( n ) ], vertices[ random.nextInt( n ) ] );
+
+		final ParallelConnectedComponents< ObjectVertex< Integer >, ObjectEdge< Integer > > cc = new ParallelConnectedComponents<>( graph, pool );
+		cc.compute();
+		assertSameComponents( graph, cc );
+	}
+
+	@Test
+	public void testGet()
+	{
+		final TestSimpleGraph graph = new TestSimpleGraph();
+		final TestSimpleVertex a = graph.addVertex().init( 0 );
+		final TestSimpleVertex b = graph.addVertex().init( 1 );
+		graph.addVertex().init( 2 );
+		graph.addEdge( a, b );
+
+		final Set< RefSet< TestSimpleVertex > > components = new ParallelConnectedComponents<>( graph, pool ).get();
+		assertEquals( 2, components.size() );
+		int total = 0;
+		for ( final RefSet< TestSimpleVertex > component : components )
+			total += component.size();
+		assertEquals( 3, total );
+	}
+
+	/**
+	 * Checks the labeling against the components found by
+	 * {@link ConnectedComponents}.
+	 */
+	private static < V extends Vertex< E >, E extends Edge< V > > void assertSameComponents(
+			final ReadOnlyGraph< V, E > graph,
+			final ParallelConnectedComponents< V, E > cc )
+	{
+		final Set< RefSet< V > > expected = new ConnectedComponents<>( graph ).get();
+		assertEquals( expected.size(), cc.getNumComponents() );
+		final TIntHashSet labels = new TIntHashSet();
+		for ( final RefSet< V > component : expected )
+		{
+			int label = -1;
+			for ( final V v : component )
+			{
+				if ( label < 0 )
+					label = cc.getComponentId( v );
+				else
+					assertEquals( label, cc.getComponentId( v ) );
+			}
+			assertTrue( labels.add( label ) );
+			assertEquals( component.size(), cc.getComponentSizes()[ label ] );
+		}
+	}
+}
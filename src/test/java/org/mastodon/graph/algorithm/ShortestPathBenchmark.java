@@ -0,0 +1,147 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.collection.RefList;
+import org.mastodon.graph.TestSimpleEdge;
+import org.mastodon.graph.TestSimpleGraph;
+import org.mastodon.graph.TestSimpleVertex;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares repeated point-to-point queries on a random graph with
+ * {@link ShortestPath} searching from one end, and searching from both ends.
+ * Run with the GC profiler to compare allocation rates.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@Measurement( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@State( Scope.Benchmark )
+public class ShortestPathBenchmark
+{
+	@Param( { "100000" } )
+	private int numVertices;
+
+	@Param( { "2" } )
+	private int outDegree;
+
+	private TestSimpleGraph graph;
+
+	private TestSimpleVertex[] from;
+
+	private TestSimpleVertex[] to;
+
+	private ShortestPath< TestSimpleVertex, TestSimpleEdge > bfs;
+
+	private ShortestPath< TestSimpleVertex, TestSimpleEdge > bidirectional;
+
+	@Setup
+	public void buildRandomGraph()
+	{
+		graph = new TestSimpleGraph( numVertices );
+		for ( int i = 0; i < numVertices; ++i )
+			graph.addVertex().init( i );
+		final Random random = new Random( 1l );
+		final TestSimpleVertex s = graph.vertexRef();
+		final TestSimpleVertex t = graph.vertexRef();
+		final TestSimpleEdge e = graph.edgeRef();
+		for ( int i = 0; i < numVertices; ++i )
+		{
+			graph.getVertexPool().getObject( i, s );
+			for ( int j = 0; j < outDegree; ++j )
+				graph.addEdge( s, graph.getVertexPool().getObject( random.nextInt( numVertices ), t ), e );
+		}
+		graph.releaseRef( s );
+		graph.releaseRef( t );
+		graph.releaseRef( e );
+
+		from = new TestSimpleVertex[ 16 ];
+		to = new TestSimpleVertex[ 16 ];
+		for ( int i = 0; i < from.length; ++i )
+		{
+			from[ i ] = graph.getVertexPool().getObject( random.nextInt( numVertices ), graph.vertexRef() );
+			to[ i ] = graph.getVertexPool().getObject( random.nextInt( numVertices ), graph.vertexRef() );
+		}
+		bfs = new ShortestPath<>( graph, SearchDirection.UNDIRECTED );
+		bidirectional = new ShortestPath<>( graph, SearchDirection.UNDIRECTED, true );
+	}
+
+	@Benchmark
+	public int benchmarkBreadthFirst()
+	{
+		return run( bfs );
+	}
+
+	@Benchmark
+	public int benchmarkBidirectional()
+	{
+		return run( bidirectional );
+	}
+
+	private int run( final ShortestPath< TestSimpleVertex, TestSimpleEdge > sp )
+	{
+		int sum = 0;
+		for ( int i = 0; i < from.length; ++i )
+		{
+			final RefList< TestSimpleVertex > path = sp.findPath( from[ i ], to[ i ] );
+			sum += path == null ? 0 : path.size();
+		}
+		return sum;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder()
+				.include( ShortestPathBenchmark.class.getName() )
+				.addProfiler( GCProfiler.class )
+				.build();
+		new Runner( options ).run();
+	}
+}
@@ -31,15 +31,23 @@ package org.mastodon.graph.algorithm;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mastodon.collection.RefList;
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.ReadOnlyGraph;
 import org.mastodon.graph.TestSimpleEdge;
+import org.mastodon.graph.TestSimpleGraph;
 import org.mastodon.graph.TestSimpleVertex;
+import org.mastodon.graph.Vertex;
 import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
 import org.mastodon.graph.algorithm.traversal.GraphsForTests;
 import org.mastodon.graph.algorithm.traversal.GraphsForTests.GraphTestBundle;
@@ -130,4 +138,103 @@ public class ShortestPathTest
 		// TODO
 	}
 
+	@Test
+	public void testBidirectionalMatchesBreadthFirst()
+	{
+		for ( final SearchDirection direction : SearchDirection.values() )
+		{
+			assertBidirectionalMatches( bundle, direction );
+			assertBidirectionalMatches( GraphsForTests.wpExampleStdObjects(), direction );
+			assertBidirectionalMatches( GraphsForTests.straightLinePoolObjects(), direction );
+		}
+	}
+
+	@Test
+	public void testBidirectionalRandomGraph()
+	{
+		final int n = 2000;
+		final TestSimpleGraph graph = new TestSimpleGraph( n );
+		final List< TestSimpleVertex > vertices = new ArrayList<>( n );
+		for ( int i = 0; i < n; ++i )
+			vertices.add( graph.addVertex().init( i ) );
+		final Random random = new Random( 1l );
+		for ( int i = 0; i < 2 * n; ++i )
+			graph.addEdge( vertices.get( random.nextInt( n ) ), vertices.get( random.nextInt( n ) ) );
+
+		for ( final SearchDirection direction : SearchDirection.values() )
+		{
+			// Reuse the same searcher for all queries.
+			final ShortestPath< TestSimpleVertex, TestSimpleEdge > bfs = new ShortestPath<>( graph, direction );
+			final ShortestPath< TestSimpleVertex, TestSimpleEdge > bidirectional = new ShortestPath<>( graph, direction, true );
+			for ( int i = 0; i < 100; ++i )
+			{
+				final TestSimpleVertex from = vertices.get( random.nextInt( n ) );
+				final TestSimpleVertex to = vertices.get( random.nextInt( n ) );
+				assertSamePathLength( graph, direction, from, to, bfs.findPath( from, to ), bidirectional.findPath( from, to ) );
+			}
+		}
+	}
+
+	private static < V extends Vertex< E >, E extends Edge< V > > void assertBidirectionalMatches( final GraphTestBundle< V, E > bundle, final SearchDirection direction )
+	{
+		final ShortestPath< V, E > bfs = new ShortestPath<>( bundle.graph, direction );
+		final ShortestPath< V, E > bidirectional = new ShortestPath<>( bundle.graph, direction, true );
+		for ( final V from : bundle.vertices )
+			for ( final V to : bundle.vertices )
+				assertSamePathLength( bundle.graph, direction, from, to, bfs.findPath( from, to ), bidirectional.findPath( from, to ) );
+	}
+
+	/**
+	 * Checks that {@code actual} is a path as long as {@code expected}, from
+	 * {@code to} back to {@code from}, following edges in the specified
+	 * direction.
+	 */
+	private static < V extends Vertex< E >, E extends Edge< V > > void assertSamePathLength(
+			final ReadOnlyGraph< V, E > graph,
+			final SearchDirection direction,
+			final V from,
+			final V to,
+			final RefList< V > expected,
+			final RefList< V > actual )
+	{
+		if ( expected == null )
+		{
+			assertNull( actual );
+			return;
+		}
+		assertNotNull( actual );
+		assertEquals( expected.size(), actual.size() );
+		assertEquals( to, actual.get( 0 ) );
+		assertEquals( from, actual.get( actual.size() - 1 ) );
+		final V ref = graph.vertexRef();
+		for ( int i = actual.size() - 1; i > 0; --i )
+		{
+			final V a = actual.get( i );
+			final V b = actual.get( i - 1 );
+			final boolean forward = isEdge( a, b, ref );
+			final boolean backward = isEdge( b, a, ref );
+			switch ( direction )
+			{
+			case DIRECTED:
+				assertTrue( forward );
+				break;
+			case REVERSED:
+				assertTrue( backward );
+				break;
+			case UNDIRECTED:
+			default:
+				assertTrue( forward || backward );
+				break;
+			}
+		}
+		graph.releaseRef( ref );
+	}
+
+	private static < V extends Vertex< E >, E extends Edge< V > > boolean isEdge( final V source, final V target, final V ref )
+	{
+		for ( final E e : source.outgoingEdges() )
+			if ( e.getTarget( ref ).equals( target ) )
+				return true;
+		return false;
+	}
 }
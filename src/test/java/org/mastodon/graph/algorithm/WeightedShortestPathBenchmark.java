@@ -0,0 +1,127 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.TestSimpleSpatialEdge;
+import org.mastodon.graph.TestSimpleSpatialGraph;
+import org.mastodon.graph.TestSimpleSpatialVertex;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares point-to-point queries with {@link WeightedShortestPath}
+ * (Dijkstra) and {@link AStarShortestPath} on a chain of vertices with short
+ * random shortcuts, where edge costs are the distance between endpoints.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@Measurement( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@State( Scope.Benchmark )
+public class WeightedShortestPathBenchmark
+{
+	@Param( { "100000" } )
+	private int numVertices;
+
+	private TestSimpleSpatialGraph graph;
+
+	private TestSimpleSpatialVertex from;
+
+	private TestSimpleSpatialVertex to;
+
+	private WeightedShortestPath< TestSimpleSpatialVertex, TestSimpleSpatialEdge > dijkstra;
+
+	private AStarShortestPath< TestSimpleSpatialVertex, TestSimpleSpatialEdge > astar;
+
+	@Setup
+	public void buildGraph()
+	{
+		graph = new TestSimpleSpatialGraph( numVertices );
+		final TestSimpleSpatialVertex s = graph.vertexRef();
+		final TestSimpleSpatialVertex t = graph.vertexRef();
+		final TestSimpleSpatialEdge e = graph.edgeRef();
+		for ( int i = 0; i < numVertices; ++i )
+			graph.addVertex( s ).init( i, 0, i );
+		final Random random = new Random( 1l );
+		for ( int i = 1; i < numVertices; ++i )
+		{
+			graph.addEdge( graph.getVertexPool().getObject( i - 1, s ), graph.getVertexPool().getObject( i, t ), e ).init();
+			final int j = Math.max( 0, i - 1 - random.nextInt( 10 ) );
+			graph.addEdge( graph.getVertexPool().getObject( j, s ), graph.getVertexPool().getObject( i, t ), e ).init();
+		}
+		graph.releaseRef( e );
+		from = graph.getVertexPool().getObject( numVertices / 2, s );
+		to = graph.getVertexPool().getObject( numVertices / 2 + 1000, t );
+
+		final TestSimpleSpatialVertex ref1 = graph.vertexRef();
+		final TestSimpleSpatialVertex ref2 = graph.vertexRef();
+		dijkstra = new WeightedShortestPath<>( graph, SearchDirection.UNDIRECTED,
+				edge -> Math.abs( edge.getSource( ref1 ).getDoublePosition( 0 ) - edge.getTarget( ref2 ).getDoublePosition( 0 ) ) );
+		astar = new AStarShortestPath<>( graph, SearchDirection.UNDIRECTED,
+				edge -> Math.abs( edge.getSource( ref1 ).getDoublePosition( 0 ) - edge.getTarget( ref2 ).getDoublePosition( 0 ) ), 1 );
+	}
+
+	@Benchmark
+	public int benchmarkDijkstra()
+	{
+		return dijkstra.findPath( from, to ).size();
+	}
+
+	@Benchmark
+	public int benchmarkAStar()
+	{
+		return astar.findPath( from, to ).size();
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder()
+				.include( WeightedShortestPathBenchmark.class.getName() )
+				.build();
+		new Runner( options ).run();
+	}
+}
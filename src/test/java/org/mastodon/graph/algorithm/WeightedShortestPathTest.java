@@ -0,0 +1,210 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.algorithm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.ToDoubleFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mastodon.collection.RefList;
+import org.mastodon.graph.TestSimpleEdge;
+import org.mastodon.graph.TestSimpleGraph;
+import org.mastodon.graph.TestSimpleSpatialEdge;
+import org.mastodon.graph.TestSimpleSpatialGraph;
+import org.mastodon.graph.TestSimpleSpatialVertex;
+import org.mastodon.graph.TestSimpleVertex;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
+import org.mastodon.graph.object.ObjectEdge;
+import org.mastodon.graph.object.ObjectGraph;
+import org.mastodon.graph.object.ObjectVertex;
+
+public class WeightedShortestPathTest
+{
+	private TestSimpleGraph graph;
+
+	private TestSimpleVertex[] v;
+
+	private double[] costs;
+
+	private ToDoubleFunction< TestSimpleEdge > cost;
+
+	/**
+	 * <pre>
+	 *   0 --1--> 1 --1--> 2 --1--> 3
+	 *   |                          ^
+	 *   +------------10------------+
+	 *   4 (isolated)
+	 * </pre>
+	 */
+	@Before
+	public void setUp()
+	{
+		graph = new TestSimpleGraph();
+		v = new TestSimpleVertex[ 5 ];
+		for ( int i = 0; i < v.length; ++i )
+			v[ i ] = graph.addVertex().init( i );
+		costs = new double[ 16 ];
+		addEdge( 0, 1, 1 );
+		addEdge( 1, 2, 1 );
+		addEdge( 2, 3, 1 );
+		addEdge( 0, 3, 10 );
+		cost = e -> costs[ e.getInternalPoolIndex() ];
+	}
+
+	private void addEdge( final int source, final int target, final double c )
+	{
+		final TestSimpleEdge e = graph.addEdge( v[ source ], v[ target ] );
+		costs[ e.getInternalPoolIndex() ] = c;
+	}
+
+	private static int[] ids( final RefList< TestSimpleVertex > path )
+	{
+		final int[] ids = new int[ path.size() ];
+		for ( int i = 0; i < ids.length; ++i )
+			ids[ i ] = path.get( i ).getId();
+		return ids;
+	}
+
+	@Test
+	public void testDirected()
+	{
+		final WeightedShortestPath< TestSimpleVertex, TestSimpleEdge > sp = new WeightedShortestPath<>( graph, SearchDirection.DIRECTED, cost );
+		assertArrayEquals( new int[] { 3, 2, 1, 0 }, ids( sp.findPath( v[ 0 ], v[ 3 ] ) ) );
+		assertEquals( 3, sp.getDistance( v[ 3 ] ), 0 );
+		assertNull( sp.findPath( v[ 3 ], v[ 0 ] ) );
+		assertNull( sp.findPath( v[ 0 ], v[ 4 ] ) );
+		assertArrayEquals( new int[] { 0 }, ids( sp.findPath( v[ 0 ], v[ 0 ] ) ) );
+	}
+
+	@Test
+	public void testReversedAndUndirected()
+	{
+		costs[ 3 ] = 2;
+		final WeightedShortestPath< TestSimpleVertex, TestSimpleEdge > reversed = new WeightedShortestPath<>( graph, SearchDirection.REVERSED, cost );
+		assertArrayEquals( new int[] { 0, 3 }, ids( reversed.findPath( v[ 3 ], v[ 0 ] ) ) );
+		assertNull( reversed.findPath( v[ 0 ], v[ 3 ] ) );
+
+		final WeightedShortestPath< TestSimpleVertex, TestSimpleEdge > undirected = new WeightedShortestPath<>( graph, SearchDirection.UNDIRECTED, cost );
+		assertArrayEquals( new int[] { 0, 3 }, ids( undirected.findPath( v[ 3 ], v[ 0 ] ) ) );
+		assertEquals( 2, undirected.getDistance( v[ 0 ] ), 0 );
+		costs[ 3 ] = 4;
+		assertArrayEquals( new int[] { 0, 1, 2, 3 }, ids( undirected.findPath( v[ 3 ], v[ 0 ] ) ) );
+		assertEquals( 3, undirected.getDistance( v[ 0 ] ), 0 );
+	}
+
+	@Test
+	public void testTree()
+	{
+		final WeightedShortestPath< TestSimpleVertex, TestSimpleEdge > sp = new WeightedShortestPath<>( graph, SearchDirection.DIRECTED, cost );
+		sp.computeTree( v[ 0 ] );
+		assertEquals( 0, sp.getDistance( v[ 0 ] ), 0 );
+		assertEquals( 1, sp.getDistance( v[ 1 ] ), 0 );
+		assertEquals( 2, sp.getDistance( v[ 2 ] ), 0 );
+		assertEquals( 3, sp.getDistance( v[ 3 ] ), 0 );
+		assertEquals( Double.POSITIVE_INFINITY, sp.getDistance( v[ 4 ] ), 0 );
+		assertNull( sp.getParent( v[ 0 ], graph.vertexRef() ) );
+		assertEquals( 2, sp.getParent( v[ 3 ], graph.vertexRef() ).getId() );
+		assertArrayEquals( new int[] { 2, 1, 0 }, ids( sp.getPath( v[ 2 ] ) ) );
+
+		// A new search invalidates the previous tree.
+		sp.computeTree( v[ 2 ] );
+		assertEquals( Double.POSITIVE_INFINITY, sp.getDistance( v[ 0 ] ), 0 );
+		assertEquals( 1, sp.getDistance( v[ 3 ] ), 0 );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testNegativeCost()
+	{
+		costs[ 0 ] = -1;
+		new WeightedShortestPath<>( graph, SearchDirection.DIRECTED, cost ).findPath( v[ 0 ], v[ 3 ] );
+	}
+
+	@Test
+	public void testObjectGraph()
+	{
+		final ObjectGraph< String > graph = new ObjectGraph<>();
+		final ObjectVertex< String > a = graph.addVertex().init( "a" );
+		final ObjectVertex< String > b = graph.addVertex().init( "b" );
+		final ObjectVertex< String > c = graph.addVertex().init( "c" );
+		final Map< ObjectEdge< String >, Double > costs = new HashMap<>();
+		costs.put( graph.addEdge( a, b ), 5. );
+		costs.put( graph.addEdge( a, c ), 1. );
+		costs.put( graph.addEdge( c, b ), 1. );
+
+		final WeightedShortestPath< ObjectVertex< String >, ObjectEdge< String > > sp = new WeightedShortestPath<>( graph, SearchDirection.DIRECTED, costs::get );
+		final RefList< ObjectVertex< String > > path = sp.findPath( a, b );
+		assertEquals( 3, path.size() );
+		assertEquals( c, path.get( 1 ) );
+		assertEquals( 2, sp.getDistance( b ), 0 );
+	}
+
+	@Test
+	public void testAStarMatchesDijkstra()
+	{
+		final int n = 500;
+		final TestSimpleSpatialGraph graph = new TestSimpleSpatialGraph( n );
+		final Random random = new Random( 1l );
+		final TestSimpleSpatialVertex[] vs = new TestSimpleSpatialVertex[ n ];
+		for ( int i = 0; i < n; ++i )
+			vs[ i ] = graph.addVertex().init( i, 0, random.nextDouble() * 100 );
+		final Map< Integer, Double > costs = new HashMap<>();
+		for ( int i = 0; i < 3 * n; ++i )
+		{
+			final TestSimpleSpatialVertex s = vs[ random.nextInt( n ) ];
+			final TestSimpleSpatialVertex t = vs[ random.nextInt( n ) ];
+			final TestSimpleSpatialEdge e = graph.addEdge( s, t ).init();
+			// At least the distance between the endpoints, so that the
+			// heuristic is consistent.
+			final double c = Math.abs( s.getDoublePosition( 0 ) - t.getDoublePosition( 0 ) ) + random.nextDouble() * 10;
+			costs.put( e.getInternalPoolIndex(), c );
+		}
+		final ToDoubleFunction< TestSimpleSpatialEdge > cost = e -> costs.get( e.getInternalPoolIndex() );
+
+		final WeightedShortestPath< TestSimpleSpatialVertex, TestSimpleSpatialEdge > dijkstra = new WeightedShortestPath<>( graph, SearchDirection.UNDIRECTED, cost );
+		final AStarShortestPath< TestSimpleSpatialVertex, TestSimpleSpatialEdge > astar = new AStarShortestPath<>( graph, SearchDirection.UNDIRECTED, cost, 1 );
+		for ( int i = 0; i < 50; ++i )
+		{
+			final TestSimpleSpatialVertex from = vs[ random.nextInt( n ) ];
+			final TestSimpleSpatialVertex to = vs[ random.nextInt( n ) ];
+			final RefList< TestSimpleSpatialVertex > expected = dijkstra.findPath( from, to );
+			final RefList< TestSimpleSpatialVertex > actual = astar.findPath( from, to );
+			if ( expected == null )
+				assertNull( actual );
+			else
+				assertEquals( dijkstra.getDistance( to ), astar.getDistance( to ), 1e-9 );
+		}
+	}
+}
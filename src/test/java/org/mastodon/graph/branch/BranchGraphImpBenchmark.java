@@ -37,7 +37,9 @@ import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.runner.Runner;
@@ -49,7 +51,10 @@ import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Measures the runtime of {@link BranchGraphImp#vertexBranchIterator}.
+ * Measures the runtime of {@link BranchGraphImp#vertexBranchIterator} and of
+ * rebuilding the branch graph, with and without
+ * {@link org.mastodon.graph.ref.AbstractVertexPool.AbstractVertexLayout#hasDegrees()
+ * degrees} stored in the vertices of the linked graph.
  */
 @BenchmarkMode( Mode.AverageTime )
 @OutputTimeUnit( TimeUnit.MILLISECONDS )
@@ -59,10 +64,20 @@ import java.util.concurrent.TimeUnit;
 @State( Scope.Benchmark )
 public class BranchGraphImpBenchmark
 {
-	private final ListenableTestGraph graph = createArtificialGraphForDepthAndBranchLength( 18, 10 );
+	@Param( { "false", "true" } )
+	private boolean degrees;
+
+	private ListenableTestGraph graph;
 
 	private BranchTestGraph branchGraphV2;
 
+	@Setup
+	public void setup()
+	{
+		graph = createArtificialGraphForDepthAndBranchLength( 18, 10, degrees );
+		branchGraphV2 = null;
+	}
+
 	@Benchmark
 	public long benchmarkBranchGraphV2()
 	{
@@ -76,6 +91,15 @@ public class BranchGraphImpBenchmark
 		return new BranchTestGraph( graph );
 	}
 
+	@Benchmark
+	public long benchmarkEdgesSize()
+	{
+		long sum = 0;
+		for ( ListenableTestVertex vertex : graph.vertices() )
+			sum += vertex.incomingEdges().size() + vertex.outgoingEdges().size() + vertex.edges().size();
+		return sum;
+	}
+
 	private void lazyCreateBranchGraphV2()
 	{
 		if ( branchGraphV2 == null )
@@ -98,10 +122,10 @@ public class BranchGraphImpBenchmark
 		return sum;
 	}
 
-	private static ListenableTestGraph createArtificialGraphForDepthAndBranchLength( int depth, int length )
+	private static ListenableTestGraph createArtificialGraphForDepthAndBranchLength( int depth, int length, boolean degrees )
 	{
 		int[] counter = { 0 };
-		ListenableTestGraph graph = new ListenableTestGraph();
+		ListenableTestGraph graph = new ListenableTestGraph( 10, degrees );
 		ListenableTestVertex root = graph.vertexRef();
 		createArtificialGraph( graph, 0, depth, length, counter, root );
 		graph.releaseRef( root );
@@ -0,0 +1,226 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.csr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mastodon.collection.RefSet;
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.Vertex;
+import org.mastodon.graph.algorithm.ConnectedComponents;
+import org.mastodon.graph.algorithm.TopologicalSort;
+import org.mastodon.graph.algorithm.traversal.BreadthFirstIterator;
+import org.mastodon.graph.io.RandomTestGraphs;
+
+public class CsrGraphSnapshotTest
+{
+	private TestGraph graph;
+
+	private GraphIdBimap< TestVertex, TestEdge > idmap;
+
+	private CsrGraphSnapshot snapshot;
+
+	@Before
+	public void setUp()
+	{
+		graph = RandomTestGraphs.build( new TestGraph(), 50, 100, 0 );
+		final TestVertex s = graph.vertexRef();
+		// leave some holes in the id space
+		graph.remove( graph.getVertexPool().getObject( 7, s ) );
+		graph.remove( graph.getVertexPool().getObject( 23, s ) );
+		graph.releaseRef( s );
+
+		idmap = new GraphIdBimap<>( graph.getVertexPool(), graph.getEdgePool() );
+		snapshot = new CsrGraphSnapshot( graph, idmap );
+	}
+
+	@Test
+	public void testSize()
+	{
+		assertEquals( graph.vertices().size(), snapshot.vertices().size() );
+		assertEquals( graph.edges().size(), snapshot.edges().size() );
+		assertEquals( graph.edges().size(), snapshot.getOutOffsets()[ snapshot.vertices().size() ] );
+		assertEquals( graph.edges().size(), snapshot.getInOffsets()[ snapshot.vertices().size() ] );
+	}
+
+	@Test
+	public void testAdjacency()
+	{
+		final CsrVertex ref = snapshot.vertexRef();
+		final CsrVertex ref2 = snapshot.vertexRef();
+		final TestVertex tref = graph.vertexRef();
+		for ( final TestVertex v : graph.vertices() )
+		{
+			final CsrVertex sv = snapshot.getVertex( idmap.getVertexId( v ), ref );
+			assertEquals( idmap.getVertexId( v ), sv.getId() );
+
+			assertEquals( v.outgoingEdges().size(), sv.outgoingEdges().size() );
+			int i = 0;
+			for ( final CsrEdge se : sv.outgoingEdges() )
+			{
+				final TestEdge e = v.outgoingEdges().get( i );
+				assertEquals( idmap.getEdgeId( e ), se.getId() );
+				assertEquals( idmap.getVertexId( e.getTarget( tref ) ), se.getTarget( ref2 ).getId() );
+				assertEquals( i, se.getSourceOutIndex() );
+				assertEquals( e.getTargetInIndex(), se.getTargetInIndex() );
+				++i;
+			}
+
+			assertEquals( v.incomingEdges().size(), sv.incomingEdges().size() );
+			i = 0;
+			for ( final CsrEdge se : sv.incomingEdges() )
+			{
+				final TestEdge e = v.incomingEdges().get( i );
+				assertEquals( idmap.getEdgeId( e ), se.getId() );
+				assertEquals( idmap.getVertexId( e.getSource( tref ) ), se.getSource( ref2 ).getId() );
+				assertEquals( i, se.getTargetInIndex() );
+				++i;
+			}
+
+			assertEquals( v.edges().size(), sv.edges().size() );
+		}
+	}
+
+	@Test
+	public void testLookup()
+	{
+		final CsrVertex s = snapshot.vertexRef();
+		final CsrVertex t = snapshot.vertexRef();
+		final CsrEdge eref = snapshot.edgeRef();
+		final TestVertex tref = graph.vertexRef();
+		for ( final TestEdge e : graph.edges() )
+		{
+			final int id = idmap.getEdgeId( e );
+			final CsrEdge se = snapshot.getEdge( id, eref );
+			assertEquals( id, se.getId() );
+			snapshot.getVertex( idmap.getVertexId( e.getSource( tref ) ), s );
+			snapshot.getVertex( idmap.getVertexId( e.getTarget( tref ) ), t );
+			assertEquals( graph.getEdges( e.getSource( tref ), e.getTarget() ).size(), snapshot.getEdges( s, t ).size() );
+			final CsrEdge found = snapshot.getEdge( s, t, eref );
+			assertEquals( idmap.getEdgeId( graph.getEdge( e.getSource( tref ), e.getTarget() ) ), found.getId() );
+		}
+		assertNull( snapshot.getVertex( 7, s ) );
+		assertNull( snapshot.getVertex( 23, s ) );
+		assertNull( snapshot.getVertex( -1, s ) );
+		assertNull( snapshot.getVertex( 1000, s ) );
+		assertNull( snapshot.getEdge( 1000, eref ) );
+	}
+
+	@Test
+	public void testBreadthFirstIterator()
+	{
+		final TestVertex root = graph.vertices().iterator().next();
+		final List< Integer > expected = new ArrayList<>();
+		final BreadthFirstIterator< TestVertex, TestEdge > it = new BreadthFirstIterator<>( root, graph );
+		while ( it.hasNext() )
+			expected.add( idmap.getVertexId( it.next() ) );
+
+		final CsrVertex sroot = snapshot.getVertex( idmap.getVertexId( root ), snapshot.vertexRef() );
+		final List< Integer > actual = new ArrayList<>();
+		final BreadthFirstIterator< CsrVertex, CsrEdge > sit = new BreadthFirstIterator<>( sroot, snapshot );
+		while ( sit.hasNext() )
+			actual.add( sit.next().getId() );
+
+		assertEquals( expected, actual );
+	}
+
+	@Test
+	public void testConnectedComponents()
+	{
+		assertEquals( componentIds( graph, v -> idmap.getVertexId( v ) ), componentIds( snapshot, CsrVertex::getId ) );
+	}
+
+	@Test
+	public void testTopologicalSort()
+	{
+		final TestGraph dag = new TestGraph();
+		final TestVertex a = dag.addVertex().init( 0 );
+		final TestVertex b = dag.addVertex().init( 1 );
+		final TestVertex c = dag.addVertex().init( 2 );
+		final TestVertex d = dag.addVertex().init( 3 );
+		dag.addEdge( a, b );
+		dag.addEdge( a, c );
+		dag.addEdge( b, d );
+		dag.addEdge( c, d );
+		final GraphIdBimap< TestVertex, TestEdge > dagIdmap = new GraphIdBimap<>( dag.getVertexPool(), dag.getEdgePool() );
+
+		final TopologicalSort< CsrVertex, CsrEdge > sort = new TopologicalSort<>( new CsrGraphSnapshot( dag, dagIdmap ) );
+		assertFalse( sort.hasFailed() );
+		final List< Integer > order = new ArrayList<>();
+		for ( final CsrVertex v : sort.get() )
+			order.add( v.getId() );
+		assertEquals( 4, order.size() );
+		assertTrue( order.indexOf( 3 ) < order.indexOf( 1 ) );
+		assertTrue( order.indexOf( 3 ) < order.indexOf( 2 ) );
+		assertTrue( order.indexOf( 1 ) < order.indexOf( 0 ) );
+		assertTrue( order.indexOf( 2 ) < order.indexOf( 0 ) );
+
+		dag.addEdge( d, a );
+		assertTrue( new TopologicalSort<>( new CsrGraphSnapshot( dag, dagIdmap ) ).hasFailed() );
+	}
+
+	@Test
+	public void testEmptyGraph()
+	{
+		final TestGraph empty = new TestGraph();
+		final CsrGraphSnapshot s = new CsrGraphSnapshot( empty, new GraphIdBimap<>( empty.getVertexPool(), empty.getEdgePool() ) );
+		assertTrue( s.vertices().isEmpty() );
+		assertTrue( s.edges().isEmpty() );
+	}
+
+	private static < V extends Vertex< E >, E extends Edge< V > > Set< Set< Integer > > componentIds(
+			final ReadOnlyGraph< V, E > graph,
+			final java.util.function.ToIntFunction< V > id )
+	{
+		final Set< Set< Integer > > components = new HashSet<>();
+		for ( final RefSet< V > component : new ConnectedComponents<>( graph ).get() )
+		{
+			final Set< Integer > ids = new HashSet<>();
+			for ( final V v : component )
+				ids.add( id.applyAsInt( v ) );
+			components.add( ids );
+		}
+		return components;
+	}
+}
@@ -0,0 +1,199 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.csr;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.algorithm.traversal.BreadthFirstIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares traversal throughput of a {@link TestGraph} and of its
+ * {@link CsrGraphSnapshot}, for large random graphs. Each vertex (except the
+ * first) has an incoming edge from a random earlier vertex, such that all
+ * vertices are reachable from the first, and an outgoing edge to a random
+ * vertex.
+ * <p>
+ * The breadth-first searches visit all vertices using the ref-based
+ * {@link BreadthFirstIterator} on the graph and on the snapshot, and using
+ * the primitive arrays of the snapshot directly. The edge scans sum the target
+ * ids over all outgoing edges of all vertices.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( value = 1, jvmArgs = { "-Xmx8g" } )
+@Warmup( iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS )
+@Measurement( iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS )
+@State( Scope.Benchmark )
+public class CsrTraversalBenchmark
+{
+	@Param( { "1000000", "4000000" } )
+	private int numVertices;
+
+	private TestGraph graph;
+
+	private TestVertex root;
+
+	private CsrGraphSnapshot snapshot;
+
+	private CsrVertex snapshotRoot;
+
+	@Setup( Level.Trial )
+	public void buildGraph()
+	{
+		graph = new TestGraph( numVertices );
+		final TestVertex source = graph.vertexRef();
+		final TestVertex target = graph.vertexRef();
+		final TestEdge eref = graph.edgeRef();
+		for ( int i = 0; i < numVertices; i++ )
+			graph.addVertex( target ).init( i );
+		final Random random = new Random( 1l );
+		for ( int i = 1; i < numVertices; i++ )
+		{
+			graph.getVertexPool().getObject( random.nextInt( i ), source );
+			graph.getVertexPool().getObject( i, target );
+			graph.addEdge( source, target, eref );
+			graph.getVertexPool().getObject( random.nextInt( numVertices ), source );
+			graph.addEdge( target, source, eref );
+		}
+		graph.releaseRef( source );
+		graph.releaseRef( target );
+		graph.releaseRef( eref );
+		root = graph.getVertexPool().getObject( 0, graph.vertexRef() );
+
+		final GraphIdBimap< TestVertex, TestEdge > idmap = new GraphIdBimap<>( graph.getVertexPool(), graph.getEdgePool() );
+		snapshot = new CsrGraphSnapshot( graph, idmap );
+		snapshotRoot = snapshot.getVertex( 0, snapshot.vertexRef() );
+	}
+
+	@Benchmark
+	public int benchmarkBreadthFirstGraph()
+	{
+		final BreadthFirstIterator< TestVertex, TestEdge > it = new BreadthFirstIterator<>( root, graph );
+		int count = 0;
+		while ( it.hasNext() )
+		{
+			it.next();
+			++count;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int benchmarkBreadthFirstSnapshot()
+	{
+		final BreadthFirstIterator< CsrVertex, CsrEdge > it = new BreadthFirstIterator<>( snapshotRoot, snapshot );
+		int count = 0;
+		while ( it.hasNext() )
+		{
+			it.next();
+			++count;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int benchmarkBreadthFirstSnapshotArrays()
+	{
+		final int[] offsets = snapshot.getOutOffsets();
+		final int[] targets = snapshot.getOutTargets();
+		final int n = offsets.length - 1;
+		final boolean[] visited = new boolean[ n ];
+		final int[] queue = new int[ n ];
+		int head = 0;
+		int tail = 0;
+		final int r = snapshotRoot.getInternalPoolIndex();
+		visited[ r ] = true;
+		queue[ tail++ ] = r;
+		while ( head < tail )
+		{
+			final int v = queue[ head++ ];
+			for ( int k = offsets[ v ]; k < offsets[ v + 1 ]; ++k )
+			{
+				final int t = targets[ k ];
+				if ( !visited[ t ] )
+				{
+					visited[ t ] = true;
+					queue[ tail++ ] = t;
+				}
+			}
+		}
+		return tail;
+	}
+
+	@Benchmark
+	public long benchmarkEdgeScanGraph()
+	{
+		final TestVertex tref = graph.vertexRef();
+		long sum = 0;
+		for ( final TestVertex v : graph.vertices() )
+			for ( final TestEdge e : v.outgoingEdges() )
+				sum += e.getTarget( tref ).getId();
+		graph.releaseRef( tref );
+		return sum;
+	}
+
+	@Benchmark
+	public long benchmarkEdgeScanSnapshot()
+	{
+		final CsrVertex tref = snapshot.vertexRef();
+		long sum = 0;
+		for ( final CsrVertex v : snapshot.vertices() )
+			for ( final CsrEdge e : v.outgoingEdges() )
+				sum += e.getTarget( tref ).getId();
+		snapshot.releaseRef( tref );
+		return sum;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder().include( CsrTraversalBenchmark.class.getName() ).build();
+		new Runner( options ).run();
+	}
+}
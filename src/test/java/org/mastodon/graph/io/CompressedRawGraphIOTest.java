@@ -0,0 +1,151 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RawGraphIO.FileIdToGraphMap;
+import org.mastodon.graph.io.RawGraphIO.GraphToFileIdMap;
+
+public class CompressedRawGraphIOTest
+{
+	private TestGraph graph;
+
+	private GraphIdBimap< TestVertex, TestEdge > idmap;
+
+	@Before
+	public void setUp()
+	{
+		// more than one compressed block, with some vertices removed
+		graph = RandomTestGraphs.buildTree( new TestGraph(), 50000, 10, 1000 );
+		idmap = new GraphIdBimap<>( graph.getVertexPool(), graph.getEdgePool() );
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final GraphToFileIdMap< TestVertex, TestEdge > written;
+		try (final ObjectOutputStream oos = new ObjectOutputStream( bytes ))
+		{
+			written = RawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos, true );
+			oos.writeInt( 42 );
+			oos.writeObject( "trailer" );
+		}
+
+		final TestGraph copy = new TestGraph();
+		final FileIdToGraphMap< TestVertex, TestEdge > read;
+		try (final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ))
+		{
+			read = RawGraphIO.read( copy, new GraphIdBimap<>( copy.getVertexPool(), copy.getEdgePool() ), new TestGraphSerializer(), ois );
+			assertEquals( 42, ois.readInt() );
+			assertEquals( "trailer", ois.readObject() );
+		}
+		catch ( final ClassNotFoundException e )
+		{
+			throw new IOException( e );
+		}
+		assertEquals( adjacency( graph ), adjacency( copy ) );
+
+		final TestVertex ref = copy.vertexRef();
+		for ( final TestVertex v : graph.vertices() )
+			assertEquals( v.getId(), read.vertices().getObject( written.vertices().getId( v ), ref ).getId() );
+	}
+
+	@Test
+	public void testSmallerThanPlain() throws IOException
+	{
+		final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( plain ))
+		{
+			RawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos );
+		}
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( compressed ))
+		{
+			RawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos, true );
+		}
+		assertTrue( compressed.size() < plain.size() / 2 );
+	}
+
+	@Test
+	public void testParallelRead() throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( bytes ))
+		{
+			RawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos, true );
+		}
+
+		final TestGraph copy = new TestGraph();
+		final ForkJoinPool forkJoinPool = new ForkJoinPool( 2 );
+		try (final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ))
+		{
+			ParallelRawGraphIO.read( copy, new GraphIdBimap<>( copy.getVertexPool(), copy.getEdgePool() ), new TestGraphSerializer(), ois, forkJoinPool );
+		}
+		finally
+		{
+			forkJoinPool.shutdown();
+		}
+		assertEquals( adjacency( graph ), adjacency( copy ) );
+	}
+
+	private static List< String > adjacency( final TestGraph graph )
+	{
+		final List< String > adjacency = new ArrayList<>();
+		for ( final TestVertex v : graph.vertices() )
+		{
+			final StringBuilder sb = new StringBuilder();
+			sb.append( v.getId() ).append( " out:" );
+			for ( final TestEdge e : v.outgoingEdges() )
+				sb.append( " " ).append( e.getTarget().getId() );
+			sb.append( " in:" );
+			for ( final TestEdge e : v.incomingEdges() )
+				sb.append( " " ).append( e.getSource().getId() );
+			adjacency.add( sb.toString() );
+		}
+		return adjacency;
+	}
+}
@@ -0,0 +1,255 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mastodon.graph.Edge;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.ListenableTestEdge;
+import org.mastodon.graph.ListenableTestGraph;
+import org.mastodon.graph.ListenableTestVertex;
+import org.mastodon.graph.ReadOnlyGraph;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.Vertex;
+import org.mastodon.graph.io.DeltaGraphIO.DeltaReader;
+import org.mastodon.graph.io.DeltaGraphIO.DeltaWriter;
+import org.mastodon.graph.io.RawGraphIO.FileIdToGraphMap;
+import org.mastodon.graph.io.RawGraphIO.GraphToFileIdMap;
+import org.mastodon.io.AttributeSerializer;
+
+public class DeltaGraphIOTest
+{
+	private ListenableTestGraph graph;
+
+	private GraphIdBimap< ListenableTestVertex, ListenableTestEdge > idmap;
+
+	private ListenableTestVertex v1;
+
+	private ListenableTestVertex v2;
+
+	private ListenableTestEdge eref;
+
+	@Before
+	public void setUp()
+	{
+		graph = new ListenableTestGraph();
+		idmap = new GraphIdBimap<>( graph.getVertexPool(), graph.getEdgePool() );
+		v1 = graph.vertexRef();
+		v2 = graph.vertexRef();
+		eref = graph.edgeRef();
+		for ( int i = 0; i < 10; ++i )
+			graph.addVertex( v1 ).init( i, 0 );
+		for ( int i = 1; i < 10; ++i )
+			addEdge( i / 2, i );
+	}
+
+	@Test
+	public void testSnapshotAndJournal() throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( bytes ))
+		{
+			final GraphToFileIdMap< ListenableTestVertex, ListenableTestEdge > snapshot = RawGraphIO.write( graph, idmap, new Serializer(), oos );
+			final DeltaWriter< ListenableTestVertex, ListenableTestEdge > writer = new DeltaWriter<>( graph, idmap, new Serializer(), snapshot );
+
+			// first segment: add, remove and change vertices and edges
+			graph.addVertex( v1 ).init( 10, 0 );
+			insertEdge( 0, 10 );
+			graph.remove( vertex( 3 ) );
+			graph.remove( edge( 4, 9 ) );
+			vertex( 5 ).setId( 50 );
+			writer.vertexChanged( v1 );
+			writer.write( oos );
+			assertTrue( writer.isEmpty() );
+
+			// second segment: reuse pool indices of removed vertices
+			graph.remove( vertex( 10 ) );
+			graph.addVertex( v1 ).init( 11, 0 );
+			graph.addVertex( v1 ).init( 12, 0 );
+			addEdge( 11, 12 );
+			addEdge( 50, 11 );
+			insertEdge( 2, 12 );
+			writer.write( oos );
+			writer.close();
+		}
+
+		final TestGraph copy = new TestGraph();
+		final GraphIdBimap< TestVertex, TestEdge > copyIdmap = new GraphIdBimap<>( copy.getVertexPool(), copy.getEdgePool() );
+		try (final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ))
+		{
+			final FileIdToGraphMap< TestVertex, TestEdge > snapshot = RawGraphIO.read( copy, copyIdmap, new TestGraphSerializer(), ois );
+			final DeltaReader< TestVertex, TestEdge > reader = new DeltaReader<>( copy, copyIdmap, new TestGraphSerializer(), snapshot );
+			reader.read( ois );
+			reader.read( ois );
+		}
+		assertEquals(
+				adjacency( graph, ListenableTestVertex::getId ),
+				adjacency( copy, TestVertex::getId ) );
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testRebuiltGraph() throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( bytes ))
+		{
+			final GraphToFileIdMap< ListenableTestVertex, ListenableTestEdge > snapshot = RawGraphIO.write( graph, idmap, new Serializer(), oos );
+			final DeltaWriter< ListenableTestVertex, ListenableTestEdge > writer = new DeltaWriter<>( graph, idmap, new Serializer(), snapshot );
+			writer.graphRebuilt();
+			writer.write( oos );
+		}
+	}
+
+	private ListenableTestVertex vertex( final int id )
+	{
+		for ( final ListenableTestVertex v : graph.vertices() )
+			if ( v.getId() == id )
+				return graph.getVertexPool().getObject( v.getInternalPoolIndex(), v1 );
+		return null;
+	}
+
+	private ListenableTestVertex source( final int id )
+	{
+		return graph.getVertexPool().getObject( vertex( id ).getInternalPoolIndex(), v2 );
+	}
+
+	private void addEdge( final int source, final int target )
+	{
+		graph.addEdge( source( source ), vertex( target ), eref ).init();
+	}
+
+	private void insertEdge( final int source, final int target )
+	{
+		graph.insertEdge( source( source ), 0, vertex( target ), 0, eref ).init();
+	}
+
+	private ListenableTestEdge edge( final int source, final int target )
+	{
+		return graph.getEdge( source( source ), vertex( target ), eref );
+	}
+
+	private static < V extends Vertex< E >, E extends Edge< V > > List< String > adjacency( final ReadOnlyGraph< V, E > graph, final ToIntFunction< V > id )
+	{
+		final List< String > adjacency = new ArrayList<>();
+		final V ref = graph.vertexRef();
+		for ( final V v : graph.vertices() )
+		{
+			final StringBuilder sb = new StringBuilder();
+			sb.append( id.applyAsInt( v ) ).append( " out:" );
+			for ( final E e : v.outgoingEdges() )
+				sb.append( " " ).append( id.applyAsInt( e.getTarget( ref ) ) );
+			sb.append( " in:" );
+			for ( final E e : v.incomingEdges() )
+				sb.append( " " ).append( id.applyAsInt( e.getSource( ref ) ) );
+			adjacency.add( sb.toString() );
+		}
+		adjacency.sort( null );
+		return adjacency;
+	}
+
+	/**
+	 * Serializes the id of {@link ListenableTestVertex} vertices, in the same
+	 * format as {@link TestGraphSerializer}.
+	 */
+	private static class Serializer implements GraphSerializer< ListenableTestVertex, ListenableTestEdge >
+	{
+		@Override
+		public AttributeSerializer< ListenableTestVertex > getVertexSerializer()
+		{
+			return new AttributeSerializer< ListenableTestVertex >()
+			{
+				@Override
+				public int getNumBytes()
+				{
+					return 4;
+				}
+
+				@Override
+				public void getBytes( final ListenableTestVertex vertex, final byte[] bytes )
+				{
+					final int id = vertex.getId();
+					for ( int i = 0; i < 4; ++i )
+						bytes[ i ] = ( byte ) ( id >> ( 8 * i ) );
+				}
+
+				@Override
+				public void setBytes( final ListenableTestVertex vertex, final byte[] bytes )
+				{
+					throw new UnsupportedOperationException();
+				}
+
+				@Override
+				public void notifySet( final ListenableTestVertex vertex )
+				{}
+			};
+		}
+
+		@Override
+		public AttributeSerializer< ListenableTestEdge > getEdgeSerializer()
+		{
+			return new AttributeSerializer< ListenableTestEdge >()
+			{
+				@Override
+				public int getNumBytes()
+				{
+					return 0;
+				}
+
+				@Override
+				public void getBytes( final ListenableTestEdge edge, final byte[] bytes )
+				{}
+
+				@Override
+				public void setBytes( final ListenableTestEdge edge, final byte[] bytes )
+				{
+					throw new UnsupportedOperationException();
+				}
+
+				@Override
+				public void notifySet( final ListenableTestEdge edge )
+				{}
+			};
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+
+/**
+ * Tests that {@link EdgePositions} and {@link TestEdge#getSourceOutIndex()},
+ * {@link TestEdge#getTargetInIndex()} agree with the order of the adjacency
+ * lists, with and without previous edge indices.
+ */
+public class EdgePositionsTest
+{
+	@Test
+	public void testPositions()
+	{
+		testPositions( false );
+		testPositions( true );
+	}
+
+	private static void testPositions( final boolean prevEdgeIndices )
+	{
+		final TestGraph graph = RandomTestGraphs.build( new TestGraph( 10, false, prevEdgeIndices ), 10, 500, 0 );
+		final GraphIdBimap< TestVertex, TestEdge > idmap = new GraphIdBimap<>( graph.getVertexPool(), graph.getEdgePool() );
+		final EdgePositions positions = new EdgePositions( graph, idmap );
+		for ( final TestVertex v : graph.vertices() )
+		{
+			int i = 0;
+			for ( final TestEdge e : v.outgoingEdges() )
+			{
+				assertEquals( i, e.getSourceOutIndex() );
+				assertEquals( i, positions.getSourceOutIndex( idmap.getEdgeId( e ) ) );
+				++i;
+			}
+			i = 0;
+			for ( final TestEdge e : v.incomingEdges() )
+			{
+				assertEquals( i, e.getTargetInIndex() );
+				assertEquals( i, positions.getTargetInIndex( idmap.getEdgeId( e ) ) );
+				++i;
+			}
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RawGraphIO.FileIdToGraphMap;
+import org.mastodon.graph.io.RawGraphIO.GraphToFileIdMap;
+
+public class MappedGraphIOTest
+{
+	private File file;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		file = File.createTempFile( "graph", ".mgraph" );
+	}
+
+	@After
+	public void tearDown()
+	{
+		file.delete();
+	}
+
+	@Test
+	public void testDenseIds() throws IOException
+	{
+		final TestGraph original = new TestGraph();
+		final TestVertex a = original.addVertex().init( 10 );
+		final TestVertex b = original.addVertex().init( 11 );
+		final TestVertex c = original.addVertex().init( 12 );
+		original.addEdge( a, b );
+		original.addEdge( a, c );
+		original.insertEdge( c, 0, b, 0 );
+		testRoundTrip( original );
+	}
+
+	@Test
+	public void testSparseIds() throws IOException
+	{
+		final TestGraph original = RandomTestGraphs.build( new TestGraph(), 20, 300, 0 );
+		final TestVertex ref = original.vertexRef();
+		original.remove( original.getVertexPool().getObject( 3, ref ) );
+		original.remove( original.getVertexPool().getObject( 17, ref ) );
+		testRoundTrip( original );
+	}
+
+	@Test( expected = IOException.class )
+	public void testNotAGraphFile() throws IOException
+	{
+		final TestGraph graph = new TestGraph();
+		MappedGraphIO.read( graph, new GraphIdBimap<>( graph.getVertexPool(), graph.getEdgePool() ), new TestGraphSerializer(), file );
+	}
+
+	private void testRoundTrip( final TestGraph original ) throws IOException
+	{
+		final GraphIdBimap< TestVertex, TestEdge > idmap = new GraphIdBimap<>( original.getVertexPool(), original.getEdgePool() );
+		final GraphToFileIdMap< TestVertex, TestEdge > written = MappedGraphIO.write( original, idmap, new TestGraphSerializer(), file );
+
+		final TestGraph graph = new TestGraph();
+		final FileIdToGraphMap< TestVertex, TestEdge > read = MappedGraphIO.read( graph, new GraphIdBimap<>( graph.getVertexPool(), graph.getEdgePool() ), new TestGraphSerializer(), file );
+
+		assertEquals( adjacency( original ), adjacency( graph ) );
+
+		// file ids map original vertices and edges to their copies
+		final TestVertex vref = graph.vertexRef();
+		final TestEdge eref = graph.edgeRef();
+		for ( final TestVertex v : original.vertices() )
+		{
+			final TestVertex copy = read.vertices().getObject( written.vertices().getId( v ), vref );
+			assertEquals( v.getId(), copy.getId() );
+		}
+		for ( final TestEdge e : original.edges() )
+		{
+			final TestEdge copy = read.edges().getObject( written.edges().getId( e ), eref );
+			assertEquals( e.getSource().getId(), copy.getSource().getId() );
+			assertEquals( e.getTarget().getId(), copy.getTarget().getId() );
+			assertEquals( e.getSourceOutIndex(), copy.getSourceOutIndex() );
+			assertEquals( e.getTargetInIndex(), copy.getTargetInIndex() );
+		}
+	}
+
+	private static List< String > adjacency( final TestGraph graph )
+	{
+		final List< String > adjacency = new ArrayList<>();
+		for ( final TestVertex v : graph.vertices() )
+		{
+			final StringBuilder sb = new StringBuilder();
+			sb.append( v.getId() ).append( " out:" );
+			for ( final TestEdge e : v.outgoingEdges() )
+				sb.append( " " ).append( e.getTarget().getId() );
+			sb.append( " in:" );
+			for ( final TestEdge e : v.incomingEdges() )
+				sb.append( " " ).append( e.getSource().getId() );
+			adjacency.add( sb.toString() );
+		}
+		return adjacency;
+	}
+}
@@ -0,0 +1,260 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RawGraphIO.FileIdToGraphMap;
+import org.mastodon.graph.io.RawGraphIO.GraphToFileIdMap;
+import org.mastodon.graph.ref.RefTracker;
+import org.mastodon.io.AttributeSerializer;
+
+public class ParallelRawGraphIOTest
+{
+	private ForkJoinPool forkJoinPool;
+
+	private TestGraph graph;
+
+	private GraphIdBimap< TestVertex, TestEdge > idmap;
+
+	@Before
+	public void setUp()
+	{
+		forkJoinPool = new ForkJoinPool( 4 );
+
+		// more than one chunk of vertices and edges, with some removed
+		graph = RandomTestGraphs.buildTree( new TestGraph(), 2 * ParallelRawGraphIO.CHUNK_SIZE + 100, 0, 1000 );
+		idmap = new GraphIdBimap<>( graph.getVertexPool(), graph.getEdgePool() );
+	}
+
+	@After
+	public void tearDown()
+	{
+		forkJoinPool.shutdown();
+	}
+
+	@Test
+	public void testSameFormat() throws IOException
+	{
+		final ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( sequential ))
+		{
+			RawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos );
+		}
+		final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( parallel ))
+		{
+			ParallelRawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos, forkJoinPool );
+		}
+		assertArrayEquals( sequential.toByteArray(), parallel.toByteArray() );
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final GraphToFileIdMap< TestVertex, TestEdge > written;
+		try (final ObjectOutputStream oos = new ObjectOutputStream( bytes ))
+		{
+			written = ParallelRawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos, forkJoinPool );
+		}
+
+		final TestGraph copy = new TestGraph();
+		final FileIdToGraphMap< TestVertex, TestEdge > read;
+		try (final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ))
+		{
+			read = ParallelRawGraphIO.read( copy, new GraphIdBimap<>( copy.getVertexPool(), copy.getEdgePool() ), new TestGraphSerializer(), ois, forkJoinPool );
+		}
+		assertEquals( adjacency( graph ), adjacency( copy ) );
+
+		final TestVertex ref = copy.vertexRef();
+		for ( final TestVertex v : graph.vertices() )
+			assertEquals( v.getId(), read.vertices().getObject( written.vertices().getId( v ), ref ).getId() );
+	}
+
+	@Test
+	public void testEdgeAttributes() throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( bytes ))
+		{
+			ParallelRawGraphIO.write( graph, idmap, new SourceIdSerializer( -1 ), oos, forkJoinPool );
+		}
+
+		final TestGraph copy = new TestGraph();
+		final SourceIdSerializer io = new SourceIdSerializer( -1 );
+		try (final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ))
+		{
+			ParallelRawGraphIO.read( copy, new GraphIdBimap<>( copy.getVertexPool(), copy.getEdgePool() ), io, ois, forkJoinPool );
+		}
+		assertEquals( adjacency( graph ), adjacency( copy ) );
+		assertEquals( graph.edges().size(), io.matched.get() );
+	}
+
+	@Test
+	public void testFailureReleasesRefs() throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( bytes ))
+		{
+			ParallelRawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos, forkJoinPool );
+		}
+
+		final TestGraph copy = new TestGraph();
+		final RefTracker tracker = copy.enableRefTracking();
+		try (final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ))
+		{
+			ParallelRawGraphIO.read( copy, new GraphIdBimap<>( copy.getVertexPool(), copy.getEdgePool() ), new SourceIdSerializer( 100 ), ois, forkJoinPool );
+			fail( "expected the serializer to fail" );
+		}
+		catch ( final RuntimeException e )
+		{
+			// expected
+		}
+		assertEquals( 0, tracker.getOutstanding() );
+	}
+
+	/**
+	 * Serializes vertices like {@link TestGraphSerializer}, and the source id
+	 * of each edge. Counts the edges whose serialized source id matches their
+	 * source when reading, and fails when the vertex with id {@code failId} is
+	 * read.
+	 */
+	private static class SourceIdSerializer implements GraphSerializer< TestVertex, TestEdge >
+	{
+		private final AttributeSerializer< TestVertex > vertexSerializer = new TestGraphSerializer().getVertexSerializer();
+
+		private final int failId;
+
+		final AtomicInteger matched = new AtomicInteger();
+
+		SourceIdSerializer( final int failId )
+		{
+			this.failId = failId;
+		}
+
+		@Override
+		public AttributeSerializer< TestVertex > getVertexSerializer()
+		{
+			return new AttributeSerializer< TestVertex >()
+			{
+				@Override
+				public int getNumBytes()
+				{
+					return vertexSerializer.getNumBytes();
+				}
+
+				@Override
+				public void getBytes( final TestVertex vertex, final byte[] bytes )
+				{
+					vertexSerializer.getBytes( vertex, bytes );
+				}
+
+				@Override
+				public void setBytes( final TestVertex vertex, final byte[] bytes )
+				{
+					vertexSerializer.setBytes( vertex, bytes );
+					if ( vertex.getId() == failId )
+						throw new IllegalStateException( "failing on vertex " + failId );
+				}
+
+				@Override
+				public void notifySet( final TestVertex vertex )
+				{}
+			};
+		}
+
+		@Override
+		public AttributeSerializer< TestEdge > getEdgeSerializer()
+		{
+			return new AttributeSerializer< TestEdge >()
+			{
+				@Override
+				public int getNumBytes()
+				{
+					return 4;
+				}
+
+				@Override
+				public void getBytes( final TestEdge edge, final byte[] bytes )
+				{
+					ByteBuffer.wrap( bytes ).putInt( edge.getSource().getId() );
+				}
+
+				@Override
+				public void setBytes( final TestEdge edge, final byte[] bytes )
+				{
+					if ( ByteBuffer.wrap( bytes ).getInt() == edge.getSource().getId() )
+						matched.incrementAndGet();
+				}
+
+				@Override
+				public void notifySet( final TestEdge edge )
+				{}
+			};
+		}
+	}
+
+	private static List< String > adjacency( final TestGraph graph )
+	{
+		final List< String > adjacency = new ArrayList<>();
+		for ( final TestVertex v : graph.vertices() )
+		{
+			final StringBuilder sb = new StringBuilder();
+			sb.append( v.getId() ).append( " out:" );
+			for ( final TestEdge e : v.outgoingEdges() )
+				sb.append( " " ).append( e.getTarget().getId() );
+			sb.append( " in:" );
+			for ( final TestEdge e : v.incomingEdges() )
+				sb.append( " " ).append( e.getSource().getId() );
+			adjacency.add( sb.toString() );
+		}
+		return adjacency;
+	}
+}
@@ -0,0 +1,173 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import java.util.Random;
+import java.util.function.ObjIntConsumer;
+
+import org.mastodon.collection.RefCollections;
+import org.mastodon.collection.RefList;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.ref.AbstractEdge;
+import org.mastodon.graph.ref.AbstractVertex;
+import org.mastodon.graph.ref.GraphImp;
+
+/**
+ * Builds reproducible random multigraphs for tests, by adding, inserting and
+ * removing edges at random positions of the adjacency lists.
+ */
+public class RandomTestGraphs
+{
+	/**
+	 * Fills an empty {@link TestGraph}. See
+	 * {@link #build(GraphImp, int, int, int, ObjIntConsumer)}.
+	 *
+	 * @param graph
+	 *            an empty graph, constructed with the layout to test.
+	 * @param numVertices
+	 *            the number of vertices to add.
+	 * @param numEdits
+	 *            the number of random edge insertions and removals.
+	 * @param removeEvery
+	 *            if {@code > 0}, every {@code removeEvery}-th vertex is
+	 *            removed afterwards, starting with the first.
+	 * @return {@code graph}.
+	 */
+	public static TestGraph build( final TestGraph graph, final int numVertices, final int numEdits, final int removeEvery )
+	{
+		return build( graph, numVertices, numEdits, removeEvery, TestVertex::init );
+	}
+
+	/**
+	 * Fills an empty graph. Adds {@code numVertices} vertices, initialized
+	 * with their index by {@code init}. Then, {@code numEdits} times, picks a
+	 * random source and target and either (with probability 1/2) inserts an
+	 * edge at random positions of their adjacency lists, (with probability
+	 * 1/4) appends an edge to their adjacency lists, or removes a random
+	 * outgoing edge of the source. The random sequence is seeded, so the same
+	 * arguments give graphs with the same adjacency lists for any layout.
+	 *
+	 * @param graph
+	 *            an empty graph, constructed with the layout to test.
+	 * @param numVertices
+	 *            the number of vertices to add.
+	 * @param numEdits
+	 *            the number of random edge insertions and removals.
+	 * @param removeEvery
+	 *            if {@code > 0}, every {@code removeEvery}-th vertex is
+	 *            removed afterwards, starting with the first.
+	 * @param init
+	 *            initializes a created vertex with its index.
+	 * @return {@code graph}.
+	 */
+	public static < V extends AbstractVertex< V, E, ?, ? >, E extends AbstractEdge< E, V, ?, ? >, G extends GraphImp< ?, ?, V, E, ? > >
+			G build( final G graph, final int numVertices, final int numEdits, final int removeEvery, final ObjIntConsumer< V > init )
+	{
+		final RefList< V > vertices = RefCollections.createRefList( graph.vertices(), numVertices );
+		final V s = graph.vertexRef();
+		final V t = graph.vertexRef();
+		final E e = graph.edgeRef();
+		for ( int i = 0; i < numVertices; ++i )
+		{
+			init.accept( graph.addVertex( s ), i );
+			vertices.add( s );
+		}
+
+		final Random random = new Random( 1l );
+		for ( int i = 0; i < numEdits; ++i )
+		{
+			vertices.get( random.nextInt( numVertices ), s );
+			vertices.get( random.nextInt( numVertices ), t );
+			final int op = random.nextInt( 4 );
+			if ( op > 1 )
+				graph.insertEdge( s, random.nextInt( s.outgoingEdges().size() + 1 ), t, random.nextInt( t.incomingEdges().size() + 1 ), e );
+			else if ( op == 1 )
+				graph.addEdge( s, t, e );
+			else if ( !s.outgoingEdges().isEmpty() )
+				graph.remove( s.outgoingEdges().get( random.nextInt( s.outgoingEdges().size() ), e ) );
+		}
+		if ( removeEvery > 0 )
+			for ( int i = 0; i < numVertices; i += removeEvery )
+				graph.remove( vertices.get( i, s ) );
+		graph.releaseRef( s );
+		graph.releaseRef( t );
+		graph.releaseRef( e );
+		return graph;
+	}
+
+	/**
+	 * Fills an empty {@link TestGraph} with a random tree. Adds
+	 * {@code numVertices} vertices, initialized with their index. Each vertex
+	 * except the first gets an incoming edge from a random earlier vertex,
+	 * inserted at a random position of the outgoing edges of that vertex. The
+	 * random sequence is seeded, so the same arguments give the same graph.
+	 *
+	 * @param graph
+	 *            an empty graph.
+	 * @param numVertices
+	 *            the number of vertices to add.
+	 * @param maxParentDistance
+	 *            if {@code > 0}, the source of the edge to vertex {@code i} is
+	 *            one of the {@code maxParentDistance} vertices before
+	 *            {@code i}. Otherwise, it is any vertex before {@code i}.
+	 * @param removeEvery
+	 *            if {@code > 0}, every {@code removeEvery}-th vertex is
+	 *            removed afterwards, starting with the first.
+	 * @return {@code graph}.
+	 */
+	public static TestGraph buildTree( final TestGraph graph, final int numVertices, final int maxParentDistance, final int removeEvery )
+	{
+		final RefList< TestVertex > vertices = RefCollections.createRefList( graph.vertices(), numVertices );
+		final TestVertex s = graph.vertexRef();
+		final TestVertex t = graph.vertexRef();
+		final TestEdge e = graph.edgeRef();
+		for ( int i = 0; i < numVertices; ++i )
+			vertices.add( graph.addVertex( t ).init( i ) );
+
+		final Random random = new Random( 1l );
+		for ( int i = 1; i < numVertices; ++i )
+		{
+			final int parent = maxParentDistance > 0
+					? Math.max( 0, i - 1 - random.nextInt( maxParentDistance ) )
+					: random.nextInt( i );
+			vertices.get( parent, s );
+			vertices.get( i, t );
+			graph.insertEdge( s, random.nextInt( s.outgoingEdges().size() + 1 ), t, 0, e );
+		}
+		if ( removeEvery > 0 )
+			for ( int i = 0; i < numVertices; i += removeEvery )
+				graph.remove( vertices.get( i, s ) );
+		graph.releaseRef( s );
+		graph.releaseRef( t );
+		graph.releaseRef( e );
+		return graph;
+	}
+}
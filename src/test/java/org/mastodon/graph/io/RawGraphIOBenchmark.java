@@ -0,0 +1,191 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares writing and reading a random forest with {@link RawGraphIO} and
+ * {@link ParallelRawGraphIO}, to and from memory, in plain and compressed
+ * form.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( value = 1, jvmArgs = { "-Xmx4g" } )
+@Warmup( iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS )
+@Measurement( iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS )
+@State( Scope.Benchmark )
+public class RawGraphIOBenchmark
+{
+	@Param( { "100000", "1000000" } )
+	private int numVertices;
+
+	private TestGraph graph;
+
+	private GraphIdBimap< TestVertex, TestEdge > idmap;
+
+	private byte[] bytes;
+
+	private byte[] compressedBytes;
+
+	private ForkJoinPool forkJoinPool;
+
+	@Setup( Level.Trial )
+	public void setup() throws IOException
+	{
+		graph = new TestGraph( numVertices );
+		final TestVertex source = graph.vertexRef();
+		final TestVertex target = graph.vertexRef();
+		final TestEdge eref = graph.edgeRef();
+		for ( int i = 0; i < numVertices; i++ )
+			graph.addVertex( target ).init( i );
+		final Random random = new Random( 1l );
+		for ( int i = 1; i < numVertices; i++ )
+		{
+			graph.getVertexPool().getObject( Math.max( 0, i - 1 - random.nextInt( 10 ) ), source );
+			graph.getVertexPool().getObject( i, target );
+			graph.addEdge( source, target, eref );
+		}
+		graph.releaseRef( source );
+		graph.releaseRef( target );
+		graph.releaseRef( eref );
+		idmap = new GraphIdBimap<>( graph.getVertexPool(), graph.getEdgePool() );
+		bytes = benchmarkWrite();
+		compressedBytes = benchmarkWriteCompressed();
+		System.out.println( "plain: " + bytes.length + " bytes, compressed: " + compressedBytes.length + " bytes" );
+		forkJoinPool = new ForkJoinPool();
+	}
+
+	@TearDown( Level.Trial )
+	public void tearDown()
+	{
+		forkJoinPool.shutdown();
+	}
+
+	@Benchmark
+	public byte[] benchmarkWrite() throws IOException
+	{
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( out ))
+		{
+			RawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos );
+		}
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] benchmarkWriteParallel() throws IOException
+	{
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( out ))
+		{
+			ParallelRawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos, forkJoinPool );
+		}
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public byte[] benchmarkWriteCompressed() throws IOException
+	{
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( out ))
+		{
+			RawGraphIO.write( graph, idmap, new TestGraphSerializer(), oos, true );
+		}
+		return out.toByteArray();
+	}
+
+	@Benchmark
+	public TestGraph benchmarkRead() throws IOException
+	{
+		final TestGraph copy = new TestGraph( numVertices );
+		try (final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes ) ))
+		{
+			RawGraphIO.read( copy, new GraphIdBimap<>( copy.getVertexPool(), copy.getEdgePool() ), new TestGraphSerializer(), ois );
+		}
+		return copy;
+	}
+
+	@Benchmark
+	public TestGraph benchmarkReadParallel() throws IOException
+	{
+		final TestGraph copy = new TestGraph( numVertices );
+		try (final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes ) ))
+		{
+			ParallelRawGraphIO.read( copy, new GraphIdBimap<>( copy.getVertexPool(), copy.getEdgePool() ), new TestGraphSerializer(), ois, forkJoinPool );
+		}
+		return copy;
+	}
+
+	@Benchmark
+	public TestGraph benchmarkReadCompressed() throws IOException
+	{
+		final TestGraph copy = new TestGraph( numVertices );
+		try (final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( compressedBytes ) ))
+		{
+			RawGraphIO.read( copy, new GraphIdBimap<>( copy.getVertexPool(), copy.getEdgePool() ), new TestGraphSerializer(), ois );
+		}
+		return copy;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder().include( RawGraphIOBenchmark.class.getName() ).build();
+		new Runner( options ).run();
+	}
+}
@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.io;
+
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.io.AttributeSerializer;
+
+/**
+ * Serializes the id of {@link TestVertex} vertices of a {@link TestGraph}.
+ * Edges have no attributes.
+ */
+public class TestGraphSerializer implements GraphSerializer< TestVertex, TestEdge >
+{
+	@Override
+	public AttributeSerializer< TestVertex > getVertexSerializer()
+	{
+		return new AttributeSerializer< TestVertex >()
+		{
+			@Override
+			public int getNumBytes()
+			{
+				return 4;
+			}
+
+			@Override
+			public void getBytes( final TestVertex vertex, final byte[] bytes )
+			{
+				final int id = vertex.getId();
+				for ( int i = 0; i < 4; ++i )
+					bytes[ i ] = ( byte ) ( id >> ( 8 * i ) );
+			}
+
+			@Override
+			public void setBytes( final TestVertex vertex, final byte[] bytes )
+			{
+				int id = 0;
+				for ( int i = 0; i < 4; ++i )
+					id |= ( bytes[ i ] & 0xff ) << ( 8 * i );
+				vertex.init( id );
+			}
+
+			@Override
+			public void notifySet( final TestVertex vertex )
+			{}
+		};
+	}
+
+	@Override
+	public AttributeSerializer< TestEdge > getEdgeSerializer()
+	{
+		return new AttributeSerializer< TestEdge >()
+		{
+			@Override
+			public int getNumBytes()
+			{
+				return 0;
+			}
+
+			@Override
+			public void getBytes( final TestEdge edge, final byte[] bytes )
+			{}
+
+			@Override
+			public void setBytes( final TestEdge edge, final byte[] bytes )
+			{}
+
+			@Override
+			public void notifySet( final TestEdge edge )
+			{}
+		};
+	}
+}
@@ -31,7 +31,10 @@ package org.mastodon.graph.object;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import org.junit.Test;
+import org.mastodon.collection.wrap.RefCollectionWrapper;
 
 public class ObjectGraphTest
 {
@@ -63,4 +66,28 @@ public class ObjectGraphTest
 
 	}
 
+	@Test
+	public void testRemoveAll()
+	{
+		final ObjectGraph< Integer > graph = new ObjectGraph<>();
+
+		final ObjectVertex< Integer > v0 = graph.addVertex().init( 0 );
+		final ObjectVertex< Integer > v1 = graph.addVertex().init( 1 );
+		final ObjectVertex< Integer > v2 = graph.addVertex().init( 2 );
+		final ObjectEdge< Integer > e01 = graph.addEdge( v0, v1 );
+		final ObjectEdge< Integer > e12 = graph.addEdge( v1, v2 );
+		final ObjectEdge< Integer > e20 = graph.addEdge( v2, v0 );
+		graph.addEdge( v1, v1 );
+
+		graph.removeAllEdges( new RefCollectionWrapper<>( Arrays.asList( e01, e20 ) ) );
+		assertEquals( "Unexpected number of edges.", 2, graph.edges().size() );
+		assertTrue( "Vertex " + v0 + " should have no edges.", v0.edges().isEmpty() );
+		assertEquals( "Unexpected incoming edges for vertex " + v2 + ".", e12, v2.incomingEdges().iterator().next() );
+
+		graph.removeAll( new RefCollectionWrapper<>( Arrays.asList( v1 ) ) );
+		assertEquals( "Unexpected number of vertices.", 2, graph.vertices().size() );
+		assertTrue( "Graph should have no edges.", graph.edges().isEmpty() );
+		assertTrue( "Vertex " + v2 + " should have no edges.", v2.edges().isEmpty() );
+	}
+
 }
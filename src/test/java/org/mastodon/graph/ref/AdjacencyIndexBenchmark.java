@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.TestSimpleEdge;
+import org.mastodon.graph.TestSimpleGraph;
+import org.mastodon.graph.TestSimpleVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the time to build simple star graphs (one hub vertex with outgoing
+ * edges to all other vertices, and each other vertex with an edge back to the
+ * hub) with {@link AbstractSimpleEdgePool#addEdge}, which checks for existing
+ * edges with {@link AbstractEdgePool#getEdge}. Compares building without
+ * adjacency index, with an index of all vertices, and with an index of high
+ * out-degree vertices only.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@Measurement( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@State( Scope.Benchmark )
+public class AdjacencyIndexBenchmark
+{
+	@Param( { "100", "1000", "10000", "50000" } )
+	private int fanOut;
+
+	@Param( { "none", "all", "adaptive" } )
+	private String index;
+
+	@Benchmark
+	public TestSimpleGraph benchmarkBuildStarGraph()
+	{
+		final TestSimpleGraph graph = new TestSimpleGraph( fanOut + 1 );
+		if ( index.equals( "all" ) )
+			graph.enableAdjacencyIndex();
+		else if ( index.equals( "adaptive" ) )
+			graph.enableAdjacencyIndex( 32 );
+		final TestSimpleVertex hub = graph.addVertex().init( 0 );
+		final TestSimpleVertex leaf = graph.vertexRef();
+		final TestSimpleEdge eref = graph.edgeRef();
+		for ( int i = 0; i < fanOut; i++ )
+		{
+			graph.addVertex( leaf ).init( i + 1 );
+			graph.addEdge( hub, leaf, eref );
+			graph.addEdge( leaf, hub, eref );
+		}
+		graph.releaseRef( leaf );
+		graph.releaseRef( eref );
+		return graph;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder().include( AdjacencyIndexBenchmark.class.getName() ).build();
+		new Runner( options ).run();
+	}
+}
@@ -0,0 +1,222 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestSimpleEdge;
+import org.mastodon.graph.TestSimpleGraph;
+import org.mastodon.graph.TestSimpleVertex;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RandomTestGraphs;
+
+/**
+ * Tests that {@link AbstractEdgePool#getEdge} and
+ * {@link GraphImp#getEdges(AbstractVertex, AbstractVertex)} give the same
+ * results with and without an adjacency index.
+ */
+public class AdjacencyIndexTest
+{
+	private static final int NUM_VERTICES = 20;
+
+	@Test
+	public void testRandomEdits()
+	{
+		testRandomEdits( 0, false );
+		testRandomEdits( 4, false );
+		testRandomEdits( 0, true );
+		testRandomEdits( 4, true );
+	}
+
+	/**
+	 * Applies the same random sequence of edge additions, insertions and
+	 * removals, and vertex removals, to multigraphs with and without an
+	 * adjacency index, and compares edge lookups between all vertex pairs.
+	 */
+	private static void testRandomEdits( final int minDegree, final boolean prevEdgeIndices )
+	{
+		final TestGraph expected = new TestGraph( 10, false, prevEdgeIndices );
+		final TestGraph actual = new TestGraph( 10, false, prevEdgeIndices );
+		actual.enableAdjacencyIndex( minDegree );
+		for ( int i = 0; i < NUM_VERTICES; ++i )
+		{
+			expected.addVertex().init( i );
+			actual.addVertex().init( i );
+		}
+
+		final Random random = new Random( 1l );
+		final TestVertex s1 = expected.vertexRef();
+		final TestVertex t1 = expected.vertexRef();
+		final TestVertex s2 = actual.vertexRef();
+		final TestVertex t2 = actual.vertexRef();
+		final TestEdge e1 = expected.edgeRef();
+		final TestEdge e2 = actual.edgeRef();
+		for ( int i = 0; i < 3000; ++i )
+		{
+			final int si = random.nextInt( NUM_VERTICES );
+			final int ti = random.nextInt( NUM_VERTICES );
+			expected.getVertexPool().getObject( si, s1 );
+			expected.getVertexPool().getObject( ti, t1 );
+			actual.getVertexPool().getObject( si, s2 );
+			actual.getVertexPool().getObject( ti, t2 );
+			final int op = random.nextInt( 20 );
+			if ( op < 6 )
+			{
+				expected.addEdge( s1, t1, e1 );
+				actual.addEdge( s2, t2, e2 );
+			}
+			else if ( op < 12 )
+			{
+				final int outIndex = random.nextInt( s1.outgoingEdges().size() + 1 );
+				final int inIndex = random.nextInt( t1.incomingEdges().size() + 1 );
+				expected.insertEdge( s1, outIndex, t1, inIndex, e1 );
+				actual.insertEdge( s2, outIndex, t2, inIndex, e2 );
+			}
+			else if ( op < 19 )
+			{
+				if ( !t1.incomingEdges().isEmpty() )
+				{
+					final int inIndex = random.nextInt( t1.incomingEdges().size() );
+					expected.remove( t1.incomingEdges().get( inIndex, e1 ) );
+					actual.remove( t2.incomingEdges().get( inIndex, e2 ) );
+				}
+			}
+			else
+			{
+				// remove a vertex, and re-add it at the same pool index
+				expected.remove( s1 );
+				actual.remove( s2 );
+				expected.addVertex( s1 ).init( si );
+				actual.addVertex( s2 ).init( si );
+			}
+			if ( i % 100 == 0 )
+				assertSameEdges( expected, actual );
+		}
+		assertSameEdges( expected, actual );
+	}
+
+	@Test
+	public void testSimpleGraph()
+	{
+		final TestSimpleGraph graph = new TestSimpleGraph();
+		graph.enableAdjacencyIndex();
+		final TestSimpleVertex a = graph.addVertex().init( 0 );
+		final TestSimpleVertex b = graph.addVertex().init( 1 );
+		final TestSimpleVertex c = graph.addVertex().init( 2 );
+
+		final TestSimpleEdge ab = graph.addEdge( a, b );
+		assertNotNull( ab );
+		assertNull( graph.addEdge( a, b ) );
+		assertNull( graph.insertEdge( a, 0, b, 0 ) );
+		assertNotNull( graph.insertEdge( a, 0, c, 0 ) );
+		assertEquals( ab, graph.getEdge( a, b ) );
+		assertEquals( 1, graph.getEdges( a, b ).size() );
+		assertTrue( graph.getEdges( b, a ).isEmpty() );
+
+		graph.remove( ab );
+		assertNull( graph.getEdge( a, b ) );
+		assertEquals( 0, graph.getEdges( a, b ).size() );
+		assertNotNull( graph.addEdge( a, b ) );
+
+		graph.remove( c );
+		assertNull( graph.getEdge( a, c ) );
+		assertEquals( 1, a.outgoingEdges().size() );
+	}
+
+	@Test
+	public void testEnableOnExistingGraph()
+	{
+		final TestGraph expected = RandomTestGraphs.build( new TestGraph(), NUM_VERTICES, 200, 0 );
+		final TestGraph actual = RandomTestGraphs.build( new TestGraph(), NUM_VERTICES, 200, 0 );
+		actual.enableAdjacencyIndex();
+		assertTrue( actual.getEdgePool().hasAdjacencyIndex() );
+		assertSameEdges( expected, actual );
+
+		actual.disableAdjacencyIndex();
+		assertFalse( actual.getEdgePool().hasAdjacencyIndex() );
+		assertSameEdges( expected, actual );
+	}
+
+	@Test
+	public void testCompact()
+	{
+		final TestGraph expected = RandomTestGraphs.build( new TestGraph(), NUM_VERTICES, 200, 0 );
+		final TestGraph actual = RandomTestGraphs.build( new TestGraph(), NUM_VERTICES, 200, 0 );
+		actual.enableAdjacencyIndex();
+		final TestVertex ref1 = expected.vertexRef();
+		final TestVertex ref2 = actual.vertexRef();
+		for ( int i = 0; i < NUM_VERTICES; i += 3 )
+		{
+			expected.remove( expected.getVertexPool().getObject( i, ref1 ) );
+			actual.remove( actual.getVertexPool().getObject( i, ref2 ) );
+		}
+		expected.compact();
+		actual.compact();
+		assertSameEdges( expected, actual );
+	}
+
+	private static void assertSameEdges( final TestGraph expected, final TestGraph actual )
+	{
+		final TestVertex s1 = expected.vertexRef();
+		final TestVertex t1 = expected.vertexRef();
+		final TestVertex s2 = actual.vertexRef();
+		final TestVertex t2 = actual.vertexRef();
+		final TestEdge e1 = expected.edgeRef();
+		final TestEdge e2 = actual.edgeRef();
+		for ( int si = 0; si < NUM_VERTICES; ++si )
+		{
+			if ( expected.getVertexPool().getObjectIfExists( si, s1 ) == null )
+				continue;
+			actual.getVertexPool().getObject( si, s2 );
+			for ( int ti = 0; ti < NUM_VERTICES; ++ti )
+			{
+				if ( expected.getVertexPool().getObjectIfExists( ti, t1 ) == null )
+					continue;
+				actual.getVertexPool().getObject( ti, t2 );
+				final TestEdge edge1 = expected.getEdge( s1, t1, e1 );
+				final TestEdge edge2 = actual.getEdge( s2, t2, e2 );
+				final String pair = si + " -> " + ti;
+				if ( edge1 == null )
+					assertNull( pair, edge2 );
+				else
+					assertEquals( pair, edge1.getInternalPoolIndex(), edge2.getInternalPoolIndex() );
+				assertEquals( pair, expected.getEdges( s1, t1 ).size(), actual.getEdges( s2, t2 ).size() );
+			}
+		}
+	}
+}
@@ -0,0 +1,280 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.mastodon.collection.RefCollections;
+import org.mastodon.collection.RefList;
+import org.mastodon.graph.BatchGraphListener;
+import org.mastodon.graph.GraphListener;
+import org.mastodon.graph.ListenableTestEdge;
+import org.mastodon.graph.ListenableTestGraph;
+import org.mastodon.graph.ListenableTestVertex;
+
+/**
+ * Tests that {@link ListenableGraphImp} sends batches of changes to
+ * {@link BatchGraphListener}s, and that {@link GraphListener}s keep receiving
+ * every change.
+ */
+public class BatchGraphListenerTest
+{
+	/**
+	 * Records batches as strings.
+	 */
+	private static class Recorder implements BatchGraphListener
+	{
+		final List< String > batches = new ArrayList<>();
+
+		@Override
+		public void graphRebuilt()
+		{
+			batches.add( "rebuilt" );
+		}
+
+		@Override
+		public void batchCompleted( final int[] addedVertices, final int[] removedVertices, final int[] addedEdges, final int[] removedEdges )
+		{
+			batches.add( "+v" + Arrays.toString( addedVertices )
+					+ " -v" + Arrays.toString( removedVertices )
+					+ " +e" + Arrays.toString( addedEdges )
+					+ " -e" + Arrays.toString( removedEdges ) );
+		}
+	}
+
+	/**
+	 * Records {@link GraphListener} events as strings.
+	 */
+	private static class EventRecorder implements GraphListener< ListenableTestVertex, ListenableTestEdge >
+	{
+		final List< String > events = new ArrayList<>();
+
+		@Override
+		public void graphRebuilt()
+		{
+			events.add( "rebuilt" );
+		}
+
+		@Override
+		public void vertexAdded( final ListenableTestVertex vertex )
+		{
+			events.add( "+v" + vertex.getInternalPoolIndex() );
+		}
+
+		@Override
+		public void vertexRemoved( final ListenableTestVertex vertex )
+		{
+			events.add( "-v" + vertex.getInternalPoolIndex() );
+		}
+
+		@Override
+		public void edgeAdded( final ListenableTestEdge edge )
+		{
+			events.add( "+e" + edge.getInternalPoolIndex() );
+		}
+
+		@Override
+		public void edgeRemoved( final ListenableTestEdge edge )
+		{
+			events.add( "-e" + edge.getInternalPoolIndex() );
+		}
+	}
+
+	@Test
+	public void testImplicitBatches()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final Recorder recorder = new Recorder();
+		graph.addBatchGraphListener( recorder );
+
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestEdge ab = graph.addEdge( a, b ).init();
+		graph.addEdge( b, a ).init();
+		graph.remove( ab );
+		graph.remove( a );
+
+		assertEquals( Arrays.asList(
+				"+v[0] -v[] +e[] -e[]",
+				"+v[1] -v[] +e[] -e[]",
+				"+v[] -v[] +e[0] -e[]",
+				"+v[] -v[] +e[1] -e[]",
+				"+v[] -v[] +e[] -e[0]",
+				"+v[] -v[0] +e[] -e[1]" ), recorder.batches );
+	}
+
+	@Test
+	public void testBatch()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestVertex c = graph.addVertex().init( 2, 0 );
+		graph.addEdge( a, b ).init();
+		graph.addEdge( b, c ).init();
+
+		final Recorder recorder = new Recorder();
+		graph.addBatchGraphListener( recorder );
+		final EventRecorder events = new EventRecorder();
+		graph.addGraphListener( events );
+
+		graph.beginBatch();
+		// removes vertex 0 and edge 0
+		graph.remove( a );
+		// adds vertex 3, and reuses the id of removed vertex 0
+		final ListenableTestVertex d = graph.addVertex().init( 3, 0 );
+		// adds edge 2 and removes it again
+		graph.remove( graph.addEdge( c, d ).init() );
+		final ListenableTestVertex e = graph.addVertex().init( 4, 0 );
+		graph.beginBatch();
+		graph.addEdge( d, e ).init();
+		graph.endBatch();
+		assertTrue( recorder.batches.isEmpty() );
+		graph.endBatch();
+
+		assertEquals( Arrays.asList( "-e0", "-v0", "+v0", "+e0", "-e0", "+v3", "+e0" ), events.events );
+		assertEquals( Arrays.asList( "+v[0, 3] -v[0] +e[0] -e[0]" ), recorder.batches );
+	}
+
+	@Test
+	public void testCoalesce()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final Recorder recorder = new Recorder();
+		graph.addBatchGraphListener( recorder );
+
+		graph.beginBatch();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		graph.addEdge( a, b ).init();
+		graph.remove( a );
+		graph.endBatch();
+		assertEquals( Arrays.asList( "+v[1] -v[] +e[] -e[]" ), recorder.batches );
+
+		// nothing is sent if all changes cancel each other
+		recorder.batches.clear();
+		graph.beginBatch();
+		graph.remove( graph.addVertex().init( 2, 0 ) );
+		graph.endBatch();
+		assertTrue( recorder.batches.isEmpty() );
+	}
+
+	@Test
+	public void testRemoveAll()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestVertex c = graph.addVertex().init( 2, 0 );
+		graph.addEdge( a, b ).init();
+		graph.addEdge( b, c ).init();
+		graph.addEdge( c, a ).init();
+
+		final Recorder recorder = new Recorder();
+		graph.addBatchGraphListener( recorder );
+		final RefList< ListenableTestVertex > vertices = RefCollections.createRefList( graph.vertices() );
+		vertices.add( a );
+		vertices.add( b );
+		graph.removeAll( vertices );
+		assertEquals( Arrays.asList( "+v[] -v[0, 1] +e[] -e[0, 1, 2]" ), recorder.batches );
+	}
+
+	@Test
+	public void testRebuilt()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final Recorder recorder = new Recorder();
+		graph.addBatchGraphListener( recorder );
+
+		graph.beginBatch();
+		graph.addVertex().init( 0, 0 );
+		graph.pauseListeners();
+		graph.addVertex().init( 1, 0 );
+		graph.resumeListeners();
+		graph.endBatch();
+		assertEquals( Arrays.asList( "rebuilt" ), recorder.batches );
+
+		graph.removeBatchGraphListener( recorder );
+		graph.addVertex().init( 2, 0 );
+		assertEquals( Arrays.asList( "rebuilt" ), recorder.batches );
+	}
+
+	@Test
+	public void testCoalescedGraphListener()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestVertex c = graph.addVertex().init( 2, 0 );
+		graph.addEdge( a, b ).init();
+		graph.addEdge( b, c ).init();
+
+		final EventRecorder events = new EventRecorder();
+		assertTrue( graph.addCoalescedGraphListener( events ) );
+		assertFalse( graph.addCoalescedGraphListener( events ) );
+
+		graph.beginBatch();
+		// removals of existing vertices and edges are sent immediately
+		graph.remove( a );
+		assertEquals( Arrays.asList( "-e0", "-v0" ), events.events );
+		// reuses the id of removed vertex 0
+		final ListenableTestVertex d = graph.addVertex().init( 3, 0 );
+		// added and removed in the batch, not sent
+		graph.remove( graph.addEdge( c, d ).init() );
+		final ListenableTestVertex e = graph.addVertex().init( 4, 0 );
+		graph.addEdge( d, e ).init();
+		assertEquals( Arrays.asList( "-e0", "-v0" ), events.events );
+		graph.endBatch();
+		assertEquals( Arrays.asList( "-e0", "-v0", "+v0", "+v3", "+e0" ), events.events );
+
+		// outside of a batch, every change is sent
+		events.events.clear();
+		graph.remove( graph.addVertex().init( 5, 0 ) );
+		assertEquals( Arrays.asList( "+v4", "-v4" ), events.events );
+
+		events.events.clear();
+		assertTrue( graph.removeCoalescedGraphListener( events ) );
+		assertFalse( graph.removeCoalescedGraphListener( events ) );
+		graph.addVertex().init( 6, 0 );
+		assertTrue( events.events.isEmpty() );
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testUnbalancedEndBatch()
+	{
+		new ListenableTestGraph().endBatch();
+	}
+}
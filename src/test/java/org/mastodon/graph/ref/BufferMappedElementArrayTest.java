@@ -0,0 +1,171 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RandomTestGraphs;
+import org.mastodon.graph.ref.BufferMappedElementArray.MappedFactory;
+import org.mastodon.graph.ref.BufferTestGraph.BufferTestVertex;
+
+public class BufferMappedElementArrayTest
+{
+	private File vertexFile;
+
+	private File edgeFile;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		vertexFile = File.createTempFile( "vertices", ".pool" );
+		edgeFile = File.createTempFile( "edges", ".pool" );
+	}
+
+	@After
+	public void tearDown()
+	{
+		vertexFile.delete();
+		edgeFile.delete();
+	}
+
+	@Test
+	public void testDirect()
+	{
+		final TestGraph expected = new TestGraph( 1 );
+		RandomTestGraphs.build( expected, 200, 2000, 7 );
+		// small pages, to cover elements in several pages
+		final BufferTestGraph graph = new BufferTestGraph( 1, BufferMappedElementArray.factory( 100 ), BufferMappedElementArray.factory( 100 ) );
+		RandomTestGraphs.build( graph, 200, 2000, 7, BufferTestVertex::init );
+		assertEquals( adjacency( expected, TestVertex::getId ), adjacency( graph, BufferTestVertex::getId ) );
+	}
+
+	@Test
+	public void testMappedRestore() throws IOException
+	{
+		final TestGraph expected = new TestGraph( 1 );
+		RandomTestGraphs.build( expected, 200, 2000, 7 );
+		expected.compact();
+
+		final MappedFactory vertexArrays = BufferMappedElementArray.mapped( vertexFile, 100 );
+		final MappedFactory edgeArrays = BufferMappedElementArray.mapped( edgeFile, 100 );
+		final BufferTestGraph graph = new BufferTestGraph( 1, vertexArrays, edgeArrays );
+		RandomTestGraphs.build( graph, 200, 2000, 7, BufferTestVertex::init );
+		graph.compact();
+		final int numVertices = graph.vertices().size();
+		final int numEdges = graph.edges().size();
+		vertexArrays.close();
+		edgeArrays.close();
+
+		final MappedFactory vertexArrays2 = BufferMappedElementArray.mapped( vertexFile, 100 );
+		final MappedFactory edgeArrays2 = BufferMappedElementArray.mapped( edgeFile, 100 );
+		final BufferTestGraph reopened = new BufferTestGraph( 1, vertexArrays2, edgeArrays2 );
+		reopened.restore( numVertices, numEdges );
+		assertEquals( adjacency( expected, TestVertex::getId ), adjacency( reopened, BufferTestVertex::getId ) );
+
+		// the restored graph can be modified
+		final BufferTestVertex v = reopened.addVertex().init( -1 );
+		reopened.addEdge( reopened.getVertexPool().getObject( 0, reopened.vertexRef() ), v );
+		assertEquals( numVertices + 1, reopened.vertices().size() );
+		assertEquals( numEdges + 1, reopened.edges().size() );
+		vertexArrays2.close();
+		edgeArrays2.close();
+	}
+
+	@Test
+	public void testNoOpenFileHandles() throws IOException
+	{
+		final File fds = new File( "/proc/self/fd" );
+		assumeTrue( fds.isDirectory() );
+
+		final MappedFactory vertexArrays = BufferMappedElementArray.mapped( vertexFile, 100 );
+		final MappedFactory edgeArrays = BufferMappedElementArray.mapped( edgeFile, 100 );
+		final BufferTestGraph graph = new BufferTestGraph( 1, vertexArrays, edgeArrays );
+		// grow the pools, such that pages are mapped several times
+		RandomTestGraphs.build( graph, 200, 2000, 7, BufferTestVertex::init );
+
+		final Path vertexPath = vertexFile.toPath().toRealPath();
+		final Path edgePath = edgeFile.toPath().toRealPath();
+		for ( final File fd : fds.listFiles() )
+		{
+			try
+			{
+				final Path target = Files.readSymbolicLink( fd.toPath() );
+				assertNotEquals( vertexPath, target );
+				assertNotEquals( edgePath, target );
+			}
+			catch ( final IOException e )
+			{
+				// the descriptor was closed while listing
+			}
+		}
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testRestoreNonEmpty()
+	{
+		final BufferTestGraph graph = new BufferTestGraph( 10 );
+		graph.addVertex().init( 0 );
+		graph.restore( 1, 0 );
+	}
+
+	private static < V extends AbstractVertex< V, E, ?, ? >, E extends AbstractEdge< E, V, ?, ? > >
+			List< String > adjacency( final GraphImp< ?, ?, V, E, ? > graph, final ToIntFunction< V > id )
+	{
+		final List< String > adjacency = new ArrayList<>();
+		final V ref = graph.vertexRef();
+		for ( final V v : graph.vertices() )
+		{
+			final StringBuilder sb = new StringBuilder();
+			sb.append( id.applyAsInt( v ) ).append( " out:" );
+			for ( final E e : v.outgoingEdges() )
+				sb.append( " " ).append( id.applyAsInt( e.getTarget( ref ) ) );
+			sb.append( " in:" );
+			for ( final E e : v.incomingEdges() )
+				sb.append( " " ).append( id.applyAsInt( e.getSource( ref ) ) );
+			adjacency.add( sb.toString() );
+		}
+		graph.releaseRef( ref );
+		return adjacency;
+	}
+}
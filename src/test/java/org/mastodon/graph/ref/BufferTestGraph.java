@@ -0,0 +1,148 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import org.mastodon.pool.MappedElementArray;
+import org.mastodon.pool.SingleArrayMemPool;
+import org.mastodon.pool.attributes.IntAttribute;
+import org.mastodon.pool.attributes.IntAttributeValue;
+
+/**
+ * A graph like {@link org.mastodon.graph.TestGraph}, with vertex and edge
+ * pools backed by {@link BufferMappedElementArray}s.
+ */
+public class BufferTestGraph extends GraphImp< BufferTestGraph.BufferTestVertexPool, BufferTestGraph.BufferTestEdgePool, BufferTestGraph.BufferTestVertex, BufferTestGraph.BufferTestEdge, BufferMappedElement >
+{
+	public static class BufferTestVertex extends AbstractVertex< BufferTestVertex, BufferTestEdge, BufferTestVertexPool, BufferMappedElement >
+	{
+		private final IntAttributeValue id;
+
+		protected BufferTestVertex( final BufferTestVertexPool pool )
+		{
+			super( pool );
+			id = pool.id.createQuietAttributeValue( this );
+		}
+
+		public BufferTestVertex init( final int id )
+		{
+			this.id.set( id );
+			return this;
+		}
+
+		public int getId()
+		{
+			return id.get();
+		}
+	}
+
+	public static class BufferTestEdge extends AbstractEdge< BufferTestEdge, BufferTestVertex, BufferTestEdgePool, BufferMappedElement >
+	{
+		protected BufferTestEdge( final BufferTestEdgePool pool )
+		{
+			super( pool );
+		}
+	}
+
+	public static class BufferTestVertexPool extends AbstractVertexPool< BufferTestVertex, BufferTestEdge, BufferMappedElement >
+	{
+		static class BufferTestVertexLayout extends AbstractVertexLayout
+		{
+			final IntField id = intField();
+		}
+
+		static BufferTestVertexLayout layout = new BufferTestVertexLayout();
+
+		final IntAttribute< BufferTestVertex > id;
+
+		public BufferTestVertexPool( final int initialCapacity, final MappedElementArray.Factory< BufferMappedElementArray > arrayFactory )
+		{
+			super( initialCapacity, layout, BufferTestVertex.class, SingleArrayMemPool.factory( arrayFactory ) );
+			id = new IntAttribute<>( layout.id, this );
+		}
+
+		@Override
+		protected BufferTestVertex createEmptyRef()
+		{
+			return new BufferTestVertex( this );
+		}
+	}
+
+	public static class BufferTestEdgePool extends AbstractEdgePool< BufferTestEdge, BufferTestVertex, BufferMappedElement >
+	{
+		public BufferTestEdgePool( final int initialCapacity, final BufferTestVertexPool vertexPool, final MappedElementArray.Factory< BufferMappedElementArray > arrayFactory )
+		{
+			super( initialCapacity, AbstractEdgePool.layout, BufferTestEdge.class, SingleArrayMemPool.factory( arrayFactory ), vertexPool );
+		}
+
+		@Override
+		protected BufferTestEdge createEmptyRef()
+		{
+			return new BufferTestEdge( this );
+		}
+	}
+
+	/**
+	 * Creates a graph with pools backed by direct buffers.
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity of the vertex and edge pools.
+	 */
+	public BufferTestGraph( final int initialCapacity )
+	{
+		this( initialCapacity, BufferMappedElementArray.factory, BufferMappedElementArray.factory );
+	}
+
+	/**
+	 * Creates a graph with pools backed by the specified arrays.
+	 *
+	 * @param initialCapacity
+	 *            the initial capacity of the vertex and edge pools.
+	 * @param vertexArrayFactory
+	 *            creates the array of the vertex pool.
+	 * @param edgeArrayFactory
+	 *            creates the array of the edge pool.
+	 */
+	public BufferTestGraph(
+			final int initialCapacity,
+			final MappedElementArray.Factory< BufferMappedElementArray > vertexArrayFactory,
+			final MappedElementArray.Factory< BufferMappedElementArray > edgeArrayFactory )
+	{
+		super( new BufferTestEdgePool( initialCapacity, new BufferTestVertexPool( initialCapacity, vertexArrayFactory ), edgeArrayFactory ) );
+	}
+
+	public BufferTestVertexPool getVertexPool()
+	{
+		return vertexPool;
+	}
+
+	public BufferTestEdgePool getEdgePool()
+	{
+		return edgePool;
+	}
+}
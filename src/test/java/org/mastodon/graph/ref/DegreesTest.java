@@ -0,0 +1,113 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.mastodon.graph.Edges;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RandomTestGraphs;
+
+/**
+ * Tests that the in-degree and out-degree of vertices are maintained
+ * correctly by {@link AbstractEdgePool}, for all combinations of the other
+ * optional layout fields.
+ */
+public class DegreesTest
+{
+	@Test
+	public void testAddInsertRemove()
+	{
+		final TestGraph graph = new TestGraph( 10, false, false, true );
+		final TestVertex a = graph.addVertex().init( 0 );
+		final TestVertex b = graph.addVertex().init( 1 );
+		final TestVertex c = graph.addVertex().init( 2 );
+		assertEquals( 0, a.edges().size() );
+
+		final TestEdge ab = graph.addEdge( a, b );
+		graph.addEdge( a, c );
+		graph.insertEdge( c, 0, b, 0 );
+		graph.addEdge( a, a );
+		assertEquals( 3, a.outgoingEdges().size() );
+		assertEquals( 1, a.incomingEdges().size() );
+		assertEquals( 4, a.edges().size() );
+		assertEquals( 2, b.incomingEdges().size() );
+		assertEquals( 2, c.edges().size() );
+		assertDegrees( graph );
+
+		graph.remove( ab );
+		assertEquals( 2, a.outgoingEdges().size() );
+		assertEquals( 1, b.incomingEdges().size() );
+		assertDegrees( graph );
+
+		graph.remove( a );
+		assertEquals( 0, c.incomingEdges().size() );
+		assertEquals( 1, c.outgoingEdges().size() );
+		assertDegrees( graph );
+	}
+
+	@Test
+	public void testRandomEdits()
+	{
+		for ( int flags = 0; flags < 4; ++flags )
+			testRandomEdits( ( flags & 1 ) != 0, ( flags & 2 ) != 0 );
+	}
+
+	private static void testRandomEdits( final boolean lastEdgeIndices, final boolean prevEdgeIndices )
+	{
+		final TestGraph graph = RandomTestGraphs.build( new TestGraph( 10, lastEdgeIndices, prevEdgeIndices, true ), 20, 2000, 0 );
+		assertDegrees( graph );
+
+		final TestVertex s = graph.vertexRef();
+		for ( int i = 0; i < 20; i += 3 )
+			graph.remove( graph.getVertexPool().getObject( i, s ) );
+		assertDegrees( graph );
+	}
+
+	private static void assertDegrees( final TestGraph graph )
+	{
+		for ( final TestVertex v : graph.vertices() )
+		{
+			assertEquals( count( v.incomingEdges() ), v.incomingEdges().size() );
+			assertEquals( count( v.outgoingEdges() ), v.outgoingEdges().size() );
+			assertEquals( count( v.edges() ), v.edges().size() );
+		}
+	}
+
+	private static int count( final Edges< TestEdge > edges )
+	{
+		int n = 0;
+		for ( @SuppressWarnings( "unused" ) final TestEdge e : edges )
+			++n;
+		return n;
+	}
+}
@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares constructing a random forest from (source, target, sourceOutIndex,
+ * targetInIndex) edge tuples with
+ * {@link GraphImp#insertEdge(AbstractVertex, int, AbstractVertex, int, AbstractEdge)},
+ * the way {@code RawGraphIO} used to read graphs, and with
+ * {@link GraphBuilder}.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( value = 1, jvmArgs = { "-Xmx4g" } )
+@Warmup( iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS )
+@Measurement( iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS )
+@State( Scope.Benchmark )
+public class GraphBuilderBenchmark
+{
+	@Param( { "100000", "1000000" } )
+	private int numVertices;
+
+	@Param( { "2", "50" } )
+	private int maxOutDegree;
+
+	private int numEdges;
+
+	private int[] sources;
+
+	private int[] targets;
+
+	private int[] sourceOutIndices;
+
+	private int[] targetInIndices;
+
+	@Setup( Level.Trial )
+	public void createEdgeTuples()
+	{
+		final Random random = new Random( 1l );
+		final int[] outDegrees = new int[ numVertices ];
+		sources = new int[ numVertices ];
+		targets = new int[ numVertices ];
+		sourceOutIndices = new int[ numVertices ];
+		targetInIndices = new int[ numVertices ];
+		numEdges = 0;
+		for ( int i = 1; i < numVertices; i++ )
+		{
+			final int source = Math.max( 0, i - 1 - random.nextInt( maxOutDegree ) );
+			sources[ numEdges ] = source;
+			targets[ numEdges ] = i;
+			sourceOutIndices[ numEdges ] = outDegrees[ source ]++;
+			targetInIndices[ numEdges ] = 0;
+			++numEdges;
+		}
+	}
+
+	@Benchmark
+	public TestGraph benchmarkInsertEdge()
+	{
+		final TestGraph graph = new TestGraph( numVertices );
+		final int[] vertexIndices = new int[ numVertices ];
+		final TestVertex source = graph.vertexRef();
+		final TestVertex target = graph.vertexRef();
+		final TestEdge eref = graph.edgeRef();
+		for ( int i = 0; i < numVertices; i++ )
+			vertexIndices[ i ] = graph.addVertex( source ).init( i ).getInternalPoolIndex();
+		for ( int i = 0; i < numEdges; i++ )
+		{
+			graph.getVertexPool().getObject( vertexIndices[ sources[ i ] ], source );
+			graph.getVertexPool().getObject( vertexIndices[ targets[ i ] ], target );
+			graph.insertEdge( source, sourceOutIndices[ i ], target, targetInIndices[ i ], eref );
+		}
+		graph.releaseRef( source );
+		graph.releaseRef( target );
+		graph.releaseRef( eref );
+		return graph;
+	}
+
+	@Benchmark
+	public TestGraph benchmarkGraphBuilder()
+	{
+		final TestGraph graph = new TestGraph( numVertices );
+		final GraphBuilder< TestVertex, TestEdge > builder = new GraphBuilder<>( graph, numVertices, numEdges );
+		final TestVertex vref = graph.vertexRef();
+		final TestEdge eref = graph.edgeRef();
+		for ( int i = 0; i < numVertices; i++ )
+			builder.addVertex( vref ).init( i );
+		for ( int i = 0; i < numEdges; i++ )
+			builder.addEdge( sources[ i ], targets[ i ], sourceOutIndices[ i ], targetInIndices[ i ], eref );
+		builder.finish();
+		graph.releaseRef( vref );
+		graph.releaseRef( eref );
+		return graph;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder().include( GraphBuilderBenchmark.class.getName() ).build();
+		new Runner( options ).run();
+	}
+}
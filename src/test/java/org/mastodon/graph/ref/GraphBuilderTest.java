@@ -0,0 +1,304 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+
+import org.junit.Test;
+import org.mastodon.graph.GraphChangeListener;
+import org.mastodon.graph.GraphIdBimap;
+import org.mastodon.graph.GraphListener;
+import org.mastodon.graph.ListenableTestEdge;
+import org.mastodon.graph.ListenableTestGraph;
+import org.mastodon.graph.ListenableTestVertex;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestSimpleEdge;
+import org.mastodon.graph.TestSimpleGraph;
+import org.mastodon.graph.TestSimpleVertex;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RandomTestGraphs;
+import org.mastodon.graph.io.RawGraphIO;
+import org.mastodon.graph.io.TestGraphSerializer;
+
+/**
+ * Tests that {@link GraphBuilder} reproduces the adjacency lists of a graph
+ * built edge by edge, for all combinations of the optional layout fields.
+ */
+public class GraphBuilderTest
+{
+	@Test
+	public void testBuild()
+	{
+		final TestGraph original = RandomTestGraphs.build( new TestGraph(), 20, 500, 0 );
+		for ( int flags = 0; flags < 8; ++flags )
+		{
+			final TestGraph graph = new TestGraph( 10, ( flags & 1 ) != 0, ( flags & 2 ) != 0, ( flags & 4 ) != 0 );
+			final GraphBuilder< TestVertex, TestEdge > builder = new GraphBuilder<>( graph, 2, 2 );
+			final TestVertex vref = graph.vertexRef();
+			final TestEdge eref = graph.edgeRef();
+			// vertices of the original graph have ids 0, 1, 2, ... in iteration order
+			for ( final TestVertex v : original.vertices() )
+				builder.addVertex( vref ).init( v.getId() );
+			// add edges in reverse iteration order, with positions in the final graph
+			final List< Integer > edges = new ArrayList<>();
+			for ( final TestEdge e : original.edges() )
+				edges.add( 0, e.getInternalPoolIndex() );
+			final TestEdge e = original.edgeRef();
+			for ( final int index : edges )
+			{
+				original.getEdgePool().getObject( index, e );
+				builder.addEdge( e.getSource().getId(), e.getTarget().getId(), e.getSourceOutIndex(), e.getTargetInIndex(), eref );
+			}
+			builder.finish();
+			assertSameAdjacency( original, graph );
+
+			// removing edges relies on the optional fields linked by the builder
+			final Random random = new Random( flags );
+			while ( !graph.edges().isEmpty() )
+			{
+				final TestVertex s = graph.getVertexPool().getObject( random.nextInt( original.vertices().size() ), vref );
+				if ( !s.outgoingEdges().isEmpty() )
+					graph.remove( s.outgoingEdges().get( random.nextInt( s.outgoingEdges().size() ), eref ) );
+			}
+			for ( final TestVertex v : graph.vertices() )
+			{
+				assertTrue( v.edges().isEmpty() );
+				assertEquals( 0, v.edges().size() );
+			}
+		}
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testUnknownVertex()
+	{
+		final TestGraph graph = new TestGraph();
+		final GraphBuilder< TestVertex, TestEdge > builder = new GraphBuilder<>( graph, 1, 1 );
+		builder.addVertex( graph.vertexRef() ).init( 0 );
+		builder.addEdge( 0, 1, 0, 0, graph.edgeRef() );
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testFinished()
+	{
+		final TestGraph graph = new TestGraph();
+		final GraphBuilder< TestVertex, TestEdge > builder = new GraphBuilder<>( graph, 1, 1 );
+		builder.finish();
+		builder.addVertex( graph.vertexRef() );
+	}
+
+	@Test
+	public void testListenable()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final Listener listener = new Listener();
+		graph.addGraphListener( listener );
+		graph.addGraphChangeListener( listener );
+
+		final GraphBuilder< ListenableTestVertex, ListenableTestEdge > builder = new GraphBuilder<>( graph, 3, 2 );
+		final ListenableTestVertex vref = graph.vertexRef();
+		final ListenableTestEdge eref = graph.edgeRef();
+		for ( int i = 0; i < 3; ++i )
+			builder.addVertex( vref ).init( i, 0 );
+		builder.addEdge( 0, 1, 0, 0, eref ).init();
+		builder.addEdge( 0, 2, 1, 0, eref ).init();
+		assertEquals( "", listener.toString() );
+		builder.finish();
+		assertEquals( "graph rebuilt, graph changed", listener.toString() );
+
+		graph.getVertexPool().getObject( 0, vref );
+		assertEquals( 2, vref.outgoingEdges().size() );
+		assertEquals( 2, vref.outgoingEdges().get( 1, eref ).getTarget().getId() );
+
+		graph.addVertex( vref ).init( 3, 0 );
+		assertEquals( "graph rebuilt, graph changed, vertex added", listener.toString() );
+	}
+
+	@Test
+	public void testClose()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex vref = graph.vertexRef();
+		final ListenableTestEdge eref = graph.edgeRef();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		graph.addEdge( a, b ).init();
+		final Listener listener = new Listener();
+		graph.addGraphListener( listener );
+
+		try (final GraphBuilder< ListenableTestVertex, ListenableTestEdge > builder = new GraphBuilder<>( graph, 2, 1 ))
+		{
+			builder.addVertex( vref ).init( 2, 0 );
+			builder.addVertex( vref ).init( 3, 0 );
+			builder.addEdge( 0, 1, 0, 0, eref ).init();
+		}
+		assertEquals( 2, graph.vertices().size() );
+		assertEquals( 1, graph.edges().size() );
+		assertEquals( 1, a.outgoingEdges().size() );
+		assertEquals( 1, b.incomingEdges().size() );
+		assertEquals( "graph rebuilt", listener.toString() );
+
+		graph.addVertex( vref ).init( 2, 0 );
+		assertEquals( "graph rebuilt, vertex added", listener.toString() );
+	}
+
+	@Test
+	public void testParallelEdges()
+	{
+		final TestSimpleGraph graph = new TestSimpleGraph();
+		final TestSimpleVertex vref = graph.vertexRef();
+		final TestSimpleEdge eref = graph.edgeRef();
+		graph.addVertex( vref ).init( 0 );
+		try (final GraphBuilder< TestSimpleVertex, TestSimpleEdge > builder = new GraphBuilder<>( graph, 2, 3 ))
+		{
+			builder.addVertex( vref ).init( 1 );
+			builder.addVertex( vref ).init( 2 );
+			builder.addEdge( 0, 1, 0, 0, eref );
+			builder.addEdge( 1, 0, 0, 0, eref );
+			builder.addEdge( 0, 1, 1, 1, eref );
+			builder.finish();
+			fail();
+		}
+		catch ( final IllegalArgumentException e )
+		{
+			// the graph is left unchanged
+			assertEquals( 1, graph.vertices().size() );
+			assertTrue( graph.edges().isEmpty() );
+			assertTrue( graph.vertices().iterator().next().edges().isEmpty() );
+		}
+	}
+
+	@Test
+	public void testRawGraphIO() throws IOException
+	{
+		final TestGraph original = RandomTestGraphs.build( new TestGraph(), 20, 500, 0 );
+		final GraphIdBimap< TestVertex, TestEdge > idmap = new GraphIdBimap<>( original.getVertexPool(), original.getEdgePool() );
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final ObjectOutputStream oos = new ObjectOutputStream( bytes ))
+		{
+			RawGraphIO.write( original, idmap, new TestGraphSerializer(), oos );
+		}
+
+		final TestGraph graph = new TestGraph();
+		try (final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ))
+		{
+			RawGraphIO.read( graph, new GraphIdBimap<>( graph.getVertexPool(), graph.getEdgePool() ), new TestGraphSerializer(), ois );
+		}
+		assertSameAdjacency( original, graph );
+	}
+
+	/**
+	 * Asserts that the graphs have vertices with the same ids, in the same
+	 * iteration order, with the same adjacency lists.
+	 */
+	private static void assertSameAdjacency( final TestGraph expected, final TestGraph actual )
+	{
+		assertEquals( expected.vertices().size(), actual.vertices().size() );
+		assertEquals( expected.edges().size(), actual.edges().size() );
+		final List< String > e = new ArrayList<>();
+		for ( final TestVertex v : expected.vertices() )
+			e.add( adjacency( v ) );
+		final List< String > a = new ArrayList<>();
+		for ( final TestVertex v : actual.vertices() )
+			a.add( adjacency( v ) );
+		assertEquals( e, a );
+	}
+
+	private static String adjacency( final TestVertex v )
+	{
+		final StringBuilder sb = new StringBuilder();
+		sb.append( v.getId() ).append( " out:" );
+		for ( final TestEdge e : v.outgoingEdges() )
+			sb.append( " " ).append( e.getTarget().getId() );
+		sb.append( " in:" );
+		for ( final TestEdge e : v.incomingEdges() )
+			sb.append( " " ).append( e.getSource().getId() );
+		sb.append( " degree: " ).append( v.edges().size() );
+		return sb.toString();
+	}
+
+	private static class Listener implements GraphListener< ListenableTestVertex, ListenableTestEdge >, GraphChangeListener
+	{
+		private final StringJoiner log = new StringJoiner( ", " );
+
+		@Override
+		public void graphRebuilt()
+		{
+			log.add( "graph rebuilt" );
+		}
+
+		@Override
+		public void vertexAdded( final ListenableTestVertex vertex )
+		{
+			log.add( "vertex added" );
+		}
+
+		@Override
+		public void vertexRemoved( final ListenableTestVertex vertex )
+		{
+			log.add( "vertex removed" );
+		}
+
+		@Override
+		public void edgeAdded( final ListenableTestEdge edge )
+		{
+			log.add( "edge added" );
+		}
+
+		@Override
+		public void edgeRemoved( final ListenableTestEdge edge )
+		{
+			log.add( "edge removed" );
+		}
+
+		@Override
+		public void graphChanged()
+		{
+			log.add( "graph changed" );
+		}
+
+		@Override
+		public String toString()
+		{
+			return log.toString();
+		}
+	}
+}
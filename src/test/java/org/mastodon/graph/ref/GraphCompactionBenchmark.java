@@ -0,0 +1,172 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.algorithm.traversal.BreadthFirstIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares traversal throughput of a heavily edited {@link TestGraph}, before
+ * and after {@link GraphImp#compact(int[]) compaction} in breadth-first
+ * order.
+ * <p>
+ * The graph is a random tree with additional random edges. Edges are added in
+ * random order, such that the outgoing edge lists are scattered over the edge
+ * pool. Then a third of the vertices is removed and replaced by new vertices
+ * with a single incoming edge, refilling the holes out of order.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( value = 1, jvmArgs = { "-Xmx8g" } )
+@Warmup( iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS )
+@Measurement( iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS )
+@State( Scope.Benchmark )
+public class GraphCompactionBenchmark
+{
+	@Param( { "1000000" } )
+	private int numVertices;
+
+	@Param( { "false", "true" } )
+	private boolean compacted;
+
+	private TestGraph graph;
+
+	private TestVertex root;
+
+	@Setup( Level.Trial )
+	public void buildGraph()
+	{
+		graph = new TestGraph( numVertices );
+		final TestVertex source = graph.vertexRef();
+		final TestVertex target = graph.vertexRef();
+		final TestEdge eref = graph.edgeRef();
+		for ( int i = 0; i < numVertices; i++ )
+			graph.addVertex( target ).init( i );
+
+		// tree edges and random edges, in random order
+		final Random random = new Random( 1l );
+		final int[] sources = new int[ 2 * numVertices ];
+		final int[] targets = new int[ 2 * numVertices ];
+		int numEdges = 0;
+		for ( int i = 1; i < numVertices; i++ )
+		{
+			sources[ numEdges ] = random.nextInt( i );
+			targets[ numEdges++ ] = i;
+			sources[ numEdges ] = i;
+			targets[ numEdges++ ] = random.nextInt( numVertices );
+		}
+		for ( int i = numEdges - 1; i > 0; --i )
+		{
+			final int j = random.nextInt( i + 1 );
+			final int s = sources[ i ];
+			final int t = targets[ i ];
+			sources[ i ] = sources[ j ];
+			targets[ i ] = targets[ j ];
+			sources[ j ] = s;
+			targets[ j ] = t;
+		}
+		for ( int i = 0; i < numEdges; i++ )
+			graph.addEdge(
+					graph.getVertexPool().getObject( sources[ i ], source ),
+					graph.getVertexPool().getObject( targets[ i ], target ),
+					eref );
+
+		// replace a third of the vertices
+		for ( int i = numVertices - 1; i > 0; i -= 3 )
+			graph.remove( graph.getVertexPool().getObject( i, target ) );
+		for ( int i = numVertices - 1; i > 0; i -= 3 )
+		{
+			// parent is a vertex that was not removed
+			final int p = random.nextInt( i );
+			final int parent = p > 0 && ( numVertices - 1 - p ) % 3 == 0 ? p - 1 : p;
+			graph.addVertex( target ).init( i );
+			graph.addEdge( graph.getVertexPool().getObject( parent, source ), target, eref );
+		}
+		graph.releaseRef( source );
+		graph.releaseRef( target );
+		graph.releaseRef( eref );
+
+		int rootIndex = 0;
+		if ( compacted )
+			rootIndex = graph.compact( GraphCompaction.breadthFirstOrder( graph ) ).getNewVertexIndex( rootIndex );
+		root = graph.getVertexPool().getObject( rootIndex, graph.vertexRef() );
+	}
+
+	@Benchmark
+	public int benchmarkBreadthFirst()
+	{
+		final BreadthFirstIterator< TestVertex, TestEdge > it = new BreadthFirstIterator<>( root, graph );
+		int count = 0;
+		while ( it.hasNext() )
+		{
+			it.next();
+			++count;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public long benchmarkEdgeScan()
+	{
+		final TestVertex tref = graph.vertexRef();
+		long sum = 0;
+		for ( final TestVertex v : graph.vertices() )
+			for ( final TestEdge e : v.outgoingEdges() )
+				sum += e.getTarget( tref ).getId();
+		graph.releaseRef( tref );
+		return sum;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder().include( GraphCompactionBenchmark.class.getName() ).build();
+		new Runner( options ).run();
+	}
+}
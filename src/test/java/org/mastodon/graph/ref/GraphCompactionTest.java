@@ -0,0 +1,257 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.StringJoiner;
+
+import org.junit.Test;
+import org.mastodon.graph.GraphChangeListener;
+import org.mastodon.graph.GraphListener;
+import org.mastodon.graph.ListenableTestEdge;
+import org.mastodon.graph.ListenableTestGraph;
+import org.mastodon.graph.ListenableTestVertex;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RandomTestGraphs;
+import org.mastodon.properties.DoublePropertyMap;
+import org.mastodon.properties.IntPropertyMap;
+import org.mastodon.properties.ObjPropertyMap;
+
+/**
+ * Tests that {@link GraphImp#compact(int[])} keeps the adjacency lists of a
+ * graph, for all combinations of the optional layout fields.
+ */
+public class GraphCompactionTest
+{
+	@Test
+	public void testCompact()
+	{
+		for ( int flags = 0; flags < 8; ++flags )
+		{
+			final TestGraph graph = RandomTestGraphs.build( new TestGraph( 10, ( flags & 1 ) != 0, ( flags & 2 ) != 0, ( flags & 4 ) != 0 ), 100, 500, 7 );
+			final List< String > expected = adjacency( graph );
+			final int[] ids = new int[ 100 ];
+			for ( final TestVertex v : graph.vertices() )
+				ids[ v.getInternalPoolIndex() ] = v.getId();
+
+			final GraphCompaction compaction = graph.compact( GraphCompaction.breadthFirstOrder( graph ) );
+			assertEquals( expected, adjacency( graph ) );
+
+			// no holes
+			for ( final TestVertex v : graph.vertices() )
+				assertTrue( v.getInternalPoolIndex() < graph.vertices().size() );
+			for ( final TestEdge e : graph.edges() )
+				assertTrue( e.getInternalPoolIndex() < graph.edges().size() );
+
+			// old-to-new mapping
+			final TestVertex vref = graph.vertexRef();
+			for ( int i = 0; i < ids.length; ++i )
+			{
+				final int index = compaction.getNewVertexIndex( i );
+				if ( index >= 0 )
+					assertEquals( ids[ i ], graph.getVertexPool().getObject( index, vref ).getId() );
+			}
+
+			// breadth-first order starts at a root
+			assertTrue( graph.getVertexPool().getObject( 0, vref ).incomingEdges().isEmpty() );
+
+			// outgoing edges of each vertex are consecutive
+			for ( final TestVertex v : graph.vertices() )
+			{
+				int previous = -1;
+				for ( final TestEdge e : v.outgoingEdges() )
+				{
+					assertTrue( previous < 0 || e.getInternalPoolIndex() == previous + 1 );
+					previous = e.getInternalPoolIndex();
+				}
+			}
+
+			// removing edges relies on the remapped links
+			final TestEdge eref = graph.edgeRef();
+			final Random random = new Random( flags );
+			while ( !graph.edges().isEmpty() )
+			{
+				final TestVertex s = graph.getVertexPool().getObject( random.nextInt( graph.vertices().size() ), vref );
+				if ( !s.outgoingEdges().isEmpty() )
+					graph.remove( s.outgoingEdges().get( random.nextInt( s.outgoingEdges().size() ), eref ) );
+			}
+			for ( final TestVertex v : graph.vertices() )
+				assertEquals( 0, v.edges().size() );
+		}
+	}
+
+	@Test
+	public void testListenable()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex vref = graph.vertexRef();
+		final ListenableTestVertex vref2 = graph.vertexRef();
+		final ListenableTestEdge eref = graph.edgeRef();
+		for ( int i = 0; i < 5; ++i )
+			graph.addVertex( vref ).init( i, 4 - i );
+		graph.addEdge( graph.getVertexPool().getObject( 4, vref ), graph.getVertexPool().getObject( 3, vref2 ), eref ).init();
+		graph.remove( graph.getVertexPool().getObject( 1, vref ) );
+
+		final Listener listener = new Listener();
+		graph.addGraphListener( listener );
+		graph.addGraphChangeListener( listener );
+		graph.compact( GraphCompaction.timepointOrder( graph ) );
+		assertEquals( "graph rebuilt, graph changed", listener.toString() );
+
+		final List< Integer > timepoints = new ArrayList<>();
+		for ( int i = 0; i < graph.vertices().size(); ++i )
+			timepoints.add( graph.getVertexPool().getObject( i, vref ).getTimepoint() );
+		assertEquals( "[0, 1, 2, 4]", timepoints.toString() );
+		assertEquals( 3, graph.getVertexPool().getObject( 0, vref ).outgoingEdges().get( 0, eref ).getTarget( vref2 ).getId() );
+
+		graph.addVertex( vref ).init( 5, 0 );
+		assertEquals( "graph rebuilt, graph changed, vertex added", listener.toString() );
+	}
+
+	@Test
+	public void testPropertyMaps()
+	{
+		final TestGraph graph = RandomTestGraphs.build( new TestGraph(), 100, 500, 7 );
+		final DoublePropertyMap< TestVertex > weights = new DoublePropertyMap<>( graph.getVertexPool(), Double.NaN );
+		final ObjPropertyMap< TestEdge, String > labels = new ObjPropertyMap<>( graph.getEdgePool() );
+		final IntPropertyMap< TestVertex > dropped = new IntPropertyMap<>( graph.getVertexPool(), -1 );
+		for ( final TestVertex v : graph.vertices() )
+		{
+			if ( v.getId() % 3 != 0 )
+				weights.set( v, v.getId() * 0.5 );
+			dropped.set( v, v.getId() );
+		}
+		for ( final TestEdge e : graph.edges() )
+			labels.set( e, e.getSource().getId() + "->" + e.getTarget().getId() );
+
+		graph.compact(
+				GraphCompaction.breadthFirstOrder( graph ),
+				Collections.singletonList( weights ),
+				Collections.singletonList( labels ) );
+
+		// carried-over property maps follow their objects
+		for ( final TestVertex v : graph.vertices() )
+		{
+			if ( v.getId() % 3 != 0 )
+				assertEquals( v.getId() * 0.5, weights.getDouble( v ), 0 );
+			else
+				assertFalse( weights.isSet( v ) );
+		}
+		for ( final TestEdge e : graph.edges() )
+			assertEquals( e.getSource().getId() + "->" + e.getTarget().getId(), labels.get( e ) );
+
+		// other registered property maps are cleared
+		for ( final TestVertex v : graph.vertices() )
+			assertFalse( dropped.isSet( v ) );
+	}
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testInvalidOrder()
+	{
+		final TestGraph graph = new TestGraph();
+		graph.addVertex().init( 0 );
+		graph.addVertex().init( 1 );
+		graph.compact( new int[] { 0, 0 } );
+	}
+
+	private static List< String > adjacency( final TestGraph graph )
+	{
+		final List< String > adjacency = new ArrayList<>();
+		for ( final TestVertex v : graph.vertices() )
+		{
+			final StringBuilder sb = new StringBuilder();
+			sb.append( v.getId() ).append( " out:" );
+			for ( final TestEdge e : v.outgoingEdges() )
+				sb.append( " " ).append( e.getTarget().getId() );
+			sb.append( " in:" );
+			for ( final TestEdge e : v.incomingEdges() )
+				sb.append( " " ).append( e.getSource().getId() );
+			sb.append( " degree: " ).append( v.edges().size() );
+			adjacency.add( sb.toString() );
+		}
+		Collections.sort( adjacency );
+		return adjacency;
+	}
+
+	private static class Listener implements GraphListener< ListenableTestVertex, ListenableTestEdge >, GraphChangeListener
+	{
+		private final StringJoiner log = new StringJoiner( ", " );
+
+		@Override
+		public void graphRebuilt()
+		{
+			log.add( "graph rebuilt" );
+		}
+
+		@Override
+		public void vertexAdded( final ListenableTestVertex vertex )
+		{
+			log.add( "vertex added" );
+		}
+
+		@Override
+		public void vertexRemoved( final ListenableTestVertex vertex )
+		{
+			log.add( "vertex removed" );
+		}
+
+		@Override
+		public void edgeAdded( final ListenableTestEdge edge )
+		{
+			log.add( "edge added" );
+		}
+
+		@Override
+		public void edgeRemoved( final ListenableTestEdge edge )
+		{
+			log.add( "edge removed" );
+		}
+
+		@Override
+		public void graphChanged()
+		{
+			log.add( "graph changed" );
+		}
+
+		@Override
+		public String toString()
+		{
+			return log.toString();
+		}
+	}
+}
@@ -0,0 +1,144 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.GraphListener;
+import org.mastodon.graph.ListenableTestEdge;
+import org.mastodon.graph.ListenableTestGraph;
+import org.mastodon.graph.ListenableTestVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the overhead of {@link GraphMetrics} on building and tearing down
+ * a chain of vertices in a {@link ListenableGraphImp} with two registered
+ * listeners, with metrics disabled and enabled.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@Measurement( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@State( Scope.Benchmark )
+public class GraphMetricsBenchmark
+{
+	@Param( { "100000" } )
+	private int numVertices;
+
+	@Param( { "false", "true" } )
+	private boolean metrics;
+
+	private ListenableTestGraph graph;
+
+	private static class CountingListener implements GraphListener< ListenableTestVertex, ListenableTestEdge >
+	{
+		long count;
+
+		@Override
+		public void graphRebuilt()
+		{}
+
+		@Override
+		public void vertexAdded( final ListenableTestVertex vertex )
+		{
+			++count;
+		}
+
+		@Override
+		public void vertexRemoved( final ListenableTestVertex vertex )
+		{
+			++count;
+		}
+
+		@Override
+		public void edgeAdded( final ListenableTestEdge edge )
+		{
+			++count;
+		}
+
+		@Override
+		public void edgeRemoved( final ListenableTestEdge edge )
+		{
+			++count;
+		}
+	}
+
+	@Setup( Level.Invocation )
+	public void createGraph()
+	{
+		graph = new ListenableTestGraph( numVertices );
+		graph.addGraphListener( new CountingListener() );
+		graph.addGraphListener( new CountingListener() );
+		if ( metrics )
+			graph.enableMetrics();
+	}
+
+	@Benchmark
+	public ListenableTestGraph benchmarkAddRemove()
+	{
+		final ListenableTestVertex previous = graph.vertexRef();
+		final ListenableTestVertex vertex = graph.vertexRef();
+		final ListenableTestEdge edge = graph.edgeRef();
+		graph.addVertex( previous ).init( 0, 0 );
+		for ( int i = 1; i < numVertices; ++i )
+		{
+			graph.addVertex( vertex ).init( i, i );
+			graph.addEdge( previous, vertex, edge ).init();
+			previous.refTo( vertex );
+		}
+		for ( int i = 0; i < numVertices; i += 2 )
+			graph.remove( graph.getVertexPool().getObject( i, vertex ) );
+		graph.releaseRef( previous );
+		graph.releaseRef( vertex );
+		graph.releaseRef( edge );
+		return graph;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder().include( GraphMetricsBenchmark.class.getName() ).build();
+		new Runner( options ).run();
+	}
+}
@@ -0,0 +1,246 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+import org.mastodon.graph.GraphListener;
+import org.mastodon.graph.ListenableTestEdge;
+import org.mastodon.graph.ListenableTestGraph;
+import org.mastodon.graph.ListenableTestVertex;
+
+/**
+ * Tests {@link GraphMetrics} collected by {@link ListenableGraphImp}.
+ */
+public class GraphMetricsTest
+{
+	private static class NullListener implements GraphListener< ListenableTestVertex, ListenableTestEdge >
+	{
+		@Override
+		public void graphRebuilt()
+		{}
+
+		@Override
+		public void vertexAdded( final ListenableTestVertex vertex )
+		{}
+
+		@Override
+		public void vertexRemoved( final ListenableTestVertex vertex )
+		{}
+
+		@Override
+		public void edgeAdded( final ListenableTestEdge edge )
+		{}
+
+		@Override
+		public void edgeRemoved( final ListenableTestEdge edge )
+		{}
+	}
+
+	@Test
+	public void testCounts()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		assertNull( graph.getMetrics() );
+		final GraphMetrics metrics = graph.enableMetrics();
+		assertEquals( 1, metrics.getVertexCount() );
+		assertEquals( 1, metrics.getVertexSlots() );
+
+		final NullListener listener = new NullListener();
+		graph.addGraphListener( listener );
+
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestVertex c = graph.addVertex().init( 2, 0 );
+		graph.addEdge( a, b ).init();
+		graph.addEdge( a, c ).init();
+		graph.addEdge( c, b ).init();
+		assertEquals( 2, metrics.getVerticesAdded() );
+		assertEquals( 3, metrics.getEdgesAdded() );
+
+		// appending a → c walks one edge of a; appending c → b walks one edge
+		// of b
+		assertEquals( 2, metrics.getAdjacencyHops() );
+
+		graph.getEdge( a, c );
+		assertEquals( 1, metrics.getEdgeLookups() );
+		assertEquals( 4, metrics.getAdjacencyHops() );
+
+		graph.remove( b );
+		assertEquals( 1, metrics.getVerticesRemoved() );
+		assertEquals( 2, metrics.getEdgesRemoved() );
+		assertEquals( 3, metrics.getVertexSlots() );
+		assertEquals( 1, metrics.getFreeVertexSlots() );
+		assertEquals( 3, metrics.getEdgeSlots() );
+		assertEquals( 2, metrics.getFreeEdgeSlots() );
+		assertEquals( 1, metrics.getOperationTimes().get( "removeVertex" ).getCount() );
+
+		// 2 added vertices, 3 added edges, 2 removed edges, 1 removed vertex
+		final LatencyHistogram listenerTimes = metrics.getListenerTimes( listener );
+		assertNotNull( listenerTimes );
+		assertEquals( 8, listenerTimes.getCount() );
+		assertEquals( 1, metrics.getListenerTimes().size() );
+
+		// the new vertex reuses the free slot
+		graph.disableMetrics();
+		graph.addVertex().init( 3, 0 );
+		assertEquals( 2, metrics.getVerticesAdded() );
+		assertEquals( 0, metrics.getFreeVertexSlots() );
+	}
+
+	@Test
+	public void testIndexedLookups()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final GraphMetrics metrics = graph.enableMetrics();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		graph.addEdge( a, b ).init();
+		graph.enableAdjacencyIndex();
+		graph.getEdge( a, b );
+		assertEquals( 1, metrics.getEdgeLookups() );
+		assertEquals( 1, metrics.getIndexedEdgeLookups() );
+		assertEquals( 0, metrics.getAdjacencyHops() );
+
+		metrics.reset();
+		assertEquals( 0, metrics.getEdgeLookups() );
+		assertEquals( 2, metrics.getVertexCount() );
+	}
+
+	@Test
+	public void testAdaptiveIndexedLookups()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final GraphMetrics metrics = graph.enableMetrics();
+		graph.enableAdjacencyIndex( 3 );
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestVertex c = graph.addVertex().init( 2, 0 );
+		graph.addEdge( a, b ).init();
+		graph.addEdge( a, c ).init();
+
+		// lookups do not promote sources to the index
+		graph.getEdge( a, c );
+		graph.getEdge( a, c );
+		assertEquals( 2, metrics.getEdgeLookups() );
+		assertEquals( 0, metrics.getIndexedEdgeLookups() );
+
+		// adding the third outgoing edge does
+		graph.addEdge( a, a ).init();
+		graph.getEdge( a, c );
+		assertEquals( 1, metrics.getIndexedEdgeLookups() );
+	}
+
+	@Test
+	public void testConcurrentLookups() throws InterruptedException
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final GraphMetrics metrics = graph.enableMetrics();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestVertex c = graph.addVertex().init( 2, 0 );
+		graph.addEdge( a, b ).init();
+		graph.addEdge( a, c ).init();
+		metrics.reset();
+
+		final int numThreads = 4;
+		final int numLookups = 10000;
+		final Thread[] threads = new Thread[ numThreads ];
+		for ( int t = 0; t < numThreads; ++t )
+		{
+			final ListenableTestEdge eref = graph.edgeRef();
+			threads[ t ] = new Thread( () -> {
+				for ( int i = 0; i < numLookups; ++i )
+					graph.getEdge( a, c, eref );
+			} );
+		}
+		for ( final Thread thread : threads )
+			thread.start();
+		for ( final Thread thread : threads )
+			thread.join();
+
+		// each lookup of a → c walks two edges of a
+		assertEquals( numThreads * numLookups, metrics.getEdgeLookups() );
+		assertEquals( 2L * numThreads * numLookups, metrics.getAdjacencyHops() );
+	}
+
+	@Test
+	public void testHistogram()
+	{
+		final LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals( 0, histogram.getP99Nanos() );
+		for ( int i = 1; i <= 100; ++i )
+			histogram.record( i * 10 );
+		assertEquals( 100, histogram.getCount() );
+		assertEquals( 1000, histogram.getMaxNanos() );
+		assertEquals( 505, histogram.getMeanNanos(), 0 );
+		// the median 500 is in bucket [256, 512)
+		assertEquals( 511, histogram.getMedianNanos() );
+		assertEquals( 1000, histogram.getP99Nanos() );
+	}
+
+	@Test
+	public void testMBean() throws JMException
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final GraphMetrics metrics = graph.enableMetrics();
+		graph.addGraphListener( new NullListener() );
+		graph.addVertex().init( 0, 0 );
+
+		final ObjectName name = metrics.registerMBean( "test" );
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try
+		{
+			assertEquals( 1L, server.getAttribute( name, "VerticesAdded" ) );
+			assertEquals( 1, server.getAttribute( name, "VertexCount" ) );
+			final TabularData listenerTimes = ( TabularData ) server.getAttribute( name, "ListenerTimes" );
+			assertEquals( 1, listenerTimes.size() );
+			server.invoke( name, "reset", null, null );
+			assertEquals( 0L, server.getAttribute( name, "VerticesAdded" ) );
+		}
+		finally
+		{
+			metrics.unregisterMBean();
+		}
+		assertFalse( server.isRegistered( name ) );
+		assertTrue( metrics.toString().startsWith( "GraphMetrics" ) );
+	}
+}
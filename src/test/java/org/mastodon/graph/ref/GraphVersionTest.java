@@ -0,0 +1,172 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.mastodon.collection.RefCollections;
+import org.mastodon.collection.RefList;
+import org.mastodon.collection.RefSet;
+import org.mastodon.graph.ListenableTestEdge;
+import org.mastodon.graph.ListenableTestGraph;
+import org.mastodon.graph.ListenableTestVertex;
+import org.mastodon.graph.algorithm.RootFinder;
+import org.mastodon.graph.algorithm.util.GraphVersionCache;
+
+/**
+ * Tests the structure version and vertex version stamps of
+ * {@link ListenableGraphImp}, and {@link GraphVersionCache}.
+ */
+public class GraphVersionTest
+{
+	@Test
+	public void testStructureVersion()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		long version = graph.getStructureVersion();
+		assertEquals( 0, version );
+
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		version = assertMoved( version, graph.getStructureVersion() );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		version = assertMoved( version, graph.getStructureVersion() );
+		final ListenableTestEdge ab = graph.addEdge( a, b ).init();
+		version = assertMoved( version, graph.getStructureVersion() );
+
+		// queries do not move the version
+		graph.getEdge( a, b );
+		a.outgoingEdges().size();
+		assertEquals( version, graph.getStructureVersion() );
+
+		graph.remove( ab );
+		version = assertMoved( version, graph.getStructureVersion() );
+		final RefList< ListenableTestVertex > vertices = RefCollections.createRefList( graph.vertices() );
+		vertices.add( b );
+		graph.removeAll( vertices );
+		version = assertMoved( version, graph.getStructureVersion() );
+		graph.remove( a );
+		version = assertMoved( version, graph.getStructureVersion() );
+
+		final long attributeVersion = graph.getAttributeVersion();
+		graph.pauseListeners();
+		graph.resumeListeners();
+		version = assertMoved( version, graph.getStructureVersion() );
+		assertMoved( attributeVersion, graph.getAttributeVersion() );
+	}
+
+	@Test
+	public void testVertexVersions()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestVertex c = graph.addVertex().init( 2, 0 );
+		graph.enableVertexVersions();
+
+		long va = graph.getVertexVersion( a );
+		long vb = graph.getVertexVersion( b );
+		long vc = graph.getVertexVersion( c );
+
+		final ListenableTestEdge ab = graph.addEdge( a, b ).init();
+		va = assertMoved( va, graph.getVertexVersion( a ) );
+		vb = assertMoved( vb, graph.getVertexVersion( b ) );
+		assertEquals( vc, graph.getVertexVersion( c ) );
+
+		graph.addEdge( b, c ).init();
+		assertEquals( va, graph.getVertexVersion( a ) );
+		vb = assertMoved( vb, graph.getVertexVersion( b ) );
+		vc = assertMoved( vc, graph.getVertexVersion( c ) );
+
+		graph.remove( ab );
+		va = assertMoved( va, graph.getVertexVersion( a ) );
+		vb = assertMoved( vb, graph.getVertexVersion( b ) );
+		assertEquals( vc, graph.getVertexVersion( c ) );
+
+		// removing c moves its neighbor b, and reusing the slot of c moves
+		// the version of the slot again
+		final int slot = c.getInternalPoolIndex();
+		graph.remove( c );
+		assertEquals( va, graph.getVertexVersion( a ) );
+		vb = assertMoved( vb, graph.getVertexVersion( b ) );
+		final ListenableTestVertex d = graph.addVertex().init( 3, 0 );
+		assertEquals( slot, d.getInternalPoolIndex() );
+		assertMoved( vc, graph.getVertexVersion( d ) );
+
+		graph.pauseListeners();
+		graph.resumeListeners();
+		assertMoved( va, graph.getVertexVersion( a ) );
+	}
+
+	@Test( expected = IllegalStateException.class )
+	public void testVertexVersionsNotEnabled()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		graph.getVertexVersion( graph.addVertex().init( 0, 0 ) );
+	}
+
+	@Test
+	public void testCache()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+
+		final AtomicInteger runs = new AtomicInteger();
+		final GraphVersionCache< RefSet< ListenableTestVertex > > roots = new GraphVersionCache<>( graph, false, () -> {
+			runs.incrementAndGet();
+			return RootFinder.getRoots( graph );
+		} );
+
+		final RefSet< ListenableTestVertex > r1 = roots.get();
+		assertEquals( 2, r1.size() );
+		assertSame( r1, roots.get() );
+		assertEquals( 1, runs.get() );
+
+		graph.addEdge( a, b ).init();
+		final RefSet< ListenableTestVertex > r2 = roots.get();
+		assertEquals( 1, r2.size() );
+		assertTrue( r2.contains( a ) );
+		assertEquals( 2, runs.get() );
+
+		roots.invalidate();
+		roots.get();
+		assertEquals( 3, runs.get() );
+	}
+
+	private static long assertMoved( final long before, final long after )
+	{
+		assertTrue( after > before );
+		return after;
+	}
+}
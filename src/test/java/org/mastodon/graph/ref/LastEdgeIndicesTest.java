@@ -0,0 +1,155 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RandomTestGraphs;
+
+/**
+ * Tests that the last incoming and outgoing edge indices of vertices are
+ * maintained correctly by {@link AbstractEdgePool}, and that graphs with and
+ * without these indices have identical edge orders.
+ */
+public class LastEdgeIndicesTest
+{
+	@Test
+	public void testAddEdge()
+	{
+		final TestGraph graph = new TestGraph( 10, true );
+		final TestVertex a = graph.addVertex().init( 0 );
+		final TestVertex b = graph.addVertex().init( 1 );
+		final TestVertex c = graph.addVertex().init( 2 );
+		assertLastEdgeIndices( graph );
+
+		final TestEdge ab = graph.addEdge( a, b );
+		assertEquals( ab.getInternalPoolIndex(), a.getLastOutEdgeIndex() );
+		assertEquals( ab.getInternalPoolIndex(), b.getLastInEdgeIndex() );
+		final TestEdge ac = graph.addEdge( a, c );
+		assertEquals( ac.getInternalPoolIndex(), a.getLastOutEdgeIndex() );
+		final TestEdge cb = graph.addEdge( c, b );
+		assertEquals( cb.getInternalPoolIndex(), b.getLastInEdgeIndex() );
+		final TestEdge aa = graph.addEdge( a, a );
+		assertEquals( aa.getInternalPoolIndex(), a.getLastOutEdgeIndex() );
+		assertEquals( aa.getInternalPoolIndex(), a.getLastInEdgeIndex() );
+		assertLastEdgeIndices( graph );
+	}
+
+	@Test
+	public void testInsertEdge()
+	{
+		final TestGraph graph = new TestGraph( 10, true );
+		final TestVertex a = graph.addVertex().init( 0 );
+		final TestVertex b = graph.addVertex().init( 1 );
+		graph.addEdge( a, b );
+		graph.insertEdge( a, 0, b, 0 );
+		assertLastEdgeIndices( graph );
+		final TestEdge last = graph.insertEdge( a, 2, b, 2 );
+		assertEquals( last.getInternalPoolIndex(), a.getLastOutEdgeIndex() );
+		assertEquals( last.getInternalPoolIndex(), b.getLastInEdgeIndex() );
+		graph.insertEdge( a, 1, b, 1 );
+		assertLastEdgeIndices( graph );
+	}
+
+	@Test
+	public void testRemove()
+	{
+		final TestGraph graph = new TestGraph( 10, true );
+		final TestVertex a = graph.addVertex().init( 0 );
+		final TestVertex b = graph.addVertex().init( 1 );
+		final TestVertex c = graph.addVertex().init( 2 );
+		final TestEdge ab = graph.addEdge( a, b );
+		final TestEdge ac = graph.addEdge( a, c );
+		graph.addEdge( c, b );
+		graph.addEdge( b, a );
+
+		graph.remove( ac );
+		assertEquals( ab.getInternalPoolIndex(), a.getLastOutEdgeIndex() );
+		assertLastEdgeIndices( graph );
+
+		graph.remove( ab );
+		assertEquals( -1, a.getLastOutEdgeIndex() );
+		assertLastEdgeIndices( graph );
+
+		graph.remove( c );
+		assertLastEdgeIndices( graph );
+		assertEquals( 1, b.edges().size() );
+	}
+
+	/**
+	 * Applies the same random sequence of edge additions, insertions and
+	 * removals to graphs with and without last edge indices and checks that
+	 * adjacency lists are identical. See {@link RandomTestGraphs}.
+	 */
+	@Test
+	public void testRandomEditsMatchDefaultLayout()
+	{
+		final TestGraph expected = RandomTestGraphs.build( new TestGraph( 10, false ), 20, 2000, 0 );
+		final TestGraph actual = RandomTestGraphs.build( new TestGraph( 10, true ), 20, 2000, 0 );
+		assertLastEdgeIndices( actual );
+		assertEquals( adjacency( expected ), adjacency( actual ) );
+	}
+
+	private static void assertLastEdgeIndices( final TestGraph graph )
+	{
+		final TestEdge ref = graph.edgeRef();
+		for ( final TestVertex v : graph.vertices() )
+		{
+			final int out = v.outgoingEdges().size();
+			assertEquals( out == 0 ? -1 : v.outgoingEdges().get( out - 1, ref ).getInternalPoolIndex(), v.getLastOutEdgeIndex() );
+			final int in = v.incomingEdges().size();
+			assertEquals( in == 0 ? -1 : v.incomingEdges().get( in - 1, ref ).getInternalPoolIndex(), v.getLastInEdgeIndex() );
+		}
+		graph.releaseRef( ref );
+	}
+
+	private static List< List< Integer > > adjacency( final TestGraph graph )
+	{
+		final List< List< Integer > > list = new ArrayList<>();
+		for ( final TestVertex v : graph.vertices() )
+		{
+			final List< Integer > out = new ArrayList<>();
+			for ( final TestEdge e : v.outgoingEdges() )
+				out.add( e.getInternalPoolIndex() );
+			list.add( out );
+			final List< Integer > in = new ArrayList<>();
+			for ( final TestEdge e : v.incomingEdges() )
+				in.add( e.getInternalPoolIndex() );
+			list.add( in );
+		}
+		return list;
+	}
+}
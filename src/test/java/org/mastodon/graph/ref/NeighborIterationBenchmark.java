@@ -0,0 +1,176 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.algorithm.traversal.BreadthFirstIterator;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares iterating the neighbors of all vertices of a random graph through
+ * {@link AbstractVertex#outgoingEdges()} and edge and vertex refs, with
+ * iterating them by internal pool index through
+ * {@link AbstractVertex#forEachOutTarget} and {@link AbstractVertex#firstOut()}
+ * / {@link AbstractVertex#nextOut(int)}. Also compares a breadth-first
+ * traversal of the graph with and without visiting neighbors by internal pool
+ * index. Run with the GC profiler to compare allocation rates.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@Measurement( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@State( Scope.Benchmark )
+public class NeighborIterationBenchmark
+{
+	@Param( { "10000", "100000" } )
+	private int numVertices;
+
+	@Param( { "4" } )
+	private int outDegree;
+
+	private TestGraph graph;
+
+	private TestVertex root;
+
+	@Setup
+	public void buildRandomGraph()
+	{
+		graph = new TestGraph( numVertices );
+		for ( int i = 0; i < numVertices; ++i )
+			graph.addVertex().init( i );
+		final Random random = new Random( 1l );
+		final TestVertex s = graph.vertexRef();
+		final TestVertex t = graph.vertexRef();
+		final TestEdge e = graph.edgeRef();
+		for ( int i = 0; i < numVertices; ++i )
+		{
+			graph.getVertexPool().getObject( i, s );
+			for ( int j = 0; j < outDegree; ++j )
+				graph.addEdge( s, graph.getVertexPool().getObject( random.nextInt( numVertices ), t ), e );
+		}
+		graph.releaseRef( t );
+		graph.releaseRef( e );
+		root = graph.getVertexPool().getObject( 0, s );
+	}
+
+	@Benchmark
+	public long benchmarkEdgeRefs()
+	{
+		final TestVertex ref = graph.vertexRef();
+		long sum = 0;
+		for ( final TestVertex v : graph.vertices() )
+			for ( final TestEdge e : v.outgoingEdges() )
+				sum += e.getTarget( ref ).getInternalPoolIndex();
+		graph.releaseRef( ref );
+		return sum;
+	}
+
+	@Benchmark
+	public long benchmarkForEachOutTarget()
+	{
+		final long[] sum = new long[ 1 ];
+		for ( final TestVertex v : graph.vertices() )
+			v.forEachOutTarget( t -> sum[ 0 ] += t );
+		return sum[ 0 ];
+	}
+
+	@Benchmark
+	public long benchmarkCursor()
+	{
+		long sum = 0;
+		for ( final TestVertex v : graph.vertices() )
+			for ( int e = v.firstOut(); e >= 0; e = v.nextOut( e ) )
+				sum += v.targetOf( e );
+		return sum;
+	}
+
+	@Benchmark
+	public int benchmarkBreadthFirstEdgeRefs()
+	{
+		final BreadthFirstIterator< TestVertex, TestEdge > it = new BreadthFirstIterator< TestVertex, TestEdge >( root, graph )
+		{
+			@Override
+			protected SearchDirection neighborDirection()
+			{
+				return null;
+			}
+		};
+		int n = 0;
+		while ( it.hasNext() )
+		{
+			it.next();
+			++n;
+		}
+		return n;
+	}
+
+	@Benchmark
+	public int benchmarkBreadthFirstIndices()
+	{
+		final BreadthFirstIterator< TestVertex, TestEdge > it = new BreadthFirstIterator<>( root, graph );
+		int n = 0;
+		while ( it.hasNext() )
+		{
+			it.next();
+			++n;
+		}
+		return n;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder()
+				.include( NeighborIterationBenchmark.class.getName() )
+				.addProfiler( GCProfiler.class )
+				.build();
+		new Runner( options ).run();
+	}
+}
@@ -0,0 +1,239 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.algorithm.traversal.BreadthFirstIterator;
+import org.mastodon.graph.ref.BufferMappedElementArray.MappedFactory;
+import org.mastodon.graph.ref.BufferTestGraph.BufferTestVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares graphs with array-backed pools ({@link TestGraph}) to graphs with
+ * pools backed by direct buffers and memory-mapped files
+ * ({@link BufferTestGraph}).
+ * <p>
+ * The setup prints the heap used by the graph and the GC time spent while
+ * building it. The benchmarks measure traversal speed. {@link #main} runs
+ * with the GC profiler, which reports GC time and allocation during the
+ * benchmarks.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( value = 1, jvmArgs = { "-Xmx8g" } )
+@Warmup( iterations = 3, time = 2, timeUnit = TimeUnit.SECONDS )
+@Measurement( iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS )
+@State( Scope.Benchmark )
+public class PoolBackingBenchmark
+{
+	@Param( { "4000000" } )
+	private int numVertices;
+
+	@Param( { "heap", "direct", "mapped" } )
+	private String backing;
+
+	private TestGraph heapGraph;
+
+	private TestVertex heapRoot;
+
+	private BufferTestGraph bufferGraph;
+
+	private BufferTestVertex bufferRoot;
+
+	private File vertexFile;
+
+	private File edgeFile;
+
+	private MappedFactory vertexArrays;
+
+	private MappedFactory edgeArrays;
+
+	@Setup( Level.Trial )
+	public void buildGraph() throws IOException
+	{
+		final long heapBefore = usedHeap();
+		final long gcBefore = gcTime();
+		switch ( backing )
+		{
+		case "heap":
+			heapGraph = new TestGraph( numVertices );
+			build( heapGraph, TestVertex::init );
+			heapRoot = heapGraph.getVertexPool().getObject( 0, heapGraph.vertexRef() );
+			break;
+		case "direct":
+			bufferGraph = new BufferTestGraph( numVertices );
+			build( bufferGraph, BufferTestVertex::init );
+			break;
+		case "mapped":
+			vertexFile = File.createTempFile( "vertices", ".pool" );
+			edgeFile = File.createTempFile( "edges", ".pool" );
+			vertexArrays = BufferMappedElementArray.mapped( vertexFile );
+			edgeArrays = BufferMappedElementArray.mapped( edgeFile );
+			bufferGraph = new BufferTestGraph( numVertices, vertexArrays, edgeArrays );
+			build( bufferGraph, BufferTestVertex::init );
+			break;
+		default:
+			throw new IllegalArgumentException( backing );
+		}
+		if ( bufferGraph != null )
+			bufferRoot = bufferGraph.getVertexPool().getObject( 0, bufferGraph.vertexRef() );
+		System.out.println( String.format( "%s: heap used %d MB, GC time during build %d ms",
+				backing, ( usedHeap() - heapBefore ) >> 20, gcTime() - gcBefore ) );
+	}
+
+	@TearDown( Level.Trial )
+	public void tearDown() throws IOException
+	{
+		if ( vertexArrays != null )
+		{
+			vertexArrays.close();
+			edgeArrays.close();
+			vertexFile.delete();
+			edgeFile.delete();
+		}
+	}
+
+	@Benchmark
+	public int benchmarkBreadthFirst()
+	{
+		return heapGraph != null
+				? breadthFirst( heapGraph, heapRoot )
+				: breadthFirst( bufferGraph, bufferRoot );
+	}
+
+	@Benchmark
+	public long benchmarkEdgeScan()
+	{
+		return heapGraph != null
+				? edgeScan( heapGraph, TestVertex::getId )
+				: edgeScan( bufferGraph, BufferTestVertex::getId );
+	}
+
+	/**
+	 * Builds a random tree, where each vertex has an additional outgoing edge
+	 * to a random vertex.
+	 */
+	private < V extends AbstractVertex< V, E, ?, ? >, E extends AbstractEdge< E, V, ?, ? > >
+			void build( final GraphImp< ?, ?, V, E, ? > graph, final ObjIntConsumer< V > init )
+	{
+		final V source = graph.vertexRef();
+		final V target = graph.vertexRef();
+		final E eref = graph.edgeRef();
+		for ( int i = 0; i < numVertices; i++ )
+			init.accept( graph.addVertex( target ), i );
+		final Random random = new Random( 1l );
+		for ( int i = 1; i < numVertices; i++ )
+		{
+			graph.vertexPool.getObject( random.nextInt( i ), source );
+			graph.vertexPool.getObject( i, target );
+			graph.addEdge( source, target, eref );
+			graph.vertexPool.getObject( random.nextInt( numVertices ), source );
+			graph.addEdge( target, source, eref );
+		}
+		graph.releaseRef( source );
+		graph.releaseRef( target );
+		graph.releaseRef( eref );
+	}
+
+	private static < V extends AbstractVertex< V, E, ?, ? >, E extends AbstractEdge< E, V, ?, ? > >
+			int breadthFirst( final GraphImp< ?, ?, V, E, ? > graph, final V root )
+	{
+		final BreadthFirstIterator< V, E > it = new BreadthFirstIterator<>( root, graph );
+		int count = 0;
+		while ( it.hasNext() )
+		{
+			it.next();
+			++count;
+		}
+		return count;
+	}
+
+	private static < V extends AbstractVertex< V, E, ?, ? >, E extends AbstractEdge< E, V, ?, ? > >
+			long edgeScan( final GraphImp< ?, ?, V, E, ? > graph, final ToIntFunction< V > id )
+	{
+		final V tref = graph.vertexRef();
+		long sum = 0;
+		for ( final V v : graph.vertices() )
+			for ( final E e : v.outgoingEdges() )
+				sum += id.applyAsInt( e.getTarget( tref ) );
+		graph.releaseRef( tref );
+		return sum;
+	}
+
+	private static long usedHeap()
+	{
+		System.gc();
+		final Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static long gcTime()
+	{
+		long time = 0;
+		for ( final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() )
+			time += Math.max( 0, gc.getCollectionTime() );
+		return time;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		final Options options = new OptionsBuilder()
+				.include( PoolBackingBenchmark.class.getName() )
+				.addProfiler( GCProfiler.class )
+				.build();
+		new Runner( options ).run();
+	}
+}
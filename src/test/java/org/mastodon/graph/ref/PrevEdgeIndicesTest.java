@@ -0,0 +1,182 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RandomTestGraphs;
+
+/**
+ * Tests that the previous source and target edge indices of edges are
+ * maintained correctly by {@link AbstractEdgePool}, and that graphs with and
+ * without these indices have identical edge orders.
+ */
+public class PrevEdgeIndicesTest
+{
+	@Test
+	public void testAddEdge()
+	{
+		final TestGraph graph = new TestGraph( 10, false, true );
+		final TestVertex a = graph.addVertex().init( 0 );
+		final TestVertex b = graph.addVertex().init( 1 );
+		final TestVertex c = graph.addVertex().init( 2 );
+
+		final TestEdge ab = graph.addEdge( a, b );
+		assertEquals( -1, ab.getPrevSourceEdgeIndex() );
+		assertEquals( -1, ab.getPrevTargetEdgeIndex() );
+		final TestEdge ac = graph.addEdge( a, c );
+		assertEquals( ab.getInternalPoolIndex(), ac.getPrevSourceEdgeIndex() );
+		assertEquals( -1, ac.getPrevTargetEdgeIndex() );
+		final TestEdge cb = graph.addEdge( c, b );
+		assertEquals( -1, cb.getPrevSourceEdgeIndex() );
+		assertEquals( ab.getInternalPoolIndex(), cb.getPrevTargetEdgeIndex() );
+		graph.addEdge( a, a );
+		assertPrevEdgeIndices( graph );
+	}
+
+	@Test
+	public void testInsertEdge()
+	{
+		final TestGraph graph = new TestGraph( 10, false, true );
+		final TestVertex a = graph.addVertex().init( 0 );
+		final TestVertex b = graph.addVertex().init( 1 );
+		final TestEdge e0 = graph.addEdge( a, b );
+		final TestEdge e1 = graph.insertEdge( a, 0, b, 0 );
+		assertEquals( -1, e1.getPrevSourceEdgeIndex() );
+		assertEquals( e1.getInternalPoolIndex(), e0.getPrevSourceEdgeIndex() );
+		assertEquals( e1.getInternalPoolIndex(), e0.getPrevTargetEdgeIndex() );
+		graph.insertEdge( a, 2, b, 1 );
+		graph.insertEdge( a, 1, b, 3 );
+		assertPrevEdgeIndices( graph );
+	}
+
+	@Test
+	public void testRemove()
+	{
+		final TestGraph graph = new TestGraph( 10, false, true );
+		final TestVertex a = graph.addVertex().init( 0 );
+		final TestVertex b = graph.addVertex().init( 1 );
+		final TestVertex c = graph.addVertex().init( 2 );
+		final TestEdge ab = graph.addEdge( a, b );
+		final TestEdge ac = graph.addEdge( a, c );
+		final TestEdge aa = graph.addEdge( a, a );
+		graph.addEdge( c, b );
+		graph.addEdge( b, a );
+
+		graph.remove( ac );
+		assertEquals( ab.getInternalPoolIndex(), aa.getPrevSourceEdgeIndex() );
+		assertPrevEdgeIndices( graph );
+
+		graph.remove( ab );
+		assertEquals( -1, aa.getPrevSourceEdgeIndex() );
+		assertPrevEdgeIndices( graph );
+
+		graph.remove( c );
+		assertPrevEdgeIndices( graph );
+		assertEquals( 1, b.edges().size() );
+
+		graph.remove( a );
+		assertPrevEdgeIndices( graph );
+		assertEquals( 0, b.edges().size() );
+		assertEquals( 0, graph.edges().size() );
+	}
+
+	/**
+	 * Applies the same random sequence of edge additions, insertions and
+	 * removals to graphs with and without previous edge indices and checks
+	 * that adjacency lists are identical. See {@link RandomTestGraphs}.
+	 */
+	@Test
+	public void testRandomEditsMatchDefaultLayout()
+	{
+		testRandomEditsMatchDefaultLayout( false );
+		testRandomEditsMatchDefaultLayout( true );
+	}
+
+	private static void testRandomEditsMatchDefaultLayout( final boolean lastEdgeIndices )
+	{
+		final TestGraph expected = RandomTestGraphs.build( new TestGraph( 10, false, false ), 20, 2000, 0 );
+		final TestGraph actual = RandomTestGraphs.build( new TestGraph( 10, lastEdgeIndices, true ), 20, 2000, 0 );
+		assertPrevEdgeIndices( actual );
+		assertEquals( adjacency( expected ), adjacency( actual ) );
+
+		final TestVertex s1 = expected.vertexRef();
+		final TestVertex s2 = actual.vertexRef();
+		for ( int i = 0; i < 20; i += 3 )
+		{
+			expected.remove( expected.getVertexPool().getObject( i, s1 ) );
+			actual.remove( actual.getVertexPool().getObject( i, s2 ) );
+		}
+		assertPrevEdgeIndices( actual );
+		assertEquals( adjacency( expected ), adjacency( actual ) );
+	}
+
+	private static void assertPrevEdgeIndices( final TestGraph graph )
+	{
+		for ( final TestVertex v : graph.vertices() )
+		{
+			int prev = -1;
+			for ( final TestEdge e : v.outgoingEdges() )
+			{
+				assertEquals( prev, e.getPrevSourceEdgeIndex() );
+				prev = e.getInternalPoolIndex();
+			}
+			prev = -1;
+			for ( final TestEdge e : v.incomingEdges() )
+			{
+				assertEquals( prev, e.getPrevTargetEdgeIndex() );
+				prev = e.getInternalPoolIndex();
+			}
+		}
+	}
+
+	private static List< List< Integer > > adjacency( final TestGraph graph )
+	{
+		final List< List< Integer > > list = new ArrayList<>();
+		for ( final TestVertex v : graph.vertices() )
+		{
+			final List< Integer > out = new ArrayList<>();
+			for ( final TestEdge e : v.outgoingEdges() )
+				out.add( e.getInternalPoolIndex() );
+			list.add( out );
+			final List< Integer > in = new ArrayList<>();
+			for ( final TestEdge e : v.incomingEdges() )
+				in.add( e.getInternalPoolIndex() );
+			list.add( in );
+		}
+		return list;
+	}
+}
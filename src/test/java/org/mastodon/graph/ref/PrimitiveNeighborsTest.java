@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+import org.mastodon.collection.RefCollections;
+import org.mastodon.collection.RefList;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.algorithm.traversal.BreadthFirstIterator;
+import org.mastodon.graph.algorithm.traversal.GraphSearch.SearchDirection;
+import org.mastodon.graph.algorithm.traversal.InverseDepthFirstIterator;
+import org.mastodon.graph.algorithm.traversal.UndirectedDepthFirstIterator;
+import org.mastodon.graph.io.RandomTestGraphs;
+
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Tests that iterating adjacency lists by internal pool index with
+ * {@link AbstractVertex#firstOut()}, {@link AbstractVertex#forEachOutTarget},
+ * etc. visits the same neighbors as {@link AbstractVertex#outgoingEdges()}
+ * and {@link AbstractVertex#incomingEdges()}, and that the graph iterators
+ * using it visit vertices in the same order as with edge refs.
+ */
+public class PrimitiveNeighborsTest
+{
+	@Test
+	public void testNeighbors()
+	{
+		final TestGraph graph = createRandomGraph();
+		for ( final TestVertex v : graph.vertices() )
+		{
+			final TIntArrayList expectedOut = new TIntArrayList();
+			for ( final TestEdge e : v.outgoingEdges() )
+				expectedOut.add( e.getTarget().getInternalPoolIndex() );
+			final TIntArrayList expectedIn = new TIntArrayList();
+			for ( final TestEdge e : v.incomingEdges() )
+				expectedIn.add( e.getSource().getInternalPoolIndex() );
+
+			final TIntArrayList out = new TIntArrayList();
+			for ( int e = v.firstOut(); e >= 0; e = v.nextOut( e ) )
+			{
+				assertEquals( v.getInternalPoolIndex(), v.sourceOf( e ) );
+				out.add( v.targetOf( e ) );
+			}
+			assertEquals( expectedOut, out );
+
+			final TIntArrayList in = new TIntArrayList();
+			for ( int e = v.firstIn(); e >= 0; e = v.nextIn( e ) )
+			{
+				assertEquals( v.getInternalPoolIndex(), v.targetOf( e ) );
+				in.add( v.sourceOf( e ) );
+			}
+			assertEquals( expectedIn, in );
+
+			final TIntArrayList outTargets = new TIntArrayList();
+			v.forEachOutTarget( outTargets::add );
+			assertEquals( expectedOut, outTargets );
+
+			final TIntArrayList inSources = new TIntArrayList();
+			v.forEachInSource( inSources::add );
+			assertEquals( expectedIn, inSources );
+		}
+	}
+
+	@Test
+	public void testIterators()
+	{
+		final TestGraph graph = createRandomGraph();
+		final TestVertex root = graph.getVertexPool().getObject( 0, graph.vertexRef() );
+
+		final RefList< TestVertex > expected = RefCollections.createRefList( graph.vertices() );
+		final RefList< TestVertex > actual = RefCollections.createRefList( graph.vertices() );
+
+		// Expected orders are obtained with the fast path disabled, so that
+		// the iterators visit neighbors through edge refs.
+		collect( new BreadthFirstIterator< TestVertex, TestEdge >( root, graph )
+		{
+			@Override
+			protected SearchDirection neighborDirection()
+			{
+				return null;
+			}
+		}, expected );
+		collect( new BreadthFirstIterator<>( root, graph ), actual );
+		assertEquals( expected, actual );
+
+		collect( new InverseDepthFirstIterator< TestVertex, TestEdge >( root, graph )
+		{
+			@Override
+			protected SearchDirection neighborDirection()
+			{
+				return null;
+			}
+		}, expected );
+		collect( new InverseDepthFirstIterator<>( root, graph ), actual );
+		assertEquals( expected, actual );
+
+		collect( new UndirectedDepthFirstIterator< TestVertex, TestEdge >( root, graph )
+		{
+			@Override
+			protected SearchDirection neighborDirection()
+			{
+				return null;
+			}
+		}, expected );
+		collect( new UndirectedDepthFirstIterator<>( root, graph ), actual );
+		assertEquals( expected, actual );
+	}
+
+	private static void collect( final Iterator< TestVertex > iterator, final RefList< TestVertex > list )
+	{
+		list.clear();
+		while ( iterator.hasNext() )
+			list.add( iterator.next() );
+	}
+
+	private static TestGraph createRandomGraph()
+	{
+		return RandomTestGraphs.build( new TestGraph(), 50, 150, 0 );
+	}
+}
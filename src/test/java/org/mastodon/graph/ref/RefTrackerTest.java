@@ -0,0 +1,122 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+
+/**
+ * Tests {@link RefTracker} on a {@link GraphImp}.
+ */
+public class RefTrackerTest
+{
+	@Test
+	public void testLeaks()
+	{
+		final TestGraph graph = new TestGraph();
+		assertNull( graph.getRefTracker() );
+		final RefTracker tracker = graph.enableRefTracking();
+
+		for ( int i = 0; i < 3; ++i )
+			graph.releaseRef( graph.vertexRef() );
+		final TestVertex leaked = leakVertexRef( graph );
+		leakVertexRef( graph );
+		final TestEdge e1 = graph.edgeRef();
+		final TestEdge e2 = graph.edgeRef();
+		graph.releaseRef( e1 );
+		graph.releaseRef( e2 );
+
+		// 1 vertex ref created, and reused 3 times, the last time for the
+		// first leak, and 1 more created for the second leak
+		assertEquals( 2, tracker.getCreatedVertexRefs() );
+		assertEquals( 3, tracker.getReusedVertexRefs() );
+		assertEquals( 2, tracker.getCreatedEdgeRefs() );
+		assertEquals( 0, tracker.getReusedEdgeRefs() );
+		assertEquals( 2, tracker.getOutstanding() );
+		// the two leaked vertex refs and the two edge refs
+		assertEquals( 4, tracker.getPeakOutstanding() );
+
+		final List< RefTracker.CallSite > leaks = tracker.getLeaks();
+		assertEquals( 1, leaks.size() );
+		final RefTracker.CallSite site = leaks.get( 0 );
+		assertTrue( site.isVertex() );
+		assertTrue( site.getLocation(), site.getLocation().contains( "leakVertexRef" ) );
+		assertEquals( 2, site.getAcquired() );
+		assertEquals( 2, site.getOutstanding() );
+		assertTrue( tracker.toString().contains( "leakVertexRef" ) );
+
+		// 4 call sites: the loop, leakVertexRef, and the two edge refs
+		assertEquals( 4, tracker.getCallSites().size() );
+
+		graph.releaseRef( leaked );
+		assertEquals( 1, tracker.getOutstanding() );
+		assertEquals( 1, tracker.getLeaks().get( 0 ).getOutstanding() );
+		assertEquals( 2, tracker.getLeaks().get( 0 ).getPeakOutstanding() );
+	}
+
+	@Test
+	public void testReleaseErrors()
+	{
+		final TestGraph graph = new TestGraph();
+		final TestVertex untracked = graph.vertexRef();
+		final RefTracker tracker = graph.enableRefTracking();
+		final TestVertex v = graph.vertexRef();
+		graph.releaseRef( v );
+		graph.releaseRef( v );
+		assertEquals( 1, tracker.getDoubleReleases() );
+
+		graph.releaseRef( untracked );
+		assertEquals( 1, tracker.getUntrackedReleases() );
+
+		// refs created by addVertex() are tracked
+		graph.addVertex();
+		assertEquals( 1, tracker.getLeaks().size() );
+
+		tracker.reset();
+		assertEquals( 0, tracker.getDoubleReleases() );
+		assertTrue( tracker.getCallSites().isEmpty() );
+
+		graph.disableRefTracking();
+		graph.vertexRef();
+		assertTrue( tracker.getCallSites().isEmpty() );
+	}
+
+	private static TestVertex leakVertexRef( final TestGraph graph )
+	{
+		return graph.vertexRef();
+	}
+}
@@ -0,0 +1,233 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.mastodon.collection.RefCollections;
+import org.mastodon.collection.RefList;
+import org.mastodon.graph.GraphListener;
+import org.mastodon.graph.ListenableTestEdge;
+import org.mastodon.graph.ListenableTestGraph;
+import org.mastodon.graph.ListenableTestVertex;
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.mastodon.graph.io.RandomTestGraphs;
+
+/**
+ * Tests that {@link GraphImp#removeAll} and {@link GraphImp#removeAllEdges}
+ * leave the same adjacency lists as removing vertices and edges one by one.
+ */
+public class RemoveAllTest
+{
+	private static final int NUM_VERTICES = 50;
+
+	@Test
+	public void testRemoveAll()
+	{
+		for ( int layout = 0; layout < 8; ++layout )
+		{
+			final boolean lastEdgeIndices = ( layout & 1 ) != 0;
+			final boolean prevEdgeIndices = ( layout & 2 ) != 0;
+			final boolean degrees = ( layout & 4 ) != 0;
+			final TestGraph expected = randomGraph( lastEdgeIndices, prevEdgeIndices, degrees );
+			final TestGraph actual = randomGraph( lastEdgeIndices, prevEdgeIndices, degrees );
+			actual.enableAdjacencyIndex();
+
+			final RefList< TestVertex > vertices = RefCollections.createRefList( actual.vertices() );
+			final TestVertex ref = expected.vertexRef();
+			for ( int i = 0; i < NUM_VERTICES; i += 3 )
+			{
+				expected.remove( expected.getVertexPool().getObject( i, ref ) );
+				vertices.add( actual.getVertexPool().getObject( i, vertices.createRef() ) );
+			}
+			actual.removeAll( vertices );
+			assertEquals( adjacency( expected, prevEdgeIndices ), adjacency( actual, prevEdgeIndices ) );
+			assertEquals( expected.vertices().size(), actual.vertices().size() );
+			assertEquals( expected.edges().size(), actual.edges().size() );
+			assertSameLookups( expected, actual );
+		}
+	}
+
+	@Test
+	public void testRemoveAllEdges()
+	{
+		for ( int layout = 0; layout < 8; ++layout )
+		{
+			final boolean lastEdgeIndices = ( layout & 1 ) != 0;
+			final boolean prevEdgeIndices = ( layout & 2 ) != 0;
+			final boolean degrees = ( layout & 4 ) != 0;
+			final TestGraph expected = randomGraph( lastEdgeIndices, prevEdgeIndices, degrees );
+			final TestGraph actual = randomGraph( lastEdgeIndices, prevEdgeIndices, degrees );
+			actual.enableAdjacencyIndex();
+
+			final RefList< TestEdge > edges = RefCollections.createRefList( actual.edges() );
+			final TestEdge ref = expected.edgeRef();
+			for ( int i = 0; i < expected.edges().size() * 3; i += 5 )
+			{
+				expected.remove( expected.getEdgePool().getObject( i / 3, ref ) );
+				edges.add( actual.getEdgePool().getObject( i / 3, edges.createRef() ) );
+			}
+			actual.removeAllEdges( edges );
+			assertEquals( adjacency( expected, prevEdgeIndices ), adjacency( actual, prevEdgeIndices ) );
+			assertEquals( expected.edges().size(), actual.edges().size() );
+			assertSameLookups( expected, actual );
+
+			// new edges are appended correctly after relinking
+			final TestVertex s = actual.getVertexPool().getObject( 0, actual.vertexRef() );
+			final TestVertex t = actual.getVertexPool().getObject( 1, actual.vertexRef() );
+			final TestVertex s2 = expected.getVertexPool().getObject( 0, expected.vertexRef() );
+			final TestVertex t2 = expected.getVertexPool().getObject( 1, expected.vertexRef() );
+			actual.addEdge( s, t );
+			expected.addEdge( s2, t2 );
+			assertEquals( adjacency( expected, prevEdgeIndices ), adjacency( actual, prevEdgeIndices ) );
+		}
+	}
+
+	@Test
+	public void testEvents()
+	{
+		final ListenableTestGraph graph = new ListenableTestGraph();
+		final ListenableTestVertex a = graph.addVertex().init( 0, 0 );
+		final ListenableTestVertex b = graph.addVertex().init( 1, 0 );
+		final ListenableTestVertex c = graph.addVertex().init( 2, 0 );
+		graph.addEdge( a, b ).init();
+		graph.addEdge( b, c ).init();
+		graph.addEdge( c, a ).init();
+		graph.addEdge( b, b ).init();
+
+		final List< String > events = new ArrayList<>();
+		graph.addGraphListener( new GraphListener< ListenableTestVertex, ListenableTestEdge >()
+		{
+			@Override
+			public void graphRebuilt()
+			{
+				events.add( "rebuilt" );
+			}
+
+			@Override
+			public void vertexAdded( final ListenableTestVertex vertex )
+			{}
+
+			@Override
+			public void vertexRemoved( final ListenableTestVertex vertex )
+			{
+				events.add( "v" + vertex.getId() );
+			}
+
+			@Override
+			public void edgeAdded( final ListenableTestEdge edge )
+			{}
+
+			@Override
+			public void edgeRemoved( final ListenableTestEdge edge )
+			{
+				events.add( "e" + edge.getSource().getId() + edge.getTarget().getId() );
+			}
+		} );
+
+		final RefList< ListenableTestVertex > vertices = RefCollections.createRefList( graph.vertices() );
+		vertices.add( a );
+		vertices.add( b );
+		graph.removeAll( vertices );
+		assertEquals( "[e01, e12, e20, e11, v0, v1]", events.toString() );
+		assertEquals( 1, graph.vertices().size() );
+		assertEquals( 0, graph.edges().size() );
+		assertEquals( 0, c.edges().size() );
+	}
+
+	private static TestGraph randomGraph( final boolean lastEdgeIndices, final boolean prevEdgeIndices, final boolean degrees )
+	{
+		return RandomTestGraphs.build( new TestGraph( 10, lastEdgeIndices, prevEdgeIndices, degrees ), NUM_VERTICES, 500, 0 );
+	}
+
+	/**
+	 * Lists the ids of the targets of outgoing edges, and the sources of
+	 * incoming edges, of all vertices, in adjacency list order. Also checks
+	 * the previous edge indices, if the graph has them.
+	 */
+	private static List< String > adjacency( final TestGraph graph, final boolean prevEdgeIndices )
+	{
+		final List< String > adjacency = new ArrayList<>();
+		final TestVertex ref = graph.vertexRef();
+		for ( final TestVertex v : graph.vertices() )
+		{
+			final StringBuilder sb = new StringBuilder();
+			sb.append( v.getId() ).append( " out" );
+			int prev = -1;
+			for ( final TestEdge e : v.outgoingEdges() )
+			{
+				sb.append( ' ' ).append( e.getTarget( ref ).getId() );
+				if ( prevEdgeIndices )
+					assertEquals( prev, e.getPrevSourceEdgeIndex() );
+				prev = e.getInternalPoolIndex();
+			}
+			sb.append( " in" );
+			prev = -1;
+			for ( final TestEdge e : v.incomingEdges() )
+			{
+				sb.append( ' ' ).append( e.getSource( ref ).getId() );
+				if ( prevEdgeIndices )
+					assertEquals( prev, e.getPrevTargetEdgeIndex() );
+				prev = e.getInternalPoolIndex();
+			}
+			adjacency.add( sb.toString() );
+		}
+		graph.releaseRef( ref );
+		return adjacency;
+	}
+
+	private static void assertSameLookups( final TestGraph expected, final TestGraph actual )
+	{
+		final TestVertex s1 = expected.vertexRef();
+		final TestVertex t1 = expected.vertexRef();
+		final TestVertex s2 = actual.vertexRef();
+		final TestVertex t2 = actual.vertexRef();
+		for ( int si = 0; si < NUM_VERTICES; ++si )
+		{
+			if ( expected.getVertexPool().getObjectIfExists( si, s1 ) == null )
+				continue;
+			actual.getVertexPool().getObject( si, s2 );
+			for ( int ti = 0; ti < NUM_VERTICES; ++ti )
+			{
+				if ( expected.getVertexPool().getObjectIfExists( ti, t1 ) == null )
+					continue;
+				actual.getVertexPool().getObject( ti, t2 );
+				final TestEdge e1 = expected.getEdge( s1, t1 );
+				final TestEdge e2 = actual.getEdge( s2, t2 );
+				assertEquals( e1 == null ? -1 : e1.getInternalPoolIndex(), e2 == null ? -1 : e2.getInternalPoolIndex() );
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*-
+ * #%L
+ * Mastodon Graphs
+ * %%
+ * Copyright (C) 2015 - 2025 Tobias Pietzsch, Jean-Yves Tinevez
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+package org.mastodon.graph.ref;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mastodon.graph.TestEdge;
+import org.mastodon.graph.TestGraph;
+import org.mastodon.graph.TestVertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the time to remove all edges of star graphs (one hub vertex with
+ * outgoing edges to all other vertices, and one sink vertex with incoming
+ * edges from all other vertices) with and without
+ * {@link AbstractEdgePool.AbstractEdgeLayout#hasPrevEdgeIndices() previous
+ * edge indices}. Edges are removed from the middle of the adjacency lists of
+ * the hub and sink, and by removing the hub vertex.
+ * <p>
+ * The memory cost of the previous edge indices is printed by {@link #main}.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Fork( 1 )
+@Warmup( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@Measurement( iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS )
+@State( Scope.Benchmark )
+public class RemoveEdgeBenchmark
+{
+	@Param( { "100", "1000", "10000" } )
+	private int fanOut;
+
+	@Param( { "false", "true" } )
+	private boolean prevEdgeIndices;
+
+	private TestGraph graph;
+
+	private TestVertex hub;
+
+	private TestVertex sink;
+
+	@Setup( Level.Invocation )
+	public void buildStarGraph()
+	{
+		graph = new TestGraph( fanOut + 2, true, prevEdgeIndices );
+		hub = graph.addVertex().init( 0 );
+		sink = graph.addVertex().init( 1 );
+		final TestVertex leaf = graph.vertexRef();
+		final TestEdge eref = graph.edgeRef();
+		for ( int i = 0; i < fanOut; i++ )
+		{
+			graph.addVertex( leaf ).init( i + 2 );
+			graph.addEdge( hub, leaf, eref );
+			graph.addEdge( leaf, sink, eref );
+		}
+		graph.releaseRef( leaf );
+		graph.releaseRef( eref );
+	}
+
+	@Benchmark
+	public TestGraph benchmarkRemoveEdgesFromMiddle()
+	{
+		final TestEdge eref = graph.edgeRef();
+		for ( int n = fanOut; n > 0; --n )
+		{
+			graph.remove( hub.outgoingEdges().get( n / 2, eref ) );
+			graph.remove( sink.incomingEdges().get( 0, eref ) );
+		}
+		graph.releaseRef( eref );
+		return graph;
+	}
+
+	@Benchmark
+	public TestGraph benchmarkRemoveHub()
+	{
+		graph.remove( hub );
+		return graph;
+	}
+
+	public static void main( final String... args ) throws RunnerException
+	{
+		System.out.println( "Edge size without previous edge indices: "
+				+ new AbstractEdgePool.AbstractEdgeLayout( false ).getSizeInBytes() + " bytes" );
+		System.out.println( "Edge size with previous edge indices:    "
+				+ new AbstractEdgePool.AbstractEdgeLayout( true ).getSizeInBytes() + " bytes" );
+		final Options options = new OptionsBuilder().include( RemoveEdgeBenchmark.class.getName() ).build();
+		new Runner( options ).run();
+	}
+}